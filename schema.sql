@@ -111,6 +111,7 @@ CREATE TABLE public.passenger_counts_aggregation (
     day_of_week integer NOT NULL,
     hour integer NOT NULL,
     minute integer NOT NULL,
+    occupancy_histogram bytea,
     stop_id bigint NOT NULL,
     CONSTRAINT passenger_counts_aggregation_day_of_week_check CHECK (((day_of_week >= 1) AND (day_of_week <= 7))),
     CONSTRAINT passenger_counts_aggregation_hour_check CHECK (((hour >= 0) AND (hour <= 23))),
@@ -670,6 +671,163 @@ ALTER TABLE ONLY public.bot_user_notifications
     ADD CONSTRAINT fk_bot_user_notifications_settings FOREIGN KEY (settings_id) REFERENCES public.bot_user_settings(id);
 
 
+--
+-- Name: stop_hourly_rollup; Type: TABLE; Schema: public; Owner: rashit
+--
+
+CREATE TABLE public.stop_hourly_rollup (
+    id bigint NOT NULL,
+    stop_id bigint NOT NULL,
+    rollup_date date NOT NULL,
+    hour integer NOT NULL,
+    entered bigint NOT NULL,
+    exited bigint NOT NULL,
+    samples bigint NOT NULL,
+    max_load bigint NOT NULL,
+    CONSTRAINT stop_hourly_rollup_hour_check CHECK (((hour >= 0) AND (hour <= 23)))
+);
+
+
+ALTER TABLE public.stop_hourly_rollup OWNER TO rashit;
+
+--
+-- Name: stop_hourly_rollup_id_seq; Type: SEQUENCE; Schema: public; Owner: rashit
+--
+
+ALTER TABLE public.stop_hourly_rollup ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY (
+    SEQUENCE NAME public.stop_hourly_rollup_id_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1
+);
+
+
+--
+-- Name: rollup_watermarks; Type: TABLE; Schema: public; Owner: rashit
+--
+
+CREATE TABLE public.rollup_watermarks (
+    name character varying(64) NOT NULL,
+    last_passenger_count_id bigint NOT NULL
+);
+
+
+ALTER TABLE public.rollup_watermarks OWNER TO rashit;
+
+--
+-- Name: file_blobs; Type: TABLE; Schema: public; Owner: rashit
+--
+
+CREATE TABLE public.file_blobs (
+    file_name character varying(80) NOT NULL,
+    size bigint NOT NULL,
+    ref_count integer NOT NULL
+);
+
+
+ALTER TABLE public.file_blobs OWNER TO rashit;
+
+--
+-- Name: occupancy_estimates; Type: TABLE; Schema: public; Owner: rashit
+--
+
+CREATE TABLE public.occupancy_estimates (
+    id bigint NOT NULL,
+    stop_id bigint NOT NULL,
+    day_of_week integer NOT NULL,
+    hour integer NOT NULL,
+    minute integer NOT NULL,
+    mean double precision NOT NULL,
+    variance double precision NOT NULL,
+    weight double precision NOT NULL,
+    observed_at timestamp(6) without time zone NOT NULL,
+    CONSTRAINT occupancy_estimates_day_of_week_check CHECK (((day_of_week >= 1) AND (day_of_week <= 7))),
+    CONSTRAINT occupancy_estimates_hour_check CHECK (((hour >= 0) AND (hour <= 23))),
+    CONSTRAINT occupancy_estimates_minute_check CHECK (((minute >= 0) AND (minute <= 55)))
+);
+
+
+ALTER TABLE public.occupancy_estimates OWNER TO rashit;
+
+--
+-- Name: occupancy_estimates_id_seq; Type: SEQUENCE; Schema: public; Owner: rashit
+--
+
+ALTER TABLE public.occupancy_estimates ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY (
+    SEQUENCE NAME public.occupancy_estimates_id_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1
+);
+
+--
+-- Name: stop_hourly_rollup stop_hourly_rollup_pkey; Type: CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.stop_hourly_rollup
+    ADD CONSTRAINT stop_hourly_rollup_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: stop_hourly_rollup uk_stop_hourly_rollup_bucket; Type: CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.stop_hourly_rollup
+    ADD CONSTRAINT uk_stop_hourly_rollup_bucket UNIQUE (stop_id, rollup_date, hour);
+
+
+--
+-- Name: rollup_watermarks rollup_watermarks_pkey; Type: CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.rollup_watermarks
+    ADD CONSTRAINT rollup_watermarks_pkey PRIMARY KEY (name);
+
+
+--
+-- Name: file_blobs file_blobs_pkey; Type: CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.file_blobs
+    ADD CONSTRAINT file_blobs_pkey PRIMARY KEY (file_name);
+
+
+--
+-- Name: occupancy_estimates occupancy_estimates_pkey; Type: CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.occupancy_estimates
+    ADD CONSTRAINT occupancy_estimates_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: occupancy_estimates uk_occupancy_estimates_slot; Type: CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.occupancy_estimates
+    ADD CONSTRAINT uk_occupancy_estimates_slot UNIQUE (stop_id, day_of_week, hour, minute);
+
+
+--
+-- Name: stop_hourly_rollup fk_stop_hourly_rollup_stop; Type: FK CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.stop_hourly_rollup
+    ADD CONSTRAINT fk_stop_hourly_rollup_stop FOREIGN KEY (stop_id) REFERENCES public.stops(id);
+
+
+--
+-- Name: occupancy_estimates fk_occupancy_estimates_stop; Type: FK CONSTRAINT; Schema: public; Owner: rashit
+--
+
+ALTER TABLE ONLY public.occupancy_estimates
+    ADD CONSTRAINT fk_occupancy_estimates_stop FOREIGN KEY (stop_id) REFERENCES public.stops(id);
+
+
 -- Completed on 2025-11-01 01:17:44
 
 --
@@ -0,0 +1,43 @@
+package io.github.ryamal4.passengerflow.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.ryamal4.passengerflow.jwt.UserDetailsServiceImpl;
+import io.github.ryamal4.passengerflow.service.analytics.TopTrafficService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    // Users get their own short TTL instead of the 6h default spec so changes made directly in the database,
+    // bypassing UserServiceImpl's eviction, still reach the security filter quickly.
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> userDetailsCacheCustomizer(
+            @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${security.user-cache.max-size:10000}") long maxSize) {
+        return cacheManager -> cacheManager.registerCustomCache(UserDetailsServiceImpl.USER_DETAILS_CACHE,
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                        .recordStats()
+                        .build());
+    }
+
+    // The rollup event only evicts on the node that ran the refresh, so other nodes let top traffic entries expire
+    // after one refresh interval and serve results at most one refresh behind.
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> topTrafficCacheCustomizer(
+            @Value("${rollup.refresh-interval-ms:60000}") long refreshIntervalMs) {
+        return cacheManager -> cacheManager.registerCustomCache(TopTrafficService.TOP_TRAFFIC_CACHE,
+                Caffeine.newBuilder()
+                        .maximumSize(1000)
+                        .expireAfterWrite(Duration.ofMillis(refreshIntervalMs))
+                        .recordStats()
+                        .build());
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.ryamal4.passengerflow.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Slf4j
+public class ReplicaLagMonitor {
+    // Zero when the replica has replayed everything it received, so an idle primary does not look like lag.
+    // On a server that is not a standby both LSN functions return NULL and the lag is reported as zero.
+    static final String REPLICA_LAG_SQL = """
+            SELECT CASE
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END
+            """;
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMillis;
+    private volatile boolean replicaUsable;
+    private volatile double lagMillis = Double.NaN;
+
+    public ReplicaLagMonitor(JdbcTemplate replicaJdbcTemplate, MeterRegistry meterRegistry, long maxLagMillis) {
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.maxLagMillis = maxLagMillis;
+
+        Gauge.builder("passengerflow.datasource.replica.lag", this, monitor -> monitor.lagMillis / 1000.0)
+                .description("Replication lag of the read replica")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("passengerflow.datasource.replica.usable", this, monitor -> monitor.replicaUsable ? 1 : 0)
+                .description("Whether read-only transactions are currently routed to the replica")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        try {
+            var lag = replicaJdbcTemplate.queryForObject(REPLICA_LAG_SQL, Double.class);
+            lagMillis = lag != null ? lag : 0;
+            var usable = lagMillis <= maxLagMillis;
+            if (usable != replicaUsable) {
+                log.info("Read replica lag is {} ms, routing read-only transactions to {}",
+                        Math.round(lagMillis), usable ? "replica" : "primary");
+            }
+            replicaUsable = usable;
+        } catch (DataAccessException e) {
+            markUnusable(e);
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public void markUnusable(Exception cause) {
+        if (replicaUsable) {
+            log.warn("Read replica unavailable, routing read-only transactions to primary: {}", cause.getMessage());
+        }
+        replicaUsable = false;
+        lagMillis = Double.NaN;
+    }
+}
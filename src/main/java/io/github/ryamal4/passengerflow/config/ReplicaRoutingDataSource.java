@@ -0,0 +1,47 @@
+package io.github.ryamal4.passengerflow.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+class ReplicaRoutingDataSource extends AbstractDataSource {
+    private final DataSource primaryDataSource;
+    private final DataSource replicaDataSource;
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    ReplicaRoutingDataSource(DataSource primaryDataSource, DataSource replicaDataSource,
+                             ReplicaLagMonitor replicaLagMonitor) {
+        this.primaryDataSource = primaryDataSource;
+        this.replicaDataSource = replicaDataSource;
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!replicaLagMonitor.isReplicaUsable()) {
+            return source.open(primaryDataSource);
+        }
+        try {
+            return source.open(replicaDataSource);
+        } catch (SQLException e) {
+            replicaLagMonitor.markUnusable(e);
+            return source.open(primaryDataSource);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+}
@@ -1,14 +1,35 @@
 package io.github.ryamal4.passengerflow.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class RestClientConfig {
 
     @Bean
-    public RestClient restClient() {
-        return RestClient.create();
+    public RestClient restClient(
+            Environment environment,
+            @Value("${http.client.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${http.client.read-timeout-ms:10000}") long readTimeoutMs) {
+        var httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        if (Threading.VIRTUAL.isActive(environment)) {
+            httpClient.executor(new VirtualThreadTaskExecutor("http-client-"));
+        }
+
+        var requestFactory = new JdkClientHttpRequestFactory(httpClient.build());
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package io.github.ryamal4.passengerflow.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// The datagen profile only loads synthetic data, so the jobs and the replica lag check stay off there.
+@Configuration
+@EnableScheduling
+@Profile("!datagen")
+public class SchedulingConfig {
+}
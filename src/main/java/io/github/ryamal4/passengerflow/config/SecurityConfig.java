@@ -3,6 +3,7 @@ package io.github.ryamal4.passengerflow.config;
 import io.github.ryamal4.passengerflow.jwt.JwtAuthEntryPoint;
 import io.github.ryamal4.passengerflow.jwt.JwtAuthFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -40,6 +41,8 @@ public class SecurityConfig {
     };
     private final JwtAuthFilter jwtAuthFilter;
     private final JwtAuthEntryPoint jwtAuthEntryPoint;
+    @Value("${management.server.port:-1}")
+    private int managementPort;
 
     @Bean
     static PasswordEncoder passwordEncoder() {
@@ -66,6 +69,9 @@ public class SecurityConfig {
         }));
         http.authorizeHttpRequests(authorize -> {
             authorize.requestMatchers(ALLOWED_URLS).permitAll();
+            // Actuator endpoints are only served on the management port, which is not published to clients.
+            authorize.requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort)
+                    .permitAll();
             authorize.requestMatchers("/api/auth/login")
                     .permitAll();
             authorize.requestMatchers("/api/auth/refresh")
@@ -1,12 +1,16 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildStatus;
 import io.github.ryamal4.passengerflow.service.aggregation.IPassengerCountAggregationService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
 import java.time.DayOfWeek;
 
 @RestController
@@ -23,4 +27,18 @@ public class AggregationController {
         aggregationService.performAggregation(DayOfWeek.of(dayOfWeek));
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AggregationRebuildStatus> startRebuild() {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/aggregation/rebuild"))
+                .body(aggregationService.startRebuild());
+    }
+
+    @GetMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AggregationRebuildStatus> getRebuildStatus() {
+        return ResponseEntity.ok(aggregationService.getRebuildStatus());
+    }
 }
@@ -0,0 +1,67 @@
+package io.github.ryamal4.passengerflow.controller;
+
+import io.github.ryamal4.passengerflow.dto.StopTrafficDTO;
+import io.github.ryamal4.passengerflow.dto.TopRouteDTO;
+import io.github.ryamal4.passengerflow.dto.TopStopDTO;
+import io.github.ryamal4.passengerflow.enums.TrafficGranularity;
+import io.github.ryamal4.passengerflow.enums.TrafficMetric;
+import io.github.ryamal4.passengerflow.service.analytics.IStopTrafficService;
+import io.github.ryamal4.passengerflow.service.analytics.ITopTrafficService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+    private final IStopTrafficService stopTrafficService;
+    private final ITopTrafficService topTrafficService;
+
+    public AnalyticsController(IStopTrafficService stopTrafficService, ITopTrafficService topTrafficService) {
+        this.stopTrafficService = stopTrafficService;
+        this.topTrafficService = topTrafficService;
+    }
+
+    @GetMapping("/top-stops")
+    public ResponseEntity<List<TopStopDTO>> getTopStops(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer dayOfWeek,
+            @RequestParam(required = false) Integer hour,
+            @RequestParam(defaultValue = "MAX_LOAD") TrafficMetric metric,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(topTrafficService.getTopStops(from, to, dayOfWeek, hour, metric, limit));
+    }
+
+    @GetMapping("/top-routes")
+    public ResponseEntity<List<TopRouteDTO>> getTopRoutes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer dayOfWeek,
+            @RequestParam(required = false) Integer hour,
+            @RequestParam(defaultValue = "MAX_LOAD") TrafficMetric metric,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(topTrafficService.getTopRoutes(from, to, dayOfWeek, hour, metric, limit));
+    }
+
+    @GetMapping("/stops/{stopId}/traffic")
+    public ResponseEntity<List<StopTrafficDTO>> getStopTraffic(
+            @PathVariable Long stopId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") TrafficGranularity granularity) {
+        return ResponseEntity.ok(stopTrafficService.getStopTraffic(stopId, from, to, granularity));
+    }
+
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Integer> rebuildRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(stopTrafficService.rebuildRollup(from, to));
+    }
+}
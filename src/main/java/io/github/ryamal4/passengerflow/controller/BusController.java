@@ -1,25 +1,31 @@
 package io.github.ryamal4.passengerflow.controller;
 
-import io.github.ryamal4.passengerflow.dto.BusDTO;
+import io.github.ryamal4.passengerflow.enums.CatalogLayout;
 import io.github.ryamal4.passengerflow.service.bus.IBusService;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/buses")
 public class BusController {
     private final IBusService busService;
+    private final IReferenceDataRegistry referenceDataRegistry;
 
-    public BusController(IBusService busService) {
+    public BusController(IBusService busService, IReferenceDataRegistry referenceDataRegistry) {
         this.busService = busService;
+        this.referenceDataRegistry = referenceDataRegistry;
     }
 
     @GetMapping
-    public ResponseEntity<List<BusDTO>> getAllBuses() {
-        return ResponseEntity.ok(busService.getAllBuses());
+    public ResponseEntity<?> getAllBuses(@RequestParam(defaultValue = "ROWS") CatalogLayout layout,
+                                         WebRequest request) {
+        return CatalogResponses.conditional(request, referenceDataRegistry.current(), "buses", layout,
+                catalog -> layout == CatalogLayout.COLUMNAR
+                        ? busService.getAllBusesColumnar(catalog) : busService.getAllBuses(catalog));
     }
 }
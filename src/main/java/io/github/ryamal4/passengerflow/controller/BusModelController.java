@@ -3,8 +3,10 @@ package io.github.ryamal4.passengerflow.controller;
 import io.github.ryamal4.passengerflow.dto.CsvImportResult;
 import io.github.ryamal4.passengerflow.dto.UploadResponse;
 import io.github.ryamal4.passengerflow.service.busmodel.BusModelService;
+import io.github.ryamal4.passengerflow.service.busmodel.IBusModelService.FileReplacement;
 import io.github.ryamal4.passengerflow.service.csv.ICsvImportService;
 import io.github.ryamal4.passengerflow.service.file.FileService;
+import io.github.ryamal4.passengerflow.service.file.ImageDerivativeService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +21,7 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class BusModelController {
     private final FileService fileService;
+    private final ImageDerivativeService imageDerivativeService;
     private final BusModelService busModelService;
     private final ICsvImportService csvImportService;
 
@@ -28,12 +31,21 @@ public class BusModelController {
             @PathVariable Long id,
             @RequestParam("file") MultipartFile file) {
         try {
-            var busModel = busModelService.findById(id);
+            busModelService.findById(id);
             var fileName = fileService.storeFile(file);
 
-            busModel.setFileName(fileName);
-            var updated = busModelService.update(busModel);
-            var dto = busModelService.convertToDTO(updated);
+            FileReplacement replacement;
+            try {
+                replacement = busModelService.replaceFile(id, fileName);
+            } catch (RuntimeException e) {
+                fileService.deleteFile(fileName);
+                throw e;
+            }
+            if (replacement.previousFileName() != null) {
+                fileService.deleteFile(replacement.previousFileName());
+            }
+            imageDerivativeService.scheduleAll(fileName);
+            var dto = busModelService.convertToDTO(replacement.model());
 
             var response = new UploadResponse(
                     true,
@@ -0,0 +1,32 @@
+package io.github.ryamal4.passengerflow.controller;
+
+import io.github.ryamal4.passengerflow.enums.CatalogLayout;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+final class CatalogResponses {
+    // Clients may keep the catalog but must revalidate; an unchanged catalog then costs a bodiless 304.
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private CatalogResponses() {
+    }
+
+    // The ETag comes from the content fingerprint rather than the version counter so it survives restarts and
+    // matches across instances; the layout is part of it because each layout is a different representation.
+    // The body is rendered from the same snapshot, so a reload in between cannot pair an old ETag with new content.
+    static <T> ResponseEntity<T> conditional(WebRequest request, ReferenceDataSnapshot catalog, String resource,
+                                             CatalogLayout layout, Function<ReferenceDataSnapshot, T> body) {
+        var etag = "\"" + resource + "-" + catalog.getFingerprint() + "-" + layout.name().toLowerCase(Locale.ROOT) + "\"";
+        if (request.checkNotModified(etag, catalog.getLastModified().toEpochMilli())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CACHE_CONTROL)
+                .body(body.apply(catalog));
+    }
+}
@@ -1,52 +1,177 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import io.github.ryamal4.passengerflow.enums.ImageSize;
+import io.github.ryamal4.passengerflow.service.file.FileService;
+import io.github.ryamal4.passengerflow.service.file.ImageDerivativeService;
+import io.github.ryamal4.passengerflow.service.file.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 public class FileAccessController {
+    // Request attributes Tomcat's NIO connector reads to send a file region with sendfile.
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
-    private final Path uploadPath;
+    // Generated names are never reused for different content, so they can be cached for good.
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+    private static final MediaType ANY_IMAGE = MediaType.valueOf("image/*");
 
-    public FileAccessController(@Value("${upload.path}") String uploadDir) {
-        this.uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+    private final FileService fileService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final long sendfileMinBytes;
+
+    public FileAccessController(FileService fileService, ImageDerivativeService imageDerivativeService,
+                                @Value("${upload.sendfile-min-bytes:49152}") long sendfileMinBytes) {
+        this.fileService = fileService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.sendfileMinBytes = sendfileMinBytes;
     }
 
     @GetMapping("/files/{filename:.+}")
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+    public void serveFile(@PathVariable String filename, @RequestParam(required = false) ImageSize size,
+                          ServletWebRequest webRequest, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        // Files without a rendition of the requested size are served as they are.
+        StoredFile file;
         try {
-            if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
-                return ResponseEntity.badRequest().build();
+            file = size != null ? imageDerivativeService.findDerivative(filename, size).orElse(null) : null;
+            if (file == null) {
+                file = fileService.findStoredFile(filename)
+                        .map(original -> size != null ? fallback(original) : original)
+                        .orElse(null);
             }
+        } catch (IOException e) {
+            file = null;
+        }
+        if (file == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, (file.immutable() ? IMMUTABLE : REVALIDATE).getHeaderValue());
+        if (webRequest.checkNotModified(file.etag(), file.lastModified().toEpochMilli())) {
+            return;
+        }
 
-            var file = uploadPath.resolve(filename).normalize();
-            if (!file.startsWith(uploadPath)) {
-                return ResponseEntity.badRequest().build();
+        var dispositionType = file.contentType().isCompatibleWith(ANY_IMAGE)
+                ? "inline" : "attachment";
+        response.setContentType(file.contentType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.builder(dispositionType).filename(file.filename()).build().toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        var range = new ByteRange(0, file.size() - 1, false);
+        var rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && rangeApplies(request, file)) {
+            range = parseRange(rangeHeader, file.size());
+            if (range == null) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                return;
+            }
+            if (range.partial()) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + range.start() + "-" + range.end() + "/" + file.size());
             }
+        }
 
-            var resource = new UrlResource(file.toUri());
+        response.setContentLengthLong(range.length());
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        write(file, range.start(), range.length(), request, response);
+    }
+
+    // The rendition may only be missing for now, e.g. after a render timeout, so the original served in its place
+    // is revalidated and carries its own ETag instead of being cached for good under the ?size= URL.
+    private static StoredFile fallback(StoredFile original) {
+        var etag = original.etag();
+        var fallbackEtag = etag.substring(0, etag.length() - 1) + "-original\"";
+        return new StoredFile(original.path(), original.filename(), original.contentType(), original.size(),
+                original.lastModified(), fallbackEtag, false);
+    }
 
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "attachment; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
+    // A stale If-Range (or a date, which is not tracked precisely enough) falls back to the full file.
+    private static boolean rangeApplies(HttpServletRequest request, StoredFile file) {
+        var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(file.etag());
+    }
+
+    // Returns null when unsatisfiable; multi-range requests get the whole file, as the RFC allows.
+    private static ByteRange parseRange(String rangeHeader, long size) {
+        try {
+            var ranges = HttpRange.parseRanges(rangeHeader);
+            if (ranges.size() != 1) {
+                return new ByteRange(0, size - 1, false);
+            }
+            var range = ranges.get(0);
+            var rangeStart = range.getRangeStart(size);
+            var rangeEnd = range.getRangeEnd(size);
+            if (size == 0 || rangeStart >= size || rangeStart > rangeEnd) {
+                return null;
             }
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            return new ByteRange(rangeStart, rangeEnd, true);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void write(StoredFile file, long start, long length, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        if (length >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+
+        try (var channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            var out = Channels.newChannel(response.getOutputStream());
+            var position = start;
+            var end = start + length;
+            while (position < end) {
+                var sent = channel.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private record ByteRange(long start, long end, boolean partial) {
+        long length() {
+            return end - start + 1;
         }
     }
 }
@@ -0,0 +1,27 @@
+package io.github.ryamal4.passengerflow.controller;
+
+import io.github.ryamal4.passengerflow.dto.GtfsImportResult;
+import io.github.ryamal4.passengerflow.service.gtfs.IGtfsImportService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/gtfs")
+public class GtfsImportController {
+    private final IGtfsImportService gtfsImportService;
+
+    public GtfsImportController(IGtfsImportService gtfsImportService) {
+        this.gtfsImportService = gtfsImportService;
+    }
+
+    @PostMapping("/import")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<GtfsImportResult> importFeed(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(gtfsImportService.importFeed(file));
+    }
+}
@@ -1,24 +1,38 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import io.github.ryamal4.passengerflow.dto.BatchPredictionDTO;
 import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionMatrixDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
 import io.github.ryamal4.passengerflow.service.prediction.IOccupancyPredictionService;
+import io.github.ryamal4.passengerflow.service.prediction.IPredictionMatrixService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/predictions")
 public class OccupancyPredictionController {
+    private static final CacheControl MATRIX_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final IOccupancyPredictionService predictionService;
+    private final IPredictionMatrixService matrixService;
 
-    public OccupancyPredictionController(IOccupancyPredictionService predictionService) {
+    public OccupancyPredictionController(IOccupancyPredictionService predictionService,
+                                         IPredictionMatrixService matrixService) {
         this.predictionService = predictionService;
+        this.matrixService = matrixService;
     }
 
     @GetMapping
@@ -26,15 +40,47 @@ public class OccupancyPredictionController {
             @RequestParam String route,
             @RequestParam(required = false) String stop,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime time,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
             @RequestParam(defaultValue = "true") boolean useWeather) {
 
         if (stop != null && time != null) {
-            return predictionService.getPrediction(route, stop, time, useWeather)
-                    .map(prediction -> ResponseEntity.ok(List.of(prediction)))
+            var prediction = date != null
+                    ? predictionService.getPrediction(route, stop, date, time, useWeather)
+                    : predictionService.getPrediction(route, stop, time, useWeather);
+            return prediction
+                    .map(found -> ResponseEntity.ok(List.of(found)))
                     .orElse(ResponseEntity.notFound().build());
         } else {
-            var predictions = predictionService.getTodayPredictions(route, useWeather);
+            var predictions = date != null
+                    ? predictionService.getDayPredictions(route, date, useWeather)
+                    : predictionService.getTodayPredictions(route, useWeather);
             return ResponseEntity.ok(predictions);
         }
     }
+
+    // The matrix is rebuilt on every request, but a client holding the same content gets a bodiless 304.
+    @GetMapping("/matrix")
+    public ResponseEntity<PredictionMatrixDTO> getPredictionMatrix(
+            @RequestParam String route,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "true") boolean useWeather,
+            @RequestParam(defaultValue = "false") boolean quantize,
+            WebRequest request) {
+        var matrix = matrixService.getMatrix(route, date, useWeather, quantize);
+        var etag = "\"matrix-" + matrix.getVersion() + (quantize ? "-q" : "") + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(MATRIX_CACHE_CONTROL)
+                .body(matrix);
+    }
+
+    // Answers are returned in request order; queries with an unknown stop or no data get null values.
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchPredictionDTO>> getBatchPredictions(
+            @RequestBody List<PredictionQueryDTO> queries,
+            @RequestParam(defaultValue = "true") boolean useWeather) {
+        return ResponseEntity.ok(predictionService.getBatchPredictions(queries, useWeather));
+    }
 }
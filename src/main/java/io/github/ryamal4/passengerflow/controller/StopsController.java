@@ -1,9 +1,12 @@
 package io.github.ryamal4.passengerflow.controller;
 
 import io.github.ryamal4.passengerflow.dto.StopDTO;
+import io.github.ryamal4.passengerflow.enums.CatalogLayout;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
 import io.github.ryamal4.passengerflow.service.stop.IStopsService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -11,14 +14,19 @@ import java.util.List;
 @RequestMapping("/api/stops")
 public class StopsController {
     private final IStopsService stopsService;
+    private final IReferenceDataRegistry referenceDataRegistry;
 
-    public StopsController(IStopsService stopsService) {
+    public StopsController(IStopsService stopsService, IReferenceDataRegistry referenceDataRegistry) {
         this.stopsService = stopsService;
+        this.referenceDataRegistry = referenceDataRegistry;
     }
 
     @GetMapping
-    public ResponseEntity<List<StopDTO>> getAllStops() {
-        return ResponseEntity.ok(stopsService.getAllStops());
+    public ResponseEntity<?> getAllStops(@RequestParam(defaultValue = "ROWS") CatalogLayout layout,
+                                         WebRequest request) {
+        return CatalogResponses.conditional(request, referenceDataRegistry.current(), "stops", layout,
+                catalog -> layout == CatalogLayout.COLUMNAR
+                        ? stopsService.getAllStopsColumnar(catalog) : stopsService.getAllStops(catalog));
     }
 
     @GetMapping("/nearby")
@@ -0,0 +1,12 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AggregationRebuildResult {
+    private int chunkCount;
+    private long insertedCount;
+    private long durationMillis;
+}
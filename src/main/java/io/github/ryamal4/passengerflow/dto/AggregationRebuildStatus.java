@@ -0,0 +1,20 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class AggregationRebuildStatus {
+    private State state;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private AggregationRebuildResult result;
+    private String error;
+
+    public enum State {
+        IDLE, RUNNING, SUCCEEDED, FAILED
+    }
+}
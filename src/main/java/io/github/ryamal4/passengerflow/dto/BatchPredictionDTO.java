@@ -0,0 +1,21 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPredictionDTO {
+    private String route;
+    private String stop;
+    private LocalDate date;
+    private LocalTime time;
+    private Double occupancyPercentage;
+    private Double p50OccupancyPercentage;
+    private Double p90OccupancyPercentage;
+}
@@ -0,0 +1,19 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusColumnsDTO {
+    private long[] id;
+    private long[] busModelId;
+    private long[] routeId;
+    private Map<Long, String> busModelNames;
+    private Map<Long, Integer> busModelCapacities;
+    private Map<Long, String> routeNames;
+}
@@ -0,0 +1,16 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class GtfsImportResult {
+    private int routeCount;
+    private int createdRouteCount;
+    private int stopCount;
+    private long skippedRowCount;
+    private List<String> errors;
+}
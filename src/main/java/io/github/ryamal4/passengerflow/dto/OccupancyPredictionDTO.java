@@ -13,4 +13,10 @@ public class OccupancyPredictionDTO {
     private String stopName;
     private LocalTime time;
     private Double occupancyPercentage;
+    private Double p50OccupancyPercentage;
+    private Double p90OccupancyPercentage;
+
+    public OccupancyPredictionDTO(String stopName, LocalTime time, Double occupancyPercentage) {
+        this(stopName, time, occupancyPercentage, null, null);
+    }
 }
@@ -0,0 +1,29 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// A day of predictions for a route as a stop × slot matrix: the names and the slot axis are sent once, and cell
+// (stop i, slot j) sits at i * slots.length + j. Exactly one of values or quantized is set; quantized cells hold
+// round(occupancy / quantizationStep) as unsigned bytes (base64 in JSON), with 255 marking a cell without data.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PredictionMatrixDTO {
+    public static final int QUANTIZED_MISSING = 255;
+
+    private String route;
+    private LocalDate date;
+    private String version;
+    private String[] stops;
+    private int slotMinutes;
+    private int[] slots;
+    private Double[] values;
+    private byte[] quantized;
+    private Double quantizationStep;
+}
@@ -0,0 +1,18 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PredictionQueryDTO {
+    private String route;
+    private String stop;
+    private LocalTime time;
+    private LocalDate date;
+}
@@ -0,0 +1,19 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StopColumnsDTO {
+    private long[] id;
+    private String[] name;
+    private double[] lat;
+    private double[] lon;
+    private long[] routeId;
+    private Map<Long, String> routeNames;
+}
@@ -0,0 +1,18 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StopTrafficDTO {
+    private LocalDateTime periodStart;
+    private long entered;
+    private long exited;
+    private long samples;
+    private long maxLoad;
+}
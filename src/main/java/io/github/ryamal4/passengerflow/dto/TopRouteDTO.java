@@ -0,0 +1,16 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopRouteDTO {
+    private Long routeId;
+    private String routeName;
+    private long entered;
+    private long exited;
+    private long maxLoad;
+}
@@ -0,0 +1,17 @@
+package io.github.ryamal4.passengerflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopStopDTO {
+    private Long stopId;
+    private String stopName;
+    private String routeName;
+    private long entered;
+    private long exited;
+    private long maxLoad;
+}
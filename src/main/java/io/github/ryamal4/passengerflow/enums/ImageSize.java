@@ -0,0 +1,14 @@
+package io.github.ryamal4.passengerflow.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum ImageSize {
+    THUMBNAIL(160), MEDIUM(640);
+
+    private final int maxDimension;
+
+    ImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+}
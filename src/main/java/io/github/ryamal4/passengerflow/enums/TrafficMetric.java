@@ -0,0 +1,5 @@
+package io.github.ryamal4.passengerflow.enums;
+
+public enum TrafficMetric {
+    ENTERED, MAX_LOAD
+}
@@ -0,0 +1,28 @@
+package io.github.ryamal4.passengerflow.event;
+
+import io.github.ryamal4.passengerflow.service.prediction.OnlineOccupancyModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Runs after the ingest has committed, so a failed model update never rejects a passenger count that is already
+// stored; a client retrying after an error would store it twice. Only registered when the online model serves
+// predictions, so the default aggregate mode pays nothing per ingest.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "prediction.source", havingValue = "online")
+@RequiredArgsConstructor
+public class OnlineOccupancyEventListener {
+    private final OnlineOccupancyModel onlineOccupancyModel;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handlePassengerCountIngested(PassengerCountIngestedEvent event) {
+        try {
+            onlineOccupancyModel.observe(event);
+        } catch (RuntimeException e) {
+            log.warn("Failed to update online occupancy model for stop {}", event.stopId(), e);
+        }
+    }
+}
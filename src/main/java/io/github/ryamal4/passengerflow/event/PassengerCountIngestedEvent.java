@@ -0,0 +1,6 @@
+package io.github.ryamal4.passengerflow.event;
+
+import java.time.LocalDateTime;
+
+public record PassengerCountIngestedEvent(long busId, long stopId, LocalDateTime timestamp, int entered, int exited) {
+}
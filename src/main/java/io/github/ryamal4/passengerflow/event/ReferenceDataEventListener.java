@@ -0,0 +1,20 @@
+package io.github.ryamal4.passengerflow.event;
+
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataEventListener {
+    private final IReferenceDataRegistry referenceDataRegistry;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleReferenceDataChanged(ReferenceDataChangedEvent event) {
+        log.debug("{} changed, reference data will be reloaded", event.entity());
+        referenceDataRegistry.invalidate();
+    }
+}
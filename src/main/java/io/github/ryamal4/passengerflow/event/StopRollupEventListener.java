@@ -0,0 +1,18 @@
+package io.github.ryamal4.passengerflow.event;
+
+import io.github.ryamal4.passengerflow.service.analytics.TopTrafficService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Slf4j
+@Component
+public class StopRollupEventListener {
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(value = TopTrafficService.TOP_TRAFFIC_CACHE, allEntries = true)
+    public void handleRollupUpdated(StopRollupUpdatedEvent event) {
+        log.debug("Stop rollup updated ({} buckets), top traffic cache cleared", event.updatedBuckets());
+    }
+}
@@ -0,0 +1,4 @@
+package io.github.ryamal4.passengerflow.event;
+
+public record StopRollupUpdatedEvent(int updatedBuckets) {
+}
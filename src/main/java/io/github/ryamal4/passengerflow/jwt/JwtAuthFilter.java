@@ -2,6 +2,8 @@ package io.github.ryamal4.passengerflow.jwt;
 
 import io.github.ryamal4.passengerflow.enums.TokenType;
 import io.github.ryamal4.passengerflow.repository.TokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -28,29 +30,45 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtTokenProvider tokenProvider;
     private final UserDetailsService userDetailsService;
     private final TokenRepository tokenRepository;
+    private final MeterRegistry meterRegistry;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, 
     @NonNull HttpServletResponse response, 
     @NonNull FilterChain filterChain) throws ServletException, IOException {
+        var sample = Timer.start(meterRegistry);
+        var outcome = "error";
+        try {
+            outcome = authenticate(request);
+        } finally {
+            sample.stop(Timer.builder("passengerflow.auth.filter")
+                    .description("Time spent authenticating a request from its access token cookie")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String authenticate(HttpServletRequest request) {
         String accessToken  = getJwtFromCookie(request);
 
-        if(accessToken == null || !tokenProvider.validateToken(accessToken)) {
-            filterChain.doFilter(request, response);
-            return;
+        if(accessToken == null) {
+            return "anonymous";
+        }
+        if(!tokenProvider.validateToken(accessToken)) {
+            return "rejected";
         }
 
         var tokenInDb = tokenRepository.findByValueAndTypeAndDisabledFalse(accessToken, TokenType.ACCESS);
         if (tokenInDb.isEmpty()) {
-            filterChain.doFilter(request, response);
-            return;
+            return "rejected";
         }
 
         String username = tokenProvider.getUsernameFromToken(accessToken);
 
         if(username == null) {
-            filterChain.doFilter(request, response);
-            return;
+            return "rejected";
         }
 
         UserDetails userDetails = userDetailsService.loadUserByUsername(username);
@@ -64,8 +82,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         .buildDetails(request));
         SecurityContextHolder.getContext()
         .setAuthentication(authenticationToken);
-
-        filterChain.doFilter(request, response);
+        return "authenticated";
     }
 
     private String getJwtFromCookie(HttpServletRequest request) {
@@ -3,6 +3,7 @@ package io.github.ryamal4.passengerflow.jwt;
 import io.github.ryamal4.passengerflow.exception.ResourceNotFoundException;
 import io.github.ryamal4.passengerflow.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -11,12 +12,15 @@ import org.springframework.stereotype.Service;
 @Service
 @RequiredArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
+    public static final String USER_DETAILS_CACHE = "userDetails";
+
     private final UserRepository userRepository;
 
     @Override
+    @Cacheable(USER_DETAILS_CACHE)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username).orElseThrow(
-                () -> new ResourceNotFoundException("User not found")
-        );
+        return userRepository.findByUsername(username)
+                .map(UserDetailsSnapshot::of)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 }
@@ -0,0 +1,41 @@
+package io.github.ryamal4.passengerflow.jwt;
+
+import io.github.ryamal4.passengerflow.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+
+// Detached, immutable copy of a user: safe to share between requests from the cache, and its authority set is
+// built once instead of on every getAuthorities() call.
+public final class UserDetailsSnapshot implements UserDetails {
+    private final String username;
+    private final String password;
+    private final Set<GrantedAuthority> authorities;
+
+    private UserDetailsSnapshot(String username, String password, Set<GrantedAuthority> authorities) {
+        this.username = username;
+        this.password = password;
+        this.authorities = authorities;
+    }
+
+    public static UserDetailsSnapshot of(User user) {
+        return new UserDetailsSnapshot(user.getUsername(), user.getPassword(), Set.copyOf(user.getAuthorities()));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+}
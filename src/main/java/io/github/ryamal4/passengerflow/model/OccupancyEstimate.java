@@ -0,0 +1,72 @@
+package io.github.ryamal4.passengerflow.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "occupancy_estimates",
+        uniqueConstraints = @UniqueConstraint(name = "uk_occupancy_estimates_slot",
+                columnNames = {"stop_id", "day_of_week", "hour", "minute"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class OccupancyEstimate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stop_id", nullable = false, foreignKey = @ForeignKey(name = "fk_occupancy_estimates_stop"))
+    private Stop stop;
+
+    @Column(name = "day_of_week", nullable = false)
+    @Min(1)
+    @Max(7)
+    private Integer dayOfWeek;
+
+    @Column(nullable = false)
+    @Min(0)
+    @Max(23)
+    private Integer hour;
+
+    @Column(nullable = false)
+    @Min(0)
+    @Max(55)
+    private Integer minute;
+
+    @Column(nullable = false)
+    private Double mean;
+
+    @Column(nullable = false)
+    private Double variance;
+
+    @Column(nullable = false)
+    private Double weight;
+
+    @Column(name = "observed_at", nullable = false)
+    private LocalDateTime observedAt;
+
+    // Exponentially weighted mean and variance: the weight of earlier observations halves every halfLife of
+    // observation time, so a slot follows a timetable change within a few weeks without rescanning history.
+    // A new row starts with zero weight and takes the first observation as its mean.
+    public void observe(double occupancyPercentage, LocalDateTime observedAt, Duration halfLife) {
+        var elapsedMillis = Math.max(0, Duration.between(this.observedAt, observedAt).toMillis());
+        var previousWeight = weight * Math.pow(0.5, (double) elapsedMillis / halfLife.toMillis());
+        var newWeight = previousWeight + 1;
+        var deviation = occupancyPercentage - mean;
+
+        mean += deviation / newWeight;
+        variance = previousWeight / newWeight * (variance + deviation * deviation / newWeight);
+        weight = newWeight;
+        if (observedAt.isAfter(this.observedAt)) {
+            this.observedAt = observedAt;
+        }
+    }
+}
@@ -38,4 +38,7 @@ public class PassengerCountAggregation {
 
     @Column(name = "average_occupancy_percentage", nullable = false)
     private Double averageOccupancyPercentage;
+
+    @Column(name = "occupancy_histogram")
+    private byte[] occupancyHistogram;
 }
@@ -36,10 +36,7 @@ public class Permission implements GrantedAuthority {
 
     @Override
     public String getAuthority() {
-        return String.format(
-                "%s:%s",
-                resource.toUpperCase(),
-                operation.toUpperCase());
+        return resource.toUpperCase() + ":" + operation.toUpperCase();
     }
 
 }
\ No newline at end of file
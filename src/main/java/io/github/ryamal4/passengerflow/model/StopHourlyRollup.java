@@ -0,0 +1,47 @@
+package io.github.ryamal4.passengerflow.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "stop_hourly_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stop_hourly_rollup_bucket",
+                columnNames = {"stop_id", "rollup_date", "hour"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class StopHourlyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stop_id", nullable = false, foreignKey = @ForeignKey(name = "fk_stop_hourly_rollup_stop"))
+    private Stop stop;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(nullable = false)
+    @Min(0)
+    @Max(23)
+    private Integer hour;
+
+    @Column(nullable = false)
+    private Long entered;
+
+    @Column(nullable = false)
+    private Long exited;
+
+    @Column(nullable = false)
+    private Long samples;
+
+    @Column(name = "max_load", nullable = false)
+    private Long maxLoad;
+}
@@ -0,0 +1,34 @@
+package io.github.ryamal4.passengerflow.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// A passenger count change the hourly stop rollup has not picked up yet. The stop is only set for readings that
+// were removed or moved away, whose old bucket must be recomputed as well.
+@Entity
+@Table(name = "stop_rollup_dirty")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"id"})
+public class StopRollupDirty {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bus_id", nullable = false)
+    private Long busId;
+
+    @Column(name = "stop_id")
+    private Long stopId;
+
+    @Column(name = "from_time", nullable = false)
+    private LocalDateTime fromTime;
+
+    public StopRollupDirty(Long busId, Long stopId, LocalDateTime fromTime) {
+        this(null, busId, stopId, fromTime);
+    }
+}
@@ -9,7 +9,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,13 +33,11 @@ public class User implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        Set<String> authorities = new HashSet<>();
+        Set<GrantedAuthority> authorities = new HashSet<>();
         this.role.getPermissions()
-                .forEach(permission -> authorities.add(permission.getAuthority()));
-        authorities.add(role.getAuthority());
-
-        return authorities.stream()
-                .map(SimpleGrantedAuthority::new).collect(Collectors.toSet());
+                .forEach(permission -> authorities.add(new SimpleGrantedAuthority(permission.getAuthority())));
+        authorities.add(new SimpleGrantedAuthority(role.getAuthority()));
+        return authorities;
     }
 
     @Override
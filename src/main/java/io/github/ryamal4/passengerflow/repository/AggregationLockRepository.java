@@ -0,0 +1,47 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+// One Postgres advisory lock serializes every writer of passenger_counts_aggregation across all nodes. A session
+// lock and a transaction lock on the same key exclude each other, so the daily run waits for a rebuild's swap and
+// the rebuild waits for a daily run to commit.
+@Repository
+public class AggregationLockRepository {
+    private static final long AGGREGATION_LOCK_KEY = 0x7066_6167L;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public AggregationLockRepository(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Held until the caller's transaction ends.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockForTransaction() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + AGGREGATION_LOCK_KEY + ")");
+    }
+
+    // A rebuild spans many transactions on several threads, so the lock lives on a connection of its own.
+    public <T> T withSessionLock(Supplier<T> action) {
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_lock(" + AGGREGATION_LOCK_KEY + ")");
+            try {
+                return action.get();
+            } finally {
+                statement.execute("SELECT pg_advisory_unlock(" + AGGREGATION_LOCK_KEY + ")");
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not hold the aggregation lock", e);
+        }
+    }
+}
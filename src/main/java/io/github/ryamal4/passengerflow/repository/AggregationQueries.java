@@ -0,0 +1,73 @@
+package io.github.ryamal4.passengerflow.repository;
+
+// The aggregation query behind both the daily run and the chunked rebuild, built in one place so the two cannot
+// drift: running load per bus and service day (starting at 04:00), averaged as occupancy percentage into 5-minute
+// slots per stop, with an occupancy histogram alongside each average. Callers bind :dayOfWeek plus whatever their
+// filters reference; each filter is a list of "AND ..." lines, or empty.
+public final class AggregationQueries {
+    public static final String LIVE_TABLE = "passenger_counts_aggregation";
+
+    private AggregationQueries() {
+    }
+
+    public static String insertAggregatedData(String targetTable, String countsFilter, String stopsFilter) {
+        return """
+                WITH passenger_loads AS (
+                    SELECT
+                        pc.stop_id,
+                        pc.timestamp,
+                        b.bus_model_id,
+                        SUM(pc.entered - pc.exited) OVER (
+                            PARTITION BY pc.bus_id, DATE_TRUNC('day', pc.timestamp - INTERVAL '4 hours')
+                            ORDER BY pc.timestamp
+                            ROWS UNBOUNDED PRECEDING
+                        ) as current_load
+                    FROM passenger_counts pc
+                    JOIN buses b ON pc.bus_id = b.id
+                    WHERE EXTRACT(ISODOW FROM pc.timestamp) = :dayOfWeek
+                    %s
+                ),
+                occupancy_percentages AS (
+                    SELECT
+                        pl.stop_id,
+                        pl.timestamp,
+                        (pl.current_load::float / bm.capacity * 100.0) as occupancy_percentage
+                    FROM passenger_loads pl
+                    JOIN bus_models bm ON pl.bus_model_id = bm.id
+                    WHERE TRUE
+                    %s
+                ),
+                slot_buckets AS (
+                    SELECT
+                        op.stop_id,
+                        date_bin('5 minutes', op.timestamp, '2000-01-01 04:00:00') as time_slot,
+                        width_bucket(op.occupancy_percentage, 0, 200, 40) as bucket,
+                        COUNT(*) as observations,
+                        SUM(op.occupancy_percentage) as occupancy_sum
+                    FROM occupancy_percentages op
+                    GROUP BY op.stop_id, time_slot, bucket
+                ),
+                aggregated_data AS (
+                    SELECT
+                        sb.stop_id,
+                        :dayOfWeek as day_of_week,
+                        sb.time_slot,
+                        SUM(sb.occupancy_sum) / SUM(sb.observations) as average_occupancy_percentage,
+                        string_agg(int2send(sb.bucket::smallint) || int4send(sb.observations::integer), ''::bytea
+                                   ORDER BY sb.bucket) as occupancy_histogram
+                    FROM slot_buckets sb
+                    GROUP BY sb.stop_id, sb.time_slot
+                )
+                INSERT INTO %s
+                    (stop_id, day_of_week, hour, minute, average_occupancy_percentage, occupancy_histogram)
+                SELECT
+                    stop_id,
+                    day_of_week,
+                    EXTRACT(HOUR FROM time_slot)::integer as hour,
+                    EXTRACT(MINUTE FROM time_slot)::integer as minute,
+                    average_occupancy_percentage,
+                    occupancy_histogram
+                FROM aggregated_data
+                """.formatted(countsFilter, stopsFilter, targetTable);
+    }
+}
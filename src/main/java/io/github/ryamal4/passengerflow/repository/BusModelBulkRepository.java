@@ -0,0 +1,40 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.model.BusModel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class BusModelBulkRepository {
+    private static final String UPSERT_SQL = """
+            INSERT INTO bus_models (id, name, capacity)
+            VALUES (?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, capacity = EXCLUDED.capacity
+            """;
+
+    // Rows inserted with explicit ids do not advance the identity sequence, so move it past them
+    // before the next model is created through JPA.
+    private static final String SYNC_ID_SEQUENCE_SQL = """
+            SELECT setval(pg_get_serial_sequence('bus_models', 'id'), GREATEST((SELECT MAX(id) FROM bus_models), 1))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BusModelBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void upsert(List<BusModel> models) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, models, models.size(), (ps, model) -> {
+            ps.setLong(1, model.getId());
+            ps.setString(2, model.getName());
+            ps.setInt(3, model.getCapacity());
+        });
+    }
+
+    public void syncIdSequence() {
+        jdbcTemplate.queryForObject(SYNC_ID_SEQUENCE_SQL, Long.class);
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class GtfsBulkRepository {
+    private static final String INSERT_ROUTE_SQL = "INSERT INTO routes (name) VALUES (?)";
+
+    private static final String UPSERT_STOP_SQL = """
+            INSERT INTO stops (name, lat, lon, route_id)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (name, route_id) DO UPDATE SET lat = EXCLUDED.lat, lon = EXCLUDED.lon
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GtfsBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Route names are not unique in the schema, so an existing duplicate resolves to its oldest row.
+    public Map<String, Long> findRouteIdsByName() {
+        var ids = new HashMap<String, Long>();
+        jdbcTemplate.query("SELECT id, name FROM routes ORDER BY id", rs -> {
+            ids.putIfAbsent(rs.getString("name"), rs.getLong("id"));
+        });
+        return ids;
+    }
+
+    public void insertRoutes(List<String> names) {
+        jdbcTemplate.batchUpdate(INSERT_ROUTE_SQL, names, names.size(), (ps, name) -> ps.setString(1, name));
+    }
+
+    public void upsertStops(List<StopRow> stops) {
+        jdbcTemplate.batchUpdate(UPSERT_STOP_SQL, stops, stops.size(), (ps, stop) -> {
+            ps.setString(1, stop.name());
+            ps.setDouble(2, stop.lat());
+            ps.setDouble(3, stop.lon());
+            ps.setLong(4, stop.routeId());
+        });
+    }
+
+    public record StopRow(String name, double lat, double lon, long routeId) {
+    }
+}
@@ -1,9 +1,24 @@
 package io.github.ryamal4.passengerflow.repository;
 
 import io.github.ryamal4.passengerflow.model.BusModel;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface IBusModelRepository extends JpaRepository<BusModel, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM BusModel m WHERE m.id = :id")
+    Optional<BusModel> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE BusModel m SET m.fileName = :newName WHERE m.fileName = :oldName")
+    int renameFile(@Param("oldName") String oldName, @Param("newName") String newName);
 }
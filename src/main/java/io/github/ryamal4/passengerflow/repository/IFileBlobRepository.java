@@ -0,0 +1,34 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.model.FileBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IFileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    // The upsert takes the row lock, so a concurrent release of the same blob cannot delete it underneath.
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_blobs (file_name, size, ref_count)
+            VALUES (:fileName, :size, :references)
+            ON CONFLICT (file_name) DO UPDATE SET ref_count = file_blobs.ref_count + EXCLUDED.ref_count
+            """, nativeQuery = true)
+    void addReferences(@Param("fileName") String fileName, @Param("size") long size,
+                       @Param("references") int references);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM FileBlob b WHERE b.fileName = :fileName")
+    Optional<FileBlob> findByFileNameForUpdate(@Param("fileName") String fileName);
+
+    // Serializes the file operations on one blob across nodes, including while it has no row; held until commit.
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:fileName))) AS blob_lock", nativeQuery = true)
+    Integer lockFileName(@Param("fileName") String fileName);
+}
@@ -0,0 +1,67 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.model.OccupancyEstimate;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IOccupancyEstimateRepository extends JpaRepository<OccupancyEstimate, Long> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO occupancy_estimates (stop_id, day_of_week, hour, minute, mean, variance, weight, observed_at)
+            VALUES (:stopId, :dayOfWeek, :hour, :minute, 0, 0, 0, :observedAt)
+            ON CONFLICT (stop_id, day_of_week, hour, minute) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfMissing(@Param("stopId") Long stopId,
+                        @Param("dayOfWeek") Integer dayOfWeek,
+                        @Param("hour") Integer hour,
+                        @Param("minute") Integer minute,
+                        @Param("observedAt") LocalDateTime observedAt);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT e FROM OccupancyEstimate e
+            WHERE e.stop.id = :stopId
+              AND e.dayOfWeek = :dayOfWeek
+              AND e.hour = :hour
+              AND e.minute = :minute
+            """)
+    Optional<OccupancyEstimate> findSlotForUpdate(@Param("stopId") Long stopId,
+                                                  @Param("dayOfWeek") Integer dayOfWeek,
+                                                  @Param("hour") Integer hour,
+                                                  @Param("minute") Integer minute);
+
+    @Query("""
+            SELECT e FROM OccupancyEstimate e
+            WHERE e.stop.id = :stopId
+              AND e.dayOfWeek = :dayOfWeek
+              AND e.hour = :hour
+              AND e.minute = :minute
+              AND e.weight > 0
+            """)
+    Optional<OccupancyEstimate> findByStopAndTime(@Param("stopId") Long stopId,
+                                                  @Param("dayOfWeek") Integer dayOfWeek,
+                                                  @Param("hour") Integer hour,
+                                                  @Param("minute") Integer minute);
+
+    @Query("""
+            SELECT e FROM OccupancyEstimate e
+            WHERE e.stop.id IN :stopIds
+              AND e.dayOfWeek = :dayOfWeek
+              AND e.weight > 0
+            ORDER BY e.hour, e.minute
+            """)
+    List<OccupancyEstimate> findByStopIdsAndDayOfWeek(@Param("stopIds") Collection<Long> stopIds,
+                                                      @Param("dayOfWeek") Integer dayOfWeek);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,71 +18,24 @@ public interface IPassengerCountAggregationRepository extends JpaRepository<Pass
     @Query("DELETE FROM PassengerCountAggregation p WHERE p.dayOfWeek = :dayOfWeek")
     void deleteByDayOfWeek(@Param("dayOfWeek") Integer dayOfWeek);
 
-    @Modifying
-    @Query(value = """
-            WITH passenger_loads AS (
-                SELECT
-                    pc.stop_id,
-                    pc.timestamp,
-                    b.bus_model_id,
-                    SUM(pc.entered - pc.exited) OVER (
-                        PARTITION BY pc.bus_id, DATE_TRUNC('day', pc.timestamp - INTERVAL '4 hours')
-                        ORDER BY pc.timestamp
-                        ROWS UNBOUNDED PRECEDING
-                    ) as current_load
-                FROM passenger_counts pc
-                JOIN buses b ON pc.bus_id = b.id
-                WHERE EXTRACT(ISODOW FROM pc.timestamp) = :dayOfWeek
-            ),
-            occupancy_percentages AS (
-                SELECT
-                    pl.stop_id,
-                    pl.timestamp,
-                    (pl.current_load::float / bm.capacity * 100.0) as occupancy_percentage
-                FROM passenger_loads pl
-                JOIN bus_models bm ON pl.bus_model_id = bm.id
-            ),
-            aggregated_data AS (
-                SELECT
-                    op.stop_id,
-                    :dayOfWeek as day_of_week,
-                    date_bin('5 minutes', op.timestamp, '2000-01-01 04:00:00') as time_slot,
-                    AVG(op.occupancy_percentage) as average_occupancy_percentage
-                FROM occupancy_percentages op
-                GROUP BY op.stop_id, time_slot
-            )
-            INSERT INTO passenger_counts_aggregation (stop_id, day_of_week, hour, minute, average_occupancy_percentage)
-            SELECT
-                stop_id,
-                day_of_week,
-                EXTRACT(HOUR FROM time_slot)::integer as hour,
-                EXTRACT(MINUTE FROM time_slot)::integer as minute,
-                average_occupancy_percentage
-            FROM aggregated_data
-            """, nativeQuery = true)
-    int insertAggregatedData(@Param("dayOfWeek") Integer dayOfWeek);
-
     @Query("""
             SELECT p FROM PassengerCountAggregation p
-            JOIN FETCH p.stop s
-            JOIN FETCH s.route r
-            WHERE r.name = :routeName
+            WHERE p.stop.id IN :stopIds
               AND p.dayOfWeek = :dayOfWeek
-            ORDER BY s.name, p.hour, p.minute
+            ORDER BY p.hour, p.minute
             """)
-    List<PassengerCountAggregation> findByRouteAndDayOfWeek(@Param("routeName") String routeName, @Param("dayOfWeek") Integer dayOfWeek);
+    List<PassengerCountAggregation> findByStopIdsAndDayOfWeek(@Param("stopIds") Collection<Long> stopIds,
+                                                              @Param("dayOfWeek") Integer dayOfWeek);
 
     @Query("""
             SELECT p FROM PassengerCountAggregation p
-            WHERE p.stop.route.name = :routeName
-              AND p.stop.name = :stopName
+            WHERE p.stop.id = :stopId
               AND p.dayOfWeek = :dayOfWeek
               AND p.hour = :hour
               AND p.minute = :minute
             """)
-    Optional<PassengerCountAggregation> findByRouteAndStopAndTime(
-            @Param("routeName") String routeName,
-            @Param("stopName") String stopName,
+    Optional<PassengerCountAggregation> findByStopAndTime(
+            @Param("stopId") Long stopId,
             @Param("dayOfWeek") Integer dayOfWeek,
             @Param("hour") Integer hour,
             @Param("minute") Integer minute
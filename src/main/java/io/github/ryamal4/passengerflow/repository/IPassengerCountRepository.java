@@ -3,8 +3,22 @@ package io.github.ryamal4.passengerflow.repository;
 import io.github.ryamal4.passengerflow.model.PassengerCount;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface IPassengerCountRepository extends JpaRepository<PassengerCount, Long>, JpaSpecificationExecutor<PassengerCount> {
+
+    @Query("""
+            SELECT COALESCE(SUM(p.entered - p.exited), 0) FROM PassengerCount p
+            WHERE p.bus.id = :busId
+              AND p.timestamp >= :from
+              AND p.timestamp <= :to
+            """)
+    long sumLoadBetween(@Param("busId") Long busId,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.model.Route;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IRouteRepository extends JpaRepository<Route, Long> {
+}
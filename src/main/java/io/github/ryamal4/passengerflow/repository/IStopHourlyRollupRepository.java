@@ -0,0 +1,214 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.model.StopHourlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface IStopHourlyRollupRepository extends JpaRepository<StopHourlyRollup, Long> {
+
+    // Recomputes every (stop, hour) bucket listed in the "dirty" CTE. Max load needs the running load of each
+    // bus over its whole service day (04:00 to 04:00), so all bus-days touching a dirty bucket are re-windowed.
+    // Dirty buckets left without readings, e.g. after a delete, are removed.
+    String RECOMPUTE_DIRTY_BUCKETS = """
+            ,
+            bus_days AS (
+                SELECT DISTINCT pc.bus_id, DATE_TRUNC('day', pc.timestamp - INTERVAL '4 hours') as service_day
+                FROM passenger_counts pc
+                JOIN dirty d ON pc.stop_id = d.stop_id
+                    AND pc.timestamp >= d.bucket
+                    AND pc.timestamp < d.bucket + INTERVAL '1 hour'
+            ),
+            loads AS (
+                SELECT
+                    pc.stop_id,
+                    pc.timestamp,
+                    pc.entered,
+                    pc.exited,
+                    SUM(pc.entered - pc.exited) OVER (
+                        PARTITION BY pc.bus_id, bd.service_day
+                        ORDER BY pc.timestamp
+                        ROWS UNBOUNDED PRECEDING
+                    ) as current_load
+                FROM passenger_counts pc
+                JOIN bus_days bd ON pc.bus_id = bd.bus_id
+                    AND pc.timestamp >= bd.service_day + INTERVAL '4 hours'
+                    AND pc.timestamp < bd.service_day + INTERVAL '28 hours'
+            ),
+            rolled AS (
+                SELECT
+                    l.stop_id,
+                    DATE_TRUNC('hour', l.timestamp) as bucket,
+                    SUM(l.entered) as entered,
+                    SUM(l.exited) as exited,
+                    COUNT(*) as samples,
+                    MAX(l.current_load) as max_load
+                FROM loads l
+                JOIN dirty d ON l.stop_id = d.stop_id AND DATE_TRUNC('hour', l.timestamp) = d.bucket
+                GROUP BY l.stop_id, DATE_TRUNC('hour', l.timestamp)
+            ),
+            emptied AS (
+                DELETE FROM stop_hourly_rollup r
+                USING dirty d
+                WHERE r.stop_id = d.stop_id
+                    AND r.rollup_date = d.bucket::date
+                    AND r.hour = EXTRACT(HOUR FROM d.bucket)::integer
+                    AND NOT EXISTS (SELECT 1 FROM rolled x WHERE x.stop_id = d.stop_id AND x.bucket = d.bucket)
+            )
+            INSERT INTO stop_hourly_rollup (stop_id, rollup_date, hour, entered, exited, samples, max_load)
+            SELECT
+                stop_id,
+                bucket::date,
+                EXTRACT(HOUR FROM bucket)::integer,
+                entered,
+                exited,
+                samples,
+                max_load
+            FROM rolled
+            ON CONFLICT (stop_id, rollup_date, hour) DO UPDATE SET
+                entered = EXCLUDED.entered,
+                exited = EXCLUDED.exited,
+                samples = EXCLUDED.samples,
+                max_load = EXCLUDED.max_load
+            """;
+
+    // Serializes rollup writers across nodes; held until commit.
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext('stop_hourly_rollup'))) AS rollup_lock",
+            nativeQuery = true)
+    Integer lockRollup();
+
+    // Drains stop_rollup_dirty, which the ingest path fills in the same transaction as each reading, so only
+    // committed changes are taken and later ones stay queued. A changed reading shifts the running load of its bus
+    // for the rest of the service day, so every bucket the bus visits from that reading on is dirty, as is the
+    // bucket a removed reading left.
+    @Modifying
+    @Query(value = """
+            WITH queued AS (
+                DELETE FROM stop_rollup_dirty
+                RETURNING bus_id, stop_id, from_time
+            ),
+            changed_bus_days AS (
+                SELECT bus_id, DATE_TRUNC('day', from_time - INTERVAL '4 hours') as service_day, MIN(from_time) as from_time
+                FROM queued
+                GROUP BY bus_id, DATE_TRUNC('day', from_time - INTERVAL '4 hours')
+            ),
+            dirty AS (
+                SELECT pc.stop_id, DATE_TRUNC('hour', pc.timestamp) as bucket
+                FROM passenger_counts pc
+                JOIN changed_bus_days c ON pc.bus_id = c.bus_id
+                    AND pc.timestamp >= c.from_time
+                    AND pc.timestamp < c.service_day + INTERVAL '28 hours'
+                UNION
+                SELECT stop_id, DATE_TRUNC('hour', from_time)
+                FROM queued
+                WHERE stop_id IS NOT NULL
+            )
+            """ + RECOMPUTE_DIRTY_BUCKETS, nativeQuery = true)
+    int upsertQueuedChanges();
+
+    @Modifying
+    @Query(value = """
+            WITH dirty AS (
+                SELECT DISTINCT stop_id, DATE_TRUNC('hour', timestamp) as bucket
+                FROM passenger_counts
+                WHERE timestamp >= :fromTime AND timestamp < :toTime
+            )
+            """ + RECOMPUTE_DIRTY_BUCKETS, nativeQuery = true)
+    int upsertForPeriod(@Param("fromTime") LocalDateTime fromTime, @Param("toTime") LocalDateTime toTime);
+
+    @Modifying
+    @Query("DELETE FROM StopHourlyRollup r WHERE r.rollupDate BETWEEN :from AND :to")
+    void deleteByRollupDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("""
+            SELECT r FROM StopHourlyRollup r
+            WHERE r.stop.id = :stopId
+              AND r.rollupDate BETWEEN :from AND :to
+            ORDER BY r.rollupDate, r.hour
+            """)
+    List<StopHourlyRollup> findByStopAndPeriod(@Param("stopId") Long stopId,
+                                               @Param("from") LocalDate from,
+                                               @Param("to") LocalDate to);
+
+    @Query(value = """
+            SELECT
+                r.stop_id as stopId,
+                s.name as stopName,
+                rt.name as routeName,
+                SUM(r.entered) as entered,
+                SUM(r.exited) as exited,
+                MAX(r.max_load) as maxLoad
+            FROM stop_hourly_rollup r
+            JOIN stops s ON r.stop_id = s.id
+            JOIN routes rt ON s.route_id = rt.id
+            WHERE r.rollup_date BETWEEN :from AND :to
+              AND (CAST(:dayOfWeek AS integer) IS NULL OR EXTRACT(ISODOW FROM r.rollup_date) = CAST(:dayOfWeek AS integer))
+              AND (CAST(:hour AS integer) IS NULL OR r.hour = CAST(:hour AS integer))
+            GROUP BY r.stop_id, s.name, rt.name
+            ORDER BY CASE WHEN :metric = 'MAX_LOAD' THEN MAX(r.max_load) ELSE SUM(r.entered) END DESC, r.stop_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TopStopRow> findTopStops(@Param("from") LocalDate from,
+                                  @Param("to") LocalDate to,
+                                  @Param("dayOfWeek") Integer dayOfWeek,
+                                  @Param("hour") Integer hour,
+                                  @Param("metric") String metric,
+                                  @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT
+                rt.id as routeId,
+                rt.name as routeName,
+                SUM(r.entered) as entered,
+                SUM(r.exited) as exited,
+                MAX(r.max_load) as maxLoad
+            FROM stop_hourly_rollup r
+            JOIN stops s ON r.stop_id = s.id
+            JOIN routes rt ON s.route_id = rt.id
+            WHERE r.rollup_date BETWEEN :from AND :to
+              AND (CAST(:dayOfWeek AS integer) IS NULL OR EXTRACT(ISODOW FROM r.rollup_date) = CAST(:dayOfWeek AS integer))
+              AND (CAST(:hour AS integer) IS NULL OR r.hour = CAST(:hour AS integer))
+            GROUP BY rt.id, rt.name
+            ORDER BY CASE WHEN :metric = 'MAX_LOAD' THEN MAX(r.max_load) ELSE SUM(r.entered) END DESC, rt.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TopRouteRow> findTopRoutes(@Param("from") LocalDate from,
+                                    @Param("to") LocalDate to,
+                                    @Param("dayOfWeek") Integer dayOfWeek,
+                                    @Param("hour") Integer hour,
+                                    @Param("metric") String metric,
+                                    @Param("limit") int limit);
+
+    interface TopStopRow {
+        Long getStopId();
+
+        String getStopName();
+
+        String getRouteName();
+
+        Long getEntered();
+
+        Long getExited();
+
+        Long getMaxLoad();
+    }
+
+    interface TopRouteRow {
+        Long getRouteId();
+
+        String getRouteName();
+
+        Long getEntered();
+
+        Long getExited();
+
+        Long getMaxLoad();
+    }
+}
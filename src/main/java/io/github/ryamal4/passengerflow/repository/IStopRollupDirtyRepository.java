@@ -0,0 +1,9 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.model.StopRollupDirty;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IStopRollupDirtyRepository extends JpaRepository<StopRollupDirty, Long> {
+}
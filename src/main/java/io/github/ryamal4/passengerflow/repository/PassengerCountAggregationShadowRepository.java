@@ -0,0 +1,94 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public class PassengerCountAggregationShadowRepository {
+    private static final String LIVE_TABLE = AggregationQueries.LIVE_TABLE;
+    private static final String SHADOW_TABLE = "passenger_counts_aggregation_shadow";
+
+    private static final String FIND_STOP_FK_SQL = """
+            SELECT conname
+            FROM pg_constraint
+            WHERE conrelid = ?::regclass
+              AND confrelid = 'stops'::regclass
+              AND contype = 'f'
+            """;
+
+    // Buses are picked by the chunk's stops so their running loads cover the whole service day, while only the
+    // chunk's stops are aggregated.
+    private static final String INSERT_CHUNK_SQL = AggregationQueries.insertAggregatedData(SHADOW_TABLE, """
+            AND pc.bus_id IN (
+                SELECT DISTINCT chunk.bus_id
+                FROM passenger_counts chunk
+                WHERE EXTRACT(ISODOW FROM chunk.timestamp) = :dayOfWeek
+                  AND chunk.stop_id BETWEEN :fromStopId AND :toStopId
+            )
+            """, "AND pl.stop_id BETWEEN :fromStopId AND :toStopId");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public PassengerCountAggregationShadowRepository(JdbcTemplate jdbcTemplate,
+                                                     NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    public List<Long> findStopIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM stops ORDER BY id", Long.class);
+    }
+
+    @Transactional
+    public void createShadowTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + SHADOW_TABLE + " (LIKE " + LIVE_TABLE
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING IDENTITY)");
+    }
+
+    @Transactional
+    public int insertAggregatedData(int dayOfWeek, long fromStopId, long toStopId) {
+        var params = new MapSqlParameterSource()
+                .addValue("dayOfWeek", dayOfWeek)
+                .addValue("fromStopId", fromStopId)
+                .addValue("toStopId", toStopId);
+        return namedParameterJdbcTemplate.update(INSERT_CHUNK_SQL, params);
+    }
+
+    // Readers block on the exclusive lock for the few catalog updates below and then see the new table;
+    // names are restored so the next rebuild and Hibernate validation find the same schema as before. The
+    // foreign key keeps whatever name the live table had, which differs between schema.sql and Hibernate DDL.
+    @Transactional
+    public void swapShadowTable() {
+        var foreignKeyName = jdbcTemplate.queryForList(FIND_STOP_FK_SQL, String.class, LIVE_TABLE).stream()
+                .findFirst()
+                .orElse(LIVE_TABLE + "_stop_fk");
+
+        jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE
+                + " ADD CONSTRAINT " + SHADOW_TABLE + "_pkey PRIMARY KEY (id)");
+        jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE
+                + " ADD CONSTRAINT " + SHADOW_TABLE + "_stop_fk FOREIGN KEY (stop_id) REFERENCES stops(id)");
+        jdbcTemplate.execute("CREATE INDEX " + SHADOW_TABLE + "_lookup ON " + SHADOW_TABLE
+                + " USING btree (stop_id, day_of_week, hour, minute)");
+
+        jdbcTemplate.execute("LOCK TABLE " + LIVE_TABLE + " IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("DROP TABLE " + LIVE_TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE + " RENAME TO " + LIVE_TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + LIVE_TABLE
+                + " RENAME CONSTRAINT " + SHADOW_TABLE + "_pkey TO " + LIVE_TABLE + "_pkey");
+        jdbcTemplate.execute("ALTER TABLE " + LIVE_TABLE
+                + " RENAME CONSTRAINT " + SHADOW_TABLE + "_stop_fk TO \"" + foreignKeyName + "\"");
+        jdbcTemplate.execute("ALTER INDEX " + SHADOW_TABLE + "_lookup RENAME TO idx_aggregation_lookup");
+        jdbcTemplate.execute("ALTER SEQUENCE " + SHADOW_TABLE + "_id_seq RENAME TO " + LIVE_TABLE + "_id_seq");
+    }
+
+    public void dropShadowTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+    }
+}
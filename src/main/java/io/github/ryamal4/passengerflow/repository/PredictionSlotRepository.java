@@ -0,0 +1,77 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+// Batch predictions look up exact (stop, day, hour, minute) slots. The slots are passed as parallel arrays and
+// unnested into rows, so the join reads only the requested slots through the slot index instead of every
+// combination of the requested stops, days and hours.
+@Repository
+public class PredictionSlotRepository {
+    private static final String FIND_AGGREGATED_SQL = """
+            SELECT a.stop_id, a.day_of_week, a.hour, a.minute, a.average_occupancy_percentage, a.occupancy_histogram
+            FROM unnest(?::bigint[], ?::integer[], ?::integer[], ?::integer[]) AS s(stop_id, day_of_week, hour, minute)
+            JOIN passenger_counts_aggregation a
+              ON a.stop_id = s.stop_id AND a.day_of_week = s.day_of_week AND a.hour = s.hour AND a.minute = s.minute
+            """;
+
+    private static final String FIND_ESTIMATED_SQL = """
+            SELECT e.stop_id, e.day_of_week, e.hour, e.minute, e.mean, e.variance
+            FROM unnest(?::bigint[], ?::integer[], ?::integer[], ?::integer[]) AS s(stop_id, day_of_week, hour, minute)
+            JOIN occupancy_estimates e
+              ON e.stop_id = s.stop_id AND e.day_of_week = s.day_of_week AND e.hour = s.hour AND e.minute = s.minute
+            WHERE e.weight > 0
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PredictionSlotRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record SlotKey(long stopId, int dayOfWeek, int hour, int minute) {
+    }
+
+    public record AggregatedSlot(SlotKey key, double averageOccupancyPercentage, byte[] occupancyHistogram) {
+    }
+
+    public record EstimatedSlot(SlotKey key, double mean, double variance) {
+    }
+
+    public List<AggregatedSlot> findAggregatedSlots(Collection<SlotKey> slots) {
+        return jdbcTemplate.query(FIND_AGGREGATED_SQL,
+                (rs, rowNum) -> new AggregatedSlot(readKey(rs), rs.getDouble(5), rs.getBytes(6)),
+                slotArrays(slots));
+    }
+
+    public List<EstimatedSlot> findEstimatedSlots(Collection<SlotKey> slots) {
+        return jdbcTemplate.query(FIND_ESTIMATED_SQL,
+                (rs, rowNum) -> new EstimatedSlot(readKey(rs), rs.getDouble(5), rs.getDouble(6)),
+                slotArrays(slots));
+    }
+
+    private static Object[] slotArrays(Collection<SlotKey> slots) {
+        var stopIds = new Long[slots.size()];
+        var daysOfWeek = new Integer[slots.size()];
+        var hours = new Integer[slots.size()];
+        var minutes = new Integer[slots.size()];
+        var i = 0;
+        for (var slot : slots) {
+            stopIds[i] = slot.stopId();
+            daysOfWeek[i] = slot.dayOfWeek();
+            hours[i] = slot.hour();
+            minutes[i] = slot.minute();
+            i++;
+        }
+        return new Object[]{stopIds, daysOfWeek, hours, minutes};
+    }
+
+    private static SlotKey readKey(ResultSet rs) throws SQLException {
+        return new SlotKey(rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+    }
+}
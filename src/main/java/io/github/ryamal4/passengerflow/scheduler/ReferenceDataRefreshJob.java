@@ -0,0 +1,19 @@
+package io.github.ryamal4.passengerflow.scheduler;
+
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Picks up routes, stops and buses changed outside the application, e.g. by SQL scripts.
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataRefreshJob {
+    private final IReferenceDataRegistry referenceDataRegistry;
+
+    @Scheduled(fixedDelayString = "${reference-data.refresh-interval-ms:600000}",
+            initialDelayString = "${reference-data.refresh-interval-ms:600000}")
+    public void invalidateReferenceData() {
+        referenceDataRegistry.invalidate();
+    }
+}
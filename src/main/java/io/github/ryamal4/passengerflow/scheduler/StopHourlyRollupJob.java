@@ -0,0 +1,24 @@
+package io.github.ryamal4.passengerflow.scheduler;
+
+import io.github.ryamal4.passengerflow.service.analytics.IStopTrafficService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StopHourlyRollupJob {
+    private final IStopTrafficService stopTrafficService;
+
+    @Scheduled(fixedDelayString = "${rollup.refresh-interval-ms:60000}",
+            initialDelayString = "${rollup.refresh-interval-ms:60000}")
+    public void refreshRollup() {
+        try {
+            stopTrafficService.refreshRollup();
+        } catch (Exception e) {
+            log.error("Error during hourly stop rollup refresh", e);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package io.github.ryamal4.passengerflow.service.aggregation;
+
+public interface IAggregationEngine {
+    int insertAggregatedData(int dayOfWeek);
+}
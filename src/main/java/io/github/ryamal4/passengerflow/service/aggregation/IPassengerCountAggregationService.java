@@ -1,7 +1,13 @@
 package io.github.ryamal4.passengerflow.service.aggregation;
 
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildStatus;
+
 import java.time.DayOfWeek;
 
 public interface IPassengerCountAggregationService {
     void performAggregation(DayOfWeek targetDayOfWeek);
-}
\ No newline at end of file
+
+    AggregationRebuildStatus startRebuild();
+
+    AggregationRebuildStatus getRebuildStatus();
+}
@@ -0,0 +1,112 @@
+package io.github.ryamal4.passengerflow.service.aggregation;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Fixed-bucket sketch of occupancy percentages in one slot: 5% buckets over [0, 200) plus an underflow and an
+// overflow bucket, numbered like PostgreSQL's width_bucket(value, 0, 200, 40) so the SQL and JVM engines produce
+// the same sketch. Sketches of the same slot merge by adding counts. The stored form lists only non-empty buckets,
+// each as a big-endian int2 bucket number followed by an int4 count.
+public final class OccupancyHistogram {
+    static final double LOWER_BOUND = 0.0;
+    static final double UPPER_BOUND = 200.0;
+    static final int BUCKET_COUNT = 40;
+    private static final double BUCKET_WIDTH = (UPPER_BOUND - LOWER_BOUND) / BUCKET_COUNT;
+    private static final int ENTRY_BYTES = Short.BYTES + Integer.BYTES;
+
+    private final int[] counts = new int[BUCKET_COUNT + 2];
+    private long totalCount;
+
+    public static OccupancyHistogram fromBytes(byte[] encoded) {
+        var histogram = new OccupancyHistogram();
+        if (encoded == null) {
+            return histogram;
+        }
+        if (encoded.length % ENTRY_BYTES != 0) {
+            throw new IllegalArgumentException("Corrupt occupancy histogram of " + encoded.length + " bytes");
+        }
+        var buffer = ByteBuffer.wrap(encoded);
+        while (buffer.hasRemaining()) {
+            int bucket = buffer.getShort();
+            var count = buffer.getInt();
+            if (bucket < 0 || bucket >= histogram.counts.length || count < 0) {
+                throw new IllegalArgumentException("Corrupt occupancy histogram entry " + bucket + ":" + count);
+            }
+            histogram.counts[bucket] += count;
+            histogram.totalCount += count;
+        }
+        return histogram;
+    }
+
+    public void add(double occupancyPercentage) {
+        counts[bucketOf(occupancyPercentage)]++;
+        totalCount++;
+    }
+
+    public void merge(OccupancyHistogram other) {
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        totalCount += other.totalCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+
+    // Interpolates linearly inside the bucket holding the requested rank; values outside [0, 200)
+    // are reported at the nearest bound.
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (isEmpty()) {
+            throw new IllegalStateException("Empty histogram has no quantiles");
+        }
+        var rank = q * totalCount;
+        var seen = 0L;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            var count = counts[bucket];
+            if (count == 0) {
+                continue;
+            }
+            if (seen + count >= rank) {
+                if (bucket == 0) {
+                    return LOWER_BOUND;
+                }
+                if (bucket == BUCKET_COUNT + 1) {
+                    return UPPER_BOUND;
+                }
+                var bucketStart = LOWER_BOUND + (bucket - 1) * BUCKET_WIDTH;
+                return bucketStart + BUCKET_WIDTH * (rank - seen) / count;
+            }
+            seen += count;
+        }
+        return UPPER_BOUND;
+    }
+
+    public byte[] toBytes() {
+        var buffer = ByteBuffer.allocate((int) Arrays.stream(counts).filter(count -> count > 0).count() * ENTRY_BYTES);
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] > 0) {
+                buffer.putShort((short) bucket);
+                buffer.putInt(counts[bucket]);
+            }
+        }
+        return buffer.array();
+    }
+
+    static int bucketOf(double occupancyPercentage) {
+        if (occupancyPercentage < LOWER_BOUND) {
+            return 0;
+        }
+        if (occupancyPercentage >= UPPER_BOUND) {
+            return BUCKET_COUNT + 1;
+        }
+        return (int) ((occupancyPercentage - LOWER_BOUND) / BUCKET_WIDTH) + 1;
+    }
+}
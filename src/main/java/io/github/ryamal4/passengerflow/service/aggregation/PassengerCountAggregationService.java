@@ -1,28 +1,178 @@
 package io.github.ryamal4.passengerflow.service.aggregation;
 
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildResult;
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildStatus;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.repository.AggregationLockRepository;
 import io.github.ryamal4.passengerflow.repository.IPassengerCountAggregationRepository;
+import io.github.ryamal4.passengerflow.repository.PassengerCountAggregationShadowRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PassengerCountAggregationService implements IPassengerCountAggregationService {
     private final IPassengerCountAggregationRepository aggregationRepository;
+    private final PassengerCountAggregationShadowRepository shadowRepository;
+    private final AggregationLockRepository aggregationLock;
+    private final IAggregationEngine aggregationEngine;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean();
+    private final AtomicReference<AggregationRebuildStatus> rebuildStatus = new AtomicReference<>(
+            new AggregationRebuildStatus(AggregationRebuildStatus.State.IDLE, null, null, null, null));
+    // A full rebuild outlives any request, so it runs here and callers poll getRebuildStatus().
+    private final ExecutorService rebuildLauncher =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("aggregation-rebuild-launcher-"));
+    @Value("${aggregation.rebuild.threads:4}")
+    private int rebuildThreads;
+    @Value("${aggregation.rebuild.stops-per-chunk:200}")
+    private int stopsPerChunk;
 
     @Transactional
     public void performAggregation(DayOfWeek targetDayOfWeek) {
         log.info("Starting daily aggregation for day of week: {}", targetDayOfWeek);
+        var sample = Timer.start(meterRegistry);
         int dayOfWeekValue = targetDayOfWeek.getValue();
 
+        aggregationLock.lockForTransaction();
         aggregationRepository.deleteByDayOfWeek(dayOfWeekValue);
         log.info("Deleted old aggregations for day of week: {}", targetDayOfWeek);
 
-        int insertedCount = aggregationRepository.insertAggregatedData(dayOfWeekValue);
+        int insertedCount = aggregationEngine.insertAggregatedData(dayOfWeekValue);
         log.info("Inserted {} aggregation records for day of week: {}", insertedCount, targetDayOfWeek);
+
+        recordRun(sample, targetDayOfWeek.name().toLowerCase(), insertedCount);
+    }
+
+    @Override
+    public AggregationRebuildStatus startRebuild() {
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            throw new AppException(HttpStatus.CONFLICT, "Aggregation rebuild is already running");
+        }
+        var startedAt = LocalDateTime.now();
+        var status = new AggregationRebuildStatus(AggregationRebuildStatus.State.RUNNING, startedAt, null, null, null);
+        rebuildStatus.set(status);
+        rebuildLauncher.execute(() -> runRebuild(startedAt));
+        return status;
+    }
+
+    @Override
+    public AggregationRebuildStatus getRebuildStatus() {
+        return rebuildStatus.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildLauncher.shutdownNow();
+    }
+
+    private void runRebuild(LocalDateTime startedAt) {
+        try {
+            // The live table is dropped at the swap, so no daily run may write between the shadow build and it.
+            var result = aggregationLock.withSessionLock(this::rebuildLocked);
+            rebuildStatus.set(new AggregationRebuildStatus(AggregationRebuildStatus.State.SUCCEEDED,
+                    startedAt, LocalDateTime.now(), result, null));
+        } catch (RuntimeException e) {
+            log.error("Full aggregation rebuild failed", e);
+            rebuildStatus.set(new AggregationRebuildStatus(AggregationRebuildStatus.State.FAILED,
+                    startedAt, LocalDateTime.now(), null, e.getMessage()));
+        } finally {
+            rebuildRunning.set(false);
+        }
+    }
+
+    private AggregationRebuildResult rebuildLocked() {
+        var sample = Timer.start(meterRegistry);
+        var startNanos = System.nanoTime();
+        var ranges = splitIntoRanges(shadowRepository.findStopIds());
+        log.info("Starting full aggregation rebuild: {} stop ranges x 7 days on {} threads",
+                ranges.size(), rebuildThreads);
+
+        shadowRepository.createShadowTable();
+        long insertedCount;
+        try {
+            insertedCount = fillShadowTable(ranges);
+            shadowRepository.swapShadowTable();
+        } catch (RuntimeException e) {
+            shadowRepository.dropShadowTable();
+            throw e;
+        }
+
+        var durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        log.info("Full aggregation rebuild inserted {} records in {} ms", insertedCount, durationMillis);
+        recordRun(sample, "all", insertedCount);
+        return new AggregationRebuildResult(ranges.size() * DayOfWeek.values().length, insertedCount, durationMillis);
+    }
+
+    private long fillShadowTable(List<StopRange> ranges) {
+        var executor = Executors.newFixedThreadPool(rebuildThreads, new CustomizableThreadFactory("aggregation-rebuild-"));
+        try {
+            var chunks = new ArrayList<Future<Integer>>();
+            for (var day : DayOfWeek.values()) {
+                for (var range : ranges) {
+                    chunks.add(executor.submit(() ->
+                            shadowRepository.insertAggregatedData(day.getValue(), range.fromStopId(), range.toStopId())));
+                }
+            }
+
+            long insertedCount = 0;
+            for (var chunk : chunks) {
+                insertedCount += chunk.get();
+            }
+            return insertedCount;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Aggregation rebuild chunk failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Aggregation rebuild was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<StopRange> splitIntoRanges(List<Long> stopIds) {
+        var ranges = new ArrayList<StopRange>();
+        for (int from = 0; from < stopIds.size(); from += stopsPerChunk) {
+            var to = Math.min(from + stopsPerChunk, stopIds.size()) - 1;
+            ranges.add(new StopRange(stopIds.get(from), stopIds.get(to)));
+        }
+        return ranges;
+    }
+
+    private void recordRun(Timer.Sample sample, String dayTag, long insertedCount) {
+        sample.stop(Timer.builder("passengerflow.aggregation.duration")
+                .description("Time to rebuild aggregations for one day of week")
+                .tag("day_of_week", dayTag)
+                .register(meterRegistry));
+        DistributionSummary.builder("passengerflow.aggregation.rows")
+                .description("Aggregation rows inserted per run")
+                .tag("day_of_week", dayTag)
+                .register(meterRegistry)
+                .record(insertedCount);
+    }
+
+    private record StopRange(long fromStopId, long toStopId) {
     }
-}
\ No newline at end of file
+}
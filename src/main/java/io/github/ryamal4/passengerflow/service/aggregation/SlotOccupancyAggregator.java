@@ -0,0 +1,71 @@
+package io.github.ryamal4.passengerflow.service.aggregation;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Mirrors the native aggregation query: running load per bus and service day (starting at 04:00),
+// averaged as occupancy percentage into 5-minute slots per stop, with an occupancy histogram alongside each average.
+// Rows must arrive ordered by bus, then timestamp.
+final class SlotOccupancyAggregator {
+    static final int SLOT_MINUTES = 5;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final int SERVICE_DAY_START_HOUR = 4;
+
+    private final Map<Long, StopSlots> stops = new TreeMap<>();
+
+    private long currentBusId = Long.MIN_VALUE;
+    private LocalDate currentServiceDay;
+    private long currentLoad;
+
+    void accept(long busId, long stopId, LocalDateTime timestamp, int entered, int exited, Integer capacity) {
+        var serviceDay = timestamp.minusHours(SERVICE_DAY_START_HOUR).toLocalDate();
+        if (busId != currentBusId || !serviceDay.equals(currentServiceDay)) {
+            currentBusId = busId;
+            currentServiceDay = serviceDay;
+            currentLoad = 0;
+        }
+        currentLoad += entered - exited;
+
+        if (capacity == null || capacity <= 0) {
+            return;
+        }
+        var slot = timestamp.getHour() * (60 / SLOT_MINUTES) + timestamp.getMinute() / SLOT_MINUTES;
+        var slots = stops.computeIfAbsent(stopId, id -> new StopSlots());
+        var occupancyPercentage = (double) currentLoad / capacity * 100.0;
+        slots.sums[slot] += occupancyPercentage;
+        slots.counts[slot]++;
+        if (slots.histograms[slot] == null) {
+            slots.histograms[slot] = new OccupancyHistogram();
+        }
+        slots.histograms[slot].add(occupancyPercentage);
+    }
+
+    int forEachSlot(SlotConsumer consumer) {
+        var emitted = 0;
+        for (var entry : stops.entrySet()) {
+            var slots = entry.getValue();
+            for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+                if (slots.counts[slot] > 0) {
+                    consumer.accept(entry.getKey(), slot / (60 / SLOT_MINUTES), slot % (60 / SLOT_MINUTES) * SLOT_MINUTES,
+                            slots.sums[slot] / slots.counts[slot], slots.histograms[slot]);
+                    emitted++;
+                }
+            }
+        }
+        return emitted;
+    }
+
+    @FunctionalInterface
+    interface SlotConsumer {
+        void accept(long stopId, int hour, int minute, double averageOccupancyPercentage,
+                    OccupancyHistogram histogram);
+    }
+
+    private static final class StopSlots {
+        private final double[] sums = new double[SLOTS_PER_DAY];
+        private final int[] counts = new int[SLOTS_PER_DAY];
+        private final OccupancyHistogram[] histograms = new OccupancyHistogram[SLOTS_PER_DAY];
+    }
+}
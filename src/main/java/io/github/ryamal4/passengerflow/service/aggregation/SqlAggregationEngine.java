@@ -0,0 +1,23 @@
+package io.github.ryamal4.passengerflow.service.aggregation;
+
+import io.github.ryamal4.passengerflow.repository.AggregationQueries;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "aggregation.engine", havingValue = "sql", matchIfMissing = true)
+public class SqlAggregationEngine implements IAggregationEngine {
+    private static final String INSERT_SQL =
+            AggregationQueries.insertAggregatedData(AggregationQueries.LIVE_TABLE, "", "");
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public int insertAggregatedData(int dayOfWeek) {
+        return namedParameterJdbcTemplate.update(INSERT_SQL, new MapSqlParameterSource("dayOfWeek", dayOfWeek));
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.ryamal4.passengerflow.service.aggregation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+// PostgreSQL only, like the SQL engine: the reader filters the day with EXTRACT(ISODOW) so only one weekday is
+// streamed, and relies on the PostgreSQL driver's cursor behaviour for the fetch size.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aggregation.engine", havingValue = "jvm")
+public class StreamingAggregationEngine implements IAggregationEngine {
+    private static final String SELECT_COUNTS_SQL = """
+            SELECT pc.bus_id, pc.stop_id, pc.timestamp, pc.entered, pc.exited, bm.capacity
+            FROM passenger_counts pc
+            JOIN buses b ON pc.bus_id = b.id
+            JOIN bus_models bm ON b.bus_model_id = bm.id
+            WHERE EXTRACT(ISODOW FROM pc.timestamp) = ?
+            ORDER BY pc.bus_id, pc.timestamp
+            """;
+    private static final String INSERT_SQL = """
+            INSERT INTO passenger_counts_aggregation
+                (stop_id, day_of_week, hour, minute, average_occupancy_percentage, occupancy_histogram)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+    private final int batchSize;
+
+    public StreamingAggregationEngine(
+            JdbcTemplate jdbcTemplate,
+            @Value("${aggregation.jvm.fetch-size:10000}") int fetchSize,
+            @Value("${aggregation.jvm.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+    }
+
+    // Must run inside a transaction: the PostgreSQL driver only uses a server-side cursor
+    // (and honours the fetch size) when autocommit is off.
+    @Override
+    @Transactional
+    public int insertAggregatedData(int dayOfWeek) {
+        var aggregator = new SlotOccupancyAggregator();
+        var rowCount = new long[1];
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_COUNTS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setInt(1, dayOfWeek);
+            return statement;
+        }, rs -> {
+            aggregator.accept(
+                    rs.getLong(1),
+                    rs.getLong(2),
+                    rs.getObject(3, LocalDateTime.class),
+                    rs.getInt(4),
+                    rs.getInt(5),
+                    rs.getObject(6, Integer.class));
+            rowCount[0]++;
+        });
+
+        var batch = new ArrayList<Object[]>(batchSize);
+        var inserted = aggregator.forEachSlot((stopId, hour, minute, average, histogram) -> {
+            batch.add(new Object[]{stopId, dayOfWeek, hour, minute, average, histogram.toBytes()});
+            if (batch.size() == batchSize) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+
+        log.info("Streamed {} passenger counts into {} aggregation records for day of week {}",
+                rowCount[0], inserted, dayOfWeek);
+        return inserted;
+    }
+}
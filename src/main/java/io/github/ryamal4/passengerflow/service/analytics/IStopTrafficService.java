@@ -0,0 +1,15 @@
+package io.github.ryamal4.passengerflow.service.analytics;
+
+import io.github.ryamal4.passengerflow.dto.StopTrafficDTO;
+import io.github.ryamal4.passengerflow.enums.TrafficGranularity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface IStopTrafficService {
+    int refreshRollup();
+
+    int rebuildRollup(LocalDate from, LocalDate to);
+
+    List<StopTrafficDTO> getStopTraffic(Long stopId, LocalDate from, LocalDate to, TrafficGranularity granularity);
+}
@@ -0,0 +1,16 @@
+package io.github.ryamal4.passengerflow.service.analytics;
+
+import io.github.ryamal4.passengerflow.dto.TopRouteDTO;
+import io.github.ryamal4.passengerflow.dto.TopStopDTO;
+import io.github.ryamal4.passengerflow.enums.TrafficMetric;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ITopTrafficService {
+    List<TopStopDTO> getTopStops(LocalDate from, LocalDate to, Integer dayOfWeek, Integer hour,
+                                 TrafficMetric metric, int limit);
+
+    List<TopRouteDTO> getTopRoutes(LocalDate from, LocalDate to, Integer dayOfWeek, Integer hour,
+                                   TrafficMetric metric, int limit);
+}
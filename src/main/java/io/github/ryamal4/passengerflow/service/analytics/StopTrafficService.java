@@ -0,0 +1,89 @@
+package io.github.ryamal4.passengerflow.service.analytics;
+
+import io.github.ryamal4.passengerflow.dto.StopTrafficDTO;
+import io.github.ryamal4.passengerflow.enums.TrafficGranularity;
+import io.github.ryamal4.passengerflow.event.StopRollupUpdatedEvent;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.model.StopHourlyRollup;
+import io.github.ryamal4.passengerflow.repository.IStopHourlyRollupRepository;
+import io.github.ryamal4.passengerflow.repository.IStopsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StopTrafficService implements IStopTrafficService {
+    private final IStopHourlyRollupRepository rollupRepository;
+    private final IStopsRepository stopsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public int refreshRollup() {
+        rollupRepository.lockRollup();
+        var upserted = rollupRepository.upsertQueuedChanges();
+        if (upserted > 0) {
+            eventPublisher.publishEvent(new StopRollupUpdatedEvent(upserted));
+        }
+        log.debug("Refreshed {} hourly stop rollup buckets from queued passenger count changes", upserted);
+        return upserted;
+    }
+
+    @Override
+    @Transactional
+    public int rebuildRollup(LocalDate from, LocalDate to) {
+        validatePeriod(from, to);
+        rollupRepository.lockRollup();
+        rollupRepository.deleteByRollupDateBetween(from, to);
+        var upserted = rollupRepository.upsertForPeriod(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        log.info("Rebuilt {} hourly stop rollup buckets from {} to {}", upserted, from, to);
+        eventPublisher.publishEvent(new StopRollupUpdatedEvent(upserted));
+        return upserted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StopTrafficDTO> getStopTraffic(Long stopId, LocalDate from, LocalDate to,
+                                               TrafficGranularity granularity) {
+        validatePeriod(from, to);
+        if (!stopsRepository.existsById(stopId)) {
+            throw new AppException(HttpStatus.NOT_FOUND, "Stop not found with id: " + stopId);
+        }
+
+        var periods = new LinkedHashMap<LocalDateTime, StopTrafficDTO>();
+        for (var rollup : rollupRepository.findByStopAndPeriod(stopId, from, to)) {
+            var period = periods.computeIfAbsent(periodStart(rollup, granularity),
+                    start -> new StopTrafficDTO(start, 0, 0, 0, Long.MIN_VALUE));
+            period.setEntered(period.getEntered() + rollup.getEntered());
+            period.setExited(period.getExited() + rollup.getExited());
+            period.setSamples(period.getSamples() + rollup.getSamples());
+            period.setMaxLoad(Math.max(period.getMaxLoad(), rollup.getMaxLoad()));
+        }
+        return new ArrayList<>(periods.values());
+    }
+
+    private LocalDateTime periodStart(StopHourlyRollup rollup, TrafficGranularity granularity) {
+        return switch (granularity) {
+            case HOUR -> rollup.getRollupDate().atTime(rollup.getHour(), 0);
+            case DAY -> rollup.getRollupDate().atStartOfDay();
+            case MONTH -> rollup.getRollupDate().withDayOfMonth(1).atStartOfDay();
+        };
+    }
+
+    private void validatePeriod(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Period start must not be after its end");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.ryamal4.passengerflow.service.analytics;
+
+import io.github.ryamal4.passengerflow.dto.TopRouteDTO;
+import io.github.ryamal4.passengerflow.dto.TopStopDTO;
+import io.github.ryamal4.passengerflow.enums.TrafficMetric;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.repository.IStopHourlyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Results are cached per parameter set. StopRollupEventListener clears the cache of the node that refreshed the
+// rollup; on other nodes entries expire after one refresh interval (see CacheConfig).
+@Service
+@RequiredArgsConstructor
+public class TopTrafficService implements ITopTrafficService {
+    public static final String TOP_TRAFFIC_CACHE = "topTraffic";
+    static final int MAX_LIMIT = 100;
+
+    private final IStopHourlyRollupRepository rollupRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = TOP_TRAFFIC_CACHE, key = "{'stops', #from, #to, #dayOfWeek, #hour, #metric, #limit}")
+    public List<TopStopDTO> getTopStops(LocalDate from, LocalDate to, Integer dayOfWeek, Integer hour,
+                                        TrafficMetric metric, int limit) {
+        validate(from, to, dayOfWeek, hour, limit);
+        return rollupRepository.findTopStops(from, to, dayOfWeek, hour, metric.name(), limit).stream()
+                .map(row -> new TopStopDTO(row.getStopId(), row.getStopName(), row.getRouteName(),
+                        row.getEntered(), row.getExited(), row.getMaxLoad()))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = TOP_TRAFFIC_CACHE, key = "{'routes', #from, #to, #dayOfWeek, #hour, #metric, #limit}")
+    public List<TopRouteDTO> getTopRoutes(LocalDate from, LocalDate to, Integer dayOfWeek, Integer hour,
+                                          TrafficMetric metric, int limit) {
+        validate(from, to, dayOfWeek, hour, limit);
+        return rollupRepository.findTopRoutes(from, to, dayOfWeek, hour, metric.name(), limit).stream()
+                .map(row -> new TopRouteDTO(row.getRouteId(), row.getRouteName(),
+                        row.getEntered(), row.getExited(), row.getMaxLoad()))
+                .toList();
+    }
+
+    private void validate(LocalDate from, LocalDate to, Integer dayOfWeek, Integer hour, int limit) {
+        if (from.isAfter(to)) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Period start must not be after its end");
+        }
+        if (dayOfWeek != null && (dayOfWeek < 1 || dayOfWeek > 7)) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Day of week must be between 1 and 7");
+        }
+        if (hour != null && (hour < 0 || hour > 23)) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Hour must be between 0 and 23");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+}
@@ -1,37 +1,49 @@
 package io.github.ryamal4.passengerflow.service.bus;
 
+import io.github.ryamal4.passengerflow.dto.BusColumnsDTO;
 import io.github.ryamal4.passengerflow.dto.BusDTO;
-import io.github.ryamal4.passengerflow.model.Bus;
-import io.github.ryamal4.passengerflow.repository.IBusRepository;
-import jakarta.transaction.Transactional;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 
 @Service
-@Transactional
 public class BusService implements IBusService {
-    private final IBusRepository busRepository;
 
-    public BusService(IBusRepository busRepository) {
-        this.busRepository = busRepository;
-    }
-
-    private static BusDTO convertToDTO(Bus entity) {
+    private static BusDTO convertToDTO(ReferenceDataSnapshot.BusRef bus) {
         var dto = new BusDTO();
-        dto.setId(entity.getId());
-        dto.setBusModelId(entity.getBusModel().getId());
-        dto.setBusModelName(entity.getBusModel().getName());
-        dto.setBusModelCapacity(entity.getBusModel().getCapacity());
-        dto.setRouteId(entity.getRoute().getId());
-        dto.setRouteName(entity.getRoute().getName());
+        dto.setId(bus.id());
+        dto.setBusModelId(bus.busModelId());
+        dto.setBusModelName(bus.busModelName());
+        dto.setBusModelCapacity(bus.busModelCapacity());
+        dto.setRouteId(bus.routeId());
+        dto.setRouteName(bus.routeName());
         return dto;
     }
 
     @Override
-    public List<BusDTO> getAllBuses() {
-        return busRepository.findAll().stream()
+    public List<BusDTO> getAllBuses(ReferenceDataSnapshot catalog) {
+        return catalog.getBuses().stream()
                 .map(BusService::convertToDTO)
                 .toList();
     }
+
+    @Override
+    public BusColumnsDTO getAllBusesColumnar(ReferenceDataSnapshot catalog) {
+        var buses = catalog.getBuses();
+        var size = buses.size();
+        var columns = new BusColumnsDTO(new long[size], new long[size], new long[size],
+                new HashMap<>(), new HashMap<>(), new HashMap<>());
+        for (int i = 0; i < size; i++) {
+            var bus = buses.get(i);
+            columns.getId()[i] = bus.id();
+            columns.getBusModelId()[i] = bus.busModelId();
+            columns.getRouteId()[i] = bus.routeId();
+            columns.getBusModelNames().putIfAbsent(bus.busModelId(), bus.busModelName());
+            columns.getBusModelCapacities().putIfAbsent(bus.busModelId(), bus.busModelCapacity());
+            columns.getRouteNames().putIfAbsent(bus.routeId(), bus.routeName());
+        }
+        return columns;
+    }
 }
@@ -1,9 +1,13 @@
 package io.github.ryamal4.passengerflow.service.bus;
 
+import io.github.ryamal4.passengerflow.dto.BusColumnsDTO;
 import io.github.ryamal4.passengerflow.dto.BusDTO;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 
 import java.util.List;
 
 public interface IBusService {
-    List<BusDTO> getAllBuses();
+    List<BusDTO> getAllBuses(ReferenceDataSnapshot catalog);
+
+    BusColumnsDTO getAllBusesColumnar(ReferenceDataSnapshot catalog);
 }
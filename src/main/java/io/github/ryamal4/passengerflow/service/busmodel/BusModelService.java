@@ -1,8 +1,10 @@
 package io.github.ryamal4.passengerflow.service.busmodel;
 
 import io.github.ryamal4.passengerflow.dto.BusModelDTO;
+import io.github.ryamal4.passengerflow.event.ReferenceDataChangedEvent;
 import io.github.ryamal4.passengerflow.model.BusModel;
 import io.github.ryamal4.passengerflow.repository.IBusModelRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -10,14 +12,17 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class BusModelService implements IBusModelService {
     private final IBusModelRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public BusModelService(IBusModelRepository repository) {
+    public BusModelService(IBusModelRepository repository, ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public void create(BusModel model) {
         repository.save(model);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent("BusModel"));
     }
 
     @Override
@@ -28,7 +33,20 @@ public class BusModelService implements IBusModelService {
 
     @Override
     public BusModel update(BusModel model) {
-        return repository.save(model);
+        var saved = repository.save(model);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent("BusModel"));
+        return saved;
+    }
+
+    // The previous name is read under the row lock, so concurrent uploads for one model each release a different file.
+    @Override
+    public FileReplacement replaceFile(Long id, String fileName) {
+        var model = repository.findByIdForUpdate(id)
+                .orElseThrow(() -> new IllegalArgumentException("BusModel not found with id: " + id));
+        var previousFileName = model.getFileName();
+        model.setFileName(fileName);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent("BusModel"));
+        return new FileReplacement(model, previousFileName);
     }
 
     public BusModelDTO convertToDTO(BusModel entity) {
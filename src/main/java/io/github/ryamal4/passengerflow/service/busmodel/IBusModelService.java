@@ -8,4 +8,9 @@ public interface IBusModelService {
     BusModel findById(Long id);
 
     BusModel update(BusModel model);
+
+    FileReplacement replaceFile(Long id, String fileName);
+
+    record FileReplacement(BusModel model, String previousFileName) {
+    }
 }
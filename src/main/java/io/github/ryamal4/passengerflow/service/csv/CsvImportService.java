@@ -1,28 +1,48 @@
 package io.github.ryamal4.passengerflow.service.csv;
 
 import io.github.ryamal4.passengerflow.dto.CsvImportResult;
+import io.github.ryamal4.passengerflow.event.ReferenceDataChangedEvent;
 import io.github.ryamal4.passengerflow.model.BusModel;
-import io.github.ryamal4.passengerflow.service.busmodel.IBusModelService;
-import lombok.RequiredArgsConstructor;
+import io.github.ryamal4.passengerflow.repository.BusModelBulkRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class CsvImportService implements ICsvImportService {
-    private final IBusModelService service;
+    private final BusModelBulkRepository bulkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public CsvImportService(BusModelBulkRepository bulkRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${csv-import.chunk-size:1000}") int chunkSize) {
+        this.bulkRepository = bulkRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
 
     private CSVFormat createFormat() {
         return CSVFormat.DEFAULT.builder()
@@ -33,26 +53,41 @@ public class CsvImportService implements ICsvImportService {
                 .get();
     }
 
+    // Rows are parsed as they are read and upserted in chunks with one JDBC batch per transaction.
     @Override
     public CsvImportResult importBusModelsFromCsv(MultipartFile file) {
-        List<BusModel> valid = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
+        var progress = new ImportProgress();
         try (var reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
              var parser = new CSVParser(reader, createFormat())) {
+            var chunk = new Chunk();
             for (var csvRecord : parser) {
-                processCsv(csvRecord, valid, errors);
+                var model = parse(csvRecord, progress);
+                if (model == null) {
+                    continue;
+                }
+                // An id repeated inside one batch would be rejected by the upsert, so the earlier rows go first.
+                if (chunk.ids.contains(model.getId())) {
+                    save(chunk, progress);
+                }
+                chunk.add(model, csvRecord.getRecordNumber());
+                if (chunk.models.size() >= chunkSize) {
+                    save(chunk, progress);
+                }
             }
-
-            var success = saveValid(valid);
-            return new CsvImportResult(success.size(), valid.size() - success.size(), errors);
-        } catch (IOException e) {
+            save(chunk, progress);
+        } catch (IOException | UncheckedIOException e) {
             log.error("Ошибка при чтении CSV файла", e);
-            errors.add("Не удалось прочитать файл: " + e.getMessage());
-            return new CsvImportResult(0, 0, errors);
+            progress.errors.add("Не удалось прочитать файл: " + e.getMessage());
+        }
+
+        if (progress.saved > 0) {
+            transactionTemplate.executeWithoutResult(status -> bulkRepository.syncIdSequence());
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent("BusModel"));
         }
+        return new CsvImportResult(progress.saved, progress.failed, progress.errors);
     }
 
-    private void processCsv(CSVRecord csvRecord, List<BusModel> models, List<String> errors) {
+    private BusModel parse(CSVRecord csvRecord, ImportProgress progress) {
         try {
             var model = new BusModel();
 
@@ -60,23 +95,69 @@ public class CsvImportService implements ICsvImportService {
             model.setName(csvRecord.get("name"));
             model.setCapacity(Integer.valueOf(csvRecord.get("capacity")));
 
-            models.add(model);
-        } catch (NumberFormatException e) {
-            errors.add("Строка " + csvRecord.getRecordNumber() + " : некорректные данные");
+            if (model.getName().isEmpty()) {
+                progress.rowFailed(csvRecord.getRecordNumber(), "некорректные данные");
+                return null;
+            }
+            return model;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            progress.rowFailed(csvRecord.getRecordNumber(), "некорректные данные");
+            return null;
         }
     }
 
-    private List<BusModel> saveValid(List<BusModel> valid) {
-        List<BusModel> success = new ArrayList<>();
-        for (var model : valid) {
-            try {
-                service.create(model);
-                success.add(model);
-            } catch (Exception e) {
-                log.error("Не удалось сохранить модель автобуса {}", model.getName());
+    // A failed batch is rolled back as a whole and replayed row by row to find the offending rows.
+    private void save(Chunk chunk, ImportProgress progress) {
+        if (chunk.models.isEmpty()) {
+            return;
+        }
+
+        var models = List.copyOf(chunk.models);
+        try {
+            transactionTemplate.executeWithoutResult(status -> bulkRepository.upsert(models));
+            progress.saved += models.size();
+        } catch (DataAccessException batchError) {
+            for (int i = 0; i < models.size(); i++) {
+                var model = models.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> bulkRepository.upsert(List.of(model)));
+                    progress.saved++;
+                } catch (DataAccessException e) {
+                    log.error("Не удалось сохранить модель автобуса {}", model.getName());
+                    progress.rowFailed(chunk.recordNumbers.get(i), "не удалось сохранить модель " + model.getName()
+                            + " (" + e.getMostSpecificCause().getMessage() + ")");
+                }
             }
         }
+        chunk.clear();
+    }
+
+    private static final class Chunk {
+        private final List<BusModel> models = new ArrayList<>();
+        private final List<Long> recordNumbers = new ArrayList<>();
+        private final Set<Long> ids = new HashSet<>();
+
+        private void add(BusModel model, long recordNumber) {
+            models.add(model);
+            recordNumbers.add(recordNumber);
+            ids.add(model.getId());
+        }
 
-        return success;
+        private void clear() {
+            models.clear();
+            recordNumbers.clear();
+            ids.clear();
+        }
+    }
+
+    private static final class ImportProgress {
+        private final List<String> errors = new ArrayList<>();
+        private int saved;
+        private int failed;
+
+        private void rowFailed(long recordNumber, String reason) {
+            errors.add("Строка " + recordNumber + " : " + reason);
+            failed++;
+        }
     }
 }
@@ -0,0 +1,227 @@
+package io.github.ryamal4.passengerflow.service.datagen;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// A seeded stand-in city: straight routes through a Moscow-sized area, buses shuttling end to end from 05:00 until
+// past midnight, and boardings that follow weekday morning and evening peaks. Everything is derived from the seed,
+// so the same settings always produce the same rows. Readings are written in COPY text format, one service day at
+// a time; trips started after midnight still belong to the previous service day, which ends at 04:00.
+final class SyntheticCity {
+    static final int SERVICE_START_MINUTE = 5 * 60;
+    static final int LAST_DEPARTURE_MINUTE = 24 * 60 + 30;
+    static final int MINUTES_BETWEEN_STOPS = 2;
+    static final int LAYOVER_MINUTES = 8;
+    // The last trip of the day has to end before the 04:00 service-day boundary.
+    static final int MAX_STOPS_PER_ROUTE = (28 * 60 - 1 - LAST_DEPARTURE_MINUTE) / MINUTES_BETWEEN_STOPS + 1;
+
+    private static final double CENTER_LAT = 55.75;
+    private static final double CENTER_LON = 37.62;
+    private static final double CITY_RADIUS_DEGREES = 0.25;
+    private static final double BASE_BOARDINGS = 4.0;
+    private static final double CRUSH_LOAD_FACTOR = 1.5;
+    private static final List<BusModelRow> BUS_MODELS = List.of(
+            new BusModelRow("ПАЗ-320412", 60),
+            new BusModelRow("МАЗ-203", 95),
+            new BusModelRow("ЛиАЗ-5292", 100),
+            new BusModelRow("ЛиАЗ-6213", 150));
+
+    private final long seed;
+    private final List<RouteRow> routes = new ArrayList<>();
+    private final List<StopRow> stops = new ArrayList<>();
+    private final List<BusRow> buses = new ArrayList<>();
+    private final double[] stopWeights;
+    private final int[] routeFirstStop;
+    private final int[] routeStopCount;
+
+    record BusModelRow(String name, int capacity) {
+    }
+
+    record RouteRow(long id, String name) {
+    }
+
+    record StopRow(long id, long routeId, String name, double lat, double lon) {
+    }
+
+    record BusRow(long id, long routeId, int routeIndex, int busModelIndex, int departureOffset) {
+    }
+
+    SyntheticCity(SyntheticDataSettings settings, long firstRouteId, long firstStopId, long firstBusId) {
+        if (settings.routes() < 1 || settings.stops() < 2L * settings.routes() || settings.busesPerRoute() < 1) {
+            throw new IllegalArgumentException("Need at least one route, two stops per route and one bus per route");
+        }
+        if (settings.stops() > (long) MAX_STOPS_PER_ROUTE * settings.routes()) {
+            throw new IllegalArgumentException("At most " + MAX_STOPS_PER_ROUTE + " stops per route fit in a service day");
+        }
+        this.seed = settings.seed();
+        var random = new SplittableRandom(seed);
+        stopWeights = new double[settings.stops()];
+        routeFirstStop = new int[settings.routes()];
+        routeStopCount = new int[settings.routes()];
+
+        var stopIndex = 0;
+        var busIndex = 0;
+        for (int r = 0; r < settings.routes(); r++) {
+            var routeId = firstRouteId + r;
+            routes.add(new RouteRow(routeId, "S" + (r + 1)));
+
+            var count = settings.stops() / settings.routes() + (r < settings.stops() % settings.routes() ? 1 : 0);
+            routeFirstStop[r] = stopIndex;
+            routeStopCount[r] = count;
+
+            // A straight line through a random point of the city; stops are evenly spaced with a little jitter.
+            var angle = random.nextDouble(Math.PI);
+            var length = random.nextDouble(0.15, 0.4);
+            var midLat = CENTER_LAT + random.nextDouble(-CITY_RADIUS_DEGREES, CITY_RADIUS_DEGREES) / 2;
+            var midLon = CENTER_LON + random.nextDouble(-CITY_RADIUS_DEGREES, CITY_RADIUS_DEGREES);
+            for (int s = 0; s < count; s++) {
+                var position = (double) s / (count - 1) - 0.5;
+                var lat = midLat + Math.sin(angle) * length * position / 2 + random.nextDouble(-0.001, 0.001);
+                var lon = midLon + Math.cos(angle) * length * position + random.nextDouble(-0.001, 0.001);
+                stops.add(new StopRow(firstStopId + stopIndex, routeId, "Остановка " + (s + 1), lat, lon));
+                stopWeights[stopIndex] = 0.3 + random.nextDouble(1.4);
+                stopIndex++;
+            }
+
+            var cycle = cycleMinutes(count);
+            for (int b = 0; b < settings.busesPerRoute(); b++) {
+                buses.add(new BusRow(firstBusId + busIndex, routeId, r, random.nextInt(BUS_MODELS.size()),
+                        b * cycle / settings.busesPerRoute()));
+                busIndex++;
+            }
+        }
+    }
+
+    static List<BusModelRow> busModels() {
+        return BUS_MODELS;
+    }
+
+    List<RouteRow> getRoutes() {
+        return routes;
+    }
+
+    List<StopRow> getStops() {
+        return stops;
+    }
+
+    List<BusRow> getBuses() {
+        return buses;
+    }
+
+    // Every service day has the same timetable, so the volume per day is known before anything is written.
+    long readingsPerDay() {
+        var total = 0L;
+        for (var bus : buses) {
+            var count = routeStopCount[bus.routeIndex()];
+            total += (long) tripCount(bus, count) * count;
+        }
+        return total;
+    }
+
+    // Writes one service day and returns the number of readings, stopping early once the limit is reached.
+    long writeServiceDay(LocalDate serviceDay, long limit, Appendable out) throws IOException {
+        var random = new SplittableRandom(seed ^ serviceDay.toEpochDay() * 0x9E3779B97F4A7C15L);
+        var weekend = serviceDay.getDayOfWeek() == DayOfWeek.SATURDAY || serviceDay.getDayOfWeek() == DayOfWeek.SUNDAY;
+        var today = serviceDay.toString();
+        var tomorrow = serviceDay.plusDays(1).toString();
+        var line = new StringBuilder(64);
+        var written = 0L;
+
+        for (var bus : buses) {
+            var first = routeFirstStop[bus.routeIndex()];
+            var count = routeStopCount[bus.routeIndex()];
+            var crushLoad = (int) (BUS_MODELS.get(bus.busModelIndex()).capacity() * CRUSH_LOAD_FACTOR);
+            var trips = tripCount(bus, count);
+            for (int trip = 0; trip < trips; trip++) {
+                var departure = SERVICE_START_MINUTE + bus.departureOffset() + trip * (tripMinutes(count) + LAYOVER_MINUTES);
+                var forward = trip % 2 == 0;
+                var load = 0;
+                for (int s = 0; s < count; s++) {
+                    if (written == limit) {
+                        return written;
+                    }
+                    var stop = first + (forward ? s : count - 1 - s);
+                    var minute = departure + s * MINUTES_BETWEEN_STOPS;
+                    int entered;
+                    int exited;
+                    if (s == count - 1) {
+                        entered = 0;
+                        exited = load;
+                    } else {
+                        exited = Math.min(load, poisson(random, (double) load / (count - 1 - s)));
+                        var demand = BASE_BOARDINGS * demandProfile(minute / 60.0, weekend) * stopWeights[stop];
+                        entered = Math.min(crushLoad - (load - exited), poisson(random, demand));
+                    }
+                    load += entered - exited;
+
+                    line.setLength(0);
+                    line.append(entered).append('\t').append(exited).append('\t')
+                            .append(minute < 24 * 60 ? today : tomorrow).append(' ');
+                    appendTwoDigits(line, minute / 60 % 24).append(':');
+                    appendTwoDigits(line, minute % 60).append(':');
+                    appendTwoDigits(line, random.nextInt(60)).append('\t')
+                            .append(bus.id()).append('\t')
+                            .append(stops.get(stop).id()).append('\n');
+                    out.append(line);
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
+
+    // Weekdays have a sharp morning peak and a broader evening one; weekends a single flat midday hump.
+    static double demandProfile(double hour, boolean weekend) {
+        if (weekend) {
+            return 0.35 + 0.5 * gaussian(hour, 14.0, 3.0);
+        }
+        return 0.25 + 1.2 * gaussian(hour, 8.0, 1.0) + 1.0 * gaussian(hour, 18.0, 1.3);
+    }
+
+    private static double gaussian(double x, double mean, double sd) {
+        var z = (x - mean) / sd;
+        return Math.exp(-z * z / 2);
+    }
+
+    // Knuth's method; the means here are single digits, so the loop stays short.
+    private static int poisson(SplittableRandom random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        var limit = Math.exp(-mean);
+        var count = 0;
+        var product = random.nextDouble();
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    private int tripCount(BusRow bus, int stopCount) {
+        var firstDeparture = SERVICE_START_MINUTE + bus.departureOffset();
+        if (firstDeparture > LAST_DEPARTURE_MINUTE) {
+            return 0;
+        }
+        return (LAST_DEPARTURE_MINUTE - firstDeparture) / (tripMinutes(stopCount) + LAYOVER_MINUTES) + 1;
+    }
+
+    private static int tripMinutes(int stopCount) {
+        return (stopCount - 1) * MINUTES_BETWEEN_STOPS;
+    }
+
+    private static int cycleMinutes(int stopCount) {
+        return 2 * (tripMinutes(stopCount) + LAYOVER_MINUTES);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder line, int value) {
+        if (value < 10) {
+            line.append('0');
+        }
+        return line.append(value);
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.ryamal4.passengerflow.service.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+// One-off run under the datagen profile: appends a synthetic city to the configured database with COPY and exits.
+// Ids continue after the existing rows, so it can be pointed at a database that already holds sample data.
+// Readings end yesterday and go back as many service days as the requested volume needs.
+@Slf4j
+@Component
+@Profile("datagen")
+public class SyntheticDataLoader implements ApplicationRunner {
+    private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
+    private static final int COPY_BUFFER_BYTES = 1 << 20;
+    private static final LocalTime SERVICE_DAY_START = LocalTime.of(4, 0);
+    private static final String ENQUEUE_ROLLUP_SQL =
+            "INSERT INTO stop_rollup_dirty (bus_id, from_time) SELECT id, ? FROM buses WHERE id BETWEEN ? AND ?";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfigurableApplicationContext context;
+    private final SyntheticDataSettings settings;
+
+    public SyntheticDataLoader(DataSource dataSource, JdbcTemplate jdbcTemplate, ConfigurableApplicationContext context,
+                               @Value("${datagen.routes:500}") int routes,
+                               @Value("${datagen.stops:20000}") int stops,
+                               @Value("${datagen.buses-per-route:10}") int busesPerRoute,
+                               @Value("${datagen.readings:1000000000}") long readings,
+                               @Value("${datagen.seed:42}") long seed) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.context = context;
+        this.settings = new SyntheticDataSettings(routes, stops, busesPerRoute, readings, seed);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        var exitCode = 0;
+        try {
+            load();
+        } catch (IOException | SQLException | RuntimeException e) {
+            log.error("Synthetic data generation failed", e);
+            exitCode = 1;
+        }
+        var code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void load() throws IOException, SQLException {
+        var models = SyntheticCity.busModels();
+        for (var model : models) {
+            jdbcTemplate.update("INSERT INTO bus_models (name, capacity) VALUES (?, ?) ON CONFLICT (name) DO NOTHING",
+                    model.name(), model.capacity());
+        }
+        var busModelIds = new long[models.size()];
+        for (int i = 0; i < models.size(); i++) {
+            busModelIds[i] = jdbcTemplate.queryForObject("SELECT id FROM bus_models WHERE name = ?", Long.class,
+                    models.get(i).name());
+        }
+
+        var city = new SyntheticCity(settings, nextId("routes"), nextId("stops"), nextId("buses"));
+        var perDay = city.readingsPerDay();
+        var days = (settings.readings() + perDay - 1) / perDay;
+        var firstDay = LocalDate.now(MOSCOW_ZONE_ID).minusDays(days);
+        log.info("Generating {} routes, {} stops, {} buses and {} readings over {} service days from {}",
+                city.getRoutes().size(), city.getStops().size(), city.getBuses().size(), settings.readings(), days,
+                firstDay);
+
+        try (var connection = dataSource.getConnection()) {
+            var pgConnection = connection.unwrap(PGConnection.class);
+            var copyManager = pgConnection.getCopyAPI();
+
+            var routes = new StringBuilder();
+            city.getRoutes().forEach(route -> routes.append(route.id()).append('\t').append(route.name()).append('\n'));
+            copy(copyManager, "COPY routes (id, name) FROM STDIN", routes);
+
+            var stops = new StringBuilder();
+            city.getStops().forEach(stop -> stops.append(stop.id()).append('\t').append(stop.routeId()).append('\t')
+                    .append(stop.name()).append('\t').append(stop.lat()).append('\t').append(stop.lon()).append('\n'));
+            copy(copyManager, "COPY stops (id, route_id, name, lat, lon) FROM STDIN", stops);
+
+            var buses = new StringBuilder();
+            city.getBuses().forEach(bus -> buses.append(bus.id()).append('\t').append(bus.routeId()).append('\t')
+                    .append(busModelIds[bus.busModelIndex()]).append('\n'));
+            copy(copyManager, "COPY buses (id, route_id, bus_model_id) FROM STDIN", buses);
+
+            for (var table : new String[]{"routes", "stops", "buses"}) {
+                jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), "
+                        + "(SELECT MAX(id) FROM " + table + "))", Long.class);
+            }
+
+            // One COPY per service day keeps each transaction bounded and shows progress on long runs. The day is
+            // queued for the hourly stop rollup in the same transaction.
+            var firstBusId = city.getBuses().get(0).id();
+            var lastBusId = city.getBuses().get(city.getBuses().size() - 1).id();
+            var remaining = settings.readings();
+            var started = System.nanoTime();
+            connection.setAutoCommit(false);
+            try (var enqueue = connection.prepareStatement(ENQUEUE_ROLLUP_SQL)) {
+                for (var day = firstDay; remaining > 0; day = day.plusDays(1)) {
+                    long written;
+                    try (var out = new BufferedWriter(new OutputStreamWriter(new PGCopyOutputStream(pgConnection,
+                            "COPY passenger_counts (entered, exited, \"timestamp\", bus_id, stop_id) FROM STDIN"),
+                            StandardCharsets.UTF_8), COPY_BUFFER_BYTES)) {
+                        written = city.writeServiceDay(day, remaining, out);
+                    }
+                    enqueue.setObject(1, day.atTime(SERVICE_DAY_START));
+                    enqueue.setLong(2, firstBusId);
+                    enqueue.setLong(3, lastBusId);
+                    enqueue.executeUpdate();
+                    connection.commit();
+                    remaining -= written;
+                    var done = settings.readings() - remaining;
+                    var seconds = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+                    log.info("Service day {}: {} readings, {} of {} total, {} rows/s",
+                            day, written, done, settings.readings(), Math.round(done / seconds));
+                }
+            }
+        }
+        log.info("Synthetic data generation finished; run ANALYZE and the aggregation before measuring plans");
+    }
+
+    private long nextId(String table) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+    }
+
+    private static void copy(CopyManager copyManager, String sql, StringBuilder rows) throws IOException, SQLException {
+        copyManager.copyIn(sql, new StringReader(rows.toString()));
+    }
+}
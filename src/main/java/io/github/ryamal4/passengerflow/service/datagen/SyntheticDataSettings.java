@@ -0,0 +1,4 @@
+package io.github.ryamal4.passengerflow.service.datagen;
+
+record SyntheticDataSettings(int routes, int stops, int busesPerRoute, long readings, long seed) {
+}
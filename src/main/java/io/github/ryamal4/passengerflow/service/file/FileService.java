@@ -1,21 +1,38 @@
 package io.github.ryamal4.passengerflow.service.file;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.ryamal4.passengerflow.repository.IFileBlobRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
+@Slf4j
 @Service
 public class FileService {
 
@@ -23,6 +40,22 @@ public class FileService {
     private String uploadDir;
 
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024;
+    private static final int ETAG_CACHE_SIZE = 10_000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String INCOMING_DIR = ".incoming";
+    // <sha256>.<ext> for uploads and <sha256>.<variant>.<ext> for derivatives stored next to them.
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("([0-9a-f]{64})(?:\\.([a-z]+))?\\.[a-z0-9]+");
+    private static final Pattern LEGACY_NAME = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.[A-Za-z0-9]+");
+
+    private final IFileBlobRepository fileBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate cleanupTemplate;
+
+    // Hashing is only repeated when a file's size or modification time changes.
+    private final Cache<String, StoredFile> storedFiles = Caffeine.newBuilder()
+            .maximumSize(ETAG_CACHE_SIZE)
+            .build();
 
     private static final Map<String, List<String>> ALLOWED_TYPES = new HashMap<>();
     static {
@@ -36,6 +69,16 @@ public class FileService {
         ALLOWED_TYPES.put("docx", Arrays.asList("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
     }
 
+    public FileService(IFileBlobRepository fileBlobRepository, PlatformTransactionManager transactionManager) {
+        this.fileBlobRepository = fileBlobRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Cleanup runs from transaction callbacks, where joining the finished transaction would do nothing.
+        this.cleanupTemplate = new TransactionTemplate(transactionManager);
+        this.cleanupTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Uploads are stored once per content under <sha256>.<ext> and every call counts one reference;
+    // callers hand the reference back with deleteFile when they stop using the name.
     public String storeFile(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IOException("Failed to store empty file");
@@ -57,66 +100,248 @@ public class FileService {
             throw new IOException("File MIME type does not match extension");
         }
 
-        var fileBytes = file.getBytes();
-        if (extension.toLowerCase().matches("jpg|jpeg|png|gif|bmp") && !isValidImageFile(fileBytes)) {
+        var incomingPath = incomingDir();
+        Files.createDirectories(incomingPath);
+
+        // The upload is validated while it is written to a temp file next to its final location,
+        // so the move is atomic and readers never see a partial or rejected file.
+        var tempFile = Files.createTempFile(incomingPath, "upload-", ".part");
+        try {
+            var inspector = copyAndInspect(file, tempFile);
+            if (extension.toLowerCase().matches("jpg|jpeg|png|gif|bmp") && !inspector.isValidImage()) {
                 throw new IOException("Invalid image file");
             }
 
+            var filename = blobName(inspector.hash(), extension);
+            storeBlob(filename, tempFile, inspector.size(), 1);
+            return filename;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
 
-        var filename = UUID.randomUUID() + "." + extension;
-        var uploadPath = Paths.get(uploadDir);
+    // Releases one reference; the blob itself is only removed once nothing references it. Files without
+    // a reference row predate content addressing and are removed directly. Files are only touched after
+    // the release commits, so a rolled back release never loses the blob its restored row points at.
+    public boolean deleteFile(String fileName) {
+        var path = resolve(fileName);
+        if (path == null) {
+            return false;
+        }
 
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        try {
+            return inTransaction(() -> {
+                var blob = fileBlobRepository.findByFileNameForUpdate(fileName);
+                if (blob.isPresent()) {
+                    if (blob.get().getRefCount() > 1) {
+                        blob.get().setRefCount(blob.get().getRefCount() - 1);
+                        return false;
+                    }
+                    fileBlobRepository.delete(blob.get());
+                }
+                var exists = Files.exists(path);
+                afterCommit(() -> removeUnreferenced(fileName, path));
+                return exists;
+            });
+        } catch (IOException e) {
+            return false;
         }
+    }
 
-        var filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    public Optional<StoredFile> findStoredFile(String filename) throws IOException {
+        var path = resolve(filename);
+        if (path == null || !Files.isRegularFile(path) || !Files.isReadable(path)) {
+            return Optional.empty();
+        }
 
-        return filename;
+        try {
+            var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            var lastModified = attributes.lastModifiedTime().toInstant();
+            var cached = storedFiles.getIfPresent(filename);
+            if (cached != null && cached.size() == attributes.size() && cached.lastModified().equals(lastModified)) {
+                return Optional.of(cached);
+            }
+
+            var contentAddressed = CONTENT_ADDRESSED_NAME.matcher(filename);
+            var hash = !contentAddressed.matches() ? hash(path)
+                    : contentAddressed.group(2) == null ? contentAddressed.group(1)
+                    : contentAddressed.group(1) + "-" + contentAddressed.group(2);
+            var contentType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+            var storedFile = new StoredFile(path, filename, contentType, attributes.size(), lastModified,
+                    "\"" + hash + "\"", contentAddressed.matches() || LEGACY_NAME.matcher(filename).matches());
+            storedFiles.put(filename, storedFile);
+            return Optional.of(storedFile);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
     }
 
-    private String getFileExtension(String fileName) {
-        if (fileName == null || !fileName.contains(".")) {
+    // The blob lock serialises this with the cleanup of a concurrent release, so an existing blob is never
+    // deleted between the check and the commit. A blob moved in here is removed again if the row rolls back.
+    void storeBlob(String filename, Path source, long size, int references) throws IOException {
+        var blobPath = blobPath(filename);
+        Files.createDirectories(blobPath.getParent());
+        inTransaction(() -> {
+            fileBlobRepository.lockFileName(filename);
+            fileBlobRepository.addReferences(filename, size, references);
+            if (!Files.exists(blobPath)) {
+                Files.move(source, blobPath, StandardCopyOption.ATOMIC_MOVE);
+                afterRollback(() -> removeUnreferenced(filename, blobPath));
+            }
+            return null;
+        });
+    }
+
+    Path uploadRoot() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    Path incomingDir() {
+        return uploadRoot().resolve(INCOMING_DIR);
+    }
+
+    // Blobs are sharded by the first two hash bytes so no directory grows past a few hundred entries.
+    Path blobPath(String filename) {
+        return uploadRoot().resolve(filename.substring(0, 2)).resolve(filename.substring(2, 4)).resolve(filename);
+    }
+
+    static String blobName(String hash, String extension) {
+        return hash + "." + extension.toLowerCase();
+    }
+
+    // Null when the file is not a content-addressed upload, since only those have a stable place for derivatives.
+    static String derivativeName(String filename, String variant, String extension) {
+        var contentAddressed = CONTENT_ADDRESSED_NAME.matcher(filename);
+        if (!contentAddressed.matches() || contentAddressed.group(2) != null) {
             return null;
         }
-        return fileName.substring(fileName.lastIndexOf(".") + 1);
+        return contentAddressed.group(1) + "." + variant + "." + extension;
     }
 
-    private boolean isValidImageFile(byte[] fileBytes) {
-        if (fileBytes.length < 4) {
-            return false;
+    static String hash(Path path) throws IOException {
+        var inspector = new UploadInspector();
+        var buffer = new byte[COPY_BUFFER_SIZE];
+        try (var in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                inspector.update(buffer, 0, read);
+            }
+        }
+        return inspector.hash();
+    }
+
+    private Path resolve(String filename) {
+        var uploadPath = uploadRoot();
+        var path = CONTENT_ADDRESSED_NAME.matcher(filename).matches()
+                ? blobPath(filename)
+                : uploadPath.resolve(filename).normalize();
+        return path.startsWith(uploadPath) ? path : null;
+    }
+
+    // Runs in a transaction of its own under the blob lock: a concurrent upload of the same content either
+    // waits until the files are gone and moves its own copy in, or has committed its row and keeps them.
+    private void removeUnreferenced(String fileName, Path path) {
+        try {
+            inTransaction(cleanupTemplate, () -> {
+                fileBlobRepository.lockFileName(fileName);
+                if (fileBlobRepository.existsById(fileName)) {
+                    return null;
+                }
+                storedFiles.invalidate(fileName);
+                Files.deleteIfExists(path);
+                var contentAddressed = CONTENT_ADDRESSED_NAME.matcher(fileName);
+                if (contentAddressed.matches() && contentAddressed.group(2) == null) {
+                    deleteDerivatives(path, contentAddressed.group(1));
+                }
+                return null;
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to remove unreferenced file {}", fileName, e);
         }
+    }
 
-        if (fileBytes[0] == (byte) 0x89 && fileBytes[1] == (byte) 0x50 &&
-                fileBytes[2] == (byte) 0x4E && fileBytes[3] == (byte) 0x47) {
-            return true;
+    // Without a surrounding transaction there is nothing to wait for, so the action runs at once.
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-        if (fileBytes[0] == (byte) 0xFF && fileBytes[1] == (byte) 0xD8 &&
-                fileBytes[fileBytes.length - 2] == (byte) 0xFF &&
-                fileBytes[fileBytes.length - 1] == (byte) 0xD9) {
-            return true;
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
 
-        if (fileBytes[0] == (byte) 0x47 && fileBytes[1] == (byte) 0x49 &&
-                fileBytes[2] == (byte) 0x46) {
-            return true;
+    private static void deleteDerivatives(Path blobPath, String hash) throws IOException {
+        if (!Files.isDirectory(blobPath.getParent())) {
+            return;
+        }
+        try (var siblings = Files.newDirectoryStream(blobPath.getParent(), hash + ".*")) {
+            for (var sibling : siblings) {
+                Files.deleteIfExists(sibling);
+            }
         }
+    }
 
-        if (fileBytes[0] == (byte) 0x42 && fileBytes[1] == (byte) 0x4D) {
-            return true;
+    private static UploadInspector copyAndInspect(MultipartFile file, Path target) throws IOException {
+        var inspector = new UploadInspector();
+        var buffer = new byte[COPY_BUFFER_SIZE];
+        try (var in = file.getInputStream(); var out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                inspector.update(buffer, 0, read);
+                if (inspector.size() > MAX_FILE_SIZE) {
+                    throw new IOException("File size exceeds maximum limit of 5MB");
+                }
+                out.write(buffer, 0, read);
+            }
         }
+        return inspector;
+    }
 
-        return false;
+    private <T> T inTransaction(IoCallback<T> callback) throws IOException {
+        return inTransaction(transactionTemplate, callback);
     }
 
-    public boolean deleteFile(String fileName) {
+    private static <T> T inTransaction(TransactionTemplate template, IoCallback<T> callback) throws IOException {
         try {
-            var filePath = Paths.get(uploadDir).resolve(fileName);
-            return Files.deleteIfExists(filePath);
-        } catch (IOException e) {
-            return false;
+            return template.execute(status -> {
+                try {
+                    return callback.call();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String getFileExtension(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return null;
         }
+        return fileName.substring(fileName.lastIndexOf(".") + 1);
+    }
+
+    @FunctionalInterface
+    private interface IoCallback<T> {
+        T call() throws IOException;
     }
 }
@@ -0,0 +1,234 @@
+package io.github.ryamal4.passengerflow.service.file;
+
+import io.github.ryamal4.passengerflow.enums.ImageSize;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Thumbnail and medium renditions of uploaded photos, stored next to the original as <sha256>.<size>.<ext>.
+// Rendering runs on a small bounded pool: uploads only enqueue it, and when the queue is full the rendition
+// is produced on its first request instead, or the original is served.
+@Slf4j
+@Service
+public class ImageDerivativeService {
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final Map<String, String> OUTPUT_FORMATS = Map.of(
+            "jpg", "jpg", "jpeg", "jpg", "bmp", "jpg", "png", "png", "gif", "png");
+
+    private final FileService fileService;
+    private final ThreadPoolExecutor executor;
+    private final long requestTimeoutMs;
+    private final long maxPixels;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    public ImageDerivativeService(FileService fileService,
+                                  @Value("${upload.derivatives.threads:2}") int threads,
+                                  @Value("${upload.derivatives.queue-capacity:100}") int queueCapacity,
+                                  @Value("${upload.derivatives.request-timeout-ms:5000}") long requestTimeoutMs,
+                                  @Value("${upload.derivatives.max-pixels:40000000}") long maxPixels) {
+        this.fileService = fileService;
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.maxPixels = maxPixels;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-derivatives-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void scheduleAll(String filename) {
+        for (var size : ImageSize.values()) {
+            var derivativeName = derivativeName(filename, size);
+            if (derivativeName != null) {
+                generate(filename, size, derivativeName);
+            }
+        }
+    }
+
+    // Empty when the file has no rendition of this size and one could not be produced in time.
+    public Optional<StoredFile> findDerivative(String filename, ImageSize size) throws IOException {
+        var derivativeName = derivativeName(filename, size);
+        if (derivativeName == null) {
+            return Optional.empty();
+        }
+
+        var existing = fileService.findStoredFile(derivativeName);
+        if (existing.isPresent()) {
+            return existing;
+        }
+
+        try {
+            generate(filename, size, derivativeName).get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Could not render {} of {}: {}", size, filename, e.getMessage());
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+        return fileService.findStoredFile(derivativeName);
+    }
+
+    private CompletableFuture<Void> generate(String filename, ImageSize size, String derivativeName) {
+        var future = new CompletableFuture<Void>();
+        var existing = inFlight.putIfAbsent(derivativeName, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    render(filename, size, derivativeName);
+                    future.complete(null);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(derivativeName, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(derivativeName, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void render(String filename, ImageSize size, String derivativeName) throws IOException {
+        var target = fileService.blobPath(derivativeName);
+        if (Files.exists(target)) {
+            return;
+        }
+
+        var source = fileService.findStoredFile(filename)
+                .orElseThrow(() -> new IOException("File not found: " + filename));
+        var format = derivativeName.substring(derivativeName.lastIndexOf('.') + 1);
+        var scaled = decodeAndScale(source.path(), filename, size.getMaxDimension(), "png".equals(format));
+
+        Files.createDirectories(fileService.incomingDir());
+        var tempFile = Files.createTempFile(fileService.incomingDir(), "derivative-", ".part");
+        try {
+            write(scaled, format, tempFile);
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // The dimensions come from the header, so an image whose pixels would not fit in memory is rejected before
+    // decoding. The decoder then skips rows and columns down to twice the rendition size, which leaves the
+    // halving steps enough detail without ever holding the full-resolution image.
+    private BufferedImage decodeAndScale(Path path, String filename, int maxDimension, boolean keepAlpha)
+            throws IOException {
+        try (var in = ImageIO.createImageInputStream(path.toFile())) {
+            var readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image: " + filename);
+            }
+
+            var reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                var width = reader.getWidth(0);
+                var height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image too large: " + filename + " is " + width + "x" + height);
+                }
+
+                var params = reader.getDefaultReadParam();
+                var subsampling = Math.max(1, Math.max(width, height) / (maxDimension * 2));
+                params.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return scale(reader.read(0, params), width, height, maxDimension, keepAlpha);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halving in steps keeps bilinear filtering from dropping detail on large reductions. The target follows the
+    // original dimensions, since subsampling rounds the decoded ones.
+    private static BufferedImage scale(BufferedImage image, int originalWidth, int originalHeight, int maxDimension,
+                                       boolean keepAlpha) {
+        var ratio = Math.min(1.0, (double) maxDimension / Math.max(originalWidth, originalHeight));
+        var targetWidth = Math.max(1, (int) Math.round(originalWidth * ratio));
+        var targetHeight = Math.max(1, (int) Math.round(originalHeight * ratio));
+
+        var current = image;
+        while (true) {
+            var width = Math.max(targetWidth, current.getWidth() / 2);
+            var height = Math.max(targetHeight, current.getHeight() / 2);
+            current = draw(current, width, height, keepAlpha);
+            if (width == targetWidth && height == targetHeight) {
+                return current;
+            }
+        }
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, boolean keepAlpha) {
+        var result = new BufferedImage(width, height,
+                keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        var graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!keepAlpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        if ("png".equals(format)) {
+            ImageIO.write(image, "png", target.toFile());
+            return;
+        }
+
+        var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (var out = ImageIO.createImageOutputStream(target.toFile())) {
+            var params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String derivativeName(String filename, ImageSize size) {
+        var extension = filename.substring(filename.lastIndexOf('.') + 1);
+        var format = OUTPUT_FORMATS.get(extension);
+        return format == null ? null : FileService.derivativeName(filename, size.name().toLowerCase(Locale.ROOT), format);
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.ryamal4.passengerflow.service.file;
+
+import io.github.ryamal4.passengerflow.repository.IBusModelRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+// Moves uploads stored under random names in the root of upload.path into the content-addressed layout,
+// merging duplicates and pointing bus models at the new names. Each file is copied into place before the
+// references are switched and only deleted afterwards, so an interrupted run is simply repeated on the next start.
+// Runs only when enabled. Files no bus model references are left in place, since they may have been put there by
+// an operator or another feature, unless upload.delete-unreferenced-legacy-files is also set. Every enabled node
+// runs this at startup, so a legacy file that another node already moved away is skipped.
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "upload.migrate-legacy-files", havingValue = "true")
+public class LegacyUploadMigration {
+    private final FileService fileService;
+    private final IBusModelRepository busModelRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean deleteUnreferenced;
+
+    public LegacyUploadMigration(FileService fileService, IBusModelRepository busModelRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${upload.delete-unreferenced-legacy-files:false}") boolean deleteUnreferenced) {
+        this.fileService = fileService;
+        this.busModelRepository = busModelRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deleteUnreferenced = deleteUnreferenced;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        try {
+            var migrated = migrate();
+            if (migrated > 0) {
+                log.info("Moved {} legacy uploads into content-addressed storage", migrated);
+            }
+        } catch (IOException e) {
+            log.error("Failed to migrate legacy uploads", e);
+        }
+    }
+
+    int migrate() throws IOException {
+        var root = fileService.uploadRoot();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+
+        List<Path> legacyFiles;
+        try (var files = Files.list(root)) {
+            legacyFiles = files.filter(Files::isRegularFile).toList();
+        }
+
+        var migrated = 0;
+        for (var legacyFile : legacyFiles) {
+            if (migrate(legacyFile)) {
+                migrated++;
+            }
+        }
+        return migrated;
+    }
+
+    private boolean migrate(Path legacyFile) throws IOException {
+        var legacyName = legacyFile.getFileName().toString();
+        var dot = legacyName.lastIndexOf('.');
+        if (dot <= 0 || dot == legacyName.length() - 1) {
+            log.warn("Skipping legacy upload without an extension: {}", legacyName);
+            return false;
+        }
+
+        Files.createDirectories(fileService.incomingDir());
+        var copy = Files.createTempFile(fileService.incomingDir(), "migrate-", ".part");
+        int references;
+        try {
+            var blobName = FileService.blobName(FileService.hash(legacyFile), legacyName.substring(dot + 1));
+            var size = Files.size(legacyFile);
+            Files.copy(legacyFile, copy, StandardCopyOption.REPLACE_EXISTING);
+            references = transactionTemplate.execute(status -> {
+                var renamed = busModelRepository.renameFile(legacyName, blobName);
+                if (renamed == 0) {
+                    return 0;
+                }
+                try {
+                    fileService.storeBlob(blobName, copy, size, renamed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return renamed;
+            });
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+
+        if (references == 0 && !deleteUnreferenced) {
+            log.info("Keeping legacy upload {} that no bus model references", legacyName);
+            return false;
+        }
+        if (references == 0) {
+            log.info("Deleting legacy upload {} that no bus model references", legacyName);
+        }
+        Files.deleteIfExists(legacyFile);
+        return references > 0;
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.ryamal4.passengerflow.service.file;
+
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+public record StoredFile(Path path, String filename, MediaType contentType, long size, Instant lastModified,
+                         String etag, boolean immutable) {
+}
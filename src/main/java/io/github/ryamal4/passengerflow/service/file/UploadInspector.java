@@ -0,0 +1,71 @@
+package io.github.ryamal4.passengerflow.service.file;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Sees every chunk of an upload exactly once: hashes it and keeps only the leading magic bytes
+// and a ring buffer with the last bytes, which is all the image checks need.
+final class UploadInspector {
+    private static final int HEADER_SIZE = 4;
+    private static final int TRAILER_SIZE = 2;
+
+    private final MessageDigest digest = sha256();
+    private final byte[] header = new byte[HEADER_SIZE];
+    private final byte[] trailer = new byte[TRAILER_SIZE];
+    private long size;
+
+    void update(byte[] buffer, int offset, int length) {
+        digest.update(buffer, offset, length);
+        for (int i = 0; i < length && size + i < HEADER_SIZE; i++) {
+            header[(int) (size + i)] = buffer[offset + i];
+        }
+        for (int i = Math.max(0, length - TRAILER_SIZE); i < length; i++) {
+            trailer[(int) ((size + i) % TRAILER_SIZE)] = buffer[offset + i];
+        }
+        size += length;
+    }
+
+    long size() {
+        return size;
+    }
+
+    String hash() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    boolean isValidImage() {
+        if (size < HEADER_SIZE) {
+            return false;
+        }
+
+        if (header[0] == (byte) 0x89 && header[1] == (byte) 0x50 &&
+                header[2] == (byte) 0x4E && header[3] == (byte) 0x47) {
+            return true;
+        }
+
+        if (header[0] == (byte) 0xFF && header[1] == (byte) 0xD8 &&
+                fromEnd(2) == (byte) 0xFF && fromEnd(1) == (byte) 0xD9) {
+            return true;
+        }
+
+        if (header[0] == (byte) 0x47 && header[1] == (byte) 0x49 &&
+                header[2] == (byte) 0x46) {
+            return true;
+        }
+
+        return header[0] == (byte) 0x42 && header[1] == (byte) 0x4D;
+    }
+
+    private byte fromEnd(int position) {
+        return trailer[(int) ((size - position) % TRAILER_SIZE)];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
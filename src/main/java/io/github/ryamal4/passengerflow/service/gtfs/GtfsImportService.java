@@ -0,0 +1,335 @@
+package io.github.ryamal4.passengerflow.service.gtfs;
+
+import io.github.ryamal4.passengerflow.dto.GtfsImportResult;
+import io.github.ryamal4.passengerflow.event.ReferenceDataChangedEvent;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.repository.GtfsBulkRepository;
+import io.github.ryamal4.passengerflow.repository.GtfsBulkRepository.StopRow;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+@Slf4j
+@Service
+public class GtfsImportService implements IGtfsImportService {
+    private static final String ROUTES = "routes.txt";
+    private static final String TRIPS = "trips.txt";
+    private static final String STOPS = "stops.txt";
+    private static final String STOP_TIMES = "stop_times.txt";
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+
+    private final GtfsBulkRepository bulkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public GtfsImportService(GtfsBulkRepository bulkRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${gtfs-import.chunk-size:1000}") int chunkSize) {
+        this.bulkRepository = bulkRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public GtfsImportResult importFeed(MultipartFile file) {
+        Path feed = null;
+        try {
+            feed = Files.createTempFile("gtfs-", ".zip");
+            file.transferTo(feed);
+            return importFeed(feed);
+        } catch (IOException e) {
+            log.error("Не удалось сохранить GTFS архив", e);
+            throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось сохранить GTFS архив");
+        } finally {
+            deleteQuietly(feed);
+        }
+    }
+
+    // Members are read one after another as streams: only routes, trips and stops are kept in memory,
+    // stop_times is reduced on the fly to the set of stops each route serves.
+    @Override
+    public GtfsImportResult importFeed(Path feed) {
+        var progress = new ImportProgress();
+        try (var zip = new ZipFile(feed.toFile())) {
+            var routesEntry = findEntry(zip, ROUTES);
+            var tripsEntry = findEntry(zip, TRIPS);
+            var stopsEntry = findEntry(zip, STOPS);
+            var stopTimesEntry = findEntry(zip, STOP_TIMES);
+
+            var routeIds = resolveRouteIds(readRoutes(zip, routesEntry, progress), progress);
+            var tripRoutes = readTrips(zip, tripsEntry, routeIds, progress);
+            var stops = readStops(zip, stopsEntry, progress);
+            var stopsByRoute = readStopTimes(zip, stopTimesEntry, tripRoutes, stops, progress);
+            writeStops(stopsByRoute, stops, progress);
+        } catch (ZipException e) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Файл не является ZIP архивом");
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Ошибка при чтении GTFS архива {}", feed, e);
+            throw new AppException(HttpStatus.BAD_REQUEST, "Не удалось прочитать GTFS архив: " + e.getMessage());
+        } finally {
+            if (progress.createdRoutes > 0 || progress.stops > 0) {
+                eventPublisher.publishEvent(new ReferenceDataChangedEvent("Stop"));
+            }
+        }
+
+        log.info("GTFS import finished: {} routes ({} new), {} stops, {} rows skipped",
+                progress.routes, progress.createdRoutes, progress.stops, progress.skipped);
+        return new GtfsImportResult(progress.routes, progress.createdRoutes, progress.stops,
+                progress.skipped, progress.errors);
+    }
+
+    private Map<String, String> readRoutes(ZipFile zip, ZipEntry entry, ImportProgress progress) throws IOException {
+        var routeNames = new HashMap<String, String>();
+        try (var parser = open(zip, entry)) {
+            for (var csvRecord : parser) {
+                var routeId = value(csvRecord, "route_id");
+                var name = value(csvRecord, "route_short_name");
+                if (name.isEmpty()) {
+                    name = value(csvRecord, "route_long_name");
+                }
+                if (routeId.isEmpty() || name.isEmpty()) {
+                    progress.skip(ROUTES, csvRecord, "нет идентификатора или названия маршрута");
+                    continue;
+                }
+                routeNames.put(routeId, name);
+            }
+        }
+        return routeNames;
+    }
+
+    // Routes are matched by name, the only natural key the schema has; feed routes sharing a name
+    // end up as one route.
+    private Map<String, Long> resolveRouteIds(Map<String, String> routeNames, ImportProgress progress) {
+        var existing = bulkRepository.findRouteIdsByName();
+        var missing = new LinkedHashSet<String>();
+        for (var name : routeNames.values()) {
+            if (!existing.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> bulkRepository.insertRoutes(List.copyOf(missing)));
+            progress.createdRoutes = missing.size();
+            existing = bulkRepository.findRouteIdsByName();
+        }
+
+        var routeIds = new HashMap<String, Long>();
+        for (var route : routeNames.entrySet()) {
+            routeIds.put(route.getKey(), existing.get(route.getValue()));
+        }
+        progress.routes = new HashSet<>(routeIds.values()).size();
+        return routeIds;
+    }
+
+    private Map<String, Long> readTrips(ZipFile zip, ZipEntry entry, Map<String, Long> routeIds,
+                                        ImportProgress progress) throws IOException {
+        var tripRoutes = new HashMap<String, Long>();
+        try (var parser = open(zip, entry)) {
+            for (var csvRecord : parser) {
+                var routeId = routeIds.get(value(csvRecord, "route_id"));
+                if (routeId == null) {
+                    progress.skip(TRIPS, csvRecord, "неизвестный маршрут");
+                    continue;
+                }
+                tripRoutes.put(value(csvRecord, "trip_id"), routeId);
+            }
+        }
+        return tripRoutes;
+    }
+
+    // Stations, entrances and other non-boarding locations are not stops in our model and are left out.
+    private StopTable readStops(ZipFile zip, ZipEntry entry, ImportProgress progress) throws IOException {
+        var stops = new StopTable();
+        try (var parser = open(zip, entry)) {
+            for (var csvRecord : parser) {
+                var locationType = value(csvRecord, "location_type");
+                if (!locationType.isEmpty() && !locationType.equals("0")) {
+                    continue;
+                }
+
+                var stopId = value(csvRecord, "stop_id");
+                var name = value(csvRecord, "stop_name");
+                try {
+                    var lat = Double.parseDouble(value(csvRecord, "stop_lat"));
+                    var lon = Double.parseDouble(value(csvRecord, "stop_lon"));
+                    if (stopId.isEmpty() || name.isEmpty() || Math.abs(lat) > 90 || Math.abs(lon) > 180) {
+                        progress.skip(STOPS, csvRecord, "некорректные данные остановки");
+                        continue;
+                    }
+                    stops.add(stopId, name, lat, lon);
+                } catch (NumberFormatException e) {
+                    progress.skip(STOPS, csvRecord, "некорректные координаты остановки");
+                }
+            }
+        }
+        return stops;
+    }
+
+    private Map<Long, BitSet> readStopTimes(ZipFile zip, ZipEntry entry, Map<String, Long> tripRoutes,
+                                            StopTable stops, ImportProgress progress) throws IOException {
+        var stopsByRoute = new LinkedHashMap<Long, BitSet>();
+        String lastTripId = null;
+        BitSet lastRouteStops = null;
+        try (var parser = open(zip, entry)) {
+            for (var csvRecord : parser) {
+                // Rows of one trip are contiguous in practice, so the trip lookup is usually skipped.
+                var tripId = value(csvRecord, "trip_id");
+                if (!tripId.equals(lastTripId)) {
+                    var routeId = tripRoutes.get(tripId);
+                    lastTripId = tripId;
+                    lastRouteStops = routeId != null
+                            ? stopsByRoute.computeIfAbsent(routeId, id -> new BitSet())
+                            : null;
+                }
+                if (lastRouteStops == null) {
+                    progress.skip(STOP_TIMES, csvRecord, "неизвестный рейс");
+                    continue;
+                }
+
+                var stopIndex = stops.indexOf(value(csvRecord, "stop_id"));
+                if (stopIndex < 0) {
+                    progress.skip(STOP_TIMES, csvRecord, "неизвестная остановка");
+                    continue;
+                }
+                lastRouteStops.set(stopIndex);
+            }
+        }
+        return stopsByRoute;
+    }
+
+    // Platforms of one route sharing a name collapse into one stop, as (name, route_id) is unique.
+    private void writeStops(Map<Long, BitSet> stopsByRoute, StopTable stops, ImportProgress progress) {
+        var chunk = new ArrayList<StopRow>(chunkSize);
+        for (var route : stopsByRoute.entrySet()) {
+            var names = new HashSet<String>();
+            var routeStops = route.getValue();
+            for (int i = routeStops.nextSetBit(0); i >= 0; i = routeStops.nextSetBit(i + 1)) {
+                if (!names.add(stops.names.get(i))) {
+                    continue;
+                }
+                chunk.add(new StopRow(stops.names.get(i), stops.lats.get(i), stops.lons.get(i), route.getKey()));
+                if (chunk.size() >= chunkSize) {
+                    saveStops(chunk, progress);
+                }
+            }
+        }
+        saveStops(chunk, progress);
+    }
+
+    private void saveStops(List<StopRow> chunk, ImportProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        var rows = List.copyOf(chunk);
+        transactionTemplate.executeWithoutResult(status -> bulkRepository.upsertStops(rows));
+        progress.stops += rows.size();
+        chunk.clear();
+    }
+
+    private static ZipEntry findEntry(ZipFile zip, String name) {
+        var entry = zip.getEntry(name);
+        if (entry == null) {
+            // Some producers put the feed into a top-level folder.
+            entry = zip.stream()
+                    .filter(candidate -> candidate.getName().endsWith("/" + name))
+                    .findFirst()
+                    .orElseThrow(() -> new AppException(HttpStatus.BAD_REQUEST, "В GTFS архиве нет файла " + name));
+        }
+        return entry;
+    }
+
+    private static CSVParser open(ZipFile zip, ZipEntry entry) throws IOException {
+        var reader = new BufferedReader(
+                new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8), READ_BUFFER_CHARS);
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        var format = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setTrim(true)
+                .get();
+        return new CSVParser(reader, format);
+    }
+
+    private static String value(CSVRecord csvRecord, String column) {
+        return csvRecord.isSet(column) ? csvRecord.get(column) : "";
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл {}", path, e);
+        }
+    }
+
+    private static final class StopTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Double> lats = new ArrayList<>();
+        private final List<Double> lons = new ArrayList<>();
+
+        private void add(String stopId, String name, double lat, double lon) {
+            if (indexes.putIfAbsent(stopId, names.size()) == null) {
+                names.add(name);
+                lats.add(lat);
+                lons.add(lon);
+            }
+        }
+
+        private int indexOf(String stopId) {
+            return indexes.getOrDefault(stopId, -1);
+        }
+    }
+
+    private static final class ImportProgress {
+        private final List<String> errors = new ArrayList<>();
+        private int routes;
+        private int createdRoutes;
+        private int stops;
+        private long skipped;
+
+        private void skip(String file, CSVRecord csvRecord, String reason) {
+            skipped++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(file + ", строка " + csvRecord.getRecordNumber() + " : " + reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.ryamal4.passengerflow.service.gtfs;
+
+import io.github.ryamal4.passengerflow.exception.AppException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+// Loads a feed from the local disk, for city-sized archives that exceed the multipart upload limit.
+// The import is an upsert, so keeping the property set simply re-applies the same feed on every start.
+@Slf4j
+@Component
+@ConditionalOnProperty("gtfs-import.path")
+public class GtfsStartupImport {
+    private final IGtfsImportService gtfsImportService;
+    private final Path feed;
+
+    public GtfsStartupImport(IGtfsImportService gtfsImportService, @Value("${gtfs-import.path}") String feed) {
+        this.gtfsImportService = gtfsImportService;
+        this.feed = Path.of(feed);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void importOnStartup() {
+        try {
+            var result = gtfsImportService.importFeed(feed);
+            if (!result.getErrors().isEmpty()) {
+                log.warn("GTFS feed {} skipped {} rows, first errors: {}",
+                        feed, result.getSkippedRowCount(), result.getErrors());
+            }
+        } catch (AppException e) {
+            log.error("Failed to import GTFS feed {}: {}", feed, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.ryamal4.passengerflow.service.gtfs;
+
+import io.github.ryamal4.passengerflow.dto.GtfsImportResult;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+
+public interface IGtfsImportService {
+    GtfsImportResult importFeed(Path feed);
+
+    GtfsImportResult importFeed(MultipartFile file);
+}
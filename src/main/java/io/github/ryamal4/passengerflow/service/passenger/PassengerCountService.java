@@ -1,14 +1,22 @@
 package io.github.ryamal4.passengerflow.service.passenger;
 
 import io.github.ryamal4.passengerflow.dto.PassengerCountDTO;
+import io.github.ryamal4.passengerflow.event.PassengerCountIngestedEvent;
 import io.github.ryamal4.passengerflow.model.Bus;
 import io.github.ryamal4.passengerflow.model.PassengerCount;
 import io.github.ryamal4.passengerflow.model.Stop;
+import io.github.ryamal4.passengerflow.model.StopRollupDirty;
 import io.github.ryamal4.passengerflow.repository.IBusRepository;
 import io.github.ryamal4.passengerflow.repository.IPassengerCountRepository;
+import io.github.ryamal4.passengerflow.repository.IStopRollupDirtyRepository;
 import io.github.ryamal4.passengerflow.repository.IStopsRepository;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 import io.github.ryamal4.passengerflow.specification.PassengerCountSpecification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +24,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -24,19 +33,43 @@ public class PassengerCountService implements IPassengerCountService {
     private final IPassengerCountRepository passengerCountRepository;
     private final IBusRepository busRepository;
     private final IStopsRepository stopsRepository;
+    private final IStopRollupDirtyRepository rollupDirtyRepository;
+    private final IReferenceDataRegistry referenceDataRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
 
     public PassengerCountService(IPassengerCountRepository passengerCountRepository,
                                  IBusRepository busRepository,
-                                 IStopsRepository stopsRepository) {
+                                 IStopsRepository stopsRepository,
+                                 IStopRollupDirtyRepository rollupDirtyRepository,
+                                 IReferenceDataRegistry referenceDataRegistry,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry) {
         this.passengerCountRepository = passengerCountRepository;
         this.busRepository = busRepository;
         this.stopsRepository = stopsRepository;
+        this.rollupDirtyRepository = rollupDirtyRepository;
+        this.referenceDataRegistry = referenceDataRegistry;
+        this.eventPublisher = eventPublisher;
+        this.acceptedCounter = ingestCounter(meterRegistry, "accepted");
+        this.rejectedCounter = ingestCounter(meterRegistry, "rejected");
     }
 
     @Override
     public PassengerCountDTO createCountFromDTO(PassengerCountDTO dto) {
-        var count = convertToEntity(dto);
+        PassengerCount count;
+        try {
+            count = convertToEntity(dto);
+        } catch (IllegalArgumentException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
         var saved = passengerCountRepository.save(count);
+        rollupDirtyRepository.save(new StopRollupDirty(dto.getBusId(), null, saved.getTimestamp()));
+        acceptedCounter.increment();
+        eventPublisher.publishEvent(new PassengerCountIngestedEvent(dto.getBusId(), dto.getStopId(),
+                saved.getTimestamp(), saved.getEntered(), saved.getExited()));
         return convertToDTO(saved);
     }
 
@@ -65,6 +98,7 @@ public class PassengerCountService implements IPassengerCountService {
     public PassengerCountDTO updateCount(Long id, PassengerCountDTO dto) {
         var existing = passengerCountRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("PassengerCount not found with id: " + id));
+        var removed = removedFromRollup(existing);
 
         existing.setEntered(dto.getEntered());
         existing.setExited(dto.getExited());
@@ -81,30 +115,45 @@ public class PassengerCountService implements IPassengerCountService {
         }
 
         var updated = passengerCountRepository.save(existing);
+        rollupDirtyRepository.saveAll(List.of(removed,
+                new StopRollupDirty(updated.getBus().getId(), null, updated.getTimestamp())));
         return convertToDTO(updated);
     }
 
     @Override
     public void deleteCount(Long id) {
-        if (!passengerCountRepository.existsById(id)) {
-            throw new IllegalArgumentException("PassengerCount not found with id: " + id);
-        }
-        passengerCountRepository.deleteById(id);
+        var existing = passengerCountRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("PassengerCount not found with id: " + id));
+        passengerCountRepository.delete(existing);
+        rollupDirtyRepository.save(removedFromRollup(existing));
+    }
+
+    // The reading's old bucket and the rest of its bus-day in the hourly stop rollup must be recomputed.
+    private static StopRollupDirty removedFromRollup(PassengerCount count) {
+        return new StopRollupDirty(count.getBus().getId(), count.getStop().getId(), count.getTimestamp());
     }
 
 
     private PassengerCountDTO convertToDTO(PassengerCount entity) {
         var dto = new PassengerCountDTO();
+        var referenceData = referenceDataRegistry.current();
+        var busId = entity.getBus().getId();
+        var stopId = entity.getStop().getId();
 
         dto.setId(entity.getId());
-        dto.setBusId(entity.getBus().getId());
-        dto.setStopId(entity.getStop().getId());
+        dto.setBusId(busId);
+        dto.setStopId(stopId);
         dto.setEntered(entity.getEntered());
         dto.setExited(entity.getExited());
         dto.setTimestamp(entity.getTimestamp());
-        dto.setBusModel(entity.getBus().getBusModel().getName());
-        dto.setStopName(entity.getStop().getName());
-        dto.setRouteName(entity.getStop().getRoute().getName());
+        dto.setBusModel(referenceData.findBus(busId)
+                .map(ReferenceDataSnapshot.BusRef::busModelName)
+                .orElseGet(() -> entity.getBus().getBusModel().getName()));
+        var stop = referenceData.findStop(stopId);
+        dto.setStopName(stop.map(ReferenceDataSnapshot.StopRef::name)
+                .orElseGet(() -> entity.getStop().getName()));
+        dto.setRouteName(stop.map(ReferenceDataSnapshot.StopRef::routeName)
+                .orElseGet(() -> entity.getStop().getRoute().getName()));
 
         return dto;
     }
@@ -124,14 +173,34 @@ public class PassengerCountService implements IPassengerCountService {
         return entity;
     }
 
+    // Existence is checked against the registry; the returned proxies only carry the foreign key for the insert.
+    // Buses and stops are only ever added out of band, so a miss is confirmed in the database before rejecting,
+    // and a hit there refreshes the stale snapshot.
     private Bus findBusOrThrow(Long busId) {
-        return busRepository.findById(busId)
-                .orElseThrow(() -> new IllegalArgumentException("Bus not found with id: " + busId));
+        if (referenceDataRegistry.current().findBus(busId).isEmpty()) {
+            if (!busRepository.existsById(busId)) {
+                throw new IllegalArgumentException("Bus not found with id: " + busId);
+            }
+            referenceDataRegistry.invalidate();
+        }
+        return busRepository.getReferenceById(busId);
     }
 
     private Stop findStopOrThrow(Long stopId) {
-        return stopsRepository.findById(stopId)
-                .orElseThrow(() -> new IllegalArgumentException("Stop not found with id: " + stopId));
+        if (referenceDataRegistry.current().findStop(stopId).isEmpty()) {
+            if (!stopsRepository.existsById(stopId)) {
+                throw new IllegalArgumentException("Stop not found with id: " + stopId);
+            }
+            referenceDataRegistry.invalidate();
+        }
+        return stopsRepository.getReferenceById(stopId);
+    }
+
+    private static Counter ingestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("passengerflow.ingest.records")
+                .description("Passenger count records submitted for ingest by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
 }
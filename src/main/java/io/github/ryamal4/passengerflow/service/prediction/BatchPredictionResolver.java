@@ -0,0 +1,103 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.dto.BatchPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.SlotKey;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot.StopRef;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+// Answers a batch of queries with one read of the slots they touch: stops are resolved against the in-memory
+// reference data, the exact slots are fetched by a single query, and every date is held to the forecast horizon
+// so the weather adjustment can read one forecast window per weather grid cell.
+final class BatchPredictionResolver {
+    static final int MAX_QUERIES = 500;
+
+    private BatchPredictionResolver() {
+    }
+
+    record SlotPrediction(double mean, Double p50, Double p90) {
+    }
+
+    @FunctionalInterface
+    interface SlotLoader {
+        Map<SlotKey, SlotPrediction> load(Collection<SlotKey> slots);
+    }
+
+    @FunctionalInterface
+    interface WeatherAdjustment {
+        double increase(LocalDateTime dateTime, StopRef stop);
+    }
+
+    static List<BatchPredictionDTO> resolve(List<PredictionQueryDTO> queries, ReferenceDataSnapshot referenceData,
+                                            LocalDate today, SlotLoader slotLoader,
+                                            WeatherAdjustment weatherAdjustment) {
+        validate(queries, today);
+
+        var resolved = new ArrayList<ResolvedQuery>(queries.size());
+        var slotKeys = new LinkedHashSet<SlotKey>();
+        for (var query : queries) {
+            var date = query.getDate() != null ? query.getDate() : today;
+            var stop = referenceData.findStop(query.getRoute(), query.getStop()).orElse(null);
+            var slot = stop != null
+                    ? new SlotKey(stop.id(), date.getDayOfWeek().getValue(), query.getTime().getHour(),
+                    query.getTime().getMinute() / 5 * 5)
+                    : null;
+            resolved.add(new ResolvedQuery(query, date, stop, slot));
+            if (slot != null) {
+                slotKeys.add(slot);
+            }
+        }
+
+        var slots = slotKeys.isEmpty()
+                ? Map.<SlotKey, SlotPrediction>of()
+                : slotLoader.load(List.copyOf(slotKeys));
+
+        var predictions = new ArrayList<BatchPredictionDTO>(resolved.size());
+        for (var query : resolved) {
+            var slot = query.slot() != null ? slots.get(query.slot()) : null;
+            if (slot == null) {
+                predictions.add(query.toPrediction(null, null, null));
+                continue;
+            }
+            var increase = weatherAdjustment.increase(LocalDateTime.of(query.date(), query.query().getTime()),
+                    query.stop());
+            predictions.add(query.toPrediction(slot.mean() + increase,
+                    slot.p50() != null ? slot.p50() + increase : null,
+                    slot.p90() != null ? slot.p90() + increase : null));
+        }
+        return predictions;
+    }
+
+    private static void validate(List<PredictionQueryDTO> queries, LocalDate today) {
+        if (queries.size() > MAX_QUERIES) {
+            throw new AppException(HttpStatus.BAD_REQUEST,
+                    "Слишком много запросов в пакете: " + queries.size() + ", максимум " + MAX_QUERIES);
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            var query = queries.get(i);
+            if (query == null || query.getRoute() == null || query.getStop() == null || query.getTime() == null) {
+                throw new AppException(HttpStatus.BAD_REQUEST,
+                        "Запрос " + (i + 1) + ": маршрут, остановка и время обязательны");
+            }
+            if (query.getDate() != null) {
+                PredictionHorizon.check(query.getDate(), today);
+            }
+        }
+    }
+
+    private record ResolvedQuery(PredictionQueryDTO query, LocalDate date, StopRef stop, SlotKey slot) {
+        BatchPredictionDTO toPrediction(Double mean, Double p50, Double p90) {
+            return new BatchPredictionDTO(query.getRoute(), query.getStop(), date, query.getTime(), mean, p50, p90);
+        }
+    }
+}
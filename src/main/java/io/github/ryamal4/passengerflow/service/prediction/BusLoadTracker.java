@@ -0,0 +1,66 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Running load of each bus over its service day (starting at 04:00), the same load the aggregation derives with a
+// window over the whole day. Counts arriving in order are added in O(1); the first count of a bus on a service day,
+// for example after a restart, and counts older than the latest one re-read the day so far from the database.
+// The running loads live in this JVM, so every count of a bus has to reach the same instance: with several
+// instances sharing ingest, route passenger counts by bus or run the online model on a single instance.
+final class BusLoadTracker {
+    private static final int SERVICE_DAY_START_HOUR = 4;
+
+    private final Map<Long, BusLoad> loads = new ConcurrentHashMap<>();
+    private final LoadLookup lookup;
+
+    BusLoadTracker(LoadLookup lookup) {
+        this.lookup = lookup;
+    }
+
+    // Load after the count has been applied; the count itself must already be stored. The database read happens
+    // under a per-bus lock rather than inside the map's compute, which would block unrelated buses in the same bin.
+    long loadAfter(long busId, LocalDateTime timestamp, int entered, int exited) {
+        var serviceDay = timestamp.minusHours(SERVICE_DAY_START_HOUR).toLocalDate();
+        var load = loads.computeIfAbsent(busId, id -> new BusLoad());
+        load.lock.lock();
+        try {
+            if (serviceDay.equals(load.serviceDay)) {
+                load.load += entered - exited;
+                if (!timestamp.isBefore(load.lastTimestamp)) {
+                    load.lastTimestamp = timestamp;
+                    return load.load;
+                }
+                return lookup.sumLoad(busId, serviceDayStart(serviceDay), timestamp);
+            }
+            var dayLoad = lookup.sumLoad(busId, serviceDayStart(serviceDay), timestamp);
+            if (load.serviceDay == null || serviceDay.isAfter(load.serviceDay)) {
+                load.serviceDay = serviceDay;
+                load.lastTimestamp = timestamp;
+                load.load = dayLoad;
+            }
+            return dayLoad;
+        } finally {
+            load.lock.unlock();
+        }
+    }
+
+    private static LocalDateTime serviceDayStart(LocalDate serviceDay) {
+        return serviceDay.atTime(SERVICE_DAY_START_HOUR, 0);
+    }
+
+    @FunctionalInterface
+    interface LoadLookup {
+        long sumLoad(long busId, LocalDateTime from, LocalDateTime to);
+    }
+
+    private static final class BusLoad {
+        private final ReentrantLock lock = new ReentrantLock();
+        private LocalDate serviceDay;
+        private LocalDateTime lastTimestamp;
+        private long load;
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot.StopRef;
+import io.github.ryamal4.passengerflow.service.weather.HourlyForecast;
+import io.github.ryamal4.passengerflow.service.weather.IWeatherService;
+import io.github.ryamal4.passengerflow.service.weather.WeatherGrid;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+// Forecast windows used while answering one request, fetched on first use of each weather grid cell, so a route
+// costs one forecast per cell rather than one weather lookup per slot.
+final class CellForecasts {
+    private final IWeatherService weatherService;
+    private final TimeZone timeZone;
+    private final Map<Cell, HourlyForecast> forecasts = new HashMap<>();
+
+    CellForecasts(IWeatherService weatherService, TimeZone timeZone) {
+        this.weatherService = weatherService;
+        this.timeZone = timeZone;
+    }
+
+    boolean isRaining(LocalDateTime dateTime, StopRef stop) {
+        var cell = new Cell(WeatherGrid.roundToGrid(stop.lat()), WeatherGrid.roundToGrid(stop.lon()));
+        return forecasts.computeIfAbsent(cell, key -> weatherService.getForecast(stop.lat(), stop.lon(), timeZone))
+                .isRaining(dateTime);
+    }
+
+    private record Cell(double lat, double lon) {
+    }
+}
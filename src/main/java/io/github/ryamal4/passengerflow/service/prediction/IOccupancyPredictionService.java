@@ -1,7 +1,10 @@
 package io.github.ryamal4.passengerflow.service.prediction;
 
+import io.github.ryamal4.passengerflow.dto.BatchPredictionDTO;
 import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
@@ -9,5 +12,12 @@ import java.util.Optional;
 public interface IOccupancyPredictionService {
     Optional<OccupancyPredictionDTO> getPrediction(String routeName, String stopName, LocalTime time, boolean useWeather);
 
+    Optional<OccupancyPredictionDTO> getPrediction(String routeName, String stopName, LocalDate date, LocalTime time,
+                                                   boolean useWeather);
+
     List<OccupancyPredictionDTO> getTodayPredictions(String routeName, boolean useWeather);
+
+    List<OccupancyPredictionDTO> getDayPredictions(String routeName, LocalDate date, boolean useWeather);
+
+    List<BatchPredictionDTO> getBatchPredictions(List<PredictionQueryDTO> queries, boolean useWeather);
 }
@@ -0,0 +1,9 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.dto.PredictionMatrixDTO;
+
+import java.time.LocalDate;
+
+public interface IPredictionMatrixService {
+    PredictionMatrixDTO getMatrix(String routeName, LocalDate date, boolean useWeather, boolean quantize);
+}
@@ -1,81 +1,150 @@
 package io.github.ryamal4.passengerflow.service.prediction;
 
+import io.github.ryamal4.passengerflow.dto.BatchPredictionDTO;
 import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
 import io.github.ryamal4.passengerflow.model.PassengerCountAggregation;
 import io.github.ryamal4.passengerflow.repository.IPassengerCountAggregationRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.AggregatedSlot;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.SlotKey;
+import io.github.ryamal4.passengerflow.service.aggregation.OccupancyHistogram;
+import io.github.ryamal4.passengerflow.service.prediction.BatchPredictionResolver.SlotPrediction;
+import io.github.ryamal4.passengerflow.service.prediction.BatchPredictionResolver.WeatherAdjustment;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot.StopRef;
 import io.github.ryamal4.passengerflow.service.weather.IWeatherService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.TimeZone;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Transactional(readOnly = true)
+@ConditionalOnProperty(name = "prediction.source", havingValue = "aggregate", matchIfMissing = true)
 public class OccupancyPredictionService implements IOccupancyPredictionService {
     private static final TimeZone MOSCOW_TIMEZONE = TimeZone.getTimeZone("Europe/Moscow");
     private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
     private static final double RAIN_OCCUPANCY_INCREASE = 20.0;
 
     private final IPassengerCountAggregationRepository aggregationRepository;
+    private final PredictionSlotRepository slotRepository;
     private final IWeatherService weatherService;
+    private final IReferenceDataRegistry referenceDataRegistry;
 
     @Override
     public Optional<OccupancyPredictionDTO> getPrediction(String routeName, String stopName, LocalTime time, boolean useWeather) {
-        var now = LocalDateTime.now(MOSCOW_ZONE_ID);
-        var dayOfWeek = now.getDayOfWeek().getValue();
-        var targetDateTime = now.with(time);
+        return getPrediction(routeName, stopName, LocalDate.now(MOSCOW_ZONE_ID), time, useWeather);
+    }
+
+    @Override
+    public Optional<OccupancyPredictionDTO> getPrediction(String routeName, String stopName, LocalDate date,
+                                                          LocalTime time, boolean useWeather) {
+        PredictionHorizon.check(date, LocalDate.now(MOSCOW_ZONE_ID));
+        var dayOfWeek = date.getDayOfWeek().getValue();
+        var targetDateTime = date.atTime(time);
 
         int hour = time.getHour();
         int minute = roundToNearestFiveMinutes(time.getMinute());
 
-        var aggregationOpt = aggregationRepository.findByRouteAndStopAndTime(
-                routeName, stopName, dayOfWeek, hour, minute
-        );
-
-        return aggregationOpt.map(aggregation -> {
-            var baseOccupancy = aggregation.getAverageOccupancyPercentage();
-            var adjustedOccupancy = useWeather
-                    ? adjustOccupancyForWeather(baseOccupancy, targetDateTime, aggregation)
-                    : baseOccupancy;
-            return new OccupancyPredictionDTO(stopName, time, adjustedOccupancy);
-        });
+        var stopOpt = referenceDataRegistry.current().findStop(routeName, stopName);
+        if (stopOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        var stop = stopOpt.get();
+
+        return aggregationRepository.findByStopAndTime(stop.id(), dayOfWeek, hour, minute)
+                .map(aggregation -> {
+                    var increase = useWeather ? forecastIncrease(new CellForecasts(weatherService, MOSCOW_TIMEZONE))
+                            .increase(targetDateTime, stop) : 0.0;
+                    return toPrediction(stopName, time, aggregation, increase);
+                });
     }
 
     @Override
     public List<OccupancyPredictionDTO> getTodayPredictions(String routeName, boolean useWeather) {
-        var now = LocalDateTime.now(MOSCOW_ZONE_ID);
-        var dayOfWeek = now.getDayOfWeek().getValue();
+        return getDayPredictions(routeName, LocalDate.now(MOSCOW_ZONE_ID), useWeather);
+    }
+
+    @Override
+    public List<OccupancyPredictionDTO> getDayPredictions(String routeName, LocalDate date, boolean useWeather) {
+        var referenceData = referenceDataRegistry.current();
+        PredictionHorizon.check(date, LocalDate.now(MOSCOW_ZONE_ID));
+        var dayOfWeek = date.getDayOfWeek().getValue();
 
-        var aggregations = aggregationRepository.findByRouteAndDayOfWeek(routeName, dayOfWeek);
+        var routeStops = referenceData.getRouteStops(routeName);
+        if (routeStops.isEmpty()) {
+            return List.of();
+        }
+        var stopIds = routeStops.stream().map(StopRef::id).toList();
+        var forecasts = new CellForecasts(weatherService, MOSCOW_TIMEZONE);
 
-        return aggregations.stream()
+        // Rows come ordered by time; the stable sort by stop name keeps that order within each stop.
+        return aggregationRepository.findByStopIdsAndDayOfWeek(stopIds, dayOfWeek).stream()
                 .map(aggregation -> {
+                    var stop = referenceData.findStop(aggregation.getStop().getId()).orElseThrow();
                     var time = LocalTime.of(aggregation.getHour(), aggregation.getMinute());
-                    var targetDateTime = now.with(time);
-                    var baseOccupancy = aggregation.getAverageOccupancyPercentage();
-                    var adjustedOccupancy = useWeather
-                            ? adjustOccupancyForWeather(baseOccupancy, targetDateTime, aggregation)
-                            : baseOccupancy;
-                    return new OccupancyPredictionDTO(aggregation.getStop().getName(), time, adjustedOccupancy);
+                    var increase = useWeather && forecasts.isRaining(date.atTime(time), stop)
+                            ? RAIN_OCCUPANCY_INCREASE : 0.0;
+                    return toPrediction(stop.name(), time, aggregation, increase);
                 })
+                .sorted(Comparator.comparing(OccupancyPredictionDTO::getStopName))
                 .toList();
     }
 
-    private double adjustOccupancyForWeather(double baseOccupancy, LocalDateTime targetDateTime, PassengerCountAggregation aggregation) {
-        var stop = aggregation.getStop();
-        boolean isRaining = weatherService.isRaining(targetDateTime, stop.getLat(), stop.getLon(), MOSCOW_TIMEZONE);
-        if (isRaining) {
-            log.debug("Rain detected for stop {} at {}, adding {}% to occupancy", stop.getName(), targetDateTime, RAIN_OCCUPANCY_INCREASE);
-            return baseOccupancy + RAIN_OCCUPANCY_INCREASE;
-        }
-        return baseOccupancy;
+    @Override
+    public List<BatchPredictionDTO> getBatchPredictions(List<PredictionQueryDTO> queries, boolean useWeather) {
+        return BatchPredictionResolver.resolve(queries, referenceDataRegistry.current(),
+                LocalDate.now(MOSCOW_ZONE_ID), this::findSlots, useWeather
+                        ? forecastIncrease(new CellForecasts(weatherService, MOSCOW_TIMEZONE))
+                        : (dateTime, stop) -> 0.0);
+    }
+
+    private Map<SlotKey, SlotPrediction> findSlots(Collection<SlotKey> slots) {
+        return slotRepository.findAggregatedSlots(slots).stream()
+                .collect(Collectors.toMap(
+                        AggregatedSlot::key,
+                        aggregation -> {
+                            var histogram = OccupancyHistogram.fromBytes(aggregation.occupancyHistogram());
+                            return new SlotPrediction(aggregation.averageOccupancyPercentage(),
+                                    histogram.isEmpty() ? null : histogram.quantile(0.5),
+                                    histogram.isEmpty() ? null : histogram.quantile(0.9));
+                        },
+                        (first, second) -> first));
+    }
+
+    // Percentiles are only known for slots aggregated since histograms were introduced; older rows report the mean.
+    private OccupancyPredictionDTO toPrediction(String stopName, LocalTime time, PassengerCountAggregation aggregation,
+                                                double increase) {
+        var histogram = OccupancyHistogram.fromBytes(aggregation.getOccupancyHistogram());
+        var p50 = histogram.isEmpty() ? null : histogram.quantile(0.5) + increase;
+        var p90 = histogram.isEmpty() ? null : histogram.quantile(0.9) + increase;
+        return new OccupancyPredictionDTO(stopName, time, aggregation.getAverageOccupancyPercentage() + increase,
+                p50, p90);
+    }
+
+    private static WeatherAdjustment forecastIncrease(CellForecasts forecasts) {
+        return (targetDateTime, stop) -> {
+            if (forecasts.isRaining(targetDateTime, stop)) {
+                log.debug("Rain detected for stop {} at {}, adding {}% to occupancy", stop.name(), targetDateTime, RAIN_OCCUPANCY_INCREASE);
+                return RAIN_OCCUPANCY_INCREASE;
+            }
+            return 0.0;
+        };
     }
 
     private int roundToNearestFiveMinutes(int minute) {
@@ -0,0 +1,64 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.event.PassengerCountIngestedEvent;
+import io.github.ryamal4.passengerflow.repository.IOccupancyEstimateRepository;
+import io.github.ryamal4.passengerflow.repository.IPassengerCountRepository;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot.BusRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+// Keeps an exponentially weighted occupancy estimate per (stop, weekday, 5-minute slot), updated with one row
+// lock per ingested count instead of a scan over the history.
+@Component
+@ConditionalOnProperty(name = "prediction.source", havingValue = "online")
+public class OnlineOccupancyModel {
+    private static final int SLOT_MINUTES = 5;
+
+    private final IOccupancyEstimateRepository estimateRepository;
+    private final IReferenceDataRegistry referenceDataRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final BusLoadTracker loadTracker;
+    private final Duration halfLife;
+
+    public OnlineOccupancyModel(IOccupancyEstimateRepository estimateRepository,
+                                IPassengerCountRepository passengerCountRepository,
+                                IReferenceDataRegistry referenceDataRegistry,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${prediction.online.half-life-hours:168}") long halfLifeHours) {
+        this.estimateRepository = estimateRepository;
+        this.referenceDataRegistry = referenceDataRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTracker = new BusLoadTracker(passengerCountRepository::sumLoadBetween);
+        this.halfLife = Duration.ofHours(halfLifeHours);
+    }
+
+    public void observe(PassengerCountIngestedEvent count) {
+        var load = loadTracker.loadAfter(count.busId(), count.timestamp(), count.entered(), count.exited());
+        var capacity = referenceDataRegistry.current().findBus(count.busId())
+                .map(BusRef::busModelCapacity)
+                .orElse(null);
+        if (capacity == null || capacity <= 0) {
+            return;
+        }
+
+        var occupancyPercentage = (double) load / capacity * 100.0;
+        var timestamp = count.timestamp();
+        var dayOfWeek = timestamp.getDayOfWeek().getValue();
+        var hour = timestamp.getHour();
+        var minute = timestamp.getMinute() / SLOT_MINUTES * SLOT_MINUTES;
+        transactionTemplate.executeWithoutResult(status -> {
+            estimateRepository.insertIfMissing(count.stopId(), dayOfWeek, hour, minute, timestamp);
+            estimateRepository.findSlotForUpdate(count.stopId(), dayOfWeek, hour, minute)
+                    .orElseThrow()
+                    .observe(occupancyPercentage, timestamp, halfLife);
+        });
+    }
+}
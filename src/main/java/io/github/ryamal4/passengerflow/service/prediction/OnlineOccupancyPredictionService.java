@@ -0,0 +1,139 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.dto.BatchPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
+import io.github.ryamal4.passengerflow.model.OccupancyEstimate;
+import io.github.ryamal4.passengerflow.repository.IOccupancyEstimateRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.EstimatedSlot;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.SlotKey;
+import io.github.ryamal4.passengerflow.service.prediction.BatchPredictionResolver.SlotPrediction;
+import io.github.ryamal4.passengerflow.service.prediction.BatchPredictionResolver.WeatherAdjustment;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot.StopRef;
+import io.github.ryamal4.passengerflow.service.weather.IWeatherService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+
+// Serves predictions from the exponentially weighted estimates kept up to date on ingest. Percentiles assume the
+// occupancy of a slot is roughly normal around the weighted mean.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+@ConditionalOnProperty(name = "prediction.source", havingValue = "online")
+public class OnlineOccupancyPredictionService implements IOccupancyPredictionService {
+    private static final TimeZone MOSCOW_TIMEZONE = TimeZone.getTimeZone("Europe/Moscow");
+    private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
+    private static final double RAIN_OCCUPANCY_INCREASE = 20.0;
+    private static final double P90_Z_SCORE = 1.2816;
+
+    private final IOccupancyEstimateRepository estimateRepository;
+    private final PredictionSlotRepository slotRepository;
+    private final IWeatherService weatherService;
+    private final IReferenceDataRegistry referenceDataRegistry;
+
+    @Override
+    public Optional<OccupancyPredictionDTO> getPrediction(String routeName, String stopName, LocalTime time, boolean useWeather) {
+        return getPrediction(routeName, stopName, LocalDate.now(MOSCOW_ZONE_ID), time, useWeather);
+    }
+
+    @Override
+    public Optional<OccupancyPredictionDTO> getPrediction(String routeName, String stopName, LocalDate date,
+                                                          LocalTime time, boolean useWeather) {
+        PredictionHorizon.check(date, LocalDate.now(MOSCOW_ZONE_ID));
+        var dayOfWeek = date.getDayOfWeek().getValue();
+
+        var stopOpt = referenceDataRegistry.current().findStop(routeName, stopName);
+        if (stopOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        var stop = stopOpt.get();
+
+        return estimateRepository.findByStopAndTime(stop.id(), dayOfWeek, time.getHour(), time.getMinute() / 5 * 5)
+                .map(estimate -> {
+                    var increase = useWeather ? forecastIncrease(new CellForecasts(weatherService, MOSCOW_TIMEZONE))
+                            .increase(date.atTime(time), stop) : 0.0;
+                    return toPrediction(stopName, time, estimate, increase);
+                });
+    }
+
+    @Override
+    public List<OccupancyPredictionDTO> getTodayPredictions(String routeName, boolean useWeather) {
+        return getDayPredictions(routeName, LocalDate.now(MOSCOW_ZONE_ID), useWeather);
+    }
+
+    @Override
+    public List<OccupancyPredictionDTO> getDayPredictions(String routeName, LocalDate date, boolean useWeather) {
+        var referenceData = referenceDataRegistry.current();
+        PredictionHorizon.check(date, LocalDate.now(MOSCOW_ZONE_ID));
+        var dayOfWeek = date.getDayOfWeek().getValue();
+
+        var routeStops = referenceData.getRouteStops(routeName);
+        if (routeStops.isEmpty()) {
+            return List.of();
+        }
+        var stopIds = routeStops.stream().map(StopRef::id).toList();
+        var forecasts = new CellForecasts(weatherService, MOSCOW_TIMEZONE);
+
+        return estimateRepository.findByStopIdsAndDayOfWeek(stopIds, dayOfWeek).stream()
+                .map(estimate -> {
+                    var stop = referenceData.findStop(estimate.getStop().getId()).orElseThrow();
+                    var time = LocalTime.of(estimate.getHour(), estimate.getMinute());
+                    var increase = useWeather && forecasts.isRaining(date.atTime(time), stop)
+                            ? RAIN_OCCUPANCY_INCREASE : 0.0;
+                    return toPrediction(stop.name(), time, estimate, increase);
+                })
+                .sorted(Comparator.comparing(OccupancyPredictionDTO::getStopName))
+                .toList();
+    }
+
+    @Override
+    public List<BatchPredictionDTO> getBatchPredictions(List<PredictionQueryDTO> queries, boolean useWeather) {
+        return BatchPredictionResolver.resolve(queries, referenceDataRegistry.current(),
+                LocalDate.now(MOSCOW_ZONE_ID), this::findSlots, useWeather
+                        ? forecastIncrease(new CellForecasts(weatherService, MOSCOW_TIMEZONE))
+                        : (dateTime, stop) -> 0.0);
+    }
+
+    private Map<SlotKey, SlotPrediction> findSlots(Collection<SlotKey> slots) {
+        return slotRepository.findEstimatedSlots(slots).stream()
+                .collect(Collectors.toMap(
+                        EstimatedSlot::key,
+                        estimate -> new SlotPrediction(estimate.mean(), estimate.mean(),
+                                estimate.mean() + P90_Z_SCORE * Math.sqrt(estimate.variance())),
+                        (first, second) -> first));
+    }
+
+    private OccupancyPredictionDTO toPrediction(String stopName, LocalTime time, OccupancyEstimate estimate,
+                                                double increase) {
+        var mean = estimate.getMean() + increase;
+        var p90 = mean + P90_Z_SCORE * Math.sqrt(estimate.getVariance());
+        return new OccupancyPredictionDTO(stopName, time, mean, mean, p90);
+    }
+
+    private static WeatherAdjustment forecastIncrease(CellForecasts forecasts) {
+        return (targetDateTime, stop) -> {
+            if (forecasts.isRaining(targetDateTime, stop)) {
+                log.debug("Rain detected for stop {} at {}, adding {}% to occupancy", stop.name(), targetDateTime, RAIN_OCCUPANCY_INCREASE);
+                return RAIN_OCCUPANCY_INCREASE;
+            }
+            return 0.0;
+        };
+    }
+}
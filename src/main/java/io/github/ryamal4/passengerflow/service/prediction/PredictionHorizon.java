@@ -0,0 +1,23 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.service.weather.IWeatherService;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDate;
+
+// Dated predictions are limited to the days the weather forecast covers.
+final class PredictionHorizon {
+    static final int MAX_DAYS_AHEAD = IWeatherService.FORECAST_DAYS - 1;
+
+    private PredictionHorizon() {
+    }
+
+    static void check(LocalDate date, LocalDate today) {
+        var lastDate = today.plusDays(MAX_DAYS_AHEAD);
+        if (date.isBefore(today) || date.isAfter(lastDate)) {
+            throw new AppException(HttpStatus.BAD_REQUEST,
+                    "Прогноз доступен только на даты с " + today + " по " + lastDate);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionMatrixDTO;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot.StopRef;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.TreeSet;
+
+// Pivots a day of predictions into the matrix the heatmap draws. Rows follow the route's stops, including stops
+// without data; columns are only the slots some stop has data for, so night hours cost nothing.
+@Service
+@RequiredArgsConstructor
+public class PredictionMatrixService implements IPredictionMatrixService {
+    static final int SLOT_MINUTES = 5;
+    static final double QUANTIZATION_STEP = 1.0;
+    private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
+
+    private final IOccupancyPredictionService predictionService;
+    private final IReferenceDataRegistry referenceDataRegistry;
+
+    @Override
+    public PredictionMatrixDTO getMatrix(String routeName, LocalDate date, boolean useWeather, boolean quantize) {
+        var day = date != null ? date : LocalDate.now(MOSCOW_ZONE_ID);
+        var stops = referenceDataRegistry.current().getRouteStops(routeName).stream().map(StopRef::name).toList();
+        var predictions = predictionService.getDayPredictions(routeName, day, useWeather);
+
+        var rows = new HashMap<String, Integer>();
+        for (int i = 0; i < stops.size(); i++) {
+            rows.putIfAbsent(stops.get(i), i);
+        }
+        var slotSet = new TreeSet<Integer>();
+        for (var prediction : predictions) {
+            if (rows.containsKey(prediction.getStopName())) {
+                slotSet.add(minuteOfDay(prediction));
+            }
+        }
+        var slots = slotSet.stream().mapToInt(Integer::intValue).toArray();
+        var columns = new HashMap<Integer, Integer>();
+        for (int j = 0; j < slots.length; j++) {
+            columns.put(slots[j], j);
+        }
+
+        var values = new Double[stops.size() * slots.length];
+        for (var prediction : predictions) {
+            var row = rows.get(prediction.getStopName());
+            if (row != null && prediction.getOccupancyPercentage() != null) {
+                var cell = row * slots.length + columns.get(minuteOfDay(prediction));
+                if (values[cell] == null) {
+                    values[cell] = Math.round(prediction.getOccupancyPercentage() * 10) / 10.0;
+                }
+            }
+        }
+
+        var stopNames = stops.toArray(String[]::new);
+        if (quantize) {
+            var quantized = quantize(values);
+            return new PredictionMatrixDTO(routeName, day, version(routeName, day, stopNames, slots, quantized),
+                    stopNames, SLOT_MINUTES, slots, null, quantized, QUANTIZATION_STEP);
+        }
+        return new PredictionMatrixDTO(routeName, day, version(routeName, day, stopNames, slots, toBytes(values)),
+                stopNames, SLOT_MINUTES, slots, values, null, null);
+    }
+
+    private static int minuteOfDay(OccupancyPredictionDTO prediction) {
+        var time = prediction.getTime();
+        return time.getHour() * 60 + time.getMinute() / SLOT_MINUTES * SLOT_MINUTES;
+    }
+
+    private static byte[] quantize(Double[] values) {
+        var quantized = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            quantized[i] = (byte) (values[i] == null
+                    ? PredictionMatrixDTO.QUANTIZED_MISSING
+                    : Math.max(0, Math.min(PredictionMatrixDTO.QUANTIZED_MISSING - 1,
+                    Math.round(values[i] / QUANTIZATION_STEP))));
+        }
+        return quantized;
+    }
+
+    private static byte[] toBytes(Double[] values) {
+        var buffer = ByteBuffer.allocate(values.length * Long.BYTES);
+        for (var value : values) {
+            buffer.putLong(value != null ? Double.doubleToLongBits(value) : Long.MIN_VALUE);
+        }
+        return buffer.array();
+    }
+
+    // Content hash used as the ETag: the predictions change with the nightly aggregation and the weather, not
+    // with any counter the server keeps, so an unchanged matrix is recognised by its cells.
+    private static String version(String routeName, LocalDate date, String[] stops, int[] slots, byte[] cells) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update((routeName + '\n' + date + '\n' + String.join("\n", stops) + '\n')
+                    .getBytes(StandardCharsets.UTF_8));
+            var slotBytes = ByteBuffer.allocate(slots.length * Integer.BYTES);
+            for (var slot : slots) {
+                slotBytes.putInt(slot);
+            }
+            digest.update(slotBytes.array());
+            digest.update(cells);
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package io.github.ryamal4.passengerflow.service.reference;
+
+public interface IReferenceDataRegistry {
+    ReferenceDataSnapshot current();
+
+    void invalidate();
+}
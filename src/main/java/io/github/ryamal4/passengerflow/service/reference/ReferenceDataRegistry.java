@@ -0,0 +1,93 @@
+package io.github.ryamal4.passengerflow.service.reference;
+
+import io.github.ryamal4.passengerflow.repository.IBusModelRepository;
+import io.github.ryamal4.passengerflow.repository.IBusRepository;
+import io.github.ryamal4.passengerflow.repository.IRouteRepository;
+import io.github.ryamal4.passengerflow.repository.IStopsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@Slf4j
+public class ReferenceDataRegistry implements IReferenceDataRegistry {
+    private final IRouteRepository routeRepository;
+    private final IStopsRepository stopsRepository;
+    private final IBusRepository busRepository;
+    private final IBusModelRepository busModelRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // A lock rather than synchronized: the reload does database I/O, which would pin a virtual thread's carrier.
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong(1);
+    private volatile ReferenceDataSnapshot snapshot;
+
+    public ReferenceDataRegistry(IRouteRepository routeRepository,
+                                 IStopsRepository stopsRepository,
+                                 IBusRepository busRepository,
+                                 IBusModelRepository busModelRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.routeRepository = routeRepository;
+        this.stopsRepository = stopsRepository;
+        this.busRepository = busRepository;
+        this.busModelRepository = busModelRepository;
+        // A new read-write transaction, even when current() is called inside a read-only one, so the load is
+        // served by the primary and sees the commit that triggered it; repeatable read so all four tables come
+        // from one consistent view.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(false);
+    }
+
+    @Override
+    public ReferenceDataSnapshot current() {
+        var current = snapshot;
+        if (current != null && current.getGeneration() == generation.get()) {
+            return current;
+        }
+        return reload();
+    }
+
+    @Override
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private ReferenceDataSnapshot reload() {
+        reloadLock.lock();
+        try {
+            return reloadLocked();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private ReferenceDataSnapshot reloadLocked() {
+        var target = generation.get();
+        var current = snapshot;
+        if (current != null && current.getGeneration() == target) {
+            return current;
+        }
+
+        var version = current != null ? current.getVersion() + 1 : 1;
+        var loaded = transactionTemplate.execute(status -> ReferenceDataSnapshot.of(version, target,
+                routeRepository.findAll(),
+                stopsRepository.findAll(),
+                busRepository.findAll(),
+                busModelRepository.findAll()));
+        if (current != null && current.getFingerprint().equals(loaded.getFingerprint())) {
+            snapshot = current.withGeneration(target);
+            return snapshot;
+        }
+        snapshot = loaded;
+        log.info("Loaded reference data version {}: {} stops, {} buses", version,
+                loaded.getStopCount(), loaded.getBuses().size());
+        return loaded;
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.ryamal4.passengerflow.service.reference;
+
+import io.github.ryamal4.passengerflow.model.Bus;
+import io.github.ryamal4.passengerflow.model.BusModel;
+import io.github.ryamal4.passengerflow.model.Route;
+import io.github.ryamal4.passengerflow.model.Stop;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+public final class ReferenceDataSnapshot {
+    private final long version;
+    private final long generation;
+    private final Instant lastModified;
+    private final String fingerprint;
+
+    private final List<RouteRef> routes;
+    private final List<StopRef> stops;
+    private final List<BusRef> buses;
+    private final List<BusModelRef> busModels;
+    private final Map<Long, Integer> routeOrdinals;
+    private final Map<Long, Integer> stopOrdinals;
+    private final Map<Long, Integer> busOrdinals;
+    private final Map<Long, Integer> busModelOrdinals;
+
+    private final Map<String, Map<String, StopRef>> stopsByRouteAndName;
+    private final Map<String, List<StopRef>> stopsByRouteName;
+
+    private ReferenceDataSnapshot(long version, long generation, Instant lastModified, List<RouteRef> routes,
+                                  List<StopRef> stops, List<BusRef> buses, List<BusModelRef> busModels) {
+        this.version = version;
+        this.generation = generation;
+        this.lastModified = lastModified;
+        this.fingerprint = fingerprint(routes, stops, buses, busModels);
+        this.routes = routes;
+        this.stops = stops;
+        this.buses = buses;
+        this.busModels = busModels;
+        this.routeOrdinals = ordinals(routes, RouteRef::id);
+        this.stopOrdinals = ordinals(stops, StopRef::id);
+        this.busOrdinals = ordinals(buses, BusRef::id);
+        this.busModelOrdinals = ordinals(busModels, BusModelRef::id);
+
+        var byRouteAndName = new HashMap<String, Map<String, StopRef>>();
+        var byRouteName = new LinkedHashMap<String, List<StopRef>>();
+        for (var stop : stops) {
+            byRouteAndName.computeIfAbsent(stop.routeName(), name -> new HashMap<>()).putIfAbsent(stop.name(), stop);
+            byRouteName.computeIfAbsent(stop.routeName(), name -> new ArrayList<>()).add(stop);
+        }
+        byRouteAndName.replaceAll((name, byName) -> Map.copyOf(byName));
+        byRouteName.replaceAll((name, routeStops) -> List.copyOf(routeStops));
+        this.stopsByRouteAndName = Map.copyOf(byRouteAndName);
+        this.stopsByRouteName = Map.copyOf(byRouteName);
+    }
+
+    public static ReferenceDataSnapshot of(long version, long generation, List<Route> routes, List<Stop> stops,
+                                           List<Bus> buses, List<BusModel> busModels) {
+        var routeRefs = routes.stream()
+                .map(route -> new RouteRef(route.getId(), route.getName()))
+                .sorted(Comparator.comparingLong(RouteRef::id))
+                .toList();
+        var routeNames = new HashMap<Long, String>();
+        routeRefs.forEach(route -> routeNames.put(route.id(), route.name()));
+
+        var busModelRefs = busModels.stream()
+                .map(model -> new BusModelRef(model.getId(), model.getName(), model.getCapacity()))
+                .sorted(Comparator.comparingLong(BusModelRef::id))
+                .toList();
+        var modelsById = new HashMap<Long, BusModelRef>();
+        busModelRefs.forEach(model -> modelsById.put(model.id(), model));
+
+        // Only identifiers are read from the lazy associations, so no proxy is initialized here.
+        var stopRefs = stops.stream()
+                .map(stop -> {
+                    var routeId = stop.getRoute().getId();
+                    return new StopRef(stop.getId(), stop.getName(), stop.getLat(), stop.getLon(),
+                            routeId, routeNames.get(routeId));
+                })
+                .sorted(Comparator.comparingLong(StopRef::id))
+                .toList();
+        var busRefs = buses.stream()
+                .map(bus -> {
+                    var model = modelsById.get(bus.getBusModel().getId());
+                    var routeId = bus.getRoute().getId();
+                    return new BusRef(bus.getId(), bus.getBusModel().getId(),
+                            model != null ? model.name() : null, model != null ? model.capacity() : null,
+                            routeId, routeNames.get(routeId));
+                })
+                .sorted(Comparator.comparingLong(BusRef::id))
+                .toList();
+
+        return new ReferenceDataSnapshot(version, generation, Instant.now(), routeRefs, stopRefs, busRefs, busModelRefs);
+    }
+
+    // Same content under a newer generation: a reload that found nothing changed keeps the version, timestamp and
+    // fingerprint, so conditional requests made against the previous snapshot still match.
+    ReferenceDataSnapshot withGeneration(long newGeneration) {
+        return new ReferenceDataSnapshot(version, newGeneration, lastModified, routes, stops, buses, busModels);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    // Content hash that stays the same across restarts, unlike the version counter.
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public List<StopRef> getStops() {
+        return stops;
+    }
+
+    public List<BusRef> getBuses() {
+        return buses;
+    }
+
+    public Optional<RouteRef> findRoute(Long id) {
+        return lookup(routes, routeOrdinals, id);
+    }
+
+    public Optional<StopRef> findStop(Long id) {
+        return lookup(stops, stopOrdinals, id);
+    }
+
+    public Optional<BusRef> findBus(Long id) {
+        return lookup(buses, busOrdinals, id);
+    }
+
+    public Optional<BusModelRef> findBusModel(Long id) {
+        return lookup(busModels, busModelOrdinals, id);
+    }
+
+    public Optional<StopRef> findStop(String routeName, String stopName) {
+        var byName = stopsByRouteAndName.get(routeName);
+        return byName != null ? Optional.ofNullable(byName.get(stopName)) : Optional.empty();
+    }
+
+    public List<StopRef> getRouteStops(String routeName) {
+        return stopsByRouteName.getOrDefault(routeName, List.of());
+    }
+
+    // Dense position of the stop in id order, for callers that index arrays by stop; -1 when unknown.
+    public int stopOrdinal(Long id) {
+        return id != null ? stopOrdinals.getOrDefault(id, -1) : -1;
+    }
+
+    public int getStopCount() {
+        return stops.size();
+    }
+
+    private static <T> Optional<T> lookup(List<T> values, Map<Long, Integer> ordinals, Long id) {
+        var ordinal = id != null ? ordinals.get(id) : null;
+        return ordinal != null ? Optional.of(values.get(ordinal)) : Optional.empty();
+    }
+
+    private static String fingerprint(List<RouteRef> routes, List<StopRef> stops, List<BusRef> buses,
+                                      List<BusModelRef> busModels) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var values : List.of(routes, stops, buses, busModels)) {
+                for (var value : values) {
+                    digest.update(value.toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) '\n');
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static <T> Map<Long, Integer> ordinals(List<T> values, ToLongFunction<T> id) {
+        var ordinals = new HashMap<Long, Integer>(values.size() * 2);
+        for (int i = 0; i < values.size(); i++) {
+            ordinals.put(id.applyAsLong(values.get(i)), i);
+        }
+        return ordinals;
+    }
+
+    public record RouteRef(long id, String name) {
+    }
+
+    public record StopRef(long id, String name, double lat, double lon, long routeId, String routeName) {
+    }
+
+    public record BusRef(long id, long busModelId, String busModelName, Integer busModelCapacity,
+                         long routeId, String routeName) {
+    }
+
+    public record BusModelRef(long id, String name, Integer capacity) {
+    }
+}
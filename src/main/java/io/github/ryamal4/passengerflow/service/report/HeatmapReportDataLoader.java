@@ -0,0 +1,62 @@
+package io.github.ryamal4.passengerflow.service.report;
+
+import io.github.ryamal4.passengerflow.dto.HeatmapReportDTO;
+import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.service.prediction.IOccupancyPredictionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.TextStyle;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Kept apart from the renderer so the read-only transaction goes through the proxy and ends before rendering starts.
+@Component
+@RequiredArgsConstructor
+public class HeatmapReportDataLoader {
+    private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
+    private static final List<Integer> REPORT_HOURS = IntStream.rangeClosed(6, 18).boxed().toList();
+
+    private final IOccupancyPredictionService predictionService;
+
+    @Transactional(readOnly = true)
+    public HeatmapReportDTO load(String routeName, boolean useWeather) {
+        var predictions = predictionService.getTodayPredictions(routeName, useWeather);
+        var now = LocalDateTime.now(MOSCOW_ZONE_ID);
+
+        var stopNames = predictions.stream()
+                .map(OccupancyPredictionDTO::getStopName)
+                .distinct()
+                .toList();
+
+        var heatmapData = new LinkedHashMap<String, Map<Integer, Double>>();
+        for (var stopName : stopNames) {
+            var stopData = predictions.stream()
+                    .filter(p -> p.getStopName().equals(stopName))
+                    .collect(Collectors.toMap(
+                            p -> p.getTime().getHour(),
+                            OccupancyPredictionDTO::getOccupancyPercentage,
+                            (a, b) -> a
+                    ));
+            heatmapData.put(stopName, stopData);
+        }
+
+        return HeatmapReportDTO.builder()
+                .routeName(routeName)
+                .reportDate(now.toLocalDate())
+                .generatedAt(now)
+                .dayOfWeekName(now.getDayOfWeek().getDisplayName(TextStyle.FULL, new Locale("ru")))
+                .weatherEnabled(useWeather)
+                .stopNames(stopNames)
+                .hours(REPORT_HOURS)
+                .heatmapData(heatmapData)
+                .build();
+    }
+}
@@ -2,14 +2,19 @@ package io.github.ryamal4.passengerflow.service.report;
 
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
 import io.github.ryamal4.passengerflow.dto.HeatmapReportDTO;
-import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
-import io.github.ryamal4.passengerflow.service.prediction.IOccupancyPredictionService;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
@@ -17,73 +22,72 @@ import org.thymeleaf.context.Context;
 import java.io.ByteArrayOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.format.TextStyle;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class HeatmapReportService implements IHeatmapReportService {
-    private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
-    private static final List<Integer> REPORT_HOURS = IntStream.rangeClosed(6, 18).boxed().toList();
-
-    private final IOccupancyPredictionService predictionService;
+    private final HeatmapReportDataLoader reportDataLoader;
     private final TemplateEngine templateEngine;
+    private final MeterRegistry meterRegistry;
+    @Value("${report.render.max-concurrent:2}")
+    private int maxConcurrentRenders;
+    private Semaphore renderPermits;
+
+    @PostConstruct
+    public void init() {
+        renderPermits = new Semaphore(maxConcurrentRenders);
+    }
 
     @Override
     public byte[] generateHeatmapReport(String routeName, boolean useWeather) {
         var reportData = prepareReportData(routeName, useWeather);
         var html = renderHtmlTemplate(reportData);
-        return convertHtmlToPdf(html);
+        return withRenderPermit("pdf", () -> convertHtmlToPdf(html));
     }
 
     @Override
     public byte[] generateExcelReport(String routeName, boolean useWeather) {
         var reportData = prepareReportData(routeName, useWeather);
-        return createExcelWorkbook(reportData);
+        return withRenderPermit("xlsx", () -> createExcelWorkbook(reportData));
     }
 
     @Override
     public HeatmapReportDTO prepareReportData(String routeName, boolean useWeather) {
-        var predictions = predictionService.getTodayPredictions(routeName, useWeather);
-        var now = LocalDateTime.now(MOSCOW_ZONE_ID);
-
-        var stopNames = predictions.stream()
-                .map(OccupancyPredictionDTO::getStopName)
-                .distinct()
-                .toList();
-
-        var heatmapData = new LinkedHashMap<String, java.util.Map<Integer, Double>>();
-        for (var stopName : stopNames) {
-            var stopData = predictions.stream()
-                    .filter(p -> p.getStopName().equals(stopName))
-                    .collect(Collectors.toMap(
-                            p -> p.getTime().getHour(),
-                            OccupancyPredictionDTO::getOccupancyPercentage,
-                            (a, b) -> a
-                    ));
-            heatmapData.put(stopName, stopData);
-        }
+        return reportDataLoader.load(routeName, useWeather);
+    }
 
-        return HeatmapReportDTO.builder()
-                .routeName(routeName)
-                .reportDate(now.toLocalDate())
-                .generatedAt(now)
-                .dayOfWeekName(now.getDayOfWeek().getDisplayName(TextStyle.FULL, new Locale("ru")))
-                .weatherEnabled(useWeather)
-                .stopNames(stopNames)
-                .hours(REPORT_HOURS)
-                .heatmapData(heatmapData)
-                .build();
+    // PDFBox and POI are CPU-bound and synchronize around font and style caches, so with virtual
+    // threads enabled an unbounded number of renders would pin every carrier thread.
+    private byte[] withRenderPermit(String format, Supplier<byte[]> render) {
+        try {
+            renderPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(HttpStatus.SERVICE_UNAVAILABLE, "Report generation was interrupted");
+        }
+        try {
+            var sample = Timer.start(meterRegistry);
+            var report = render.get();
+            sample.stop(Timer.builder("passengerflow.report.render")
+                    .description("Report rendering time by format")
+                    .tag("format", format)
+                    .register(meterRegistry));
+            DistributionSummary.builder("passengerflow.report.size")
+                    .description("Rendered report size by format")
+                    .baseUnit("bytes")
+                    .tag("format", format)
+                    .register(meterRegistry)
+                    .record(report.length);
+            return report;
+        } finally {
+            renderPermits.release();
+        }
     }
 
     private String renderHtmlTemplate(HeatmapReportDTO reportData) {
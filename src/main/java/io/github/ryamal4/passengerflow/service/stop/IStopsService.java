@@ -1,11 +1,15 @@
 package io.github.ryamal4.passengerflow.service.stop;
 
+import io.github.ryamal4.passengerflow.dto.StopColumnsDTO;
 import io.github.ryamal4.passengerflow.dto.StopDTO;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 
 import java.util.List;
 
 public interface IStopsService {
     List<StopDTO> getNearbyStops(double lat, double lon);
 
-    List<StopDTO> getAllStops();
+    List<StopDTO> getAllStops(ReferenceDataSnapshot catalog);
+
+    StopColumnsDTO getAllStopsColumnar(ReferenceDataSnapshot catalog);
 }
@@ -1,11 +1,15 @@
 package io.github.ryamal4.passengerflow.service.stop;
 
+import io.github.ryamal4.passengerflow.dto.StopColumnsDTO;
 import io.github.ryamal4.passengerflow.dto.StopDTO;
 import io.github.ryamal4.passengerflow.model.Stop;
 import io.github.ryamal4.passengerflow.repository.IStopsRepository;
-import jakarta.transaction.Transactional;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
 
 @Service
@@ -14,9 +18,11 @@ public class StopsService implements IStopsService {
     private static final int NEARBY_STOPS_COUNT = 5;
 
     private final IStopsRepository stopsRepository;
+    private final IReferenceDataRegistry referenceDataRegistry;
 
-    public StopsService(IStopsRepository stopsRepository) {
+    public StopsService(IStopsRepository stopsRepository, IReferenceDataRegistry referenceDataRegistry) {
         this.stopsRepository = stopsRepository;
+        this.referenceDataRegistry = referenceDataRegistry;
     }
 
     @Override
@@ -27,19 +33,51 @@ public class StopsService implements IStopsService {
         if (lon < -180 || lon > 180) {
             throw new IllegalArgumentException("Longitude must be between -180 and 180");
         }
+        var referenceData = referenceDataRegistry.current();
         return stopsRepository.findNearbyStops(lat, lon, NEARBY_STOPS_COUNT).stream()
-                .map(this::convertToDTO)
+                .map(stop -> referenceData.findStop(stop.getId())
+                        .map(StopsService::convertToDTO)
+                        .orElseGet(() -> convertToDTO(stop)))
                 .toList();
     }
 
     @Override
-    public List<StopDTO> getAllStops() {
-        return stopsRepository.findAll().stream()
-                .map(this::convertToDTO)
+    public List<StopDTO> getAllStops(ReferenceDataSnapshot catalog) {
+        return catalog.getStops().stream()
+                .map(StopsService::convertToDTO)
                 .toList();
     }
 
-    private StopDTO convertToDTO(Stop entity) {
+    @Override
+    public StopColumnsDTO getAllStopsColumnar(ReferenceDataSnapshot catalog) {
+        var stops = catalog.getStops();
+        var size = stops.size();
+        var columns = new StopColumnsDTO(new long[size], new String[size], new double[size], new double[size],
+                new long[size], new HashMap<>());
+        for (int i = 0; i < size; i++) {
+            var stop = stops.get(i);
+            columns.getId()[i] = stop.id();
+            columns.getName()[i] = stop.name();
+            columns.getLat()[i] = stop.lat();
+            columns.getLon()[i] = stop.lon();
+            columns.getRouteId()[i] = stop.routeId();
+            columns.getRouteNames().putIfAbsent(stop.routeId(), stop.routeName());
+        }
+        return columns;
+    }
+
+    private static StopDTO convertToDTO(ReferenceDataSnapshot.StopRef stop) {
+        var dto = new StopDTO();
+        dto.setId(stop.id());
+        dto.setName(stop.name());
+        dto.setLat(stop.lat());
+        dto.setLon(stop.lon());
+        dto.setRouteId(stop.routeId());
+        dto.setRouteName(stop.routeName());
+        return dto;
+    }
+
+    private static StopDTO convertToDTO(Stop entity) {
         var dto = new StopDTO();
         dto.setId(entity.getId());
         dto.setName(entity.getName());
@@ -51,4 +51,8 @@ public final class BotMessages {
     public static String loginSuccess(String username) {
         return "✅ Вы вошли как " + username + "\n\n" + HELP_AUTHORIZED;
     }
+
+    public static String coalesced(String text, int skipped) {
+        return text + "\nЕщё похожих уведомлений: " + skipped;
+    }
 }
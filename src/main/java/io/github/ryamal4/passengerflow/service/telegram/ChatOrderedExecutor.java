@@ -0,0 +1,64 @@
+package io.github.ryamal4.passengerflow.service.telegram;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+final class ChatOrderedExecutor {
+    private final ThreadPoolExecutor[] stripes;
+
+    ChatOrderedExecutor(int stripeCount, int queueCapacityPerStripe, String threadNamePrefix) {
+        if (stripeCount < 1 || queueCapacityPerStripe < 1) {
+            throw new IllegalArgumentException("Stripe count and queue capacity must be positive");
+        }
+        this.stripes = new ThreadPoolExecutor[stripeCount];
+        var threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacityPerStripe), threadFactory, ChatOrderedExecutor::waitForCapacity);
+        }
+    }
+
+    void execute(long chatId, Runnable task) {
+        stripes[stripeFor(chatId)].execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Failed to process Telegram update for chat {}", chatId, e);
+            }
+        });
+    }
+
+    void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        for (var stripe : stripes) {
+            stripe.shutdown();
+        }
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (var stripe : stripes) {
+            if (!stripe.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                stripe.shutdownNow();
+            }
+        }
+    }
+
+    int stripeFor(long chatId) {
+        return Math.floorMod(Long.hashCode(chatId), stripes.length);
+    }
+
+    private static void waitForCapacity(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for queue capacity", e);
+        }
+    }
+}
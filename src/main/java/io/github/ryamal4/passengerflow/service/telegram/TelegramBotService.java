@@ -1,12 +1,16 @@
 package io.github.ryamal4.passengerflow.service.telegram;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.ryamal4.passengerflow.enums.NotificationType;
 import io.github.ryamal4.passengerflow.model.BotUserSettings;
 import io.github.ryamal4.passengerflow.repository.BotUserSettingsRepository;
 import io.github.ryamal4.passengerflow.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
@@ -15,21 +19,23 @@ import org.telegram.telegrambots.longpolling.BotSession;
 import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
 import org.telegram.telegrambots.longpolling.starter.AfterBotRegistration;
 import org.telegram.telegrambots.longpolling.starter.SpringLongPollingBot;
-import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @ConditionalOnExpression("!'${telegram.bot.token:}'.isEmpty()")
-public class TelegramBotService implements SpringLongPollingBot, LongPollingSingleThreadUpdateConsumer {
+@Profile("!datagen")
+public class TelegramBotService implements SpringLongPollingBot, LongPollingUpdateConsumer {
     private static final String CMD_START = "/start";
     private static final String CMD_LOGIN = "/login";
     private static final String CMD_LOGOUT = "/logout";
     private static final String CMD_SUBSCRIBE_LOGIN = "/subscribe_login";
     private static final String CMD_UNSUBSCRIBE_LOGIN = "/unsubscribe_login";
+    private static final long MAX_PENDING_LOGINS = 10_000;
 
     private final String botToken;
     private final TelegramNotificationService notificationService;
@@ -37,19 +43,28 @@ public class TelegramBotService implements SpringLongPollingBot, LongPollingSing
     private final UserRepository userRepository;
     private final BotUserSettingsRepository botUserSettingsRepository;
 
-    private final Map<Long, LoginState> loginStates = new ConcurrentHashMap<>();
+    private final Cache<Long, LoginState> loginStates;
+    private final ChatOrderedExecutor updateExecutor;
 
     public TelegramBotService(
             @Value("${telegram.bot.token}") String botToken,
             TelegramNotificationService notificationService,
             AuthenticationManager authenticationManager,
             UserRepository userRepository,
-            BotUserSettingsRepository botUserSettingsRepository) {
+            BotUserSettingsRepository botUserSettingsRepository,
+            @Value("${telegram.updates.worker-threads:8}") int workerThreads,
+            @Value("${telegram.updates.queue-capacity-per-worker:100}") int queueCapacityPerWorker,
+            @Value("${telegram.bot.login-timeout-minutes:5}") long loginTimeoutMinutes) {
         this.botToken = botToken;
         this.notificationService = notificationService;
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.botUserSettingsRepository = botUserSettingsRepository;
+        this.loginStates = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(loginTimeoutMinutes))
+                .maximumSize(MAX_PENDING_LOGINS)
+                .build();
+        this.updateExecutor = new ChatOrderedExecutor(workerThreads, queueCapacityPerWorker, "telegram-update-");
     }
 
     @Override
@@ -67,17 +82,29 @@ public class TelegramBotService implements SpringLongPollingBot, LongPollingSing
         log.info("Telegram bot started, running: {}", botSession.isRunning());
     }
 
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        updateExecutor.shutdown(10, TimeUnit.SECONDS);
+    }
+
     @Override
-    public void consume(Update update) {
-        if (!update.hasMessage() || !update.getMessage().hasText()) {
-            return;
+    public void accept(List<Update> updates) {
+        for (var update : updates) {
+            if (!update.hasMessage() || !update.getMessage().hasText()) {
+                continue;
+            }
+            var chatId = update.getMessage().getChatId();
+            updateExecutor.execute(chatId, () -> consume(update));
         }
+    }
 
+    private void consume(Update update) {
         var chatId = update.getMessage().getChatId();
         var text = update.getMessage().getText().trim();
 
-        if (loginStates.containsKey(chatId)) {
-            handleLoginFlow(chatId, text);
+        var loginState = loginStates.getIfPresent(chatId);
+        if (loginState != null) {
+            handleLoginFlow(chatId, loginState, text);
             return;
         }
 
@@ -114,15 +141,13 @@ public class TelegramBotService implements SpringLongPollingBot, LongPollingSing
         notificationService.sendMessage(chatId, BotMessages.ENTER_LOGIN);
     }
 
-    private void handleLoginFlow(Long chatId, String text) {
-        var state = loginStates.get(chatId);
-
+    private void handleLoginFlow(Long chatId, LoginState state, String text) {
         if (state.username == null) {
             state.username = text;
             notificationService.sendMessage(chatId, BotMessages.ENTER_PASSWORD);
         } else {
+            loginStates.invalidate(chatId);
             completeLogin(chatId, state.username, text);
-            loginStates.remove(chatId);
         }
     }
 
@@ -4,24 +4,22 @@ import io.github.ryamal4.passengerflow.enums.NotificationType;
 import io.github.ryamal4.passengerflow.model.User;
 import io.github.ryamal4.passengerflow.repository.BotUserSettingsRepository;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
-@Slf4j
 @Service
 @RequiredArgsConstructor
 @ConditionalOnExpression("!'${telegram.bot.token:}'.isEmpty()")
+@Profile("!datagen")
 public class TelegramNotificationService {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
+    private static final String LOGIN_COALESCE_KEY_PREFIX = "login:";
 
-    private final TelegramClient telegramClient;
+    private final TelegramOutboundQueue outboundQueue;
     private final BotUserSettingsRepository botUserSettingsRepository;
 
     public void sendLoginNotification(User user, LocalDateTime timestamp) {
@@ -36,20 +34,11 @@ public class TelegramNotificationService {
         }
 
         var message = formatLoginMessage(user.getUsername(), timestamp);
-        sendMessage(settings.getTelegramChatId(), message);
+        outboundQueue.enqueue(settings.getTelegramChatId(), message, LOGIN_COALESCE_KEY_PREFIX + user.getId());
     }
 
     public void sendMessage(Long chatId, String text) {
-        var message = SendMessage.builder()
-                .chatId(chatId)
-                .text(text)
-                .build();
-
-        try {
-            telegramClient.execute(message);
-        } catch (TelegramApiException e) {
-            log.error("Failed to send Telegram message to chat {}: {}", chatId, e.getMessage());
-        }
+        outboundQueue.enqueue(chatId, text);
     }
 
     private String formatLoginMessage(String username, LocalDateTime timestamp) {
@@ -0,0 +1,344 @@
+package io.github.ryamal4.passengerflow.service.telegram;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+@ConditionalOnExpression("!'${telegram.bot.token:}'.isEmpty()")
+@Profile("!datagen")
+public class TelegramOutboundQueue {
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long IDLE_SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final TelegramClient telegramClient;
+    private final int senderThreads;
+    private final int maxQueueSize;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final double chatBurst;
+    private final double chatMessagesPerSecond;
+    private final TokenBucket globalBucket;
+
+    private final Map<Long, ChatQueue> chats = new ConcurrentHashMap<>();
+    private final DelayQueue<ScheduledChat> schedule = new DelayQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final Counter sentCounter;
+    private final Counter coalescedCounter;
+    private final Counter retriedCounter;
+    private final Counter droppedCounter;
+
+    private ExecutorService senders;
+    private volatile long nextIdleSweepNanos;
+
+    public TelegramOutboundQueue(
+            TelegramClient telegramClient,
+            MeterRegistry meterRegistry,
+            @Value("${telegram.outbound.sender-threads:2}") int senderThreads,
+            @Value("${telegram.outbound.max-queue-size:10000}") int maxQueueSize,
+            @Value("${telegram.outbound.max-attempts:5}") int maxAttempts,
+            @Value("${telegram.outbound.initial-backoff-ms:500}") long initialBackoffMs,
+            @Value("${telegram.outbound.global-messages-per-second:25}") double globalMessagesPerSecond,
+            @Value("${telegram.outbound.chat-messages-per-second:1}") double chatMessagesPerSecond,
+            @Value("${telegram.outbound.chat-burst:3}") double chatBurst) {
+        this.telegramClient = telegramClient;
+        this.senderThreads = senderThreads;
+        this.maxQueueSize = maxQueueSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMs);
+        this.chatBurst = chatBurst;
+        this.chatMessagesPerSecond = chatMessagesPerSecond;
+        this.globalBucket = new TokenBucket(globalMessagesPerSecond, globalMessagesPerSecond);
+
+        Gauge.builder("telegram.outbound.queue.depth", depth, AtomicInteger::get)
+                .description("Messages waiting to be sent to Telegram")
+                .register(meterRegistry);
+        Gauge.builder("telegram.outbound.chats", chats, Map::size)
+                .description("Chats with queued messages or an active rate limit")
+                .register(meterRegistry);
+        this.sentCounter = messageCounter(meterRegistry, "sent");
+        this.coalescedCounter = messageCounter(meterRegistry, "coalesced");
+        this.retriedCounter = messageCounter(meterRegistry, "retried");
+        this.droppedCounter = messageCounter(meterRegistry, "dropped");
+    }
+
+    @PostConstruct
+    public void start() {
+        nextIdleSweepNanos = System.nanoTime() + IDLE_SWEEP_INTERVAL_NANOS;
+        senders = Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("telegram-sender-"));
+        for (int i = 0; i < senderThreads; i++) {
+            senders.execute(this::runSender);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (senders == null) {
+            return;
+        }
+        senders.shutdownNow();
+        if (!senders.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Telegram sender threads did not stop in time");
+        }
+        if (depth.get() > 0) {
+            log.warn("Discarding {} unsent Telegram messages on shutdown", depth.get());
+        }
+    }
+
+    public void enqueue(Long chatId, String text) {
+        enqueue(chatId, text, null);
+    }
+
+    public void enqueue(Long chatId, String text, String coalesceKey) {
+        if (depth.get() >= maxQueueSize) {
+            droppedCounter.increment();
+            log.warn("Telegram outbound queue is full, dropping message to chat {}", chatId);
+            return;
+        }
+
+        chats.compute(chatId, (id, chat) -> {
+            if (chat == null) {
+                chat = new ChatQueue(id, new TokenBucket(chatBurst, chatMessagesPerSecond));
+            }
+
+            var pending = coalesceKey != null ? chat.findPending(coalesceKey) : null;
+            if (pending != null) {
+                pending.coalesce(text);
+                coalescedCounter.increment();
+                return chat;
+            }
+
+            chat.messages.addLast(new OutboundMessage(text, coalesceKey));
+            depth.incrementAndGet();
+            if (!chat.scheduled) {
+                chat.scheduled = true;
+                schedule.add(new ScheduledChat(chat, System.nanoTime()));
+            }
+            return chat;
+        });
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    private void runSender() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                var next = schedule.poll(IDLE_SWEEP_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+                if (next != null) {
+                    dispatch(next.chat);
+                }
+                sweepIdleChats();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in Telegram sender", e);
+            }
+        }
+    }
+
+    private void dispatch(ChatQueue chat) throws InterruptedException {
+        var wait = chat.bucket.nanosUntilAvailable();
+        if (wait > 0) {
+            schedule.add(new ScheduledChat(chat, System.nanoTime() + wait));
+            return;
+        }
+
+        var message = takeHead(chat);
+        if (message == null) {
+            return;
+        }
+
+        globalBucket.acquire();
+        chat.bucket.tryAcquire();
+
+        var retryDelay = send(chat.chatId, message);
+        complete(chat, retryDelay);
+    }
+
+    private InFlightMessage takeHead(ChatQueue chat) {
+        var holder = new InFlightMessage[1];
+        chats.computeIfPresent(chat.chatId, (id, current) -> {
+            var head = current.messages.peekFirst();
+            if (head != null) {
+                head.inFlight = true;
+                holder[0] = new InFlightMessage(head.renderText(), head.attempts);
+            } else {
+                current.scheduled = false;
+            }
+            return current;
+        });
+        return holder[0];
+    }
+
+    private long send(Long chatId, InFlightMessage message) {
+        var request = SendMessage.builder()
+                .chatId(chatId)
+                .text(message.text())
+                .build();
+
+        try {
+            telegramClient.execute(request);
+            sentCounter.increment();
+            return -1;
+        } catch (TelegramApiRequestException e) {
+            var code = e.getErrorCode();
+            if (code != null && code == TOO_MANY_REQUESTS) {
+                var retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                return retryAfter != null ? TimeUnit.SECONDS.toNanos(retryAfter) : backoff(message.attempts());
+            }
+            if (code != null && code < SERVER_ERROR) {
+                log.error("Telegram rejected message to chat {} with code {}: {}", chatId, code, e.getMessage());
+                return 0;
+            }
+            log.warn("Telegram error sending to chat {}, will retry: {}", chatId, e.getMessage());
+            return backoff(message.attempts());
+        } catch (TelegramApiException | RuntimeException e) {
+            log.warn("Failed to send Telegram message to chat {}, will retry: {}", chatId, e.getMessage());
+            return backoff(message.attempts());
+        }
+    }
+
+    private void complete(ChatQueue chat, long retryDelay) {
+        chats.computeIfPresent(chat.chatId, (id, current) -> {
+            var head = current.messages.peekFirst();
+            if (head == null) {
+                current.scheduled = false;
+                return current;
+            }
+
+            head.inFlight = false;
+            var delay = 0L;
+            if (retryDelay > 0 && head.attempts + 1 < maxAttempts) {
+                head.attempts++;
+                retriedCounter.increment();
+                delay = retryDelay;
+            } else {
+                if (retryDelay >= 0) {
+                    droppedCounter.increment();
+                }
+                if (retryDelay > 0) {
+                    log.error("Giving up on Telegram message to chat {} after {} attempts", id, head.attempts + 1);
+                }
+                current.messages.pollFirst();
+                depth.decrementAndGet();
+            }
+
+            if (current.messages.isEmpty()) {
+                current.scheduled = false;
+            } else {
+                schedule.add(new ScheduledChat(current, System.nanoTime() + delay));
+            }
+            return current;
+        });
+    }
+
+    private void sweepIdleChats() {
+        var now = System.nanoTime();
+        if (now - nextIdleSweepNanos < 0) {
+            return;
+        }
+        nextIdleSweepNanos = now + IDLE_SWEEP_INTERVAL_NANOS;
+        chats.keySet().forEach(chatId -> chats.computeIfPresent(chatId,
+                (id, chat) -> chat.scheduled || !chat.bucket.isFull() ? chat : null));
+    }
+
+    private long backoff(int attempts) {
+        var base = Math.min(MAX_BACKOFF_NANOS, initialBackoffNanos << Math.min(attempts, 16));
+        return base + ThreadLocalRandom.current().nextLong(base / 4 + 1);
+    }
+
+    private static Counter messageCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("telegram.outbound.messages")
+                .description("Outbound Telegram messages by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class ChatQueue {
+        private final Long chatId;
+        private final TokenBucket bucket;
+        private final Deque<OutboundMessage> messages = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private ChatQueue(Long chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+
+        private OutboundMessage findPending(String coalesceKey) {
+            for (var message : messages) {
+                if (!message.inFlight && coalesceKey.equals(message.coalesceKey)) {
+                    return message;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class OutboundMessage {
+        private final String coalesceKey;
+        private String text;
+        private int coalescedCount;
+        private int attempts;
+        private boolean inFlight;
+
+        private OutboundMessage(String text, String coalesceKey) {
+            this.text = text;
+            this.coalesceKey = coalesceKey;
+        }
+
+        private void coalesce(String newText) {
+            text = newText;
+            coalescedCount++;
+        }
+
+        private String renderText() {
+            return coalescedCount > 0 ? BotMessages.coalesced(text, coalescedCount) : text;
+        }
+    }
+
+    private record InFlightMessage(String text, int attempts) {
+    }
+
+    private record ScheduledChat(ChatQueue chat, long dueAtNanos) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtNanos, ((ScheduledChat) other).dueAtNanos);
+        }
+    }
+}
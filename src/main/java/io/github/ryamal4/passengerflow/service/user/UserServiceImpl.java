@@ -3,11 +3,13 @@ package io.github.ryamal4.passengerflow.service.user;
 import io.github.ryamal4.passengerflow.dto.UserDto;
 import io.github.ryamal4.passengerflow.exception.AppException;
 import io.github.ryamal4.passengerflow.exception.ResourceNotFoundException;
+import io.github.ryamal4.passengerflow.jwt.UserDetailsServiceImpl;
 import io.github.ryamal4.passengerflow.model.Role;
 import io.github.ryamal4.passengerflow.model.User;
 import io.github.ryamal4.passengerflow.repository.RoleRepository;
 import io.github.ryamal4.passengerflow.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -59,6 +61,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @CacheEvict(value = UserDetailsServiceImpl.USER_DETAILS_CACHE, allEntries = true)
     public UserDto updateUser(Long userId, UserDto userDto) {
         // get user from db
         User user = userRepository.findById(userId).orElseThrow(
@@ -78,6 +81,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @CacheEvict(value = UserDetailsServiceImpl.USER_DETAILS_CACHE, allEntries = true)
     public String deleteUser(Long userId) {
         // get user from db
         User user = userRepository.findById(userId).orElseThrow(
@@ -0,0 +1,48 @@
+package io.github.ryamal4.passengerflow.service.weather;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Weather codes of a forecast window, one byte per hour from midnight of the first day, so prediction loops
+// index an hour directly instead of going back to the response. Hours outside the window or missing upstream
+// count as dry.
+public final class HourlyForecast {
+    private static final byte MISSING_CODE = -1;
+    private static final HourlyForecast EMPTY = new HourlyForecast(null, new byte[0]);
+
+    private final LocalDate startDate;
+    private final byte[] weatherCodes;
+
+    private HourlyForecast(LocalDate startDate, byte[] weatherCodes) {
+        this.startDate = startDate;
+        this.weatherCodes = weatherCodes;
+    }
+
+    public static HourlyForecast empty() {
+        return EMPTY;
+    }
+
+    public static HourlyForecast of(LocalDate startDate, List<Integer> weatherCodes) {
+        var codes = new byte[weatherCodes.size()];
+        for (int hour = 0; hour < codes.length; hour++) {
+            var code = weatherCodes.get(hour);
+            codes[hour] = code != null ? code.byteValue() : MISSING_CODE;
+        }
+        return new HourlyForecast(startDate, codes);
+    }
+
+    public boolean isRaining(LocalDateTime dateTime) {
+        if (weatherCodes.length == 0) {
+            return false;
+        }
+        var hour = ChronoUnit.HOURS.between(startDate.atStartOfDay(), dateTime.truncatedTo(ChronoUnit.HOURS));
+        return hour >= 0 && hour < weatherCodes.length
+                && weatherCodes[(int) hour] > WeatherService.RAIN_THRESHOLD_CODE;
+    }
+
+    public int getHourCount() {
+        return weatherCodes.length;
+    }
+}
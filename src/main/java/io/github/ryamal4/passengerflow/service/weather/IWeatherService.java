@@ -4,5 +4,10 @@ import java.time.LocalDateTime;
 import java.util.TimeZone;
 
 public interface IWeatherService {
+    // Today plus the seven days ahead.
+    int FORECAST_DAYS = 8;
+
     boolean isRaining(LocalDateTime dateTime, Double latitude, Double longitude, TimeZone timeZone);
+
+    HourlyForecast getForecast(Double latitude, Double longitude, TimeZone timeZone);
 }
@@ -9,8 +9,6 @@ import java.util.TimeZone;
 
 @Component("weatherCacheKeyGenerator")
 public class WeatherCacheKeyGenerator implements KeyGenerator {
-    private static final double COORDINATE_GRID_PRECISION = 0.01;
-
     @Override
     public String generate(Object target, Method method, Object... params) {
         if (params.length != 4) {
@@ -23,8 +21,8 @@ public class WeatherCacheKeyGenerator implements KeyGenerator {
         var timeZone = (TimeZone) params[3];
 
         var date = dateTime.toLocalDate();
-        var roundedLatitude = roundToGrid(latitude);
-        var roundedLongitude = roundToGrid(longitude);
+        var roundedLatitude = WeatherGrid.roundToGrid(latitude);
+        var roundedLongitude = WeatherGrid.roundToGrid(longitude);
 
         return String.format("%s_%s_%s_%s",
                 date,
@@ -33,8 +31,4 @@ public class WeatherCacheKeyGenerator implements KeyGenerator {
                 timeZone.getID()
         );
     }
-
-    private double roundToGrid(double coordinate) {
-        return Math.round(coordinate / COORDINATE_GRID_PRECISION) * COORDINATE_GRID_PRECISION;
-    }
 }
@@ -1,5 +1,7 @@
 package io.github.ryamal4.passengerflow.service.weather;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
@@ -8,27 +10,28 @@ import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.TimeZone;
 
 @Slf4j
 @Component
 public class WeatherDataFetcher {
-    private static final double COORDINATE_GRID_PRECISION = 0.01;
-
     private final RestClient restClient;
+    private final MeterRegistry meterRegistry;
     @Value("${open-meteo.api.url}")
     private String apiUrl;
 
-    public WeatherDataFetcher(RestClient restClient) {
+    public WeatherDataFetcher(RestClient restClient, MeterRegistry meterRegistry) {
         this.restClient = restClient;
+        this.meterRegistry = meterRegistry;
     }
 
     @Cacheable(value = "weather", keyGenerator = "weatherCacheKeyGenerator")
     public WeatherResponseDto fetchWeatherData(LocalDateTime dateTime, Double latitude, Double longitude, TimeZone timeZone) {
         var date = dateTime.toLocalDate().toString();
-        var roundedLat = roundToGrid(latitude);
-        var roundedLon = roundToGrid(longitude);
+        var roundedLat = WeatherGrid.roundToGrid(latitude);
+        var roundedLon = WeatherGrid.roundToGrid(longitude);
         var url = UriComponentsBuilder.fromUriString(apiUrl)
                 .queryParam("latitude", roundedLat)
                 .queryParam("longitude", roundedLon)
@@ -38,13 +41,37 @@ public class WeatherDataFetcher {
                 .queryParam("end_date", date)
                 .build()
                 .toUriString();
+        return fetch(url, date, roundedLat, roundedLon);
+    }
+
+    // The whole window comes back in one response, so a grid cell costs one upstream call however many days
+    // are planned. Callers pass grid coordinates, which keeps the default cache key per cell.
+    @Cacheable("weatherForecast")
+    public WeatherResponseDto fetchForecast(double gridLatitude, double gridLongitude, LocalDate startDate, int days,
+                                            TimeZone timeZone) {
+        var url = UriComponentsBuilder.fromUriString(apiUrl)
+                .queryParam("latitude", gridLatitude)
+                .queryParam("longitude", gridLongitude)
+                .queryParam("hourly", "weather_code")
+                .queryParam("timezone", timeZone.getID())
+                .queryParam("start_date", startDate)
+                .queryParam("end_date", startDate.plusDays(days - 1L))
+                .build()
+                .toUriString();
+        return fetch(url, startDate + "+" + days + "d", gridLatitude, gridLongitude);
+    }
 
+    private WeatherResponseDto fetch(String url, String date, double latitude, double longitude) {
+        var sample = Timer.start(meterRegistry);
         try {
-            return restClient.get()
+            var response = restClient.get()
                     .uri(url)
                     .retrieve()
                     .body(WeatherResponseDto.class);
+            sample.stop(upstreamTimer("success"));
+            return response;
         } catch (RestClientException e) {
+            sample.stop(upstreamTimer("error"));
             log.error("Failed to get weather data for date = {}, lat = {}, lon = {}: {}",
                     date, latitude, longitude, e.getMessage());
         }
@@ -52,7 +79,10 @@ public class WeatherDataFetcher {
         return null;
     }
 
-    private double roundToGrid(double coordinate) {
-        return Math.round(coordinate / COORDINATE_GRID_PRECISION) * COORDINATE_GRID_PRECISION;
+    private Timer upstreamTimer(String outcome) {
+        return Timer.builder("passengerflow.weather.upstream")
+                .description("Open-Meteo request latency on weather cache misses")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 }
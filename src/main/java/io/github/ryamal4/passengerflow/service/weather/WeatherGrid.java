@@ -0,0 +1,13 @@
+package io.github.ryamal4.passengerflow.service.weather;
+
+// Weather is fetched and cached per cell of a 0.01 degree grid (about 1 km).
+public final class WeatherGrid {
+    private static final double COORDINATE_GRID_PRECISION = 0.01;
+
+    private WeatherGrid() {
+    }
+
+    public static double roundToGrid(double coordinate) {
+        return Math.round(coordinate / COORDINATE_GRID_PRECISION) * COORDINATE_GRID_PRECISION;
+    }
+}
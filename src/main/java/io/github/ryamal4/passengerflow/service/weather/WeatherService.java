@@ -3,6 +3,7 @@ package io.github.ryamal4.passengerflow.service.weather;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.TimeZone;
 
@@ -22,4 +23,15 @@ public class WeatherService implements IWeatherService {
         }
         return false;
     }
+
+    @Override
+    public HourlyForecast getForecast(Double latitude, Double longitude, TimeZone timeZone) {
+        var today = LocalDate.now(timeZone.toZoneId());
+        var response = weatherDataFetcher.fetchForecast(WeatherGrid.roundToGrid(latitude),
+                WeatherGrid.roundToGrid(longitude), today, FORECAST_DAYS, timeZone);
+        if (response != null && response.getHourly() != null && response.getHourly().getWeatherCode() != null) {
+            return HourlyForecast.of(today, response.getHourly().getWeatherCode());
+        }
+        return HourlyForecast.empty();
+    }
 }
@@ -1,6 +1,6 @@
 let allStops = [];
 let routeStops = [];
-let predictions = [];
+let predictionMatrix = null;
 let currentRoute = '';
 let currentHour = 12;
 let useWeather = true;
@@ -10,6 +10,7 @@ const SVG_WIDTH = 1000;
 const SVG_HEIGHT = 600;
 const MARGIN = { top: 60, right: 80, bottom: 60, left: 80 };
 const NODE_RADIUS = 18;
+const QUANTIZED_MISSING = 255;
 
 class ApiService {
     static async request(url) {
@@ -20,12 +21,29 @@ class ApiService {
         return response.json();
     }
 
+    // The columnar layout is much smaller on the wire; the browser cache revalidates it with the ETag.
     static async getAllStops() {
-        return this.request('/api/stops');
+        const columns = await this.request('/api/stops?layout=COLUMNAR');
+        return columns.id.map((id, i) => ({
+            id,
+            name: columns.name[i],
+            lat: columns.lat[i],
+            lon: columns.lon[i],
+            routeId: columns.routeId[i],
+            routeName: columns.routeNames[columns.routeId[i]]
+        }));
     }
 
-    static async getPredictions(route, useWeather = true) {
-        return this.request(`/api/predictions?route=${encodeURIComponent(route)}&useWeather=${useWeather}`);
+    // Stop names and the slot axis come once and the cells as base64 bytes, a small fraction of the
+    // per-prediction JSON; the browser cache revalidates the matrix with the ETag.
+    static async getPredictionMatrix(route, useWeather = true) {
+        const matrix = await this.request(
+            `/api/predictions/matrix?route=${encodeURIComponent(route)}&useWeather=${useWeather}&quantize=true`);
+        return {
+            ...matrix,
+            rows: new Map(matrix.stops.map((name, i) => [name, i])),
+            cells: Uint8Array.from(atob(matrix.quantized || ''), c => c.charCodeAt(0))
+        };
     }
 }
 
@@ -104,12 +122,21 @@ function getOccupancyColor(occupancy) {
 }
 
 function getOccupancyForStop(stopName, hour) {
-    const prediction = predictions.find(p => {
-        const predTime = p.time.split(':');
-        const predHour = parseInt(predTime[0]);
-        return p.stopName === stopName && predHour === hour;
-    });
-    return prediction ? prediction.occupancyPercentage : null;
+    const row = predictionMatrix.rows.get(stopName);
+    if (row === undefined) {
+        return null;
+    }
+    const slots = predictionMatrix.slots;
+    for (let column = 0; column < slots.length; column++) {
+        if (Math.floor(slots[column] / 60) !== hour) {
+            continue;
+        }
+        const value = predictionMatrix.cells[row * slots.length + column];
+        if (value !== QUANTIZED_MISSING) {
+            return value * predictionMatrix.quantizationStep;
+        }
+    }
+    return null;
 }
 
 function projectCoordinates(stops) {
@@ -189,7 +216,7 @@ async function handleRouteChange() {
         routeStops = allStops.filter(stop => stop.routeName === currentRoute)
                               .sort((a, b) => a.id - b.id);
 
-        predictions = await ApiService.getPredictions(currentRoute, useWeather);
+        predictionMatrix = await ApiService.getPredictionMatrix(currentRoute, useWeather);
 
         hideEmptyState();
         if (viewMode === 'map') {
@@ -0,0 +1,72 @@
+package io.github.ryamal4.passengerflow.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaLagMonitorTest {
+    private static final long MAX_LAG_MS = 1000;
+
+    @Mock
+    private JdbcTemplate replicaJdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaLagMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new ReplicaLagMonitor(replicaJdbcTemplate, meterRegistry, MAX_LAG_MS);
+    }
+
+    @Test
+    void testReplicaIsNotUsedBeforeFirstCheck() {
+        assertThat(monitor.isReplicaUsable()).isFalse();
+    }
+
+    @Test
+    void testReplicaWithinLagLimitIsUsable() {
+        when(replicaJdbcTemplate.queryForObject(ReplicaLagMonitor.REPLICA_LAG_SQL, Double.class)).thenReturn(250.0);
+
+        monitor.checkLag();
+
+        assertThat(monitor.isReplicaUsable()).isTrue();
+        assertThat(meterRegistry.get("passengerflow.datasource.replica.lag").gauge().value()).isEqualTo(0.25);
+        assertThat(meterRegistry.get("passengerflow.datasource.replica.usable").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackUntilCaughtUp() {
+        when(replicaJdbcTemplate.queryForObject(ReplicaLagMonitor.REPLICA_LAG_SQL, Double.class))
+                .thenReturn(0.0, 4000.0, 100.0);
+
+        monitor.checkLag();
+        monitor.checkLag();
+        assertThat(monitor.isReplicaUsable()).isFalse();
+
+        monitor.checkLag();
+        assertThat(monitor.isReplicaUsable()).isTrue();
+    }
+
+    @Test
+    void testUnreachableReplicaIsNotUsable() {
+        when(replicaJdbcTemplate.queryForObject(ReplicaLagMonitor.REPLICA_LAG_SQL, Double.class))
+                .thenReturn(0.0)
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        monitor.checkLag();
+        monitor.checkLag();
+
+        assertThat(monitor.isReplicaUsable()).isFalse();
+        assertThat(meterRegistry.get("passengerflow.datasource.replica.lag").gauge().value()).isNaN();
+    }
+}
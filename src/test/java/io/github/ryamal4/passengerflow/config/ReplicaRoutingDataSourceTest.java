@@ -0,0 +1,78 @@
+package io.github.ryamal4.passengerflow.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+    @Mock
+    private DataSource primaryDataSource;
+
+    @Mock
+    private DataSource replicaDataSource;
+
+    @Mock
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor);
+    }
+
+    @Test
+    void testUsableReplicaServesConnections() throws SQLException {
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+        when(replicaDataSource.getConnection()).thenReturn(replicaConnection);
+
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+        verifyNoInteractions(primaryDataSource);
+    }
+
+    @Test
+    void testUnusableReplicaFallsBackToPrimary() throws SQLException {
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(false);
+        when(primaryDataSource.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(replicaDataSource);
+    }
+
+    @Test
+    void testConnectionFailureMarksReplicaUnusable() throws SQLException {
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+        when(replicaDataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(primaryDataSource.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        verify(replicaLagMonitor).markUnusable(any(SQLException.class));
+    }
+
+    @Test
+    void testCredentialsArePassedToTheRoutedTarget() throws SQLException {
+        when(replicaLagMonitor.isReplicaUsable()).thenReturn(true);
+        when(replicaDataSource.getConnection("reporter", "secret")).thenThrow(new SQLException("Connection refused"));
+        when(primaryDataSource.getConnection("reporter", "secret")).thenReturn(primaryConnection);
+
+        assertThat(dataSource.getConnection("reporter", "secret")).isSameAs(primaryConnection);
+        verify(replicaLagMonitor).markUnusable(any(SQLException.class));
+    }
+}
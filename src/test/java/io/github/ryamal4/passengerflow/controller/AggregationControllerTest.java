@@ -1,10 +1,14 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildResult;
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildStatus;
+import io.github.ryamal4.passengerflow.exception.AppException;
 import io.github.ryamal4.passengerflow.service.aggregation.IPassengerCountAggregationService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -12,10 +16,15 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.time.DayOfWeek;
+import java.time.LocalDateTime;
 
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AggregationController.class)
@@ -73,4 +82,39 @@ class AggregationControllerTest extends AbstractControllerTest {
 
         verifyNoInteractions(aggregationService);
     }
+
+    @Test
+    void testStartRebuildReturnsAcceptedWithStatusLocation() throws Exception {
+        when(aggregationService.startRebuild()).thenReturn(new AggregationRebuildStatus(
+                AggregationRebuildStatus.State.RUNNING, LocalDateTime.of(2025, 9, 22, 3, 0), null, null, null));
+
+        mockMvc.perform(post("/api/aggregation/rebuild"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/aggregation/rebuild"))
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+
+        verify(aggregationService).startRebuild();
+    }
+
+    @Test
+    void testStartRebuildAlreadyRunningReturnsConflict() throws Exception {
+        when(aggregationService.startRebuild())
+                .thenThrow(new AppException(HttpStatus.CONFLICT, "Aggregation rebuild is already running"));
+
+        mockMvc.perform(post("/api/aggregation/rebuild"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testGetRebuildStatusReturnsLastResult() throws Exception {
+        when(aggregationService.getRebuildStatus()).thenReturn(new AggregationRebuildStatus(
+                AggregationRebuildStatus.State.SUCCEEDED, LocalDateTime.of(2025, 9, 22, 3, 0),
+                LocalDateTime.of(2025, 9, 22, 3, 5), new AggregationRebuildResult(14, 4032, 1500), null));
+
+        mockMvc.perform(get("/api/aggregation/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.result.chunkCount").value(14))
+                .andExpect(jsonPath("$.result.insertedCount").value(4032));
+    }
 }
@@ -0,0 +1,110 @@
+package io.github.ryamal4.passengerflow.controller;
+
+import io.github.ryamal4.passengerflow.dto.StopTrafficDTO;
+import io.github.ryamal4.passengerflow.dto.TopRouteDTO;
+import io.github.ryamal4.passengerflow.dto.TopStopDTO;
+import io.github.ryamal4.passengerflow.enums.TrafficGranularity;
+import io.github.ryamal4.passengerflow.enums.TrafficMetric;
+import io.github.ryamal4.passengerflow.service.analytics.IStopTrafficService;
+import io.github.ryamal4.passengerflow.service.analytics.ITopTrafficService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AnalyticsController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class AnalyticsControllerTest extends AbstractControllerTest {
+    private static final LocalDate FROM = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 9, 30);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private IStopTrafficService stopTrafficService;
+
+    @MockitoBean
+    private ITopTrafficService topTrafficService;
+
+    @Test
+    void testGetTopStopsUsesDefaults() throws Exception {
+        when(topTrafficService.getTopStops(FROM, TO, null, null, TrafficMetric.MAX_LOAD, 20)).thenReturn(List.of(
+                new TopStopDTO(5L, "Central", "7A", 900, 850, 70)));
+
+        mockMvc.perform(get("/api/analytics/top-stops")
+                        .param("from", "2025-09-01")
+                        .param("to", "2025-09-30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].stopName").value("Central"))
+                .andExpect(jsonPath("$[0].maxLoad").value(70));
+    }
+
+    @Test
+    void testGetTopRoutesPassesFilters() throws Exception {
+        when(topTrafficService.getTopRoutes(FROM, TO, 1, 8, TrafficMetric.ENTERED, 5)).thenReturn(List.of(
+                new TopRouteDTO(2L, "7A", 1500, 1400, 80)));
+
+        mockMvc.perform(get("/api/analytics/top-routes")
+                        .param("from", "2025-09-01")
+                        .param("to", "2025-09-30")
+                        .param("dayOfWeek", "1")
+                        .param("hour", "8")
+                        .param("metric", "ENTERED")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].routeName").value("7A"));
+
+        verify(topTrafficService).getTopRoutes(FROM, TO, 1, 8, TrafficMetric.ENTERED, 5);
+    }
+
+    @Test
+    void testGetStopTrafficDefaultsToDailyGranularity() throws Exception {
+        when(stopTrafficService.getStopTraffic(1L, FROM, TO, TrafficGranularity.DAY)).thenReturn(List.of(
+                new StopTrafficDTO(LocalDateTime.of(2025, 9, 1, 0, 0), 120, 80, 24, 45)));
+
+        mockMvc.perform(get("/api/analytics/stops/1/traffic")
+                        .param("from", "2025-09-01")
+                        .param("to", "2025-09-30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].entered").value(120))
+                .andExpect(jsonPath("$[0].maxLoad").value(45));
+    }
+
+    @Test
+    void testGetStopTrafficInvalidGranularityReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/analytics/stops/1/traffic")
+                        .param("from", "2025-09-01")
+                        .param("to", "2025-09-30")
+                        .param("granularity", "WEEK"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(stopTrafficService);
+    }
+
+    @Test
+    void testRebuildRollupCallsService() throws Exception {
+        when(stopTrafficService.rebuildRollup(FROM, TO)).thenReturn(42);
+
+        mockMvc.perform(post("/api/analytics/rollups/rebuild")
+                        .param("from", "2025-09-01")
+                        .param("to", "2025-09-30"))
+                .andExpect(status().isOk());
+
+        verify(stopTrafficService).rebuildRollup(FROM, TO);
+    }
+}
@@ -1,17 +1,25 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import io.github.ryamal4.passengerflow.dto.BusColumnsDTO;
 import io.github.ryamal4.passengerflow.dto.BusDTO;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 import io.github.ryamal4.passengerflow.service.bus.IBusService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
+import java.util.Map;
 
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -28,11 +36,22 @@ class BusControllerTest extends AbstractControllerTest {
     @MockitoBean
     private IBusService busService;
 
+    @MockitoBean
+    private IReferenceDataRegistry referenceDataRegistry;
+
+    private final ReferenceDataSnapshot snapshot =
+            ReferenceDataSnapshot.of(1L, 1L, List.of(), List.of(), List.of(), List.of());
+
+    @BeforeEach
+    void setUp() {
+        when(referenceDataRegistry.current()).thenReturn(snapshot);
+    }
+
     @Test
     void testGetAllBusesSuccess() throws Exception {
         var busDTO = new BusDTO(1L, 1L, "Test Bus Model", 50, 1L, "Test Route");
         var buses = List.of(busDTO);
-        when(busService.getAllBuses()).thenReturn(buses);
+        when(busService.getAllBuses(snapshot)).thenReturn(buses);
 
         mockMvc.perform(get(BASE_URL))
                 .andExpect(status().isOk())
@@ -47,7 +66,7 @@ class BusControllerTest extends AbstractControllerTest {
 
     @Test
     void testGetAllBusesEmptyList() throws Exception {
-        when(busService.getAllBuses()).thenReturn(List.of());
+        when(busService.getAllBuses(snapshot)).thenReturn(List.of());
 
         mockMvc.perform(get(BASE_URL))
                 .andExpect(status().isOk())
@@ -55,4 +74,38 @@ class BusControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$").isEmpty());
     }
+
+    @Test
+    void testGetAllBusesNotModified() throws Exception {
+        when(busService.getAllBuses(snapshot)).thenReturn(List.of());
+        var etag = mockMvc.perform(get(BASE_URL))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(BASE_URL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testGetAllBusesReadsTheCatalogOnce() throws Exception {
+        when(busService.getAllBuses(snapshot)).thenReturn(List.of());
+
+        mockMvc.perform(get(BASE_URL)).andExpect(status().isOk());
+
+        verify(referenceDataRegistry, times(1)).current();
+    }
+
+    @Test
+    void testGetAllBusesColumnar() throws Exception {
+        var columns = new BusColumnsDTO(new long[]{1L}, new long[]{2L}, new long[]{3L},
+                Map.of(2L, "Test Bus Model"), Map.of(2L, 50), Map.of(3L, "Test Route"));
+        when(busService.getAllBusesColumnar(snapshot)).thenReturn(columns);
+
+        mockMvc.perform(get(BASE_URL).param("layout", "COLUMNAR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id[0]").value(1))
+                .andExpect(jsonPath("$.busModelId[0]").value(2))
+                .andExpect(jsonPath("$.busModelCapacities['2']").value(50))
+                .andExpect(jsonPath("$.routeNames['3']").value("Test Route"));
+    }
 }
@@ -1,18 +1,34 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import io.github.ryamal4.passengerflow.repository.IFileBlobRepository;
+import io.github.ryamal4.passengerflow.enums.ImageSize;
+import io.github.ryamal4.passengerflow.service.file.FileService;
+import io.github.ryamal4.passengerflow.service.file.ImageDerivativeService;
+import io.github.ryamal4.passengerflow.service.file.StoredFile;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Comparator;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Mockito.when;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -20,6 +36,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(FileAccessController.class)
 @AutoConfigureMockMvc(addFilters = false)
 @TestPropertySource(properties = "upload.path=test-uploads")
+@Import(FileService.class)
 class FileAccessControllerTest extends AbstractControllerTest {
 
     private static final String BASE_URL = "/files";
@@ -28,6 +45,15 @@ class FileAccessControllerTest extends AbstractControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @MockitoBean
+    private IFileBlobRepository fileBlobRepository;
+
+    @MockitoBean
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private ImageDerivativeService imageDerivativeService;
+
     @BeforeEach
     void setUp() throws IOException {
         Files.createDirectories(TEST_UPLOAD_DIR);
@@ -86,12 +112,136 @@ class FileAccessControllerTest extends AbstractControllerTest {
     }
 
     @Test
-    void testServeFileReturnsOctetStreamContentType() throws Exception {
+    void testServeFileDetectsContentTypeAndDisplaysImagesInline() throws Exception {
         var testFile = TEST_UPLOAD_DIR.resolve("image.png");
         Files.write(testFile, new byte[]{0x00, 0x01, 0x02});
 
         mockMvc.perform(get(BASE_URL + "/image.png"))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType("application/octet-stream"));
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("Content-Disposition", "inline; filename=\"image.png\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes(new byte[]{0x00, 0x01, 0x02}));
+    }
+
+    @Test
+    void testServeFileRejectsPathTraversal() throws Exception {
+        mockMvc.perform(get(BASE_URL + "/..secret.txt"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGeneratedFileNamesAreImmutable() throws Exception {
+        var name = "3f2b8c1e-9a4d-4e6f-8b7a-1c2d3e4f5a6b.png";
+        Files.write(TEST_UPLOAD_DIR.resolve(name), new byte[]{0x01});
+
+        mockMvc.perform(get(BASE_URL + "/" + name))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+
+    @Test
+    void testOtherFilesMustBeRevalidated() throws Exception {
+        Files.writeString(TEST_UPLOAD_DIR.resolve("test.txt"), "test content");
+
+        mockMvc.perform(get(BASE_URL + "/test.txt"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void testMatchingEtagReturnsNotModified() throws Exception {
+        Files.writeString(TEST_UPLOAD_DIR.resolve("test.txt"), "test content");
+        var etag = mockMvc.perform(get(BASE_URL + "/test.txt"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(BASE_URL + "/test.txt").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testRangeRequestReturnsPartialContent() throws Exception {
+        Files.writeString(TEST_UPLOAD_DIR.resolve("test.txt"), "0123456789");
+
+        mockMvc.perform(get(BASE_URL + "/test.txt").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "4"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void testSuffixRangeReturnsFileTail() throws Exception {
+        Files.writeString(TEST_UPLOAD_DIR.resolve("test.txt"), "0123456789");
+
+        mockMvc.perform(get(BASE_URL + "/test.txt").header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void testUnsatisfiableRangeReturns416() throws Exception {
+        Files.writeString(TEST_UPLOAD_DIR.resolve("test.txt"), "0123456789");
+
+        mockMvc.perform(get(BASE_URL + "/test.txt").header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void testStaleIfRangeReturnsWholeFile() throws Exception {
+        Files.writeString(TEST_UPLOAD_DIR.resolve("test.txt"), "0123456789");
+
+        mockMvc.perform(get(BASE_URL + "/test.txt")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void testSizeParameterServesDerivative() throws Exception {
+        var derivative = TEST_UPLOAD_DIR.resolve("photo.thumbnail.jpg");
+        Files.write(derivative, new byte[]{0x07});
+        when(imageDerivativeService.findDerivative("photo.jpg", ImageSize.THUMBNAIL)).thenReturn(Optional.of(
+                new StoredFile(derivative.toAbsolutePath(), "photo.thumbnail.jpg", MediaType.IMAGE_JPEG, 1,
+                        Instant.parse("2025-01-01T00:00:00Z"), "\"thumb\"", true)));
+
+        mockMvc.perform(get(BASE_URL + "/photo.jpg").param("size", "THUMBNAIL"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"thumb\""))
+                .andExpect(content().bytes(new byte[]{0x07}));
+    }
+
+    @Test
+    void testSizeParameterFallsBackToOriginal() throws Exception {
+        Files.write(TEST_UPLOAD_DIR.resolve("photo.jpg"), new byte[]{0x01, 0x02});
+        when(imageDerivativeService.findDerivative("photo.jpg", ImageSize.MEDIUM)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(BASE_URL + "/photo.jpg").param("size", "MEDIUM"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[]{0x01, 0x02}));
+    }
+
+    @Test
+    void testOriginalServedForMissingDerivativeIsRevalidatedUnderItsOwnEtag() throws Exception {
+        var name = "3f2b8c1e-9a4d-4e6f-8b7a-1c2d3e4f5a6b.png";
+        Files.write(TEST_UPLOAD_DIR.resolve(name), new byte[]{0x01});
+        when(imageDerivativeService.findDerivative(name, ImageSize.THUMBNAIL)).thenReturn(Optional.empty());
+        var originalEtag = mockMvc.perform(get(BASE_URL + "/" + name))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(BASE_URL + "/" + name).param("size", "THUMBNAIL"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(header().string(HttpHeaders.ETAG, not(originalEtag)))
+                .andExpect(content().bytes(new byte[]{0x01}));
+        mockMvc.perform(get(BASE_URL + "/" + name).param("size", "THUMBNAIL")
+                        .header(HttpHeaders.IF_NONE_MATCH, originalEtag))
+                .andExpect(status().isOk());
     }
 }
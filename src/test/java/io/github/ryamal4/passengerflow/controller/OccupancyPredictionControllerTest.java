@@ -1,14 +1,22 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.ryamal4.passengerflow.dto.BatchPredictionDTO;
 import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionMatrixDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
 import io.github.ryamal4.passengerflow.service.prediction.IOccupancyPredictionService;
+import io.github.ryamal4.passengerflow.service.prediction.IPredictionMatrixService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +27,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -29,9 +39,15 @@ class OccupancyPredictionControllerTest extends AbstractControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockitoBean
     private IOccupancyPredictionService predictionService;
 
+    @MockitoBean
+    private IPredictionMatrixService matrixService;
+
     @Test
     void testGetSinglePredictionReturnsOk() throws Exception {
         var prediction = new OccupancyPredictionDTO("Central Station", LocalTime.of(15, 0), 45.0);
@@ -100,4 +116,70 @@ class OccupancyPredictionControllerTest extends AbstractControllerTest {
 
         verify(predictionService).getTodayPredictions(eq("7A"), eq(false));
     }
+
+    @Test
+    void testGetDailyPredictionsForDate() throws Exception {
+        var date = LocalDate.of(2025, 9, 18);
+        when(predictionService.getDayPredictions("7A", date, true)).thenReturn(List.of(
+                new OccupancyPredictionDTO("Central Station", LocalTime.of(8, 0), 45.0)));
+
+        mockMvc.perform(get("/api/predictions")
+                        .param("route", "7A")
+                        .param("date", "2025-09-18"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].stopName").value("Central Station"));
+    }
+
+    @Test
+    void testGetBatchPredictionsReturnsAnswersInRequestOrder() throws Exception {
+        var date = LocalDate.of(2025, 9, 15);
+        var queries = List.of(
+                new PredictionQueryDTO("7A", "Central Station", LocalTime.of(8, 0), date),
+                new PredictionQueryDTO("7A", "Unknown", LocalTime.of(9, 0), date));
+
+        when(predictionService.getBatchPredictions(queries, false)).thenReturn(List.of(
+                new BatchPredictionDTO("7A", "Central Station", date, LocalTime.of(8, 0), 45.0, 40.0, 70.0),
+                new BatchPredictionDTO("7A", "Unknown", date, LocalTime.of(9, 0), null, null, null)));
+
+        mockMvc.perform(post("/api/predictions/batch")
+                        .param("useWeather", "false")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(queries)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].stop").value("Central Station"))
+                .andExpect(jsonPath("$[0].date").value("2025-09-15"))
+                .andExpect(jsonPath("$[0].p90OccupancyPercentage").value(70.0))
+                .andExpect(jsonPath("$[1].stop").value("Unknown"))
+                .andExpect(jsonPath("$[1].occupancyPercentage").doesNotExist());
+    }
+
+    @Test
+    void testGetPredictionMatrixSendsNamesAndSlotsOnce() throws Exception {
+        var matrix = new PredictionMatrixDTO("7A", LocalDate.of(2025, 9, 15), "abc", new String[]{"Central Station"},
+                5, new int[]{480, 485}, null, new byte[]{45, (byte) 255}, 1.0);
+        when(matrixService.getMatrix("7A", null, true, true)).thenReturn(matrix);
+
+        mockMvc.perform(get("/api/predictions/matrix")
+                        .param("route", "7A")
+                        .param("quantize", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stops[0]").value("Central Station"))
+                .andExpect(jsonPath("$.slots[1]").value(485))
+                .andExpect(jsonPath("$.quantized").value("Lf8="))
+                .andExpect(jsonPath("$.values").doesNotExist());
+    }
+
+    @Test
+    void testGetPredictionMatrixNotModified() throws Exception {
+        var matrix = new PredictionMatrixDTO("7A", LocalDate.of(2025, 9, 15), "abc", new String[]{"Central Station"},
+                5, new int[]{480}, new Double[]{45.0}, null, null);
+        when(matrixService.getMatrix("7A", null, true, false)).thenReturn(matrix);
+
+        var etag = mockMvc.perform(get("/api/predictions/matrix").param("route", "7A"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/predictions/matrix").param("route", "7A").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
 }
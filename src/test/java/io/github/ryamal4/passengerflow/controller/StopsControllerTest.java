@@ -1,18 +1,27 @@
 package io.github.ryamal4.passengerflow.controller;
 
+import io.github.ryamal4.passengerflow.dto.StopColumnsDTO;
 import io.github.ryamal4.passengerflow.dto.StopDTO;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 import io.github.ryamal4.passengerflow.service.stop.IStopsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,11 +38,18 @@ class StopsControllerTest extends AbstractControllerTest {
     @MockitoBean
     private IStopsService stopsService;
 
+    @MockitoBean
+    private IReferenceDataRegistry referenceDataRegistry;
+
+    private final ReferenceDataSnapshot snapshot =
+            ReferenceDataSnapshot.of(1L, 1L, List.of(), List.of(), List.of(), List.of());
+
     private StopDTO stopDTO;
 
     @BeforeEach
     void setUp() {
         stopDTO = new StopDTO(1L, "Test Stop", 60.0, 24.0, 1L, "Test Route");
+        when(referenceDataRegistry.current()).thenReturn(snapshot);
     }
 
     @Test
@@ -100,7 +116,7 @@ class StopsControllerTest extends AbstractControllerTest {
     @Test
     void testGetAllStopsSuccess() throws Exception {
         var stops = List.of(stopDTO);
-        when(stopsService.getAllStops()).thenReturn(stops);
+        when(stopsService.getAllStops(snapshot)).thenReturn(stops);
 
         mockMvc.perform(get(BASE_URL))
                 .andExpect(status().isOk())
@@ -115,7 +131,7 @@ class StopsControllerTest extends AbstractControllerTest {
 
     @Test
     void testGetAllStopsEmptyList() throws Exception {
-        when(stopsService.getAllStops()).thenReturn(List.of());
+        when(stopsService.getAllStops(snapshot)).thenReturn(List.of());
 
         mockMvc.perform(get(BASE_URL))
                 .andExpect(status().isOk())
@@ -123,4 +139,59 @@ class StopsControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetAllStopsSetsValidators() throws Exception {
+        when(stopsService.getAllStops(snapshot)).thenReturn(List.of(stopDTO));
+
+        mockMvc.perform(get(BASE_URL))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, containsString("stops-")))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+    }
+
+    @Test
+    void testGetAllStopsNotModified() throws Exception {
+        var etag = mockMvc.perform(get(BASE_URL))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(BASE_URL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(stopsService).getAllStops(snapshot);
+    }
+
+    @Test
+    void testGetAllStopsLayoutsHaveDifferentEtags() throws Exception {
+        var rowsEtag = mockMvc.perform(get(BASE_URL))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(BASE_URL).param("layout", "COLUMNAR").header(HttpHeaders.IF_NONE_MATCH, rowsEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGetAllStopsColumnar() throws Exception {
+        var columns = new StopColumnsDTO(new long[]{1L}, new String[]{"Test Stop"}, new double[]{60.0},
+                new double[]{24.0}, new long[]{1L}, Map.of(1L, "Test Route"));
+        when(stopsService.getAllStopsColumnar(snapshot)).thenReturn(columns);
+
+        mockMvc.perform(get(BASE_URL).param("layout", "COLUMNAR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id[0]").value(1))
+                .andExpect(jsonPath("$.name[0]").value("Test Stop"))
+                .andExpect(jsonPath("$.lat[0]").value(60.0))
+                .andExpect(jsonPath("$.routeId[0]").value(1))
+                .andExpect(jsonPath("$.routeNames['1']").value("Test Route"));
+
+        verify(stopsService, never()).getAllStops(any());
+    }
+
+    @Test
+    void testGetAllStopsInvalidLayout() throws Exception {
+        mockMvc.perform(get(BASE_URL).param("layout", "invalid"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.ryamal4.passengerflow.jwt;
+
+import io.github.ryamal4.passengerflow.enums.TokenType;
+import io.github.ryamal4.passengerflow.model.Token;
+import io.github.ryamal4.passengerflow.repository.TokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthFilterTest {
+    private static final String COOKIE_NAME = "access_token";
+    private static final String TOKEN = "token";
+
+    @Mock
+    private JwtTokenProvider tokenProvider;
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private TokenRepository tokenRepository;
+
+    @Mock
+    private FilterChain filterChain;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private JwtAuthFilter jwtAuthFilter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtAuthFilter, "accessTokenCookieName", COOKIE_NAME);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testRequestWithoutCookieIsTimedAsAnonymous() throws Exception {
+        jwtAuthFilter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), filterChain);
+
+        assertThat(authTimerCount("anonymous")).isEqualTo(1);
+        verify(filterChain).doFilter(any(), any());
+    }
+
+    @Test
+    void testFailingAuthenticationIsStillTimedAsError() throws Exception {
+        var request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(COOKIE_NAME, TOKEN));
+        when(tokenProvider.validateToken(TOKEN)).thenReturn(true);
+        when(tokenRepository.findByValueAndTypeAndDisabledFalse(TOKEN, TokenType.ACCESS))
+                .thenReturn(Optional.of(new Token()));
+        when(tokenProvider.getUsernameFromToken(TOKEN)).thenReturn("ghost");
+        when(userDetailsService.loadUserByUsername("ghost")).thenThrow(new UsernameNotFoundException("ghost"));
+
+        assertThatThrownBy(() -> jwtAuthFilter.doFilter(request, new MockHttpServletResponse(), filterChain))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        assertThat(authTimerCount("error")).isEqualTo(1);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    private long authTimerCount(String outcome) {
+        return meterRegistry.get("passengerflow.auth.filter").tag("outcome", outcome).timer().count();
+    }
+}
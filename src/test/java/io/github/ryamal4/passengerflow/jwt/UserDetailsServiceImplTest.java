@@ -0,0 +1,59 @@
+package io.github.ryamal4.passengerflow.jwt;
+
+import io.github.ryamal4.passengerflow.exception.ResourceNotFoundException;
+import io.github.ryamal4.passengerflow.model.Permission;
+import io.github.ryamal4.passengerflow.model.Role;
+import io.github.ryamal4.passengerflow.model.User;
+import io.github.ryamal4.passengerflow.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsServiceImplTest {
+    private static final String USERNAME = "admin";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Test
+    void testLoadUserReturnsDetachedSnapshotWithAuthorities() {
+        var permissions = new HashSet<Permission>();
+        permissions.add(Permission.builder().id(1L).resource("users").operation("read").build());
+        var role = Role.builder().id(1L).name("admin").permissions(permissions).build();
+        var user = User.builder().id(1L).username(USERNAME).password("hash").role(role).build();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+
+        var details = userDetailsService.loadUserByUsername(USERNAME);
+        permissions.add(Permission.builder().id(2L).resource("users").operation("delete").build());
+
+        assertThat(details).isInstanceOf(UserDetailsSnapshot.class);
+        assertThat(details.getUsername()).isEqualTo(USERNAME);
+        assertThat(details.getPassword()).isEqualTo("hash");
+        assertThat(details.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ADMIN", "USERS:READ");
+        assertThat(details.getAuthorities()).isSameAs(details.getAuthorities());
+        assertThat(details.isEnabled()).isTrue();
+    }
+
+    @Test
+    void testLoadUnknownUserThrows() {
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(USERNAME))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.ryamal4.passengerflow.loadtest;
+
+import java.util.Arrays;
+
+// Latencies of one scenario run; percentiles use the nearest-rank method over all successful and failed requests.
+record LatencyStats(int requests, int errors, double p50Ms, double p95Ms, double p99Ms, double maxMs,
+                    double requestsPerSecond) {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    static LatencyStats of(long[] latencyNanos, int errors, long elapsedNanos) {
+        var sorted = latencyNanos.clone();
+        Arrays.sort(sorted);
+        var seconds = Math.max(elapsedNanos, 1) / 1e9;
+        return new LatencyStats(sorted.length, errors,
+                percentile(sorted, 0.50) / NANOS_PER_MILLI,
+                percentile(sorted, 0.95) / NANOS_PER_MILLI,
+                percentile(sorted, 0.99) / NANOS_PER_MILLI,
+                (sorted.length == 0 ? 0 : sorted[sorted.length - 1]) / NANOS_PER_MILLI,
+                sorted.length / seconds);
+    }
+
+    static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        var rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+    }
+}
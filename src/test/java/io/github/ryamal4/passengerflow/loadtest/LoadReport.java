@@ -0,0 +1,106 @@
+package io.github.ryamal4.passengerflow.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// Collects the scenario results of one run. The properties form is also the baseline format, so a report from a
+// reference machine can be copied over the stored baseline as is.
+final class LoadReport {
+    // Differences below this are scheduler noise on a shared machine rather than a regression.
+    static final double MIN_REGRESSION_MS = 5.0;
+
+    private final Map<String, LatencyStats> scenarios = new LinkedHashMap<>();
+
+    void add(String scenario, LatencyStats stats) {
+        scenarios.put(scenario, stats);
+    }
+
+    Map<String, LatencyStats> getScenarios() {
+        return scenarios;
+    }
+
+    String toProperties() {
+        var out = new StringBuilder("# p50/p95/p99 in milliseconds, throughput in requests per second\n");
+        scenarios.forEach((name, stats) -> out
+                .append(name).append(".requests=").append(stats.requests()).append('\n')
+                .append(name).append(".errors=").append(stats.errors()).append('\n')
+                .append(name).append(".p50=").append(format(stats.p50Ms())).append('\n')
+                .append(name).append(".p95=").append(format(stats.p95Ms())).append('\n')
+                .append(name).append(".p99=").append(format(stats.p99Ms())).append('\n')
+                .append(name).append(".throughput=").append(format(stats.requestsPerSecond())).append('\n'));
+        return out.toString();
+    }
+
+    String toMarkdown() {
+        var out = new StringBuilder("| Scenario | Requests | Errors | p50, ms | p95, ms | p99, ms | max, ms | req/s |\n")
+                .append("|----------|----------|--------|---------|---------|---------|---------|-------|\n");
+        scenarios.forEach((name, stats) -> out.append("| ").append(name)
+                .append(" | ").append(stats.requests())
+                .append(" | ").append(stats.errors())
+                .append(" | ").append(format(stats.p50Ms()))
+                .append(" | ").append(format(stats.p95Ms()))
+                .append(" | ").append(format(stats.p99Ms()))
+                .append(" | ").append(format(stats.maxMs()))
+                .append(" | ").append(format(stats.requestsPerSecond()))
+                .append(" |\n"));
+        return out.toString();
+    }
+
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("report.properties"), toProperties(), StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("report.md"), toMarkdown(), StandardCharsets.UTF_8);
+    }
+
+    // Tail percentiles are compared; scenarios or keys missing from the baseline are new and pass.
+    List<String> regressions(Properties baseline, double tolerance) {
+        var regressions = new ArrayList<String>();
+        scenarios.forEach((name, stats) -> {
+            check(regressions, baseline, name, "p95", stats.p95Ms(), tolerance);
+            check(regressions, baseline, name, "p99", stats.p99Ms(), tolerance);
+        });
+        return regressions;
+    }
+
+    static Properties readBaseline(Reader reader) throws IOException {
+        var baseline = new Properties();
+        baseline.load(reader);
+        return baseline;
+    }
+
+    static Properties readBaseline(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return readBaseline(new StringReader(""));
+        }
+        try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return readBaseline(reader);
+        }
+    }
+
+    private static void check(List<String> regressions, Properties baseline, String scenario, String percentile,
+                              double actual, double tolerance) {
+        var stored = baseline.getProperty(scenario + "." + percentile);
+        if (stored == null) {
+            return;
+        }
+        var expected = Double.parseDouble(stored);
+        if (actual > expected * (1 + tolerance) && actual - expected > MIN_REGRESSION_MS) {
+            regressions.add(String.format(Locale.ROOT, "%s %s: %.1f ms, baseline %.1f ms",
+                    scenario, percentile, actual, expected));
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
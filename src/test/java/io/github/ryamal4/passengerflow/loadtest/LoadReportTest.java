@@ -0,0 +1,61 @@
+package io.github.ryamal4.passengerflow.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadReportTest {
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    void testPercentilesUseNearestRank() {
+        var latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[latencies.length - 1 - i] = (i + 1) * MILLI;
+        }
+
+        var stats = LatencyStats.of(latencies, 2, 2_000 * MILLI);
+
+        assertThat(stats.requests()).isEqualTo(100);
+        assertThat(stats.errors()).isEqualTo(2);
+        assertThat(stats.p50Ms()).isEqualTo(50.0);
+        assertThat(stats.p95Ms()).isEqualTo(95.0);
+        assertThat(stats.p99Ms()).isEqualTo(99.0);
+        assertThat(stats.maxMs()).isEqualTo(100.0);
+        assertThat(stats.requestsPerSecond()).isEqualTo(50.0);
+        assertThat(LatencyStats.percentile(new long[0], 0.99)).isZero();
+    }
+
+    @Test
+    void testReportRoundTripsAsBaseline() throws IOException {
+        var report = new LoadReport();
+        report.add("predictions", new LatencyStats(3200, 0, 4.25, 12.0, 30.5, 80.0, 1500.0));
+
+        var baseline = LoadReport.readBaseline(new StringReader(report.toProperties()));
+
+        assertThat(baseline.getProperty("predictions.p95")).isEqualTo("12.0");
+        assertThat(baseline.getProperty("predictions.p99")).isEqualTo("30.5");
+        assertThat(report.regressions(baseline, 0.25)).isEmpty();
+        assertThat(report.toMarkdown()).contains("| predictions | 3200 | 0 | 4.3 | 12.0 | 30.5 | 80.0 | 1500.0 |");
+    }
+
+    @Test
+    void testTailRegressionBeyondToleranceAndNoiseFloorIsReported() throws IOException {
+        var report = new LoadReport();
+        report.add("ingest", new LatencyStats(100, 0, 5.0, 40.0, 60.0, 90.0, 100.0));
+        report.add("login", new LatencyStats(100, 0, 5.0, 9.0, 9.5, 10.0, 100.0));
+        report.add("nearby-stops", new LatencyStats(100, 0, 5.0, 20.0, 22.0, 30.0, 100.0));
+
+        var baseline = LoadReport.readBaseline(new StringReader("""
+                ingest.p95=20.0
+                ingest.p99=55.0
+                login.p95=4.0
+                login.p99=5.0
+                """));
+
+        assertThat(report.regressions(baseline, 0.25)).containsExactly("ingest p95: 40.0 ms, baseline 20.0 ms");
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.ryamal4.passengerflow.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+// Thin wrapper over the JDK client. The auth cookies are issued with Secure, which a cookie manager would refuse to
+// send over the plain http of the test server, so they are read from Set-Cookie and sent back by hand.
+final class LoadTestClient {
+    static final String ACCESS_COOKIE = "access_token";
+    static final String REFRESH_COOKIE = "refresh_token";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+
+    LoadTestClient(String baseUrl, Executor executor) {
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .executor(executor)
+                .build();
+    }
+
+    HttpRequest.Builder get(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery)).timeout(REQUEST_TIMEOUT).GET();
+    }
+
+    HttpRequest.Builder postJson(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    static String loginJson(String username, String password) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+    }
+
+    // Returns the response status; bodies are drained without being kept, report downloads included.
+    int send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    Session login(String username, String password) throws IOException, InterruptedException {
+        var response = httpClient.send(postJson("/api/auth/login", loginJson(username, password)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login of " + username + " failed with status " + response.statusCode());
+        }
+        String access = null;
+        String refresh = null;
+        for (var header : response.headers().allValues("Set-Cookie")) {
+            var pair = header.substring(0, header.indexOf(';') < 0 ? header.length() : header.indexOf(';'));
+            var separator = pair.indexOf('=');
+            var name = pair.substring(0, separator).trim();
+            if (ACCESS_COOKIE.equals(name)) {
+                access = pair.substring(separator + 1);
+            } else if (REFRESH_COOKIE.equals(name)) {
+                refresh = pair.substring(separator + 1);
+            }
+        }
+        if (access == null || refresh == null) {
+            throw new IllegalStateException("Login of " + username + " did not set both token cookies");
+        }
+        return new Session(access, refresh);
+    }
+
+    record Session(String accessToken, String refreshToken) {
+        String accessCookie() {
+            return ACCESS_COOKIE + "=" + accessToken;
+        }
+
+        String refreshCookie() {
+            return REFRESH_COOKIE + "=" + refreshToken;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package io.github.ryamal4.passengerflow.loadtest;
+
+import io.github.ryamal4.passengerflow.AbstractTestContainerTest;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// End-to-end load run against the full application on a random port and the shared Postgres container.
+// Excluded from the default build; run with `mvn -Pload-test test`. Every scenario is a closed loop of simulated
+// users whose request parameters come from a seeded random, so two runs issue the same requests in the same order
+// per user. Results go to target/load-test and are compared with the stored baseline when one exists.
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "jwt.token-secret=cGFzc2VuZ2VyZmxvdy1sb2FkLXRlc3Qtc2lnbmluZy1rZXktMDEyMzQ1Njc4OQ==",
+        "jwt.access-token-duration-minute=60",
+        "jwt.access-token-duration-second=3600",
+        "telegram.bot.token="
+})
+class PassengerFlowLoadTest extends AbstractTestContainerTest {
+    private static final Logger log = LoggerFactory.getLogger(PassengerFlowLoadTest.class);
+    private static final int ROUTES = 5;
+    private static final int STOPS_PER_ROUTE = 20;
+    private static final int BUSES_PER_ROUTE = 4;
+    private static final int STORM_USERS = 16;
+    private static final int WARMUP_REQUESTS_PER_USER = 5;
+    private static final String PASSWORD = "load-test";
+    private static final String READER = "load-reader";
+    private static final double CENTER_LAT = 55.75;
+    private static final double CENTER_LON = 37.62;
+
+    private static final double SCALE = Double.parseDouble(System.getProperty("loadtest.scale", "1.0"));
+    private static final long SEED = Long.getLong("loadtest.seed", 42L);
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.25"));
+    private static final Path BASELINE = Path.of(System.getProperty("loadtest.baseline",
+            "src/test/resources/loadtest/baseline.properties"));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("loadtest.update-baseline");
+    private static final Path REPORT_DIRECTORY = Path.of("target", "load-test");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private IReferenceDataRegistry referenceDataRegistry;
+
+    private ExecutorService executor;
+    private LoadTestClient client;
+    private LoadTestClient.Session reader;
+    private final List<LoadTestClient.Session> stormSessions = new ArrayList<>();
+    private final List<long[]> busesByRoute = new ArrayList<>();
+    private final List<long[]> stopsByRoute = new ArrayList<>();
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest next(int user, SplittableRandom random);
+    }
+
+    @BeforeAll
+    void seedAndLogIn() throws Exception {
+        seed();
+        referenceDataRegistry.invalidate();
+
+        executor = Executors.newCachedThreadPool();
+        client = new LoadTestClient("http://localhost:" + port, executor);
+        reader = client.login(READER, PASSWORD);
+        for (int i = 0; i < STORM_USERS; i++) {
+            stormSessions.add(client.login(stormUser(i), PASSWORD));
+        }
+    }
+
+    @AfterAll
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testScenariosStayWithinBaseline() throws Exception {
+        var report = new LoadReport();
+
+        report.add("ingest", run("ingest", 32, 100, (user, random) -> {
+            var route = random.nextInt(ROUTES);
+            var buses = busesByRoute.get(route);
+            var stops = stopsByRoute.get(route);
+            var json = String.format(Locale.ROOT,
+                    "{\"busId\":%d,\"stopId\":%d,\"entered\":%d,\"exited\":%d,\"timestamp\":\"%s\"}",
+                    buses[random.nextInt(buses.length)], stops[random.nextInt(stops.length)],
+                    random.nextInt(10), random.nextInt(10), LocalDateTime.now().withNano(0));
+            return client.postJson("/api/passengers", json).header("Cookie", reader.accessCookie()).build();
+        }));
+
+        report.add("predictions", run("predictions", 32, 100, (user, random) -> {
+            var time = LocalTime.of(5 + random.nextInt(19), random.nextInt(12) * 5);
+            return client.get("/api/predictions?route=L" + (1 + random.nextInt(ROUTES))
+                            + "&stop=Stop%20" + (1 + random.nextInt(STOPS_PER_ROUTE))
+                            + "&time=" + time + "&useWeather=false")
+                    .header("Cookie", reader.accessCookie()).build();
+        }));
+
+        report.add("nearby-stops", run("nearby-stops", 32, 100, (user, random) -> {
+            var lat = CENTER_LAT + random.nextDouble(-0.05, 0.1);
+            var lon = CENTER_LON + random.nextDouble(-0.05, 0.1);
+            return client.get(String.format(Locale.ROOT, "/api/stops/nearby?lat=%.5f&lon=%.5f", lat, lon))
+                    .header("Cookie", reader.accessCookie()).build();
+        }));
+
+        // Renders are limited by report.render.max-concurrent, so twice that many users keeps the queue busy.
+        report.add("report-download", run("report-download", 4, 5, (user, random) ->
+                client.get("/api/reports/heatmap?route=L" + (1 + random.nextInt(ROUTES)) + "&useWeather=false")
+                        .header("Cookie", reader.accessCookie()).build()));
+
+        report.add("login", run("login", STORM_USERS, 5, (user, random) ->
+                client.postJson("/api/auth/login", LoadTestClient.loginJson(stormUser(user), PASSWORD)).build()));
+
+        report.add("refresh", run("refresh", STORM_USERS, 50, (user, random) ->
+                client.postJson("/api/auth/refresh", "")
+                        .header("Cookie", stormSessions.get(user).refreshCookie()).build()));
+
+        report.write(REPORT_DIRECTORY);
+        log.info("Load test report written to {}\n{}", REPORT_DIRECTORY.toAbsolutePath(), report.toMarkdown());
+
+        if (UPDATE_BASELINE) {
+            Files.createDirectories(BASELINE.toAbsolutePath().getParent());
+            Files.writeString(BASELINE, report.toProperties(), StandardCharsets.UTF_8);
+            log.info("Baseline updated at {}", BASELINE.toAbsolutePath());
+        } else if (!Files.exists(BASELINE)) {
+            log.info("No baseline at {}; run with -Dloadtest.update-baseline=true to record one",
+                    BASELINE.toAbsolutePath());
+        }
+
+        assertThat(report.getScenarios()).allSatisfy((name, stats) ->
+                assertThat(stats.errors()).as("errors in %s", name).isZero());
+        if (!UPDATE_BASELINE) {
+            assertThat(report.regressions(LoadReport.readBaseline(BASELINE), TOLERANCE)).isEmpty();
+        }
+    }
+
+    // Each user waits on the same latch, so the measured window starts when all of them are ready.
+    private LatencyStats run(String scenario, int users, int requestsPerUser, RequestFactory factory)
+            throws Exception {
+        var requests = Math.max(1, (int) Math.round(requestsPerUser * SCALE));
+        var start = new CountDownLatch(1);
+        var errors = new AtomicInteger();
+        var pool = Executors.newFixedThreadPool(users);
+        try {
+            var futures = new ArrayList<Future<long[]>>();
+            for (int u = 0; u < users; u++) {
+                var user = u;
+                var random = new SplittableRandom(SEED ^ scenario.hashCode() * 31L ^ user);
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < WARMUP_REQUESTS_PER_USER; i++) {
+                        client.send(factory.next(user, random));
+                    }
+                    var latencies = new long[requests];
+                    start.await();
+                    for (int i = 0; i < requests; i++) {
+                        var request = factory.next(user, random);
+                        var began = System.nanoTime();
+                        var status = client.send(request);
+                        latencies[i] = System.nanoTime() - began;
+                        if (status < 200 || status >= 300) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return latencies;
+                }));
+            }
+            var began = System.nanoTime();
+            start.countDown();
+            var all = new long[users * requests];
+            for (int u = 0; u < users; u++) {
+                System.arraycopy(futures.get(u).get(), 0, all, u * requests, requests);
+            }
+            return LatencyStats.of(all, errors.get(), System.nanoTime() - began);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Aggregates cover every stop, day and 5-minute slot, so prediction reads never fall through to a miss.
+    private void seed() {
+        var hash = passwordEncoder.encode(PASSWORD);
+        jdbcTemplate.update("INSERT INTO roles (name) VALUES ('ROLE_USER')");
+        var roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE name = 'ROLE_USER'", Long.class);
+        jdbcTemplate.update("INSERT INTO users (username, password, role_id) VALUES (?, ?, ?)", READER, hash, roleId);
+        for (int i = 0; i < STORM_USERS; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, password, role_id) VALUES (?, ?, ?)",
+                    stormUser(i), hash, roleId);
+        }
+
+        jdbcTemplate.update("INSERT INTO bus_models (name, capacity) VALUES ('ЛиАЗ-5292', 100)");
+        jdbcTemplate.update("INSERT INTO routes (name) SELECT 'L' || r FROM generate_series(1, ?) r", ROUTES);
+        jdbcTemplate.update("""
+                INSERT INTO stops (name, lat, lon, route_id)
+                SELECT 'Stop ' || s, ? + (r.id % 7) * 0.01 + s * 0.002, ? + (r.id % 5) * 0.01 + s * 0.003, r.id
+                FROM routes r CROSS JOIN generate_series(1, ?) s
+                """, CENTER_LAT, CENTER_LON, STOPS_PER_ROUTE);
+        jdbcTemplate.update("""
+                INSERT INTO buses (bus_model_id, route_id)
+                SELECT m.id, r.id FROM routes r CROSS JOIN bus_models m CROSS JOIN generate_series(1, ?) b
+                """, BUSES_PER_ROUTE);
+        jdbcTemplate.update("""
+                INSERT INTO passenger_counts_aggregation
+                    (stop_id, day_of_week, hour, minute, average_occupancy_percentage)
+                SELECT s.id, d, h, m, 20 + (s.id * 37 + d * 11 + h * 7 + m) % 70
+                FROM stops s
+                CROSS JOIN generate_series(1, 7) d
+                CROSS JOIN generate_series(0, 23) h
+                CROSS JOIN generate_series(0, 55, 5) m
+                """);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_aggregation_lookup "
+                + "ON passenger_counts_aggregation (stop_id, day_of_week, hour, minute)");
+        jdbcTemplate.execute("ANALYZE");
+
+        for (var routeId : jdbcTemplate.queryForList("SELECT id FROM routes ORDER BY name", Long.class)) {
+            busesByRoute.add(ids("SELECT id FROM buses WHERE route_id = ? ORDER BY id", routeId));
+            stopsByRoute.add(ids("SELECT id FROM stops WHERE route_id = ? ORDER BY id", routeId));
+        }
+    }
+
+    private long[] ids(String sql, long routeId) {
+        return jdbcTemplate.queryForList(sql, Long.class, routeId).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static String stormUser(int index) {
+        return "load-storm-" + index;
+    }
+}
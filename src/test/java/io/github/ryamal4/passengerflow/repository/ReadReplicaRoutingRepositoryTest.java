@@ -0,0 +1,90 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.AbstractTestContainerTest;
+import io.github.ryamal4.passengerflow.PostgresTestContainer;
+import io.github.ryamal4.passengerflow.config.ReadReplicaConfig;
+import io.github.ryamal4.passengerflow.config.ReplicaLagMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The second container is a separate server rather than a streaming standby; the lag query reports zero for it,
+// which is enough to check that read-only transactions are routed by the replica's health.
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReadReplicaConfig.class, ReadReplicaRoutingRepositoryTest.MetricsConfig.class})
+class ReadReplicaRoutingRepositoryTest extends AbstractTestContainerTest {
+    private static final String REPLICA_DATABASE = "replicadb";
+
+    @SuppressWarnings("resource")
+    private static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>("postgres:17")
+            .withDatabaseName(REPLICA_DATABASE)
+            .withUsername("test")
+            .withPassword("test");
+
+    static {
+        REPLICA.start();
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @DynamicPropertySource
+    static void configureReplica(DynamicPropertyRegistry registry) {
+        registry.add("datasource.replica.enabled", () -> "true");
+        registry.add("datasource.replica.url", REPLICA::getJdbcUrl);
+        registry.add("datasource.replica.username", REPLICA::getUsername);
+        registry.add("datasource.replica.password", REPLICA::getPassword);
+        registry.add("datasource.replica.lag-check-interval-ms", () -> "3600000");
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplica() {
+        replicaLagMonitor.checkLag();
+
+        assertThat(currentDatabase(true)).isEqualTo(REPLICA_DATABASE);
+        assertThat(currentDatabase(false)).isEqualTo(PostgresTestContainer.INSTANCE.getDatabaseName());
+    }
+
+    @Test
+    void testReadOnlyTransactionsFallBackToPrimaryWhenReplicaUnusable() {
+        replicaLagMonitor.markUnusable(new IllegalStateException("lagging"));
+
+        assertThat(currentDatabase(true)).isEqualTo(PostgresTestContainer.INSTANCE.getDatabaseName());
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        var template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> jdbcTemplate.queryForObject("SELECT current_database()", String.class));
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.ryamal4.passengerflow.repository;
+
+import io.github.ryamal4.passengerflow.AbstractTestContainerTest;
+import io.github.ryamal4.passengerflow.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class StopHourlyRollupRepositoryTest extends AbstractTestContainerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 22);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private IStopHourlyRollupRepository rollupRepository;
+
+    @Autowired
+    private IStopRollupDirtyRepository rollupDirtyRepository;
+
+    private Bus bus;
+    private Stop first;
+    private Stop second;
+    private Stop late;
+
+    @BeforeEach
+    void setUp() {
+        var route = new Route(null, "Route 1", new ArrayList<>(), new ArrayList<>());
+        entityManager.persistAndFlush(route);
+        var busModel = BusModel.builder()
+                .name("Volvo 7900")
+                .capacity(50)
+                .buses(new ArrayList<>())
+                .build();
+        entityManager.persistAndFlush(busModel);
+        bus = new Bus(null, busModel, route, new ArrayList<>());
+        entityManager.persistAndFlush(bus);
+        first = createStop("Stop 1", route);
+        second = createStop("Stop 2", route);
+        late = createStop("Stop 3", route);
+
+        createPassengerCount(first, DAY.atTime(10, 5), 10);
+        createPassengerCount(second, DAY.atTime(11, 5), 5);
+        queue(null, DAY.atTime(10, 5));
+        rollupRepository.upsertQueuedChanges();
+    }
+
+    @Test
+    void testLateReadingRecomputesMaxLoadOfLaterBucketsOfItsBusDay() {
+        assertThat(maxLoad(second, 11)).isEqualTo(15);
+
+        createPassengerCount(late, DAY.atTime(9, 5), 20);
+        queue(null, DAY.atTime(9, 5));
+        rollupRepository.upsertQueuedChanges();
+
+        assertThat(maxLoad(late, 9)).isEqualTo(20);
+        assertThat(maxLoad(first, 10)).isEqualTo(30);
+        assertThat(maxLoad(second, 11)).isEqualTo(35);
+        assertThat(rollupDirtyRepository.count()).isZero();
+    }
+
+    @Test
+    void testRemovedReadingDropsItsBucketAndRecomputesTheRestOfItsBusDay() {
+        var count = createPassengerCount(late, DAY.atTime(9, 5), 20);
+        queue(null, DAY.atTime(9, 5));
+        rollupRepository.upsertQueuedChanges();
+
+        entityManager.remove(count);
+        entityManager.flush();
+        queue(late.getId(), DAY.atTime(9, 5));
+        rollupRepository.upsertQueuedChanges();
+
+        assertThat(rollupRepository.findByStopAndPeriod(late.getId(), DAY, DAY)).isEmpty();
+        assertThat(maxLoad(second, 11)).isEqualTo(15);
+    }
+
+    private long maxLoad(Stop stop, int hour) {
+        entityManager.clear();
+        return rollupRepository.findByStopAndPeriod(stop.getId(), DAY, DAY).stream()
+                .filter(rollup -> rollup.getHour() == hour)
+                .findFirst()
+                .orElseThrow()
+                .getMaxLoad();
+    }
+
+    private Stop createStop(String name, Route route) {
+        var stop = new Stop(null, name, 60.1699, 24.9342, route, new ArrayList<>());
+        return entityManager.persistAndFlush(stop);
+    }
+
+    private PassengerCount createPassengerCount(Stop stop, LocalDateTime timestamp, int entered) {
+        var count = new PassengerCount(null, bus, stop, entered, 0, timestamp);
+        return entityManager.persistAndFlush(count);
+    }
+
+    private void queue(Long stopId, LocalDateTime fromTime) {
+        entityManager.persistAndFlush(new StopRollupDirty(bus.getId(), stopId, fromTime));
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.ryamal4.passengerflow.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class OccupancyHistogramTest {
+
+    @Test
+    void testQuantilesInterpolateInsideBuckets() {
+        var histogram = new OccupancyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.add(i);
+        }
+
+        assertThat(histogram.quantile(0.5)).isCloseTo(50.0, within(0.5));
+        assertThat(histogram.quantile(0.9)).isCloseTo(90.0, within(0.5));
+        assertThat(histogram.quantile(1.0)).isEqualTo(100.0);
+    }
+
+    @Test
+    void testValuesOutsideRangeAreReportedAtTheBounds() {
+        var histogram = new OccupancyHistogram();
+        histogram.add(-12.0);
+        histogram.add(250.0);
+
+        assertThat(histogram.quantile(0.0)).isEqualTo(0.0);
+        assertThat(histogram.quantile(1.0)).isEqualTo(200.0);
+    }
+
+    @Test
+    void testBucketsMatchPostgresWidthBucket() {
+        assertThat(OccupancyHistogram.bucketOf(-0.1)).isZero();
+        assertThat(OccupancyHistogram.bucketOf(0.0)).isEqualTo(1);
+        assertThat(OccupancyHistogram.bucketOf(4.99)).isEqualTo(1);
+        assertThat(OccupancyHistogram.bucketOf(5.0)).isEqualTo(2);
+        assertThat(OccupancyHistogram.bucketOf(199.99)).isEqualTo(40);
+        assertThat(OccupancyHistogram.bucketOf(200.0)).isEqualTo(41);
+    }
+
+    @Test
+    void testMergedHistogramEqualsHistogramOfAllValues() {
+        var monday = new OccupancyHistogram();
+        var tuesday = new OccupancyHistogram();
+        var both = new OccupancyHistogram();
+        for (int i = 0; i < 50; i++) {
+            monday.add(i * 0.5);
+            tuesday.add(80 + i);
+            both.add(i * 0.5);
+            both.add(80 + i);
+        }
+
+        monday.merge(tuesday);
+
+        assertThat(monday.getTotalCount()).isEqualTo(100);
+        assertThat(monday.toBytes()).isEqualTo(both.toBytes());
+        assertThat(monday.quantile(0.9)).isEqualTo(both.quantile(0.9));
+    }
+
+    @Test
+    void testEncodingStoresOnlyNonEmptyBucketsAndRoundTrips() {
+        var histogram = new OccupancyHistogram();
+        histogram.add(12.0);
+        histogram.add(13.0);
+        histogram.add(150.0);
+
+        var encoded = histogram.toBytes();
+        var decoded = OccupancyHistogram.fromBytes(encoded);
+
+        assertThat(encoded).hasSize(12);
+        assertThat(decoded.getTotalCount()).isEqualTo(3);
+        assertThat(decoded.toBytes()).isEqualTo(encoded);
+    }
+
+    @Test
+    void testMissingOrCorruptEncoding() {
+        assertThat(OccupancyHistogram.fromBytes(null).isEmpty()).isTrue();
+        assertThatThrownBy(() -> OccupancyHistogram.fromBytes(new byte[]{1, 2, 3}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OccupancyHistogram().quantile(0.5))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -1,16 +1,36 @@
 package io.github.ryamal4.passengerflow.service.aggregation;
 
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildResult;
+import io.github.ryamal4.passengerflow.dto.AggregationRebuildStatus;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.repository.AggregationLockRepository;
 import io.github.ryamal4.passengerflow.repository.IPassengerCountAggregationRepository;
+import io.github.ryamal4.passengerflow.repository.PassengerCountAggregationShadowRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.DayOfWeek;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,20 +39,125 @@ class PassengerCountAggregationServiceTest {
     @Mock
     private IPassengerCountAggregationRepository aggregationRepository;
 
+    @Mock
+    private PassengerCountAggregationShadowRepository shadowRepository;
+
+    @Mock
+    private AggregationLockRepository aggregationLock;
+
+    @Mock
+    private IAggregationEngine aggregationEngine;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private PassengerCountAggregationService aggregationService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(aggregationService, "rebuildThreads", 2);
+        ReflectionTestUtils.setField(aggregationService, "stopsPerChunk", 2);
+    }
+
     @ParameterizedTest
     @EnumSource(DayOfWeek.class)
     void testPerformAggregationAllDaysOfWeek(DayOfWeek dayOfWeek) {
         int expectedValue = dayOfWeek.getValue();
-        when(aggregationRepository.insertAggregatedData(expectedValue)).thenReturn(1);
+        when(aggregationEngine.insertAggregatedData(expectedValue)).thenReturn(1);
 
         aggregationService.performAggregation(dayOfWeek);
 
-        var inOrder = inOrder(aggregationRepository);
+        var inOrder = inOrder(aggregationLock, aggregationRepository, aggregationEngine);
+        inOrder.verify(aggregationLock).lockForTransaction();
         inOrder.verify(aggregationRepository).deleteByDayOfWeek(expectedValue);
-        inOrder.verify(aggregationRepository).insertAggregatedData(expectedValue);
+        inOrder.verify(aggregationEngine).insertAggregatedData(expectedValue);
         inOrder.verifyNoMoreInteractions();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testPerformAggregationRecordsDurationAndRows() {
+        when(aggregationEngine.insertAggregatedData(1)).thenReturn(42);
+
+        aggregationService.performAggregation(DayOfWeek.MONDAY);
+
+        var rows = meterRegistry.get("passengerflow.aggregation.rows").tag("day_of_week", "monday").summary();
+        var duration = meterRegistry.get("passengerflow.aggregation.duration").tag("day_of_week", "monday").timer();
+        assertThat(rows.totalAmount()).isEqualTo(42.0);
+        assertThat(duration.count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRebuildAllFillsShadowTablePerDayAndStopRangeThenSwaps() throws InterruptedException {
+        runUnderSessionLock();
+        when(shadowRepository.findStopIds()).thenReturn(List.of(1L, 2L, 5L));
+        when(shadowRepository.insertAggregatedData(anyInt(), anyLong(), anyLong())).thenReturn(10);
+
+        aggregationService.startRebuild();
+
+        var status = awaitRebuild();
+        assertThat(status.getState()).isEqualTo(AggregationRebuildStatus.State.SUCCEEDED);
+        var result = status.getResult();
+        assertThat(result.getChunkCount()).isEqualTo(14);
+        assertThat(result.getInsertedCount()).isEqualTo(140);
+        for (var day : DayOfWeek.values()) {
+            verify(shadowRepository).insertAggregatedData(day.getValue(), 1L, 2L);
+            verify(shadowRepository).insertAggregatedData(day.getValue(), 5L, 5L);
+        }
+        var inOrder = inOrder(shadowRepository);
+        inOrder.verify(shadowRepository).createShadowTable();
+        inOrder.verify(shadowRepository).swapShadowTable();
+        verify(shadowRepository, never()).dropShadowTable();
+        verify(aggregationLock).withSessionLock(any());
+        verifyNoInteractions(aggregationRepository);
+    }
+
+    @Test
+    void testRebuildAllDropsShadowTableWhenChunkFails() throws InterruptedException {
+        runUnderSessionLock();
+        when(shadowRepository.findStopIds()).thenReturn(List.of(1L, 2L));
+        when(shadowRepository.insertAggregatedData(anyInt(), anyLong(), anyLong()))
+                .thenThrow(new IllegalStateException("boom"));
+
+        aggregationService.startRebuild();
+
+        var status = awaitRebuild();
+        assertThat(status.getState()).isEqualTo(AggregationRebuildStatus.State.FAILED);
+        assertThat(status.getError()).contains("chunk failed");
+
+        verify(shadowRepository).dropShadowTable();
+        verify(shadowRepository, never()).swapShadowTable();
+    }
+
+    @Test
+    void testStartRebuildWhileRunningIsRejected() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        when(aggregationLock.withSessionLock(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new AggregationRebuildResult(0, 0, 0);
+        });
+
+        var started = aggregationService.startRebuild();
+
+        assertThat(started.getState()).isEqualTo(AggregationRebuildStatus.State.RUNNING);
+        assertThatThrownBy(() -> aggregationService.startRebuild())
+                .isInstanceOf(AppException.class)
+                .extracting("status").isEqualTo(HttpStatus.CONFLICT);
+        release.countDown();
+        assertThat(awaitRebuild().getState()).isEqualTo(AggregationRebuildStatus.State.SUCCEEDED);
+    }
+
+    private AggregationRebuildStatus awaitRebuild() throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (aggregationService.getRebuildStatus().getState() == AggregationRebuildStatus.State.RUNNING
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return aggregationService.getRebuildStatus();
+    }
+
+    private void runUnderSessionLock() {
+        when(aggregationLock.withSessionLock(any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(0).get());
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.ryamal4.passengerflow.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlotOccupancyAggregatorTest {
+    private static final LocalDateTime MONDAY_MORNING = LocalDateTime.of(2025, 9, 15, 8, 0);
+
+    @Test
+    void testRunningLoadIsAveragedPerStopAndSlot() {
+        var aggregator = new SlotOccupancyAggregator();
+        aggregator.accept(1L, 10L, MONDAY_MORNING.plusMinutes(1), 20, 0, 100);
+        aggregator.accept(1L, 11L, MONDAY_MORNING.plusMinutes(7), 10, 5, 100);
+        aggregator.accept(2L, 10L, MONDAY_MORNING.plusMinutes(3), 40, 0, 50);
+
+        var slots = collect(aggregator);
+
+        assertThat(slots).containsExactly(
+                new Slot(10L, 8, 0, (20.0 + 80.0) / 2),
+                new Slot(11L, 8, 5, 25.0));
+    }
+
+    @Test
+    void testLoadResetsOnNewBusAndAtServiceDayBoundary() {
+        var aggregator = new SlotOccupancyAggregator();
+        aggregator.accept(1L, 10L, LocalDateTime.of(2025, 9, 15, 3, 50), 30, 0, 100);
+        aggregator.accept(1L, 11L, LocalDateTime.of(2025, 9, 15, 4, 5), 10, 0, 100);
+        aggregator.accept(2L, 12L, LocalDateTime.of(2025, 9, 15, 4, 10), 5, 0, 100);
+
+        var slots = collect(aggregator);
+
+        assertThat(slots).containsExactly(
+                new Slot(10L, 3, 50, 30.0),
+                new Slot(11L, 4, 5, 10.0),
+                new Slot(12L, 4, 10, 5.0));
+    }
+
+    @Test
+    void testRowsWithoutCapacityAffectLoadButAreNotAveraged() {
+        var aggregator = new SlotOccupancyAggregator();
+        aggregator.accept(1L, 10L, MONDAY_MORNING, 15, 0, null);
+        aggregator.accept(1L, 11L, MONDAY_MORNING.plusMinutes(10), 5, 0, 100);
+
+        var slots = collect(aggregator);
+
+        assertThat(slots).containsExactly(new Slot(11L, 8, 10, 20.0));
+    }
+
+    @Test
+    void testEachSlotCarriesHistogramOfItsObservations() {
+        var aggregator = new SlotOccupancyAggregator();
+        aggregator.accept(1L, 10L, MONDAY_MORNING, 20, 0, 100);
+        aggregator.accept(2L, 10L, MONDAY_MORNING.plusMinutes(1), 90, 0, 100);
+        aggregator.accept(3L, 10L, MONDAY_MORNING.plusMinutes(2), 30, 0, 100);
+
+        var histograms = new ArrayList<OccupancyHistogram>();
+        aggregator.forEachSlot((stopId, hour, minute, average, histogram) -> histograms.add(histogram));
+
+        assertThat(histograms).singleElement().satisfies(histogram -> {
+            assertThat(histogram.getTotalCount()).isEqualTo(3);
+            assertThat(histogram.quantile(0.5)).isBetween(30.0, 35.0);
+            assertThat(histogram.quantile(1.0)).isEqualTo(95.0);
+        });
+    }
+
+    private List<Slot> collect(SlotOccupancyAggregator aggregator) {
+        var slots = new ArrayList<Slot>();
+        var emitted = aggregator.forEachSlot((stopId, hour, minute, average, histogram) ->
+                slots.add(new Slot(stopId, hour, minute, average)));
+        assertThat(emitted).isEqualTo(slots.size());
+        return slots;
+    }
+
+    private record Slot(long stopId, int hour, int minute, double average) {
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.ryamal4.passengerflow.service.analytics;
+
+import io.github.ryamal4.passengerflow.enums.TrafficGranularity;
+import io.github.ryamal4.passengerflow.event.StopRollupUpdatedEvent;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.model.StopHourlyRollup;
+import io.github.ryamal4.passengerflow.repository.IStopHourlyRollupRepository;
+import io.github.ryamal4.passengerflow.repository.IStopsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StopTrafficServiceTest {
+    private static final Long STOP_ID = 1L;
+    private static final LocalDate FROM = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 10, 31);
+
+    @Mock
+    private IStopHourlyRollupRepository rollupRepository;
+
+    @Mock
+    private IStopsRepository stopsRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private StopTrafficService stopTrafficService;
+
+    @Test
+    void testRefreshRollupDrainsQueuedChangesUnderLock() {
+        when(rollupRepository.upsertQueuedChanges()).thenReturn(12);
+
+        var result = stopTrafficService.refreshRollup();
+
+        assertThat(result).isEqualTo(12);
+        var inOrder = inOrder(rollupRepository);
+        inOrder.verify(rollupRepository).lockRollup();
+        inOrder.verify(rollupRepository).upsertQueuedChanges();
+        verify(eventPublisher).publishEvent(new StopRollupUpdatedEvent(12));
+    }
+
+    @Test
+    void testRefreshRollupWithoutQueuedChangesPublishesNothing() {
+        when(rollupRepository.upsertQueuedChanges()).thenReturn(0);
+
+        assertThat(stopTrafficService.refreshRollup()).isZero();
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testGetStopTrafficGroupsHoursByMonth() {
+        when(stopsRepository.existsById(STOP_ID)).thenReturn(true);
+        when(rollupRepository.findByStopAndPeriod(STOP_ID, FROM, TO)).thenReturn(List.of(
+                rollup(LocalDate.of(2025, 9, 1), 8, 10, 4, 30),
+                rollup(LocalDate.of(2025, 9, 20), 17, 20, 6, 55),
+                rollup(LocalDate.of(2025, 10, 2), 8, 5, 5, 12)));
+
+        var result = stopTrafficService.getStopTraffic(STOP_ID, FROM, TO, TrafficGranularity.MONTH);
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).getPeriodStart()).isEqualTo(LocalDateTime.of(2025, 9, 1, 0, 0));
+        assertThat(result.get(0).getEntered()).isEqualTo(30);
+        assertThat(result.get(0).getExited()).isEqualTo(10);
+        assertThat(result.get(0).getSamples()).isEqualTo(2);
+        assertThat(result.get(0).getMaxLoad()).isEqualTo(55);
+        assertThat(result.get(1).getPeriodStart()).isEqualTo(LocalDateTime.of(2025, 10, 1, 0, 0));
+        assertThat(result.get(1).getMaxLoad()).isEqualTo(12);
+    }
+
+    @Test
+    void testGetStopTrafficHourlyKeepsEachBucket() {
+        when(stopsRepository.existsById(STOP_ID)).thenReturn(true);
+        when(rollupRepository.findByStopAndPeriod(STOP_ID, FROM, TO)).thenReturn(List.of(
+                rollup(LocalDate.of(2025, 9, 1), 8, 10, 4, 30),
+                rollup(LocalDate.of(2025, 9, 1), 9, 3, 2, 31)));
+
+        var result = stopTrafficService.getStopTraffic(STOP_ID, FROM, TO, TrafficGranularity.HOUR);
+
+        assertThat(result).extracting(dto -> dto.getPeriodStart().getHour()).containsExactly(8, 9);
+    }
+
+    @Test
+    void testGetStopTrafficUnknownStopThrowsNotFound() {
+        when(stopsRepository.existsById(STOP_ID)).thenReturn(false);
+
+        assertThatThrownBy(() -> stopTrafficService.getStopTraffic(STOP_ID, FROM, TO, TrafficGranularity.DAY))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("Stop not found");
+    }
+
+    @Test
+    void testRebuildRollupRejectsInvertedPeriod() {
+        assertThatThrownBy(() -> stopTrafficService.rebuildRollup(TO, FROM))
+                .isInstanceOf(AppException.class);
+
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testRebuildRollupReplacesPeriod() {
+        when(rollupRepository.upsertForPeriod(FROM.atStartOfDay(), TO.plusDays(1).atStartOfDay())).thenReturn(7);
+
+        assertThat(stopTrafficService.rebuildRollup(FROM, TO)).isEqualTo(7);
+
+        var inOrder = inOrder(rollupRepository);
+        inOrder.verify(rollupRepository).lockRollup();
+        inOrder.verify(rollupRepository).deleteByRollupDateBetween(FROM, TO);
+        inOrder.verify(rollupRepository).upsertForPeriod(FROM.atStartOfDay(), TO.plusDays(1).atStartOfDay());
+    }
+
+    private StopHourlyRollup rollup(LocalDate date, int hour, long entered, long exited, long maxLoad) {
+        return new StopHourlyRollup(null, null, date, hour, entered, exited, 1L, maxLoad);
+    }
+}
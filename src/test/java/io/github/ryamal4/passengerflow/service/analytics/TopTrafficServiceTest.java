@@ -0,0 +1,86 @@
+package io.github.ryamal4.passengerflow.service.analytics;
+
+import io.github.ryamal4.passengerflow.enums.TrafficMetric;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.repository.IStopHourlyRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopTrafficServiceTest {
+    private static final LocalDate FROM = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 9, 7);
+
+    @Mock
+    private IStopHourlyRollupRepository rollupRepository;
+
+    @InjectMocks
+    private TopTrafficService topTrafficService;
+
+    @Test
+    void testGetTopStopsMapsRowsInRepositoryOrder() {
+        var first = stopRow(5L, "Central", 70L);
+        var second = stopRow(3L, "Market", 55L);
+        when(rollupRepository.findTopStops(FROM, TO, 1, 8, "MAX_LOAD", 2)).thenReturn(List.of(first, second));
+
+        var result = topTrafficService.getTopStops(FROM, TO, 1, 8, TrafficMetric.MAX_LOAD, 2);
+
+        assertThat(result).extracting("stopName").containsExactly("Central", "Market");
+        assertThat(result.get(0).getMaxLoad()).isEqualTo(70L);
+        assertThat(result.get(0).getRouteName()).isEqualTo("7A");
+    }
+
+    @Test
+    void testGetTopRoutesPassesMetricName() {
+        var row = mock(IStopHourlyRollupRepository.TopRouteRow.class);
+        when(row.getRouteId()).thenReturn(2L);
+        when(row.getRouteName()).thenReturn("7A");
+        when(row.getEntered()).thenReturn(1500L);
+        when(row.getExited()).thenReturn(1400L);
+        when(row.getMaxLoad()).thenReturn(80L);
+        when(rollupRepository.findTopRoutes(FROM, TO, null, null, "ENTERED", 10)).thenReturn(List.of(row));
+
+        var result = topTrafficService.getTopRoutes(FROM, TO, null, null, TrafficMetric.ENTERED, 10);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getEntered()).isEqualTo(1500L);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0, 8, 10", "8, 8, 10", "1, 24, 10", "1, -1, 10", "1, 8, 0", "1, 8, 101"})
+    void testInvalidFiltersAreRejected(int dayOfWeek, int hour, int limit) {
+        assertThatThrownBy(() -> topTrafficService.getTopStops(FROM, TO, dayOfWeek, hour, TrafficMetric.ENTERED, limit))
+                .isInstanceOf(AppException.class);
+
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testInvertedPeriodIsRejected() {
+        assertThatThrownBy(() -> topTrafficService.getTopRoutes(TO, FROM, null, null, TrafficMetric.ENTERED, 10))
+                .isInstanceOf(AppException.class);
+    }
+
+    private IStopHourlyRollupRepository.TopStopRow stopRow(Long stopId, String stopName, Long maxLoad) {
+        var row = mock(IStopHourlyRollupRepository.TopStopRow.class);
+        when(row.getStopId()).thenReturn(stopId);
+        when(row.getStopName()).thenReturn(stopName);
+        when(row.getRouteName()).thenReturn("7A");
+        when(row.getEntered()).thenReturn(100L);
+        when(row.getExited()).thenReturn(90L);
+        when(row.getMaxLoad()).thenReturn(maxLoad);
+        return row;
+    }
+}
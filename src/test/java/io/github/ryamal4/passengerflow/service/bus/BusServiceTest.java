@@ -4,34 +4,31 @@ import io.github.ryamal4.passengerflow.dto.BusDTO;
 import io.github.ryamal4.passengerflow.model.Bus;
 import io.github.ryamal4.passengerflow.model.BusModel;
 import io.github.ryamal4.passengerflow.model.Route;
-import io.github.ryamal4.passengerflow.repository.IBusRepository;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
-import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class BusServiceTest {
 
-    @Mock
-    private IBusRepository busRepository;
     @InjectMocks
     private BusService busService;
     private Bus bus1;
     private Bus bus2;
     private Bus bus3;
+    private Route route;
 
     @BeforeEach
     void setUp() {
-        Route route = createRoute();
+        route = createRoute();
 
         bus1 = createBus(1L, createBusModel(1L, "Bus Model 1", 50), route);
         bus2 = createBus(2L, createBusModel(2L, "Bus Model 2", 60), route);
@@ -41,15 +38,31 @@ class BusServiceTest {
     @Test
     void testGetAllBusesSuccess() {
         var buses = List.of(bus1, bus2, bus3);
-        when(busRepository.findAll()).thenReturn(buses);
+        var models = buses.stream().map(Bus::getBusModel).toList();
+        var catalog = ReferenceDataSnapshot.of(1, 1, List.of(route), List.of(), buses, models);
 
-        var result = busService.getAllBuses();
+        var result = busService.getAllBuses(catalog);
 
         assertThat(result).hasSize(3);
         assertDtoIsCorrect(result.get(0), bus1);
         assertDtoIsCorrect(result.get(1), bus2);
         assertDtoIsCorrect(result.get(2), bus3);
-        verify(busRepository).findAll();
+    }
+
+    @Test
+    void testGetAllBusesColumnarDeduplicatesLookups() {
+        var sharedModel = createBusModel(4L, "Shared Model", 80);
+        var buses = List.of(createBus(1L, sharedModel, route), createBus(2L, sharedModel, route));
+        var catalog = ReferenceDataSnapshot.of(1, 1, List.of(route), List.of(), buses, List.of(sharedModel));
+
+        var result = busService.getAllBusesColumnar(catalog);
+
+        assertThat(result.getId()).containsExactly(1L, 2L);
+        assertThat(result.getBusModelId()).containsExactly(4L, 4L);
+        assertThat(result.getRouteId()).containsExactly(1L, 1L);
+        assertThat(result.getBusModelNames()).containsExactly(Map.entry(4L, "Shared Model"));
+        assertThat(result.getBusModelCapacities()).containsExactly(Map.entry(4L, 80));
+        assertThat(result.getRouteNames()).containsExactly(Map.entry(1L, "Test Route"));
     }
 
     private Route createRoute() {
@@ -1,6 +1,7 @@
 package io.github.ryamal4.passengerflow.service.busmodel;
 
 import io.github.ryamal4.passengerflow.dto.BusModelDTO;
+import io.github.ryamal4.passengerflow.event.ReferenceDataChangedEvent;
 import io.github.ryamal4.passengerflow.model.BusModel;
 import io.github.ryamal4.passengerflow.repository.IBusModelRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Optional;
 
@@ -24,6 +26,9 @@ class BusModelServiceTest {
     @Mock
     private IBusModelRepository repository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BusModelService service;
 
@@ -42,6 +47,7 @@ class BusModelServiceTest {
         service.create(model);
 
         verify(repository).save(model);
+        verify(eventPublisher).publishEvent(new ReferenceDataChangedEvent("BusModel"));
     }
 
     @Test
@@ -78,6 +84,28 @@ class BusModelServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getFileName()).isEqualTo("test-file.jpg");
         verify(repository).save(updatedModel);
+        verify(eventPublisher).publishEvent(new ReferenceDataChangedEvent("BusModel"));
+    }
+
+    @Test
+    void testReplaceFileReturnsNameReadUnderLock() {
+        var model = createBusModel(1L, "Model A", 50, "old.jpg");
+        when(repository.findByIdForUpdate(1L)).thenReturn(Optional.of(model));
+
+        var replacement = service.replaceFile(1L, "new.jpg");
+
+        assertThat(replacement.previousFileName()).isEqualTo("old.jpg");
+        assertThat(replacement.model().getFileName()).isEqualTo("new.jpg");
+        verify(eventPublisher).publishEvent(new ReferenceDataChangedEvent("BusModel"));
+    }
+
+    @Test
+    void testReplaceFileNotFound() {
+        when(repository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.replaceFile(999L, "new.jpg"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("BusModel not found with id: 999");
     }
 
     @Test
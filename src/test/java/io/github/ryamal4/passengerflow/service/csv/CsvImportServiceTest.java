@@ -1,20 +1,25 @@
 package io.github.ryamal4.passengerflow.service.csv;
 
+import io.github.ryamal4.passengerflow.event.ReferenceDataChangedEvent;
 import io.github.ryamal4.passengerflow.model.BusModel;
-import io.github.ryamal4.passengerflow.service.busmodel.IBusModelService;
+import io.github.ryamal4.passengerflow.repository.BusModelBulkRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,11 +31,22 @@ class CsvImportServiceTest {
             2,Mercedes Citaro,60
             3,MAN Lion's City,55
             """;
+    private static final int CHUNK_SIZE = 2;
+
+    @Mock
+    private BusModelBulkRepository bulkRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     @Mock
-    private IBusModelService busModelService;
-    @InjectMocks
+    private PlatformTransactionManager transactionManager;
+
     private CsvImportService csvImportService;
 
+    @BeforeEach
+    void setUp() {
+        csvImportService = new CsvImportService(bulkRepository, eventPublisher, transactionManager, CHUNK_SIZE);
+    }
+
     @Test
     void testImportValidCsvSuccess() {
         var file = createCsvFile(VALID_CSV_CONTENT);
@@ -41,30 +57,22 @@ class CsvImportServiceTest {
         assertThat(result.getFailedCount()).isZero();
         assertThat(result.getErrors()).isEmpty();
         assertThat(result.hasError()).isFalse();
-        verify(busModelService, times(3)).create(any(BusModel.class));
+        verify(bulkRepository, times(2)).upsert(anyList());
+        verify(bulkRepository).syncIdSequence();
+        verify(eventPublisher).publishEvent(new ReferenceDataChangedEvent("BusModel"));
     }
 
     @Test
     void testImportValidCsvParsesDataCorrectly() {
         var file = createCsvFile(VALID_CSV_CONTENT);
-        var captor = ArgumentCaptor.forClass(BusModel.class);
 
         csvImportService.importBusModelsFromCsv(file);
 
-        verify(busModelService, times(3)).create(captor.capture());
-        var models = captor.getAllValues();
-
-        assertThat(models.get(0).getId()).isEqualTo(1L);
-        assertThat(models.get(0).getName()).isEqualTo("Volvo 7900");
-        assertThat(models.get(0).getCapacity()).isEqualTo(50);
-
-        assertThat(models.get(1).getId()).isEqualTo(2L);
-        assertThat(models.get(1).getName()).isEqualTo("Mercedes Citaro");
-        assertThat(models.get(1).getCapacity()).isEqualTo(60);
-
-        assertThat(models.get(2).getId()).isEqualTo(3L);
-        assertThat(models.get(2).getName()).isEqualTo("MAN Lion's City");
-        assertThat(models.get(2).getCapacity()).isEqualTo(55);
+        var models = capturedModels(2);
+        assertThat(models).extracting(BusModel::getId).containsExactly(1L, 2L, 3L);
+        assertThat(models).extracting(BusModel::getName)
+                .containsExactly("Volvo 7900", "Mercedes Citaro", "MAN Lion's City");
+        assertThat(models).extracting(BusModel::getCapacity).containsExactly(50, 60, 55);
     }
 
     @Test
@@ -76,7 +84,7 @@ class CsvImportServiceTest {
         assertThat(result.getSuccessCount()).isZero();
         assertThat(result.getFailedCount()).isZero();
         assertThat(result.getErrors()).isEmpty();
-        verifyNoInteractions(busModelService);
+        verifyNoInteractions(bulkRepository, eventPublisher);
     }
 
     @Test
@@ -90,10 +98,11 @@ class CsvImportServiceTest {
         var result = csvImportService.importBusModelsFromCsv(file);
 
         assertThat(result.getSuccessCount()).isZero();
+        assertThat(result.getFailedCount()).isEqualTo(1);
         assertThat(result.getErrors()).hasSize(1);
         assertThat(result.getErrors().get(0)).contains("некорректные данные");
         assertThat(result.hasError()).isTrue();
-        verifyNoInteractions(busModelService);
+        verifyNoInteractions(bulkRepository);
     }
 
     @Test
@@ -109,7 +118,23 @@ class CsvImportServiceTest {
         assertThat(result.getSuccessCount()).isZero();
         assertThat(result.getErrors()).hasSize(1);
         assertThat(result.getErrors().get(0)).contains("некорректные данные");
-        verifyNoInteractions(busModelService);
+        verifyNoInteractions(bulkRepository);
+    }
+
+    @Test
+    void testImportCsvWithMissingColumnReturnsRowError() {
+        var content = """
+                id,name,capacity
+                1,Short Row
+                2,Full Row,40
+                """;
+        var file = createCsvFile(content);
+
+        var result = csvImportService.importBusModelsFromCsv(file);
+
+        assertThat(result.getSuccessCount()).isEqualTo(1);
+        assertThat(result.getFailedCount()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().contains("некорректные данные");
     }
 
     @Test
@@ -127,24 +152,45 @@ class CsvImportServiceTest {
         assertThat(result.getSuccessCount()).isEqualTo(2);
         assertThat(result.getErrors()).hasSize(1);
         assertThat(result.getErrors().get(0)).contains("некорректные данные");
-        verify(busModelService, times(2)).create(any(BusModel.class));
+        assertThat(capturedModels(1)).extracting(BusModel::getId).containsExactly(1L, 3L);
     }
 
     @Test
-    void testImportCsvWhenServiceThrowsExceptionCountsAsFailed() {
+    void testFailedBatchIsReplayedRowByRowToReportTheFailingRow() {
         var content = """
                 id,name,capacity
                 1,Existing Model,50
                 2,New Model,60
                 """;
         var file = createCsvFile(content);
-        doThrow(new RuntimeException("Duplicate name")).when(busModelService).create(argThat(m -> m.getId() == 1L));
+        doThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"))
+                .when(bulkRepository).upsert(argThat(models -> models.stream().anyMatch(m -> m.getId() == 1L)));
 
         var result = csvImportService.importBusModelsFromCsv(file);
 
         assertThat(result.getSuccessCount()).isEqualTo(1);
         assertThat(result.getFailedCount()).isEqualTo(1);
-        verify(busModelService, times(2)).create(any(BusModel.class));
+        assertThat(result.getErrors()).singleElement().asString()
+                .contains("Existing Model")
+                .contains("duplicate key");
+        verify(bulkRepository, times(3)).upsert(anyList());
+    }
+
+    @Test
+    void testRepeatedIdIsNotPutIntoTheSameBatch() {
+        var content = """
+                id,name,capacity
+                1,First Name,50
+                1,Renamed,50
+                """;
+        var file = createCsvFile(content);
+
+        var result = csvImportService.importBusModelsFromCsv(file);
+
+        assertThat(result.getSuccessCount()).isEqualTo(2);
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository, times(2)).upsert(captor.capture());
+        assertThat(captor.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSize(1));
     }
 
     @Test
@@ -158,7 +204,7 @@ class CsvImportServiceTest {
         assertThat(result.getFailedCount()).isZero();
         assertThat(result.getErrors()).hasSize(1);
         assertThat(result.getErrors().get(0)).contains("Не удалось прочитать файл");
-        verifyNoInteractions(busModelService);
+        verifyNoInteractions(bulkRepository);
     }
 
     @Test
@@ -168,12 +214,10 @@ class CsvImportServiceTest {
                 1,  Trimmed Name  ,50
                 """;
         var file = createCsvFile(content);
-        var captor = ArgumentCaptor.forClass(BusModel.class);
 
         csvImportService.importBusModelsFromCsv(file);
 
-        verify(busModelService).create(captor.capture());
-        assertThat(captor.getValue().getName()).isEqualTo("Trimmed Name");
+        assertThat(capturedModels(1)).extracting(BusModel::getName).containsExactly("Trimmed Name");
     }
 
     @Test
@@ -187,19 +231,30 @@ class CsvImportServiceTest {
         var result = csvImportService.importBusModelsFromCsv(file);
 
         assertThat(result.getSuccessCount()).isEqualTo(1);
-        verify(busModelService).create(any(BusModel.class));
+        verify(bulkRepository).upsert(anyList());
     }
 
     @Test
     void testImportCsvWithAllFailedSavesReturnsCorrectCounts() {
         var file = createCsvFile(VALID_CSV_CONTENT);
-        doThrow(new RuntimeException("DB error")).when(busModelService).create(any(BusModel.class));
+        doThrow(new DataIntegrityViolationException("DB error")).when(bulkRepository).upsert(anyList());
 
         var result = csvImportService.importBusModelsFromCsv(file);
 
         assertThat(result.getSuccessCount()).isZero();
         assertThat(result.getFailedCount()).isEqualTo(3);
-        verify(busModelService, times(3)).create(any(BusModel.class));
+        assertThat(result.getErrors()).hasSize(3);
+        verify(bulkRepository, never()).syncIdSequence();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BusModel> capturedModels(int batches) {
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository, times(batches)).upsert(captor.capture());
+        return captor.getAllValues().stream()
+                .flatMap(batch -> ((List<BusModel>) batch).stream())
+                .toList();
     }
 
     private MockMultipartFile createCsvFile(String content) {
@@ -0,0 +1,89 @@
+package io.github.ryamal4.passengerflow.service.datagen;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyntheticCityTest {
+    private static final LocalDate MONDAY = LocalDate.of(2025, 9, 15);
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final SyntheticDataSettings SETTINGS = new SyntheticDataSettings(3, 31, 4, 0, 7);
+
+    private final SyntheticCity city = new SyntheticCity(SETTINGS, 100, 1000, 500);
+
+    @Test
+    void testPlanSpreadsStopsAndBusesOverRoutes() {
+        assertThat(city.getRoutes()).extracting(SyntheticCity.RouteRow::id).containsExactly(100L, 101L, 102L);
+        assertThat(city.getStops()).hasSize(31);
+        assertThat(city.getStops().get(0).id()).isEqualTo(1000L);
+        assertThat(city.getStops().stream().filter(stop -> stop.routeId() == 100L)).hasSize(11);
+        assertThat(city.getBuses()).hasSize(12);
+        assertThat(city.getBuses().get(11).id()).isEqualTo(511L);
+    }
+
+    @Test
+    void testServiceDayStaysInsideItsBoundaryAndTripsEndEmpty() throws IOException {
+        var rows = write(MONDAY, Long.MAX_VALUE);
+
+        assertThat(rows).hasSize((int) city.readingsPerDay());
+        var loads = new HashMap<String, Integer>();
+        for (var row : rows) {
+            var timestamp = LocalDateTime.parse(row[2], TIMESTAMP);
+            assertThat(timestamp).isAfterOrEqualTo(MONDAY.atTime(4, 0)).isBefore(MONDAY.plusDays(1).atTime(4, 0));
+            loads.merge(row[3], Integer.parseInt(row[0]) - Integer.parseInt(row[1]), Integer::sum);
+            assertThat(loads.get(row[3])).isNotNegative();
+        }
+        assertThat(loads.values()).containsOnly(0);
+    }
+
+    @Test
+    void testWeekdayMorningPeakOutweighsMidday() throws IOException {
+        var rows = write(MONDAY, Long.MAX_VALUE);
+
+        assertThat(boardingsInHour(rows, 8)).isGreaterThan(2 * boardingsInHour(rows, 12));
+    }
+
+    @Test
+    void testSameSeedWritesSameRowsAndLimitStopsEarly() throws IOException {
+        var out = new StringBuilder();
+        var written = new SyntheticCity(SETTINGS, 100, 1000, 500).writeServiceDay(MONDAY, 25, out);
+
+        assertThat(written).isEqualTo(25);
+        assertThat(out.toString()).isEqualTo(join(write(MONDAY, 25)));
+    }
+
+    @Test
+    void testRejectsRoutesLongerThanAServiceDay() {
+        var settings = new SyntheticDataSettings(1, SyntheticCity.MAX_STOPS_PER_ROUTE + 1, 1, 0, 7);
+
+        assertThatThrownBy(() -> new SyntheticCity(settings, 1, 1, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<String[]> write(LocalDate day, long limit) throws IOException {
+        var out = new StringBuilder();
+        city.writeServiceDay(day, limit, out);
+        return out.toString().lines().map(line -> line.split("\t")).toList();
+    }
+
+    private static int boardingsInHour(List<String[]> rows, int hour) {
+        return rows.stream()
+                .filter(row -> LocalDateTime.parse(row[2], TIMESTAMP).getHour() == hour)
+                .mapToInt(row -> Integer.parseInt(row[0]))
+                .sum();
+    }
+
+    private static String join(List<String[]> rows) {
+        var out = new StringBuilder();
+        rows.forEach(row -> out.append(String.join("\t", row)).append('\n'));
+        return out.toString();
+    }
+}
@@ -1,31 +1,50 @@
 package io.github.ryamal4.passengerflow.service.file;
 
+import io.github.ryamal4.passengerflow.model.FileBlob;
+import io.github.ryamal4.passengerflow.repository.IFileBlobRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class FileServiceTest {
     private static final String TEST_UPLOAD_DIR = "test-uploads";
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024;
 
+    @Mock
+    private IFileBlobRepository fileBlobRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private FileService fileService;
 
     @BeforeEach
     void setUp() {
-        fileService = new FileService();
+        fileService = new FileService(fileBlobRepository, transactionManager);
         ReflectionTestUtils.setField(fileService, "uploadDir", TEST_UPLOAD_DIR);
     }
 
@@ -52,7 +71,7 @@ class FileServiceTest {
 
         assertThat(filename).isNotNull();
         assertThat(filename).endsWith(".jpg");
-        assertThat(Files.exists(Paths.get(TEST_UPLOAD_DIR).resolve(filename))).isTrue();
+        assertThat(Files.exists(fileService.blobPath(filename))).isTrue();
     }
 
     @Test
@@ -102,6 +121,30 @@ class FileServiceTest {
                 .hasMessageContaining("Invalid image file");
     }
 
+    @Test
+    void testStoreFileRejectsJpegWithoutEndMarkerAndLeavesNoFiles() throws IOException {
+        var bytes = createJpegBytes();
+        bytes[bytes.length - 1] = 0x00;
+        var file = createMockFile("test.jpg", "image/jpeg", bytes);
+
+        assertThatThrownBy(() -> fileService.storeFile(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Invalid image file");
+        try (var files = Files.walk(Paths.get(TEST_UPLOAD_DIR))) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    void testStoreFileContentMatchesUpload() throws IOException {
+        var bytes = createJpegBytes();
+        bytes[100] = 0x42;
+
+        var filename = fileService.storeFile(createMockFile("test.jpg", "image/jpeg", bytes));
+
+        assertThat(Files.readAllBytes(fileService.blobPath(filename))).isEqualTo(bytes);
+    }
+
     @Test
     void testStorePdfFileSuccess() throws IOException {
         var pdfContent = createPdfBytes();
@@ -111,7 +154,7 @@ class FileServiceTest {
 
         assertThat(filename).isNotNull();
         assertThat(filename).endsWith(".pdf");
-        assertThat(Files.exists(Paths.get(TEST_UPLOAD_DIR).resolve(filename))).isTrue();
+        assertThat(Files.exists(fileService.blobPath(filename))).isTrue();
     }
 
     @Test
@@ -122,7 +165,94 @@ class FileServiceTest {
         var deleted = fileService.deleteFile(filename);
 
         assertThat(deleted).isTrue();
-        assertThat(Files.exists(Paths.get(TEST_UPLOAD_DIR).resolve(filename))).isFalse();
+        assertThat(Files.exists(fileService.blobPath(filename))).isFalse();
+    }
+
+    @Test
+    void testIdenticalUploadsShareOneBlob() throws IOException {
+        var first = fileService.storeFile(createMockFile("a.jpg", "image/jpeg", createJpegBytes()));
+        var second = fileService.storeFile(createMockFile("b.JPG", "image/jpeg", createJpegBytes()));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(first).matches("[0-9a-f]{64}\\.jpg");
+        assertThat(fileService.blobPath(first).toString())
+                .contains(first.substring(0, 2) + "/" + first.substring(2, 4) + "/");
+        verify(fileBlobRepository, times(2)).addReferences(first, createJpegBytes().length, 1);
+        try (var files = Files.walk(Paths.get(TEST_UPLOAD_DIR))) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+        }
+    }
+
+    @Test
+    void testDeleteFileKeepsBlobWhileStillReferenced() throws IOException {
+        var filename = fileService.storeFile(createMockFile("test.jpg", "image/jpeg", createJpegBytes()));
+        var blob = new FileBlob(filename, 1028L, 2);
+        when(fileBlobRepository.findByFileNameForUpdate(filename)).thenReturn(Optional.of(blob));
+
+        var deleted = fileService.deleteFile(filename);
+
+        assertThat(deleted).isFalse();
+        assertThat(blob.getRefCount()).isEqualTo(1);
+        assertThat(Files.exists(fileService.blobPath(filename))).isTrue();
+        verify(fileBlobRepository, never()).delete(blob);
+    }
+
+    @Test
+    void testDeleteFileRemovesBlobWithLastReference() throws IOException {
+        var filename = fileService.storeFile(createMockFile("test.jpg", "image/jpeg", createJpegBytes()));
+        var blob = new FileBlob(filename, 1028L, 1);
+        when(fileBlobRepository.findByFileNameForUpdate(filename)).thenReturn(Optional.of(blob));
+
+        var deleted = fileService.deleteFile(filename);
+
+        assertThat(deleted).isTrue();
+        assertThat(Files.exists(fileService.blobPath(filename))).isFalse();
+        verify(fileBlobRepository).delete(blob);
+    }
+
+    @Test
+    void testDeleteFileRemovesBlobOnlyAfterCommit() throws IOException {
+        var filename = fileService.storeFile(createMockFile("test.jpg", "image/jpeg", createJpegBytes()));
+        when(fileBlobRepository.findByFileNameForUpdate(filename)).thenReturn(Optional.of(new FileBlob(filename, 1028L, 1)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(fileService.deleteFile(filename)).isTrue();
+            assertThat(Files.exists(fileService.blobPath(filename))).isTrue();
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(Files.exists(fileService.blobPath(filename))).isFalse();
+    }
+
+    @Test
+    void testDeleteFileKeepsBlobReferencedAgainBeforeCleanup() throws IOException {
+        var filename = fileService.storeFile(createMockFile("test.jpg", "image/jpeg", createJpegBytes()));
+        when(fileBlobRepository.existsById(filename)).thenReturn(true);
+
+        fileService.deleteFile(filename);
+
+        assertThat(Files.exists(fileService.blobPath(filename))).isTrue();
+        verify(fileBlobRepository, times(2)).lockFileName(filename);
+    }
+
+    @Test
+    void testStoredBlobIsRemovedWhenReferenceRollsBack() throws IOException {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            var filename = fileService.storeFile(createMockFile("test.jpg", "image/jpeg", createJpegBytes()));
+            assertThat(Files.exists(fileService.blobPath(filename))).isTrue();
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+            assertThat(Files.exists(fileService.blobPath(filename))).isFalse();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
@@ -132,6 +262,35 @@ class FileServiceTest {
         assertThat(deleted).isFalse();
     }
 
+    @Test
+    void testFindStoredFileDescribesUploadedFile() throws IOException {
+        var filename = fileService.storeFile(createMockFile("test.jpg", "image/jpeg", createJpegBytes()));
+
+        var storedFile = fileService.findStoredFile(filename);
+
+        assertThat(storedFile).get().satisfies(file -> {
+            assertThat(file.contentType()).isEqualTo(MediaType.IMAGE_JPEG);
+            assertThat(file.size()).isEqualTo(createJpegBytes().length);
+            assertThat(file.etag()).startsWith("\"").endsWith("\"").hasSize(66);
+            assertThat(file.immutable()).isTrue();
+        });
+    }
+
+    @Test
+    void testFindStoredFileEtagFollowsContent() throws IOException {
+        var path = Paths.get(TEST_UPLOAD_DIR).resolve("notes.txt");
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "first");
+        var first = fileService.findStoredFile("notes.txt").orElseThrow();
+
+        Files.writeString(path, "second version");
+        var second = fileService.findStoredFile("notes.txt").orElseThrow();
+
+        assertThat(first.immutable()).isFalse();
+        assertThat(second.etag()).isNotEqualTo(first.etag());
+        assertThat(fileService.findStoredFile("missing.txt")).isEmpty();
+    }
+
     private MultipartFile createMockFile(String name, String contentType, byte[] content) {
         return new MockMultipartFile("file", name, contentType, content);
     }
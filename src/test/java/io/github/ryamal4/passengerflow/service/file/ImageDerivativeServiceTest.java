@@ -0,0 +1,111 @@
+package io.github.ryamal4.passengerflow.service.file;
+
+import io.github.ryamal4.passengerflow.enums.ImageSize;
+import io.github.ryamal4.passengerflow.repository.IFileBlobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ImageDerivativeServiceTest {
+    @TempDir
+    private Path uploadDir;
+
+    @Mock
+    private IFileBlobRepository fileBlobRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FileService fileService;
+    private ImageDerivativeService derivativeService;
+
+    @BeforeEach
+    void setUp() {
+        fileService = new FileService(fileBlobRepository, transactionManager);
+        ReflectionTestUtils.setField(fileService, "uploadDir", uploadDir.toString());
+        derivativeService = new ImageDerivativeService(fileService, 1, 10, 5000, 1_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        derivativeService.shutdown();
+    }
+
+    @Test
+    void testThumbnailIsRenderedOnFirstRequestAndStoredNextToOriginal() throws IOException {
+        var original = storeImage(1200, 800, "jpg");
+
+        var thumbnail = derivativeService.findDerivative(original, ImageSize.THUMBNAIL).orElseThrow();
+
+        assertThat(thumbnail.filename()).isEqualTo(original.replace(".jpg", ".thumbnail.jpg"));
+        assertThat(thumbnail.path().getParent()).isEqualTo(fileService.blobPath(original).getParent());
+        assertThat(thumbnail.contentType()).isEqualTo(MediaType.IMAGE_JPEG);
+        assertThat(thumbnail.immutable()).isTrue();
+        var image = ImageIO.read(thumbnail.path().toFile());
+        assertThat(image.getWidth()).isEqualTo(160);
+        assertThat(image.getHeight()).isEqualTo(107);
+    }
+
+    @Test
+    void testPngKeepsFormatAndSmallImagesAreNotEnlarged() throws IOException {
+        var original = storeImage(300, 200, "png");
+
+        var medium = derivativeService.findDerivative(original, ImageSize.MEDIUM).orElseThrow();
+
+        assertThat(medium.filename()).endsWith(".medium.png");
+        var image = ImageIO.read(medium.path().toFile());
+        assertThat(image.getWidth()).isEqualTo(300);
+        assertThat(image.getHeight()).isEqualTo(200);
+    }
+
+    @Test
+    void testNonImagesAndLegacyNamesHaveNoDerivatives() throws IOException {
+        assertThat(derivativeService.findDerivative("a".repeat(64) + ".pdf", ImageSize.THUMBNAIL)).isEmpty();
+        assertThat(derivativeService.findDerivative("photo.jpg", ImageSize.THUMBNAIL)).isEmpty();
+    }
+
+    @Test
+    void testImagesAbovePixelLimitAreRejectedBeforeDecoding() throws IOException {
+        var original = storeImage(1200, 900, "png");
+
+        assertThat(derivativeService.findDerivative(original, ImageSize.THUMBNAIL)).isEmpty();
+        assertThat(fileService.blobPath(original.replace(".png", ".thumbnail.png"))).doesNotExist();
+    }
+
+    @Test
+    void testDerivativesAreDeletedWithTheirBlob() throws IOException {
+        var original = storeImage(400, 400, "png");
+        var thumbnail = derivativeService.findDerivative(original, ImageSize.THUMBNAIL).orElseThrow();
+
+        fileService.deleteFile(original);
+
+        assertThat(thumbnail.path()).doesNotExist();
+        assertThat(fileService.blobPath(original)).doesNotExist();
+    }
+
+    private String storeImage(int width, int height, String format) throws IOException {
+        var source = uploadDir.resolve("source." + format);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, source.toFile());
+        var name = FileService.blobName(FileService.hash(source), format);
+        var blobPath = fileService.blobPath(name);
+        Files.createDirectories(blobPath.getParent());
+        Files.move(source, blobPath);
+        return name;
+    }
+}
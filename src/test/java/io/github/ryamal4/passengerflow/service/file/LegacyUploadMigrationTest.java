@@ -0,0 +1,114 @@
+package io.github.ryamal4.passengerflow.service.file;
+
+import io.github.ryamal4.passengerflow.repository.IBusModelRepository;
+import io.github.ryamal4.passengerflow.repository.IFileBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LegacyUploadMigrationTest {
+    private static final byte[] PHOTO = {(byte) 0xFF, (byte) 0xD8, 0x01, 0x02, (byte) 0xFF, (byte) 0xD9};
+
+    @TempDir
+    private Path uploadDir;
+
+    @Mock
+    private IFileBlobRepository fileBlobRepository;
+
+    @Mock
+    private IBusModelRepository busModelRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FileService fileService;
+    private LegacyUploadMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        fileService = new FileService(fileBlobRepository, transactionManager);
+        ReflectionTestUtils.setField(fileService, "uploadDir", uploadDir.toString());
+        migration = new LegacyUploadMigration(fileService, busModelRepository, transactionManager, false);
+    }
+
+    @Test
+    void testDuplicateLegacyFilesAreMergedAndReferencesMoved() throws IOException {
+        var first = "0b5e3a52-1c6f-4b8e-9d2a-7f4e5c6b7a81.jpg";
+        var second = "9c1d2e3f-4a5b-4c6d-8e7f-0a1b2c3d4e5f.jpg";
+        Files.write(uploadDir.resolve(first), PHOTO);
+        Files.write(uploadDir.resolve(second), PHOTO);
+        var blobName = FileService.blobName(FileService.hash(uploadDir.resolve(first)), "jpg");
+        when(busModelRepository.renameFile(first, blobName)).thenReturn(2);
+        when(busModelRepository.renameFile(second, blobName)).thenReturn(1);
+
+        var migrated = migration.migrate();
+
+        assertThat(migrated).isEqualTo(2);
+        assertThat(uploadDir.resolve(first)).doesNotExist();
+        assertThat(uploadDir.resolve(second)).doesNotExist();
+        assertThat(fileService.blobPath(blobName)).hasBinaryContent(PHOTO);
+        verify(fileBlobRepository).addReferences(blobName, PHOTO.length, 2);
+        verify(fileBlobRepository).addReferences(blobName, PHOTO.length, 1);
+        assertThat(fileService.findStoredFile(blobName)).isPresent();
+    }
+
+    @Test
+    void testUnreferencedLegacyFileIsKeptByDefault() throws IOException {
+        var legacy = uploadDir.resolve("0b5e3a52-1c6f-4b8e-9d2a-7f4e5c6b7a81.jpg");
+        Files.write(legacy, PHOTO);
+        var blobName = FileService.blobName(FileService.hash(legacy), "jpg");
+        when(busModelRepository.renameFile(legacy.getFileName().toString(), blobName)).thenReturn(0);
+
+        var migrated = migration.migrate();
+
+        assertThat(migrated).isZero();
+        assertThat(legacy).hasBinaryContent(PHOTO);
+        assertThat(fileService.blobPath(blobName)).doesNotExist();
+        assertThat(fileService.incomingDir()).isEmptyDirectory();
+        verify(fileBlobRepository, never()).addReferences(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testUnreferencedLegacyFileIsDeletedWithoutBlobRowWhenEnabled() throws IOException {
+        var legacy = uploadDir.resolve("0b5e3a52-1c6f-4b8e-9d2a-7f4e5c6b7a81.jpg");
+        Files.write(legacy, PHOTO);
+        var blobName = FileService.blobName(FileService.hash(legacy), "jpg");
+        when(busModelRepository.renameFile(legacy.getFileName().toString(), blobName)).thenReturn(0);
+        var deleting = new LegacyUploadMigration(fileService, busModelRepository, transactionManager, true);
+
+        var migrated = deleting.migrate();
+
+        assertThat(migrated).isZero();
+        assertThat(legacy).doesNotExist();
+        assertThat(fileService.blobPath(blobName)).doesNotExist();
+        verify(fileBlobRepository, never()).addReferences(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testMigrationIsNoOpOnceLegacyFilesAreGone() throws IOException {
+        Files.write(uploadDir.resolve("legacy.png"), PHOTO);
+        when(busModelRepository.renameFile(eq("legacy.png"), anyString())).thenReturn(0);
+        migration.migrate();
+
+        assertThat(migration.migrate()).isZero();
+    }
+}
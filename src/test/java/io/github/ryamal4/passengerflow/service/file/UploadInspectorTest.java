@@ -0,0 +1,62 @@
+package io.github.ryamal4.passengerflow.service.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadInspectorTest {
+
+    @Test
+    void testJpegTrailerIsFoundAcrossChunkBoundaries() {
+        var bytes = jpeg(10);
+
+        for (var chunkSize : new int[]{1, 3, 7, bytes.length}) {
+            assertThat(inspect(bytes, chunkSize).isValidImage()).as("chunk size %d", chunkSize).isTrue();
+        }
+    }
+
+    @Test
+    void testJpegWithoutEndMarkerIsRejected() {
+        var bytes = jpeg(10);
+        bytes[bytes.length - 2] = 0x00;
+
+        assertThat(inspect(bytes, 5).isValidImage()).isFalse();
+    }
+
+    @Test
+    void testTooShortContentIsRejected() {
+        assertThat(inspect(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xD9}, 1).isValidImage()).isFalse();
+    }
+
+    @Test
+    void testPngHeaderAndHashAreComputedInOnePass() throws Exception {
+        var bytes = new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
+
+        var inspector = inspect(bytes, 3);
+
+        assertThat(inspector.isValidImage()).isTrue();
+        assertThat(inspector.size()).isEqualTo(bytes.length);
+        assertThat(inspector.hash())
+                .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)));
+    }
+
+    private UploadInspector inspect(byte[] bytes, int chunkSize) {
+        var inspector = new UploadInspector();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            inspector.update(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+        }
+        return inspector;
+    }
+
+    private byte[] jpeg(int bodySize) {
+        var bytes = new byte[bodySize + 4];
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[bytes.length - 2] = (byte) 0xFF;
+        bytes[bytes.length - 1] = (byte) 0xD9;
+        return bytes;
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.ryamal4.passengerflow.service.gtfs;
+
+import io.github.ryamal4.passengerflow.event.ReferenceDataChangedEvent;
+import io.github.ryamal4.passengerflow.exception.AppException;
+import io.github.ryamal4.passengerflow.repository.GtfsBulkRepository;
+import io.github.ryamal4.passengerflow.repository.GtfsBulkRepository.StopRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GtfsImportServiceTest {
+    private static final String ROUTES = """
+            route_id,agency_id,route_short_name,route_long_name,route_type
+            R1,A,12,Downtown - Airport,3
+            R2,A,,Night Line,3
+            """;
+    private static final String TRIPS = """
+            route_id,service_id,trip_id
+            R1,WD,T1
+            R1,WD,T2
+            R2,WD,T3
+            """;
+    private static final String STOPS = """
+            stop_id,stop_name,stop_lat,stop_lon,location_type,parent_station
+            S1,Central,55.75,37.61,0,ST
+            S2,Central,55.7501,37.6102,0,ST
+            S3,Airport,55.97,37.41,,
+            ST,Central Station,55.75,37.61,1,
+            """;
+    private static final String STOP_TIMES = """
+            trip_id,arrival_time,departure_time,stop_id,stop_sequence
+            T1,08:00:00,08:00:00,S1,1
+            T1,08:30:00,08:30:00,S3,2
+            T2,09:00:00,09:00:00,S3,1
+            T2,09:30:00,09:30:00,S2,2
+            T3,23:00:00,23:00:00,S3,1
+            """;
+
+    @Mock
+    private GtfsBulkRepository bulkRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path tempDir;
+
+    private GtfsImportService gtfsImportService;
+
+    @BeforeEach
+    void setUp() {
+        gtfsImportService = new GtfsImportService(bulkRepository, eventPublisher, transactionManager, 2);
+    }
+
+    @Test
+    void testImportCreatesMissingRoutesAndUpsertsStopsServedByEachRoute() throws IOException {
+        var feed = feed(Map.of("routes.txt", ROUTES, "trips.txt", TRIPS, "stops.txt", STOPS,
+                "stop_times.txt", STOP_TIMES));
+        when(bulkRepository.findRouteIdsByName())
+                .thenReturn(Map.of("12", 5L))
+                .thenReturn(Map.of("12", 5L, "Night Line", 6L));
+
+        var result = gtfsImportService.importFeed(feed);
+
+        verify(bulkRepository).insertRoutes(List.of("Night Line"));
+        assertThat(capturedStops()).containsExactlyInAnyOrder(
+                new StopRow("Central", 55.75, 37.61, 5L),
+                new StopRow("Airport", 55.97, 37.41, 5L),
+                new StopRow("Airport", 55.97, 37.41, 6L));
+        assertThat(result.getRouteCount()).isEqualTo(2);
+        assertThat(result.getCreatedRouteCount()).isEqualTo(1);
+        assertThat(result.getStopCount()).isEqualTo(3);
+        assertThat(result.getSkippedRowCount()).isZero();
+        verify(eventPublisher).publishEvent(new ReferenceDataChangedEvent("Stop"));
+    }
+
+    @Test
+    void testInvalidRowsAreSkippedWithTheirLineNumbers() throws IOException {
+        var stops = STOPS + "S4,Broken,north,37.0,0,\n";
+        var stopTimes = STOP_TIMES + "T9,10:00:00,10:00:00,S1,1\nT1,10:00:00,10:00:00,S4,3\n";
+        var feed = feed(Map.of("routes.txt", ROUTES, "trips.txt", TRIPS, "stops.txt", stops,
+                "stop_times.txt", stopTimes));
+        when(bulkRepository.findRouteIdsByName()).thenReturn(Map.of("12", 5L, "Night Line", 6L));
+
+        var result = gtfsImportService.importFeed(feed);
+
+        verify(bulkRepository, never()).insertRoutes(anyList());
+        assertThat(result.getSkippedRowCount()).isEqualTo(3);
+        assertThat(result.getErrors()).containsExactly(
+                "stops.txt, строка 5 : некорректные координаты остановки",
+                "stop_times.txt, строка 6 : неизвестный рейс",
+                "stop_times.txt, строка 7 : неизвестная остановка");
+        assertThat(result.getStopCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testFeedInsideFolderWithByteOrderMarkIsRead() throws IOException {
+        var feed = feed(Map.of("feed/routes.txt", "\uFEFF" + ROUTES, "feed/trips.txt", TRIPS,
+                "feed/stops.txt", STOPS, "feed/stop_times.txt", STOP_TIMES));
+        when(bulkRepository.findRouteIdsByName()).thenReturn(Map.of("12", 5L, "Night Line", 6L));
+
+        var result = gtfsImportService.importFeed(feed);
+
+        assertThat(result.getRouteCount()).isEqualTo(2);
+        assertThat(result.getStopCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testMissingMemberIsRejectedBeforeAnythingIsWritten() throws IOException {
+        var feed = feed(Map.of("routes.txt", ROUTES, "trips.txt", TRIPS, "stops.txt", STOPS));
+
+        assertThatThrownBy(() -> gtfsImportService.importFeed(feed))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("stop_times.txt")
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(bulkRepository, eventPublisher);
+    }
+
+    @Test
+    void testNonZipFileIsRejected() throws IOException {
+        var feed = tempDir.resolve("feed.zip");
+        Files.writeString(feed, "not a zip");
+
+        assertThatThrownBy(() -> gtfsImportService.importFeed(feed))
+                .isInstanceOf(AppException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(bulkRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<StopRow> capturedStops() {
+        var captor = ArgumentCaptor.forClass(List.class);
+        verify(bulkRepository, atLeastOnce()).upsertStops(captor.capture());
+        assertThat(captor.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+        return captor.getAllValues().stream()
+                .flatMap(batch -> ((List<StopRow>) batch).stream())
+                .toList();
+    }
+
+    private Path feed(Map<String, String> members) throws IOException {
+        var feed = tempDir.resolve("feed.zip");
+        try (var zip = new ZipOutputStream(Files.newOutputStream(feed))) {
+            for (var member : members.entrySet()) {
+                zip.putNextEntry(new ZipEntry(member.getKey()));
+                zip.write(member.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return feed;
+    }
+}
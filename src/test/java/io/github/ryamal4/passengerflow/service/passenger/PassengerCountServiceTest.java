@@ -1,16 +1,25 @@
 package io.github.ryamal4.passengerflow.service.passenger;
 
 import io.github.ryamal4.passengerflow.dto.PassengerCountDTO;
+import io.github.ryamal4.passengerflow.event.PassengerCountIngestedEvent;
 import io.github.ryamal4.passengerflow.model.*;
 import io.github.ryamal4.passengerflow.repository.IBusRepository;
 import io.github.ryamal4.passengerflow.repository.IPassengerCountRepository;
+import io.github.ryamal4.passengerflow.repository.IStopRollupDirtyRepository;
 import io.github.ryamal4.passengerflow.repository.IStopsRepository;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -19,11 +28,14 @@ import org.springframework.data.jpa.domain.Specification;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +50,18 @@ class PassengerCountServiceTest {
     @Mock
     private IStopsRepository stopsRepository;
 
+    @Mock
+    private IStopRollupDirtyRepository rollupDirtyRepository;
+
+    @Mock
+    private IReferenceDataRegistry referenceDataRegistry;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private PassengerCountService passengerCountService;
 
@@ -58,45 +82,74 @@ class PassengerCountServiceTest {
 
     @Test
     void testCreateCountFromDTOSuccess() {
-        when(busRepository.findById(1L)).thenReturn(Optional.of(bus));
-        when(stopsRepository.findById(1L)).thenReturn(Optional.of(stop));
+        givenReferenceData(List.of(bus), List.of(stop));
+        when(busRepository.getReferenceById(1L)).thenReturn(bus);
+        when(stopsRepository.getReferenceById(1L)).thenReturn(stop);
         when(passengerCountRepository.save(any(PassengerCount.class))).thenReturn(passengerCount);
 
         var result = passengerCountService.createCountFromDTO(passengerCountDTO);
 
         assertCountIsCorrect(result);
-        verify(busRepository).findById(1L);
-        verify(stopsRepository).findById(1L);
+        verify(busRepository).getReferenceById(1L);
+        verify(stopsRepository).getReferenceById(1L);
+        verify(busRepository, never()).findById(any());
+        verify(stopsRepository, never()).findById(any());
         verify(passengerCountRepository).save(any(PassengerCount.class));
+        verify(rollupDirtyRepository).save(queued(1L, null, LocalDateTime.of(2025, 9, 12, 12, 0)));
+        verify(eventPublisher).publishEvent(
+                new PassengerCountIngestedEvent(1L, 1L, LocalDateTime.of(2025, 9, 12, 12, 0), 10, 5));
+        assertThat(ingestCount("accepted")).isEqualTo(1.0);
     }
 
     @Test
     void testCreateCountFromDTOBusNotFound() {
-        when(busRepository.findById(1L)).thenReturn(Optional.empty());
+        givenReferenceData(List.of(), List.of(stop));
+        when(busRepository.existsById(1L)).thenReturn(false);
 
         assertThatThrownBy(() -> passengerCountService.createCountFromDTO(passengerCountDTO))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Bus not found with id: 1");
-        verify(busRepository).findById(1L);
-        verify(stopsRepository, never()).findById(any());
+        verify(busRepository, never()).getReferenceById(any());
+        verify(referenceDataRegistry, never()).invalidate();
+        verifyNoInteractions(stopsRepository);
         verify(passengerCountRepository, never()).save(any());
     }
 
     @Test
     void testCreateCountFromDTOStopNotFound() {
-        when(busRepository.findById(1L)).thenReturn(Optional.of(bus));
-        when(stopsRepository.findById(1L)).thenReturn(Optional.empty());
+        givenReferenceData(List.of(bus), List.of());
+        when(stopsRepository.existsById(1L)).thenReturn(false);
 
         assertThatThrownBy(() -> passengerCountService.createCountFromDTO(passengerCountDTO))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Stop not found with id: 1");
-        verify(busRepository).findById(1L);
-        verify(stopsRepository).findById(1L);
+        verify(stopsRepository, never()).getReferenceById(any());
         verify(passengerCountRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
+        assertThat(ingestCount("rejected")).isEqualTo(1.0);
+        assertThat(ingestCount("accepted")).isZero();
+    }
+
+    @Test
+    void testCreateCountFromDTOAcceptsBusAndStopMissingFromSnapshotButPresentInDatabase() {
+        givenReferenceData(List.of(), List.of());
+        when(busRepository.existsById(1L)).thenReturn(true);
+        when(stopsRepository.existsById(1L)).thenReturn(true);
+        when(busRepository.getReferenceById(1L)).thenReturn(bus);
+        when(stopsRepository.getReferenceById(1L)).thenReturn(stop);
+        when(passengerCountRepository.save(any(PassengerCount.class))).thenReturn(passengerCount);
+
+        var result = passengerCountService.createCountFromDTO(passengerCountDTO);
+
+        assertCountIsCorrect(result);
+        verify(referenceDataRegistry, times(2)).invalidate();
+        assertThat(ingestCount("accepted")).isEqualTo(1.0);
+        assertThat(ingestCount("rejected")).isZero();
     }
 
     @Test
     void testGetCountByIdSuccess() {
+        givenReferenceData(List.of(bus), List.of(stop));
         when(passengerCountRepository.findById(1L)).thenReturn(Optional.of(passengerCount));
 
         var result = passengerCountService.getCountById(1L);
@@ -118,6 +171,7 @@ class PassengerCountServiceTest {
 
     @Test
     void testGetCountsByFilters() {
+        givenReferenceData(List.of(bus), List.of(stop));
         var pageable = PageRequest.of(0, 20);
         var page = new PageImpl<>(List.of(passengerCount), pageable, 1);
         when(passengerCountRepository.findAll(any(Specification.class), any(Pageable.class)))
@@ -141,6 +195,7 @@ class PassengerCountServiceTest {
     void testUpdateCountSuccess() {
         var updateDTO = createDefaultUpdateDTO();
         var updatedCount = new PassengerCount(1L, bus, stop, 15, 8, updateDTO.getTimestamp());
+        givenReferenceData(List.of(bus), List.of(stop));
         when(passengerCountRepository.findById(1L)).thenReturn(Optional.of(passengerCount));
         when(passengerCountRepository.save(any(PassengerCount.class))).thenReturn(updatedCount);
 
@@ -156,16 +211,24 @@ class PassengerCountServiceTest {
         var newBus = createBusWithModel(2L, 2L, "New Bus", route);
         var updateDTO = createPassengerCountDTO(2L, 1L, 15, 8, LocalDateTime.of(2025, 9, 12, 13, 0));
         var updatedCount = new PassengerCount(1L, newBus, stop, 15, 8, updateDTO.getTimestamp());
+        givenReferenceData(List.of(bus, newBus), List.of(stop));
         when(passengerCountRepository.findById(1L)).thenReturn(Optional.of(passengerCount));
-        when(busRepository.findById(2L)).thenReturn(Optional.of(newBus));
+        when(busRepository.getReferenceById(2L)).thenReturn(newBus);
         when(passengerCountRepository.save(any(PassengerCount.class))).thenReturn(updatedCount);
 
         var result = passengerCountService.updateCount(1L, updateDTO);
 
         assertCountIsCorrect(result, updatedCount, newBus, stop, route);
         verify(passengerCountRepository).findById(1L);
-        verify(busRepository).findById(2L);
+        verify(busRepository).getReferenceById(2L);
         verify(passengerCountRepository).save(any(PassengerCount.class));
+        var queued = ArgumentCaptor.<Iterable<StopRollupDirty>>captor();
+        verify(rollupDirtyRepository).saveAll(queued.capture());
+        assertThat(queued.getValue())
+                .extracting(StopRollupDirty::getBusId, StopRollupDirty::getStopId, StopRollupDirty::getFromTime)
+                .containsExactly(
+                        tuple(1L, 1L, LocalDateTime.of(2025, 9, 12, 12, 0)),
+                        tuple(2L, null, LocalDateTime.of(2025, 9, 12, 13, 0)));
     }
 
     @Test
@@ -173,15 +236,16 @@ class PassengerCountServiceTest {
         var newStop = createStop(2L, "New Stop", 61.0, 25.0, route);
         var updateDTO = createPassengerCountDTO(1L, 2L, 15, 8, LocalDateTime.of(2025, 9, 12, 13, 0));
         var updatedCount = new PassengerCount(1L, bus, newStop, 15, 8, updateDTO.getTimestamp());
+        givenReferenceData(List.of(bus), List.of(stop, newStop));
         when(passengerCountRepository.findById(1L)).thenReturn(Optional.of(passengerCount));
-        when(stopsRepository.findById(2L)).thenReturn(Optional.of(newStop));
+        when(stopsRepository.getReferenceById(2L)).thenReturn(newStop);
         when(passengerCountRepository.save(any(PassengerCount.class))).thenReturn(updatedCount);
 
         var result = passengerCountService.updateCount(1L, updateDTO);
 
         assertCountIsCorrect(result, updatedCount, bus, newStop, route);
         verify(passengerCountRepository).findById(1L);
-        verify(stopsRepository).findById(2L);
+        verify(stopsRepository).getReferenceById(2L);
         verify(passengerCountRepository).save(any(PassengerCount.class));
     }
 
@@ -201,51 +265,63 @@ class PassengerCountServiceTest {
     @Test
     void testUpdateCountBusNotFound() {
         var updateDTO = createPassengerCountDTO(999L, 1L, 15, 8, LocalDateTime.of(2025, 9, 12, 13, 0));
+        givenReferenceData(List.of(bus), List.of(stop));
         when(passengerCountRepository.findById(1L)).thenReturn(Optional.of(passengerCount));
-        when(busRepository.findById(999L)).thenReturn(Optional.empty());
+        when(busRepository.existsById(999L)).thenReturn(false);
 
         assertThatThrownBy(() -> passengerCountService.updateCount(1L, updateDTO))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Bus not found with id: 999");
         verify(passengerCountRepository).findById(1L);
-        verify(busRepository).findById(999L);
+        verify(busRepository, never()).getReferenceById(any());
         verify(passengerCountRepository, never()).save(any());
     }
 
     @Test
     void testUpdateCountStopNotFound() {
         var updateDTO = createPassengerCountDTO(1L, 999L, 15, 8, LocalDateTime.of(2025, 9, 12, 13, 0));
+        givenReferenceData(List.of(bus), List.of(stop));
         when(passengerCountRepository.findById(1L)).thenReturn(Optional.of(passengerCount));
-        when(stopsRepository.findById(999L)).thenReturn(Optional.empty());
+        when(stopsRepository.existsById(999L)).thenReturn(false);
 
         assertThatThrownBy(() -> passengerCountService.updateCount(1L, updateDTO))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Stop not found with id: 999");
         verify(passengerCountRepository).findById(1L);
-        verify(stopsRepository).findById(999L);
+        verify(stopsRepository, never()).getReferenceById(any());
         verify(passengerCountRepository, never()).save(any());
     }
 
     @Test
     void testDeleteCountSuccess() {
-        when(passengerCountRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(passengerCountRepository).deleteById(1L);
+        when(passengerCountRepository.findById(1L)).thenReturn(Optional.of(passengerCount));
 
         passengerCountService.deleteCount(1L);
 
-        verify(passengerCountRepository).existsById(1L);
-        verify(passengerCountRepository).deleteById(1L);
+        verify(passengerCountRepository).delete(passengerCount);
+        verify(rollupDirtyRepository).save(queued(1L, 1L, LocalDateTime.of(2025, 9, 12, 12, 0)));
     }
 
     @Test
     void testDeleteCountNotFound() {
-        when(passengerCountRepository.existsById(999L)).thenReturn(false);
+        when(passengerCountRepository.findById(999L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> passengerCountService.deleteCount(999L))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("PassengerCount not found with id: 999");
-        verify(passengerCountRepository).existsById(999L);
-        verify(passengerCountRepository, never()).deleteById(any());
+        verify(passengerCountRepository, never()).delete(any(PassengerCount.class));
+        verifyNoInteractions(rollupDirtyRepository);
+    }
+
+    private static StopRollupDirty queued(Long busId, Long stopId, LocalDateTime fromTime) {
+        return argThat(dirty -> busId.equals(dirty.getBusId()) && Objects.equals(stopId, dirty.getStopId())
+                && fromTime.equals(dirty.getFromTime()));
+    }
+
+    private void givenReferenceData(List<Bus> buses, List<Stop> stops) {
+        var models = buses.stream().map(Bus::getBusModel).toList();
+        when(referenceDataRegistry.current())
+                .thenReturn(ReferenceDataSnapshot.of(1, 1, List.of(route), stops, buses, models));
     }
 
     private PassengerCountDTO createPassengerCountDTO(Long busId, Long stopId, Integer entered, Integer exited, LocalDateTime timestamp) {
@@ -291,4 +367,8 @@ class PassengerCountServiceTest {
         assertThat(dto.getStopName()).isEqualTo(expectedStop.getName());
         assertThat(dto.getRouteName()).isEqualTo(expectedRoute.getName());
     }
-}
\ No newline at end of file
+
+    private double ingestCount(String result) {
+        return meterRegistry.get("passengerflow.ingest.records").tag("result", result).counter().count();
+    }
+}
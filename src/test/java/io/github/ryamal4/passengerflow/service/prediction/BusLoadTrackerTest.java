@@ -0,0 +1,60 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BusLoadTrackerTest {
+    private static final LocalDateTime MONDAY_MORNING = LocalDateTime.of(2025, 9, 15, 8, 0);
+
+    private final List<LocalDateTime[]> lookups = new ArrayList<>();
+
+    @Test
+    void testFirstCountOfServiceDayReadsTheDaySoFarAndLaterCountsAreAdded() {
+        var tracker = new BusLoadTracker((busId, from, to) -> {
+            lookups.add(new LocalDateTime[]{from, to});
+            return 12;
+        });
+
+        assertThat(tracker.loadAfter(1L, MONDAY_MORNING, 5, 0)).isEqualTo(12);
+        assertThat(tracker.loadAfter(1L, MONDAY_MORNING.plusMinutes(5), 3, 10)).isEqualTo(5);
+        assertThat(tracker.loadAfter(1L, MONDAY_MORNING.plusMinutes(9), 0, 5)).isZero();
+
+        assertThat(lookups).singleElement().satisfies(lookup -> {
+            assertThat(lookup[0]).isEqualTo(LocalDateTime.of(2025, 9, 15, 4, 0));
+            assertThat(lookup[1]).isEqualTo(MONDAY_MORNING);
+        });
+    }
+
+    @Test
+    void testServiceDayStartsAtFourAndBusesAreIndependent() {
+        var tracker = new BusLoadTracker((busId, from, to) -> {
+            lookups.add(new LocalDateTime[]{from, to});
+            return 0;
+        });
+
+        tracker.loadAfter(1L, LocalDateTime.of(2025, 9, 15, 3, 50), 30, 0);
+        assertThat(tracker.loadAfter(1L, LocalDateTime.of(2025, 9, 15, 3, 55), 5, 0)).isEqualTo(5);
+        assertThat(tracker.loadAfter(1L, LocalDateTime.of(2025, 9, 15, 4, 5), 7, 0)).isZero();
+        assertThat(tracker.loadAfter(1L, LocalDateTime.of(2025, 9, 15, 4, 10), 7, 0)).isEqualTo(7);
+        tracker.loadAfter(2L, LocalDateTime.of(2025, 9, 15, 4, 10), 1, 0);
+
+        assertThat(lookups).extracting(lookup -> lookup[0]).containsExactly(
+                LocalDateTime.of(2025, 9, 14, 4, 0),
+                LocalDateTime.of(2025, 9, 15, 4, 0),
+                LocalDateTime.of(2025, 9, 15, 4, 0));
+    }
+
+    @Test
+    void testLateCountIsReadFromDatabaseAndStillCountsTowardsLaterLoad() {
+        var tracker = new BusLoadTracker((busId, from, to) -> to.equals(MONDAY_MORNING) ? 10 : 4);
+
+        tracker.loadAfter(1L, MONDAY_MORNING, 10, 0);
+        assertThat(tracker.loadAfter(1L, MONDAY_MORNING.minusMinutes(30), 4, 0)).isEqualTo(4);
+        assertThat(tracker.loadAfter(1L, MONDAY_MORNING.plusMinutes(5), 1, 0)).isEqualTo(15);
+    }
+}
@@ -1,9 +1,18 @@
 package io.github.ryamal4.passengerflow.service.prediction;
 
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
+import io.github.ryamal4.passengerflow.exception.AppException;
 import io.github.ryamal4.passengerflow.model.PassengerCountAggregation;
 import io.github.ryamal4.passengerflow.model.Route;
 import io.github.ryamal4.passengerflow.model.Stop;
 import io.github.ryamal4.passengerflow.repository.IPassengerCountAggregationRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.AggregatedSlot;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.SlotKey;
+import io.github.ryamal4.passengerflow.service.aggregation.OccupancyHistogram;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
+import io.github.ryamal4.passengerflow.service.weather.HourlyForecast;
 import io.github.ryamal4.passengerflow.service.weather.IWeatherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,13 +21,23 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,34 +45,44 @@ class OccupancyPredictionServiceTest {
 
     private static final String ROUTE_NAME = "7A";
     private static final String STOP_NAME = "Central Station";
+    private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
+    private static final int RAIN_CODE = 61;
 
     @Mock
     private IPassengerCountAggregationRepository aggregationRepository;
 
+    @Mock
+    private PredictionSlotRepository slotRepository;
+
     @Mock
     private IWeatherService weatherService;
 
+    @Mock
+    private IReferenceDataRegistry referenceDataRegistry;
+
     @InjectMocks
     private OccupancyPredictionService predictionService;
 
     private Route route;
     private Stop stop;
+    private Stop stop2;
 
     @BeforeEach
     void setUp() {
         route = new Route(1L, ROUTE_NAME, List.of(), List.of());
         stop = new Stop(1L, STOP_NAME, 55.7558, 37.6173, route, List.of());
+        stop2 = new Stop(2L, "Downtown", 55.7558, 37.6173, route, List.of());
+        when(referenceDataRegistry.current()).thenReturn(
+                ReferenceDataSnapshot.of(1, 1, List.of(route), List.of(stop, stop2), List.of(), List.of()));
     }
 
     @Test
     void testGetPredictionReturnsDataWithoutRain() {
         var aggregation = createAggregation(stop, 15, 0, 45.0);
 
-        when(aggregationRepository.findByRouteAndStopAndTime(
-                eq(ROUTE_NAME), eq(STOP_NAME), anyInt(), eq(15), eq(0)
-        )).thenReturn(Optional.of(aggregation));
+        when(aggregationRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(0))).thenReturn(Optional.of(aggregation));
 
-        when(weatherService.isRaining(any(), anyDouble(), anyDouble(), any())).thenReturn(false);
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(forecast(0));
 
         var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), true);
 
@@ -67,11 +96,9 @@ class OccupancyPredictionServiceTest {
     void testGetPredictionAddsRainBonus() {
         var aggregation = createAggregation(stop, 15, 0, 45.0);
 
-        when(aggregationRepository.findByRouteAndStopAndTime(
-                eq(ROUTE_NAME), eq(STOP_NAME), anyInt(), eq(15), eq(0)
-        )).thenReturn(Optional.of(aggregation));
+        when(aggregationRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(0))).thenReturn(Optional.of(aggregation));
 
-        when(weatherService.isRaining(any(), anyDouble(), anyDouble(), any())).thenReturn(true);
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(forecast(RAIN_CODE));
 
         var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), true);
 
@@ -79,15 +106,49 @@ class OccupancyPredictionServiceTest {
         assertThat(result.get().getOccupancyPercentage()).isEqualTo(65.0);
     }
 
+    @Test
+    void testGetPredictionReportsPercentilesFromHistogram() {
+        var histogram = new OccupancyHistogram();
+        for (int i = 0; i < 8; i++) {
+            histogram.add(12.0);
+        }
+        histogram.add(97.0);
+        histogram.add(97.0);
+        var aggregation = createAggregation(stop, 15, 0, 20.5);
+        aggregation.setOccupancyHistogram(histogram.toBytes());
+
+        when(aggregationRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(0))).thenReturn(Optional.of(aggregation));
+
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(forecast(RAIN_CODE));
+
+        var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), true);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getOccupancyPercentage()).isEqualTo(40.5);
+        assertThat(result.get().getP50OccupancyPercentage()).isBetween(30.0, 35.0);
+        assertThat(result.get().getP90OccupancyPercentage()).isBetween(115.0, 120.0);
+    }
+
+    @Test
+    void testGetPredictionWithoutHistogramHasNoPercentiles() {
+        var aggregation = createAggregation(stop, 15, 0, 45.0);
+
+        when(aggregationRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(0))).thenReturn(Optional.of(aggregation));
+
+        var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), false);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getP50OccupancyPercentage()).isNull();
+        assertThat(result.get().getP90OccupancyPercentage()).isNull();
+    }
+
     @Test
     void testGetPredictionAllowsOccupancyOver100() {
         var aggregation = createAggregation(stop, 15, 0, 90.0);
 
-        when(aggregationRepository.findByRouteAndStopAndTime(
-                eq(ROUTE_NAME), eq(STOP_NAME), anyInt(), eq(15), eq(0)
-        )).thenReturn(Optional.of(aggregation));
+        when(aggregationRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(0))).thenReturn(Optional.of(aggregation));
 
-        when(weatherService.isRaining(any(), anyDouble(), anyDouble(), any())).thenReturn(true);
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(forecast(RAIN_CODE));
 
         var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), true);
 
@@ -97,24 +158,29 @@ class OccupancyPredictionServiceTest {
 
     @Test
     void testGetPredictionReturnsEmptyWhenNoAggregationData() {
-        when(aggregationRepository.findByRouteAndStopAndTime(
-                anyString(), anyString(), anyInt(), anyInt(), anyInt()
-        )).thenReturn(Optional.empty());
+        when(aggregationRepository.findByStopAndTime(anyLong(), anyInt(), anyInt(), anyInt()))
+                .thenReturn(Optional.empty());
 
         var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), true);
 
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void testGetPredictionForUnknownStopSkipsRepository() {
+        var result = predictionService.getPrediction(ROUTE_NAME, "Unknown", LocalTime.of(15, 0), true);
+
+        assertThat(result).isEmpty();
+        verifyNoInteractions(aggregationRepository);
+    }
+
     @Test
     void testGetPredictionRoundsMinutesToNearestFive() {
         var aggregation = createAggregation(stop, 15, 0, 45.0);
 
-        when(aggregationRepository.findByRouteAndStopAndTime(
-                eq(ROUTE_NAME), eq(STOP_NAME), anyInt(), eq(15), eq(0)
-        )).thenReturn(Optional.of(aggregation));
+        when(aggregationRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(0))).thenReturn(Optional.of(aggregation));
 
-        when(weatherService.isRaining(any(), anyDouble(), anyDouble(), any())).thenReturn(false);
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(forecast(0));
 
         var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 3), true);
 
@@ -125,9 +191,7 @@ class OccupancyPredictionServiceTest {
     void testGetPredictionWithoutWeatherSkipsWeatherService() {
         var aggregation = createAggregation(stop, 15, 0, 45.0);
 
-        when(aggregationRepository.findByRouteAndStopAndTime(
-                eq(ROUTE_NAME), eq(STOP_NAME), anyInt(), eq(15), eq(0)
-        )).thenReturn(Optional.of(aggregation));
+        when(aggregationRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(0))).thenReturn(Optional.of(aggregation));
 
         var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), false);
 
@@ -138,14 +202,13 @@ class OccupancyPredictionServiceTest {
 
     @Test
     void testGetTodayPredictionsReturnsAllStopsForRoute() {
-        var stop2 = new Stop(2L, "Downtown", 55.7558, 37.6173, route, List.of());
         var aggregation1 = createAggregation(stop, 8, 0, 45.0);
         var aggregation2 = createAggregation(stop2, 9, 0, 60.0);
 
-        when(aggregationRepository.findByRouteAndDayOfWeek(eq(ROUTE_NAME), anyInt()))
+        when(aggregationRepository.findByStopIdsAndDayOfWeek(eq(List.of(1L, 2L)), anyInt()))
                 .thenReturn(List.of(aggregation1, aggregation2));
 
-        when(weatherService.isRaining(any(), anyDouble(), anyDouble(), any())).thenReturn(false);
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(HourlyForecast.empty());
 
         var result = predictionService.getTodayPredictions(ROUTE_NAME, true);
 
@@ -160,7 +223,7 @@ class OccupancyPredictionServiceTest {
     void testGetTodayPredictionsWithoutWeatherSkipsWeatherService() {
         var aggregation = createAggregation(stop, 8, 0, 45.0);
 
-        when(aggregationRepository.findByRouteAndDayOfWeek(eq(ROUTE_NAME), anyInt()))
+        when(aggregationRepository.findByStopIdsAndDayOfWeek(eq(List.of(1L, 2L)), anyInt()))
                 .thenReturn(List.of(aggregation));
 
         var result = predictionService.getTodayPredictions(ROUTE_NAME, false);
@@ -170,7 +233,81 @@ class OccupancyPredictionServiceTest {
         verifyNoInteractions(weatherService);
     }
 
+    @Test
+    void testGetDayPredictionsIndexesOneForecastPerGridCell() {
+        var today = LocalDate.now(MOSCOW_ZONE_ID);
+        var date = today.plusDays(3);
+        var weatherCodes = new ArrayList<>(Collections.nCopies(IWeatherService.FORECAST_DAYS * 24, 0));
+        weatherCodes.set(3 * 24 + 8, 61);
+
+        when(aggregationRepository.findByStopIdsAndDayOfWeek(List.of(1L, 2L), date.getDayOfWeek().getValue()))
+                .thenReturn(List.of(createAggregation(stop, 8, 0, 45.0), createAggregation(stop2, 9, 0, 60.0)));
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any()))
+                .thenReturn(HourlyForecast.of(today, weatherCodes));
+
+        var result = predictionService.getDayPredictions(ROUTE_NAME, date, true);
+
+        assertThat(result).extracting("occupancyPercentage").containsExactly(65.0, 60.0);
+        verify(weatherService, times(1)).getForecast(anyDouble(), anyDouble(), any());
+        verifyNoMoreInteractions(weatherService);
+    }
+
+    @Test
+    void testGetDayPredictionsRejectsDateBeyondHorizon() {
+        var date = LocalDate.now(MOSCOW_ZONE_ID).plusDays(PredictionHorizon.MAX_DAYS_AHEAD + 1);
+
+        assertThatThrownBy(() -> predictionService.getDayPredictions(ROUTE_NAME, date, true))
+                .isInstanceOf(AppException.class);
+        verifyNoInteractions(aggregationRepository, weatherService);
+    }
+
+    @Test
+    void testGetBatchPredictionsReadsSlotsOnceAndChecksWeatherOncePerGridCell() {
+        var monday = LocalDate.now(MOSCOW_ZONE_ID).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        when(slotRepository.findAggregatedSlots(List.of(new SlotKey(1L, 1, 15, 0), new SlotKey(2L, 1, 15, 5))))
+                .thenReturn(List.of(
+                        new AggregatedSlot(new SlotKey(1L, 1, 15, 0), 45.0, null),
+                        new AggregatedSlot(new SlotKey(2L, 1, 15, 5), 30.0, null)));
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(forecast(RAIN_CODE));
+
+        var result = predictionService.getBatchPredictions(List.of(
+                new PredictionQueryDTO(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 2), monday),
+                new PredictionQueryDTO(ROUTE_NAME, "Downtown", LocalTime.of(15, 7), monday),
+                new PredictionQueryDTO(ROUTE_NAME, "Unknown", LocalTime.of(15, 0), monday)), true);
+
+        assertThat(result).extracting("stop").containsExactly(STOP_NAME, "Downtown", "Unknown");
+        assertThat(result).extracting("occupancyPercentage").containsExactly(65.0, 50.0, null);
+        assertThat(result.get(0).getTime()).isEqualTo(LocalTime.of(15, 2));
+        verify(weatherService, times(1)).getForecast(anyDouble(), anyDouble(), any());
+    }
+
+    @Test
+    void testGetBatchPredictionsRejectsOversizedBatch() {
+        var queries = Collections.nCopies(BatchPredictionResolver.MAX_QUERIES + 1,
+                new PredictionQueryDTO(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), null));
+
+        assertThatThrownBy(() -> predictionService.getBatchPredictions(queries, false))
+                .isInstanceOf(AppException.class);
+        verifyNoInteractions(slotRepository, weatherService);
+    }
+
+    @Test
+    void testGetBatchPredictionsRejectsDateBeyondHorizon() {
+        var date = LocalDate.now(MOSCOW_ZONE_ID).plusDays(PredictionHorizon.MAX_DAYS_AHEAD + 1);
+
+        assertThatThrownBy(() -> predictionService.getBatchPredictions(List.of(
+                new PredictionQueryDTO(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), null),
+                new PredictionQueryDTO(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 0), date)), true))
+                .isInstanceOf(AppException.class);
+        verifyNoInteractions(slotRepository, weatherService);
+    }
+
     private PassengerCountAggregation createAggregation(Stop stop, int hour, int minute, double occupancy) {
-        return new PassengerCountAggregation(1L, stop, 1, hour, minute, occupancy);
+        return new PassengerCountAggregation(1L, stop, 1, hour, minute, occupancy, null);
+    }
+
+    private static HourlyForecast forecast(int weatherCode) {
+        return HourlyForecast.of(LocalDate.now(MOSCOW_ZONE_ID),
+                Collections.nCopies(IWeatherService.FORECAST_DAYS * 24, weatherCode));
     }
 }
@@ -0,0 +1,134 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.event.PassengerCountIngestedEvent;
+import io.github.ryamal4.passengerflow.model.Bus;
+import io.github.ryamal4.passengerflow.model.BusModel;
+import io.github.ryamal4.passengerflow.model.OccupancyEstimate;
+import io.github.ryamal4.passengerflow.model.Route;
+import io.github.ryamal4.passengerflow.model.Stop;
+import io.github.ryamal4.passengerflow.repository.IOccupancyEstimateRepository;
+import io.github.ryamal4.passengerflow.repository.IPassengerCountRepository;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OnlineOccupancyModelTest {
+    private static final LocalDateTime MONDAY_MORNING = LocalDateTime.of(2025, 9, 15, 8, 7);
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    @Mock
+    private IOccupancyEstimateRepository estimateRepository;
+    @Mock
+    private IPassengerCountRepository passengerCountRepository;
+    @Mock
+    private IReferenceDataRegistry referenceDataRegistry;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OnlineOccupancyModel model;
+
+    @BeforeEach
+    void setUp() {
+        model = new OnlineOccupancyModel(estimateRepository, passengerCountRepository, referenceDataRegistry,
+                transactionManager, 168);
+    }
+
+    @Test
+    void testObservationUpdatesSlotWithRunningLoadAsPercentageOfCapacity() {
+        givenBusWithCapacity(80);
+        when(passengerCountRepository.sumLoadBetween(eq(1L), any(), eq(MONDAY_MORNING))).thenReturn(20L);
+        var estimate = newEstimate();
+        when(estimateRepository.findSlotForUpdate(10L, 1, 8, 5)).thenReturn(Optional.of(estimate));
+
+        model.observe(new PassengerCountIngestedEvent(1L, 10L, MONDAY_MORNING, 20, 0));
+        model.observe(new PassengerCountIngestedEvent(1L, 10L, MONDAY_MORNING.plusSeconds(30), 20, 0));
+
+        verify(estimateRepository, times(2)).insertIfMissing(eq(10L), eq(1), eq(8), eq(5), any());
+        verify(passengerCountRepository).sumLoadBetween(anyLong(), any(), any());
+        assertThat(estimate.getMean()).isCloseTo((25.0 + 50.0) / 2, within(0.01));
+        assertThat(estimate.getWeight()).isCloseTo(2.0, within(0.001));
+    }
+
+    @Test
+    void testBusWithoutCapacityIsNotObserved() {
+        givenBusWithCapacity(null);
+
+        model.observe(new PassengerCountIngestedEvent(1L, 10L, MONDAY_MORNING, 5, 0));
+
+        verifyNoInteractions(estimateRepository);
+    }
+
+    @Test
+    void testFirstObservationBecomesTheMean() {
+        var estimate = newEstimate();
+
+        estimate.observe(40.0, MONDAY_MORNING, WEEK);
+
+        assertThat(estimate.getMean()).isEqualTo(40.0);
+        assertThat(estimate.getVariance()).isZero();
+        assertThat(estimate.getWeight()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testSameDayObservationsAreWeightedEquallyWithPopulationVariance() {
+        var estimate = newEstimate();
+
+        estimate.observe(10.0, MONDAY_MORNING, WEEK);
+        estimate.observe(20.0, MONDAY_MORNING, WEEK);
+        estimate.observe(30.0, MONDAY_MORNING, WEEK);
+
+        assertThat(estimate.getMean()).isCloseTo(20.0, within(1e-9));
+        assertThat(estimate.getVariance()).isCloseTo(200.0 / 3, within(1e-9));
+    }
+
+    @Test
+    void testOlderObservationsFadeWithHalfLife() {
+        var estimate = newEstimate();
+        estimate.observe(20.0, MONDAY_MORNING, WEEK);
+
+        estimate.observe(80.0, MONDAY_MORNING.plusWeeks(1), WEEK);
+
+        // the week-old observation keeps half its weight: (0.5 * 20 + 80) / 1.5
+        assertThat(estimate.getMean()).isCloseTo(60.0, within(1e-9));
+        assertThat(estimate.getWeight()).isCloseTo(1.5, within(1e-9));
+        assertThat(estimate.getObservedAt()).isEqualTo(MONDAY_MORNING.plusWeeks(1));
+
+        for (int week = 2; week <= 4; week++) {
+            estimate.observe(80.0, MONDAY_MORNING.plusWeeks(week), WEEK);
+        }
+        assertThat(estimate.getMean()).isGreaterThan(78.0);
+    }
+
+    private void givenBusWithCapacity(Integer capacity) {
+        var route = new Route(1L, "7A", List.of(), List.of());
+        var busModel = new BusModel();
+        busModel.setId(1L);
+        busModel.setName("Model");
+        busModel.setCapacity(capacity);
+        var bus = new Bus(1L, busModel, route, List.of());
+        var stop = new Stop(10L, "Central", 55.0, 37.0, route, List.of());
+        when(referenceDataRegistry.current()).thenReturn(
+                ReferenceDataSnapshot.of(1, 1, List.of(route), List.of(stop), List.of(bus), List.of(busModel)));
+    }
+
+    private OccupancyEstimate newEstimate() {
+        return new OccupancyEstimate(1L, null, 1, 8, 5, 0.0, 0.0, 0.0, MONDAY_MORNING);
+    }
+}
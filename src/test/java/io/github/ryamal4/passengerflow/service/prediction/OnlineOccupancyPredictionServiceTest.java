@@ -0,0 +1,126 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.dto.PredictionQueryDTO;
+import io.github.ryamal4.passengerflow.model.OccupancyEstimate;
+import io.github.ryamal4.passengerflow.model.Route;
+import io.github.ryamal4.passengerflow.model.Stop;
+import io.github.ryamal4.passengerflow.repository.IOccupancyEstimateRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.EstimatedSlot;
+import io.github.ryamal4.passengerflow.repository.PredictionSlotRepository.SlotKey;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
+import io.github.ryamal4.passengerflow.service.weather.HourlyForecast;
+import io.github.ryamal4.passengerflow.service.weather.IWeatherService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OnlineOccupancyPredictionServiceTest {
+    private static final String ROUTE_NAME = "7A";
+    private static final String STOP_NAME = "Central Station";
+    private static final ZoneId MOSCOW_ZONE_ID = ZoneId.of("Europe/Moscow");
+    private static final int RAIN_CODE = 61;
+
+    @Mock
+    private IOccupancyEstimateRepository estimateRepository;
+
+    @Mock
+    private PredictionSlotRepository slotRepository;
+
+    @Mock
+    private IWeatherService weatherService;
+
+    @Mock
+    private IReferenceDataRegistry referenceDataRegistry;
+
+    @InjectMocks
+    private OnlineOccupancyPredictionService predictionService;
+
+    private Stop stop;
+    private Stop stop2;
+
+    @BeforeEach
+    void setUp() {
+        var route = new Route(1L, ROUTE_NAME, List.of(), List.of());
+        stop = new Stop(1L, STOP_NAME, 55.7558, 37.6173, route, List.of());
+        stop2 = new Stop(2L, "Downtown", 55.7558, 37.6173, route, List.of());
+        when(referenceDataRegistry.current()).thenReturn(
+                ReferenceDataSnapshot.of(1, 1, List.of(route), List.of(stop, stop2), List.of(), List.of()));
+    }
+
+    @Test
+    void testGetPredictionReturnsWeightedMeanAndSpread() {
+        when(estimateRepository.findByStopAndTime(eq(1L), anyInt(), eq(15), eq(5)))
+                .thenReturn(Optional.of(createEstimate(stop, 15, 5, 40.0, 100.0)));
+        when(weatherService.getForecast(anyDouble(), anyDouble(), any())).thenReturn(forecast(RAIN_CODE));
+
+        var result = predictionService.getPrediction(ROUTE_NAME, STOP_NAME, LocalTime.of(15, 7), true);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getTime()).isEqualTo(LocalTime.of(15, 7));
+        assertThat(result.get().getOccupancyPercentage()).isEqualTo(60.0);
+        assertThat(result.get().getP50OccupancyPercentage()).isEqualTo(60.0);
+        assertThat(result.get().getP90OccupancyPercentage()).isCloseTo(72.8, within(0.05));
+    }
+
+    @Test
+    void testGetTodayPredictionsWithoutWeatherSkipsWeatherService() {
+        when(estimateRepository.findByStopIdsAndDayOfWeek(eq(List.of(1L, 2L)), anyInt())).thenReturn(List.of(
+                createEstimate(stop2, 8, 0, 30.0, 0.0),
+                createEstimate(stop, 9, 0, 50.0, 0.0)));
+
+        var result = predictionService.getTodayPredictions(ROUTE_NAME, false);
+
+        assertThat(result).extracting("stopName").containsExactly(STOP_NAME, "Downtown");
+        assertThat(result).extracting("occupancyPercentage").containsExactly(50.0, 30.0);
+        verifyNoInteractions(weatherService);
+    }
+
+    @Test
+    void testGetBatchPredictionsMatchesEstimatesBySlot() {
+        var monday = LocalDate.now(MOSCOW_ZONE_ID).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        when(slotRepository.findEstimatedSlots(List.of(
+                new SlotKey(1L, 1, 9, 10), new SlotKey(1L, 1, 8, 0), new SlotKey(1L, 1, 8, 30)))).thenReturn(List.of(
+                new EstimatedSlot(new SlotKey(1L, 1, 8, 0), 30.0, 0.0),
+                new EstimatedSlot(new SlotKey(1L, 1, 9, 10), 50.0, 0.0)));
+
+        var result = predictionService.getBatchPredictions(List.of(
+                new PredictionQueryDTO(ROUTE_NAME, STOP_NAME, LocalTime.of(9, 12), monday),
+                new PredictionQueryDTO(ROUTE_NAME, STOP_NAME, LocalTime.of(8, 3), monday),
+                new PredictionQueryDTO(ROUTE_NAME, STOP_NAME, LocalTime.of(8, 30), monday)), false);
+
+        assertThat(result).extracting("occupancyPercentage").containsExactly(50.0, 30.0, null);
+        assertThat(result).extracting("p90OccupancyPercentage").containsExactly(50.0, 30.0, null);
+        verifyNoInteractions(weatherService);
+    }
+
+    private OccupancyEstimate createEstimate(Stop stop, int hour, int minute, double mean, double variance) {
+        return new OccupancyEstimate(1L, stop, 1, hour, minute, mean, variance, 3.0, LocalDateTime.now());
+    }
+
+    private static HourlyForecast forecast(int weatherCode) {
+        return HourlyForecast.of(LocalDate.now(MOSCOW_ZONE_ID),
+                Collections.nCopies(IWeatherService.FORECAST_DAYS * 24, weatherCode));
+    }
+}
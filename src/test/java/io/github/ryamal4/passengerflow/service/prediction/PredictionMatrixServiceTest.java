@@ -0,0 +1,94 @@
+package io.github.ryamal4.passengerflow.service.prediction;
+
+import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
+import io.github.ryamal4.passengerflow.dto.PredictionMatrixDTO;
+import io.github.ryamal4.passengerflow.model.Route;
+import io.github.ryamal4.passengerflow.model.Stop;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PredictionMatrixServiceTest {
+    private static final String ROUTE_NAME = "7A";
+    private static final LocalDate DATE = LocalDate.of(2025, 9, 15);
+
+    @Mock
+    private IOccupancyPredictionService predictionService;
+
+    @Mock
+    private IReferenceDataRegistry referenceDataRegistry;
+
+    @InjectMocks
+    private PredictionMatrixService matrixService;
+
+    @BeforeEach
+    void setUp() {
+        var route = new Route(1L, ROUTE_NAME, List.of(), List.of());
+        var stops = List.of(
+                new Stop(1L, "Central Station", 55.75, 37.61, route, List.of()),
+                new Stop(2L, "Downtown", 55.76, 37.62, route, List.of()),
+                new Stop(3L, "Depot", 55.77, 37.63, route, List.of()));
+        when(referenceDataRegistry.current()).thenReturn(
+                ReferenceDataSnapshot.of(1, 1, List.of(route), stops, List.of(), List.of()));
+        when(predictionService.getDayPredictions(ROUTE_NAME, DATE, true)).thenReturn(List.of(
+                new OccupancyPredictionDTO("Central Station", LocalTime.of(8, 0), 45.04),
+                new OccupancyPredictionDTO("Downtown", LocalTime.of(8, 5), 60.0),
+                new OccupancyPredictionDTO("Central Station", LocalTime.of(9, 0), 300.0)));
+    }
+
+    @Test
+    void testMatrixKeepsEveryStopAndOnlyOccupiedSlots() {
+        var matrix = matrixService.getMatrix(ROUTE_NAME, DATE, true, false);
+
+        assertThat(matrix.getStops()).containsExactly("Central Station", "Downtown", "Depot");
+        assertThat(matrix.getSlotMinutes()).isEqualTo(5);
+        assertThat(matrix.getSlots()).containsExactly(480, 485, 540);
+        assertThat(matrix.getValues()).containsExactly(
+                45.0, null, 300.0,
+                null, 60.0, null,
+                null, null, null);
+        assertThat(matrix.getQuantized()).isNull();
+    }
+
+    @Test
+    void testQuantizedMatrixClampsAndMarksMissingCells() {
+        var matrix = matrixService.getMatrix(ROUTE_NAME, DATE, true, true);
+
+        assertThat(matrix.getValues()).isNull();
+        assertThat(matrix.getQuantizationStep()).isEqualTo(1.0);
+        var cells = new int[matrix.getQuantized().length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = Byte.toUnsignedInt(matrix.getQuantized()[i]);
+        }
+        var missing = PredictionMatrixDTO.QUANTIZED_MISSING;
+        assertThat(cells).containsExactly(
+                45, missing, 254,
+                missing, 60, missing,
+                missing, missing, missing);
+    }
+
+    @Test
+    void testVersionChangesWithTheCells() {
+        var first = matrixService.getMatrix(ROUTE_NAME, DATE, true, false);
+        var same = matrixService.getMatrix(ROUTE_NAME, DATE, true, false);
+        when(predictionService.getDayPredictions(ROUTE_NAME, DATE, true)).thenReturn(List.of(
+                new OccupancyPredictionDTO("Central Station", LocalTime.of(8, 0), 46.0)));
+        var changed = matrixService.getMatrix(ROUTE_NAME, DATE, true, false);
+
+        assertThat(same.getVersion()).isEqualTo(first.getVersion());
+        assertThat(changed.getVersion()).isNotEqualTo(first.getVersion());
+    }
+}
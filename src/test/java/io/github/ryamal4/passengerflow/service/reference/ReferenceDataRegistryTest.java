@@ -0,0 +1,126 @@
+package io.github.ryamal4.passengerflow.service.reference;
+
+import io.github.ryamal4.passengerflow.model.Bus;
+import io.github.ryamal4.passengerflow.model.BusModel;
+import io.github.ryamal4.passengerflow.model.Route;
+import io.github.ryamal4.passengerflow.model.Stop;
+import io.github.ryamal4.passengerflow.repository.IBusModelRepository;
+import io.github.ryamal4.passengerflow.repository.IBusRepository;
+import io.github.ryamal4.passengerflow.repository.IRouteRepository;
+import io.github.ryamal4.passengerflow.repository.IStopsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataRegistryTest {
+    @Mock
+    private IRouteRepository routeRepository;
+
+    @Mock
+    private IStopsRepository stopsRepository;
+
+    @Mock
+    private IBusRepository busRepository;
+
+    @Mock
+    private IBusModelRepository busModelRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReferenceDataRegistry registry;
+    private Route route;
+    private Stop central;
+    private Stop market;
+    private Bus bus;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ReferenceDataRegistry(routeRepository, stopsRepository, busRepository, busModelRepository,
+                transactionManager);
+        route = new Route(7L, "7A", new ArrayList<>(), new ArrayList<>());
+        central = new Stop(20L, "Central", 55.75, 37.61, route, new ArrayList<>());
+        market = new Stop(10L, "Market", 55.76, 37.62, route, new ArrayList<>());
+        var model = BusModel.builder().id(3L).name("Citaro").capacity(90).buses(new ArrayList<>()).build();
+        bus = new Bus(5L, model, route, new ArrayList<>());
+
+        when(routeRepository.findAll()).thenReturn(List.of(route));
+        when(stopsRepository.findAll()).thenReturn(List.of(central, market));
+        when(busRepository.findAll()).thenReturn(List.of(bus));
+        when(busModelRepository.findAll()).thenReturn(List.of(model));
+    }
+
+    @Test
+    void testSnapshotIsLoadedOnceAndIndexedById() {
+        var first = registry.current();
+        var second = registry.current();
+
+        assertThat(second).isSameAs(first);
+        verify(stopsRepository, times(1)).findAll();
+        assertThat(first.getStops()).extracting(ReferenceDataSnapshot.StopRef::id).containsExactly(10L, 20L);
+        assertThat(first.stopOrdinal(20L)).isEqualTo(1);
+        assertThat(first.stopOrdinal(99L)).isEqualTo(-1);
+        assertThat(first.findBus(5L)).get()
+                .extracting(ReferenceDataSnapshot.BusRef::busModelName, ReferenceDataSnapshot.BusRef::routeName)
+                .containsExactly("Citaro", "7A");
+    }
+
+    @Test
+    void testReloadRunsInItsOwnReadWriteRepeatableReadTransaction() {
+        registry.current();
+
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                        && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ
+                        && !definition.isReadOnly()));
+    }
+
+    @Test
+    void testStopsAreResolvedByRouteAndName() {
+        var snapshot = registry.current();
+
+        assertThat(snapshot.findStop("7A", "Central")).get()
+                .extracting(ReferenceDataSnapshot.StopRef::id).isEqualTo(20L);
+        assertThat(snapshot.findStop("7B", "Central")).isEmpty();
+        assertThat(snapshot.getRouteStops("7A")).hasSize(2);
+        assertThat(snapshot.getRouteStops("7B")).isEmpty();
+    }
+
+    @Test
+    void testInvalidateRebuildsNewVersionOnNextRead() {
+        var first = registry.current();
+        var added = new Stop(30L, "Depot", 55.70, 37.60, route, new ArrayList<>());
+        when(stopsRepository.findAll()).thenReturn(List.of(central, market, added));
+
+        registry.invalidate();
+        var second = registry.current();
+
+        assertThat(second.getVersion()).isEqualTo(first.getVersion() + 1);
+        assertThat(second.findStop(30L)).isPresent();
+        assertThat(first.findStop(30L)).isEmpty();
+    }
+
+    @Test
+    void testReloadWithUnchangedContentKeepsVersionAndFingerprint() {
+        var first = registry.current();
+
+        registry.invalidate();
+        var second = registry.current();
+
+        assertThat(second.getVersion()).isEqualTo(first.getVersion());
+        assertThat(second.getFingerprint()).isEqualTo(first.getFingerprint());
+        assertThat(second.getLastModified()).isEqualTo(first.getLastModified());
+        verify(stopsRepository, times(2)).findAll();
+    }
+}
@@ -2,11 +2,14 @@ package io.github.ryamal4.passengerflow.service.report;
 
 import io.github.ryamal4.passengerflow.dto.OccupancyPredictionDTO;
 import io.github.ryamal4.passengerflow.service.prediction.IOccupancyPredictionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thymeleaf.TemplateEngine;
 
 import java.time.LocalTime;
@@ -26,9 +29,16 @@ class HeatmapReportServiceTest {
     @Mock
     private TemplateEngine templateEngine;
 
-    @InjectMocks
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private HeatmapReportService reportService;
 
+    @BeforeEach
+    void setUp() {
+        reportService = new HeatmapReportService(new HeatmapReportDataLoader(predictionService), templateEngine,
+                meterRegistry);
+    }
+
     @Test
     void testPrepareReportDataReturnsCorrectStructure() {
         var predictions = List.of(
@@ -71,6 +81,21 @@ class HeatmapReportServiceTest {
         assertThat(result.getHeatmapData()).isEmpty();
     }
 
+    @Test
+    void testGenerateExcelReportRecordsRenderMetrics() {
+        ReflectionTestUtils.setField(reportService, "maxConcurrentRenders", 1);
+        reportService.init();
+        when(predictionService.getTodayPredictions(ROUTE_NAME, false))
+                .thenReturn(List.of(createPrediction("Stop A", 8, 45.0)));
+
+        var report = reportService.generateExcelReport(ROUTE_NAME, false);
+
+        var size = meterRegistry.get("passengerflow.report.size").tag("format", "xlsx").summary();
+        assertThat(size.totalAmount()).isEqualTo(report.length);
+        assertThat(meterRegistry.get("passengerflow.report.render").tag("format", "xlsx").timer().count())
+                .isEqualTo(1);
+    }
+
     @Test
     void testOccupancyColorHelperReturnsGrayForNull() {
         var helper = new HeatmapReportService.OccupancyColorHelper();
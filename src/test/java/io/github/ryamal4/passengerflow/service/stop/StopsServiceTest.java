@@ -4,6 +4,8 @@ import io.github.ryamal4.passengerflow.dto.StopDTO;
 import io.github.ryamal4.passengerflow.model.Route;
 import io.github.ryamal4.passengerflow.model.Stop;
 import io.github.ryamal4.passengerflow.repository.IStopsRepository;
+import io.github.ryamal4.passengerflow.service.reference.IReferenceDataRegistry;
+import io.github.ryamal4.passengerflow.service.reference.ReferenceDataSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,10 +14,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,12 +31,16 @@ class StopsServiceTest {
     @Mock
     private IStopsRepository stopsRepository;
 
+    @Mock
+    private IReferenceDataRegistry referenceDataRegistry;
+
     @InjectMocks
     private StopsService stopsService;
 
     private Stop stop1;
     private Stop stop2;
     private Stop stop3;
+    private ReferenceDataSnapshot referenceData;
 
     @BeforeEach
     void setUp() {
@@ -41,6 +49,7 @@ class StopsServiceTest {
         stop1 = createStop(1L, "Stop 1", 0.1, 0.1, route);
         stop2 = createStop(2L, "Stop 2", 0.2, 0.2, route);
         stop3 = createStop(3L, "Stop 3", 0.3, 0.3, route);
+        referenceData = ReferenceDataSnapshot.of(1, 1, List.of(route), List.of(stop3, stop1, stop2), List.of(), List.of());
     }
 
     @Test
@@ -53,6 +62,7 @@ class StopsServiceTest {
     @Test
     void testGetNearbyStopsReturnsDataFromRepository() {
         var stops = List.of(stop1, stop2, stop3);
+        when(referenceDataRegistry.current()).thenReturn(referenceData);
         when(stopsRepository.findNearbyStops(TEST_LAT, TEST_LON, LIMIT)).thenReturn(stops);
 
         var result = stopsService.getNearbyStops(TEST_LAT, TEST_LON);
@@ -84,19 +94,27 @@ class StopsServiceTest {
     }
 
     @Test
-    void testGetAllStopsSuccess() {
-        var stops = List.of(stop1, stop2, stop3);
-        when(stopsRepository.findAll()).thenReturn(stops);
-
-        var result = stopsService.getAllStops();
+    void testGetAllStopsComesFromReferenceDataInIdOrder() {
+        var result = stopsService.getAllStops(referenceData);
 
-        verify(stopsRepository).findAll();
+        verifyNoInteractions(stopsRepository);
         assertThat(result).hasSize(3);
         assertDtoIsCorrect(result.get(0), stop1);
         assertDtoIsCorrect(result.get(1), stop2);
         assertDtoIsCorrect(result.get(2), stop3);
     }
 
+    @Test
+    void testGetAllStopsColumnarSharesRouteNames() {
+        var result = stopsService.getAllStopsColumnar(referenceData);
+
+        assertThat(result.getId()).containsExactly(1L, 2L, 3L);
+        assertThat(result.getName()).containsExactly("Stop 1", "Stop 2", "Stop 3");
+        assertThat(result.getLat()).containsExactly(0.1, 0.2, 0.3);
+        assertThat(result.getRouteId()).containsExactly(1L, 1L, 1L);
+        assertThat(result.getRouteNames()).containsExactly(Map.entry(1L, "Test Route"));
+    }
+
     private Route createRoute() {
         var route = new Route();
         route.setId(1L);
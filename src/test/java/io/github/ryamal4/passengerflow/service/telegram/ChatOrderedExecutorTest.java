@@ -0,0 +1,82 @@
+package io.github.ryamal4.passengerflow.service.telegram;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatOrderedExecutorTest {
+    private final ChatOrderedExecutor executor = new ChatOrderedExecutor(4, 1000, "test-update-");
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testTasksForSameChatRunInSubmissionOrder() throws InterruptedException {
+        var processed = Collections.synchronizedList(new ArrayList<Integer>());
+        var done = new CountDownLatch(500);
+
+        for (int i = 0; i < 500; i++) {
+            var value = i;
+            executor.execute(7L, () -> {
+                processed.add(value);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(processed).isSorted().hasSize(500);
+    }
+
+    @Test
+    void testSlowChatDoesNotBlockOtherStripes() throws InterruptedException {
+        var slowChat = 1L;
+        var fastChat = findChatOnDifferentStripe(slowChat);
+        var release = new CountDownLatch(1);
+        var fastDone = new CountDownLatch(1);
+
+        executor.execute(slowChat, () -> awaitQuietly(release));
+        executor.execute(fastChat, fastDone::countDown);
+
+        assertThat(fastDone.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void testFailingTaskDoesNotStopLaterTasks() throws InterruptedException {
+        var done = new CountDownLatch(1);
+
+        executor.execute(3L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.execute(3L, done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private long findChatOnDifferentStripe(long chatId) {
+        var stripe = executor.stripeFor(chatId);
+        for (long candidate : List.of(2L, 3L, 4L, 5L)) {
+            if (executor.stripeFor(candidate) != stripe) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No chat on a different stripe");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
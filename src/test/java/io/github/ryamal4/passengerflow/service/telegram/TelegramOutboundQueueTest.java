@@ -0,0 +1,113 @@
+package io.github.ryamal4.passengerflow.service.telegram;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TelegramOutboundQueueTest {
+    private static final long CHAT_ID = 42L;
+    private static final long TIMEOUT_MS = 2000;
+
+    @Mock
+    private TelegramClient telegramClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TelegramOutboundQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new TelegramOutboundQueue(telegramClient, meterRegistry, 1, 100, 3, 10, 100, 100, 10);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.stop();
+    }
+
+    @Test
+    void testMessagesToSameChatAreSentInOrder() throws TelegramApiException {
+        queue.enqueue(CHAT_ID, "first");
+        queue.enqueue(CHAT_ID, "second");
+        queue.start();
+
+        var captor = ArgumentCaptor.forClass(SendMessage.class);
+        verify(telegramClient, timeout(TIMEOUT_MS).times(2)).execute(captor.capture());
+        assertThat(captor.getAllValues()).extracting(SendMessage::getText).containsExactly("first", "second");
+    }
+
+    @Test
+    void testRepeatedNotificationsWithSameKeyAreCoalesced() throws TelegramApiException {
+        queue.enqueue(CHAT_ID, "login 1", "login:1");
+        queue.enqueue(CHAT_ID, "login 2", "login:1");
+        queue.enqueue(CHAT_ID, "login 3", "login:1");
+        assertThat(queue.getQueueDepth()).isEqualTo(1);
+        queue.start();
+
+        var captor = ArgumentCaptor.forClass(SendMessage.class);
+        verify(telegramClient, timeout(TIMEOUT_MS)).execute(captor.capture());
+        assertThat(captor.getValue().getText()).isEqualTo(BotMessages.coalesced("login 3", 2));
+        assertThat(meterRegistry.get("telegram.outbound.messages").tag("result", "coalesced").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void testServerErrorIsRetried() throws TelegramApiException {
+        var error = new TelegramApiRequestException("Bad Gateway");
+        error.setErrorCode(502);
+        when(telegramClient.execute(any(SendMessage.class))).thenThrow(error).thenReturn(null);
+
+        queue.enqueue(CHAT_ID, "hello");
+        queue.start();
+
+        verify(telegramClient, timeout(TIMEOUT_MS).times(2)).execute(any(SendMessage.class));
+        verifyCounter("sent", 1.0);
+        verifyCounter("retried", 1.0);
+    }
+
+    @Test
+    void testClientErrorIsDroppedWithoutRetry() throws TelegramApiException {
+        var error = new TelegramApiRequestException("Forbidden: bot was blocked by the user");
+        error.setErrorCode(403);
+        when(telegramClient.execute(any(SendMessage.class))).thenThrow(error);
+
+        queue.enqueue(CHAT_ID, "hello");
+        queue.enqueue(CHAT_ID, "world");
+        queue.start();
+
+        verify(telegramClient, timeout(TIMEOUT_MS).times(2)).execute(any(SendMessage.class));
+        verifyCounter("dropped", 2.0);
+        verifyCounter("retried", 0.0);
+    }
+
+    @Test
+    void testQueueDepthGaugeTracksPendingMessages() {
+        queue.enqueue(CHAT_ID, "first");
+        queue.enqueue(CHAT_ID + 1, "second");
+
+        assertThat(meterRegistry.get("telegram.outbound.queue.depth").gauge().value()).isEqualTo(2.0);
+    }
+
+    private void verifyCounter(String result, double expected) {
+        var counter = meterRegistry.get("telegram.outbound.messages").tag("result", result).counter();
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (counter.count() != expected && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(counter.count()).isEqualTo(expected);
+    }
+}
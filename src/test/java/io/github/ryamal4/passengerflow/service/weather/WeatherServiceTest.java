@@ -8,9 +8,11 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.TimeZone;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -67,6 +69,35 @@ class WeatherServiceTest {
         assertThat(result).isFalse();
     }
 
+    @Test
+    void testGetForecastIndexesHoursAcrossTheWindow() {
+        var today = LocalDate.now(TIMEZONE.toZoneId());
+        var weatherCodes = new ArrayList<>(Collections.nCopies(IWeatherService.FORECAST_DAYS * 24, 0));
+        weatherCodes.set(2 * 24 + 17, RAINY_WEATHER_CODE);
+        weatherCodes.set(2 * 24 + 18, null);
+        when(weatherDataFetcher.fetchForecast(52.52, 13.41, today, IWeatherService.FORECAST_DAYS, TIMEZONE))
+                .thenReturn(new WeatherResponseDto(new HourlyDataDto(weatherCodes)));
+
+        var forecast = weatherService.getForecast(52.5213, 13.4088, TIMEZONE);
+
+        assertThat(forecast.getHourCount()).isEqualTo(IWeatherService.FORECAST_DAYS * 24);
+        assertThat(forecast.isRaining(today.plusDays(2).atTime(17, 45))).isTrue();
+        assertThat(forecast.isRaining(today.plusDays(2).atTime(18, 0))).isFalse();
+        assertThat(forecast.isRaining(today.plusDays(1).atTime(17, 45))).isFalse();
+        assertThat(forecast.isRaining(today.plusDays(IWeatherService.FORECAST_DAYS).atTime(17, 0))).isFalse();
+    }
+
+    @Test
+    void testGetForecastIsDryWhenResponseIsNull() {
+        when(weatherDataFetcher.fetchForecast(52.52, 13.41, LocalDate.now(TIMEZONE.toZoneId()),
+                IWeatherService.FORECAST_DAYS, TIMEZONE)).thenReturn(null);
+
+        var forecast = weatherService.getForecast(LATITUDE, LONGITUDE, TIMEZONE);
+
+        assertThat(forecast.getHourCount()).isZero();
+        assertThat(forecast.isRaining(TEST_DATE_TIME)).isFalse();
+    }
+
     private WeatherResponseDto createMockWeatherResponseForHour(int hour, int weatherCode) {
         var weatherCodes = new ArrayList<>(
                 Arrays.asList(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0)